@@ -31,6 +31,7 @@ public class MealHandler {
         GET_MEAL_BY_ID,
         ADD_MEAL_TO_SEARCH_LIST,
         ADD_MEALS_TO_SEARCH_LIST,
+        REPLACE_MEALS_IN_SEARCH_LIST,
         ERROR
     };
 
@@ -232,6 +233,15 @@ public class MealHandler {
                         }
                         break;
 
+                    case REPLACE_MEALS_IN_SEARCH_LIST:
+                        // expects all SearchMealItems read from the server, items not in the list are no longer searched
+                        if (Preconditions.isNotNull(payload) && payload instanceof ArrayList) {
+                            if (App.getClient() != null) {
+                                App.getClient().getSearchMeals().replaceItems((ArrayList<SearchMealItem>) payload);
+                            }
+                        }
+                        break;
+
                     default:
                         Log.e("handleActionSuccess", "Action not implemented yet");
 
@@ -11,6 +11,8 @@ import com.example.mealer_project.data.models.orders.OrderItem;
 import com.example.mealer_project.ui.core.StatefulView;
 import com.example.mealer_project.utils.Preconditions;
 import com.example.mealer_project.utils.Utilities;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class OrderHandler {
@@ -23,11 +25,17 @@ public class OrderHandler {
         LOAD_CHEF_ORDERS,
         LOAD_CLIENT_ORDERS,
         RATE_CHEF,
+        ORDER_ADDED,
+        ORDER_CHANGED,
+        ORDER_REMOVED,
         ERROR
     }
 
     private StatefulView uiScreen;
 
+    // screens showing the logged in chef's orders, which are sent each change and load of the orders while they are visible
+    private final List<StatefulView> orderObservers = new ArrayList<>();
+
     /**
      * Using the Dispatch-Action Pattern to handle actions dispatched to Meal Handler
      * @param operationType one of the specified DB operations handled by MealHandler
@@ -116,6 +124,11 @@ public class OrderHandler {
      * @param payload data for making changes locally
      */
     public void handleActionSuccess(OrderHandler.dbOperations operationType, Object payload) {
+        // orders are loaded at login, not for the last screen which dispatched an action: inform the screens showing them
+        if (operationType == dbOperations.LOAD_CHEF_ORDERS || operationType == dbOperations.LOAD_CLIENT_ORDERS) {
+            notifyOrderObservers(operationType, payload);
+            return;
+        }
         // ensure we have a valid uiScreen to inform of success
         if(Preconditions.isNotNull(uiScreen)) {
 
@@ -189,25 +202,6 @@ public class OrderHandler {
                         }
                         break;
 
-                    case LOAD_CHEF_ORDERS:
-                        if (Preconditions.isNotNull(payload) && payload instanceof String) {
-
-                            uiScreen.dbOperationSuccessHandler(operationType, "Loading chef meals was a success!");
-                        }
-                        else {
-                            handleActionFailure( operationType, "Invalid String object provided");
-                        }
-                        break;
-
-                    case LOAD_CLIENT_ORDERS:
-                        if (Preconditions.isNotNull(payload) && payload instanceof String) {
-                            uiScreen.dbOperationSuccessHandler(operationType, "Loading client meals was a success!");
-                        }
-                        else {
-                            handleActionFailure( operationType, "Invalid String object provided");
-                        }
-                        break;
-
                 }
             }
             catch (Exception e) { //error-handling
@@ -227,6 +221,14 @@ public class OrderHandler {
      * @param message a descriptive error message for the developers and analyst (not for client or chef)
      */
     public void handleActionFailure(OrderHandler.dbOperations operationType, String message) {
+        // like their success, failures to load orders go to the screens showing them
+        if (operationType == dbOperations.LOAD_CHEF_ORDERS || operationType == dbOperations.LOAD_CLIENT_ORDERS) {
+            Log.e("loadOrders", message);
+            for (StatefulView observer : new ArrayList<>(orderObservers)) {
+                observer.dbOperationFailureHandler(operationType, "Failed to load orders!");
+            }
+            return;
+        }
         // ensure we have a valid uiScreen to inform of failure
         if(Preconditions.isNotNull(uiScreen)) {
 
@@ -255,16 +257,6 @@ public class OrderHandler {
                     userMessage = "Failed to get order!";
                     break;
 
-                case LOAD_CHEF_ORDERS:
-                    tag = "errorLoadingChefOrder";
-                    userMessage = "Failed to loads chef's orders!";
-                    break;
-
-                case LOAD_CLIENT_ORDERS:
-                    tag = "errorLoadingClientOrderOrder";
-                    userMessage = "Failed to load!";
-                    break;
-
                 default:
                     Log.e("handleActionSuccess", "Action not implemented yet");
 
@@ -282,6 +274,83 @@ public class OrderHandler {
 
 
 
+    /**
+     * Send the changes of the logged in chef's orders to a screen, until stopObservingChefOrders is called
+     * The orders are listened to while at least one screen observes them
+     * @param uiScreen screen showing the orders, which should observe them from onStart to onStop
+     */
+    public void observeChefOrders(StatefulView uiScreen) {
+        if (App.getChef() == null || !Preconditions.isNotNull(uiScreen) || orderObservers.contains(uiScreen)) {
+            return;
+        }
+        orderObservers.add(uiScreen);
+        // listener is attached again if it was stopped by an error
+        App.getPrimaryDatabase().ORDERS.listenToChefOrders(App.getChef().getUserId());
+    }
+
+    /**
+     * Stop sending the changes of the chef's orders to a screen, and stop listening to them if no screen is left
+     * @param uiScreen screen which observed the orders
+     */
+    public void stopObservingChefOrders(StatefulView uiScreen) {
+        if (orderObservers.remove(uiScreen) && orderObservers.isEmpty()) {
+            App.getPrimaryDatabase().ORDERS.stopListeningToChefOrders();
+        }
+    }
+
+    /**
+     * Method which is called when an order of the logged in chef changed in the database, to update it locally
+     * Observing screens are informed only if the local orders changed
+     * @param operationType ORDER_ADDED or ORDER_CHANGED with the order, ORDER_REMOVED with the order id
+     * @param payload order, or order id
+     */
+    public void handleOrderChange(OrderHandler.dbOperations operationType, Object payload) {
+        Chef chef = App.getChef();
+        if (chef == null) {
+            return;
+        }
+        switch (operationType) {
+            case ORDER_ADDED:
+            case ORDER_CHANGED:
+                if (Preconditions.isNotNull(payload) && payload instanceof Order) {
+                    Order order = (Order) payload;
+                    // an order added to the listener can already be loaded locally
+                    boolean isNewOrder = !chef.ORDERS.getOrder(order.getOrderID()).isSuccess();
+                    if (chef.ORDERS.putOrder(order)) {
+                        notifyOrderObservers(isNewOrder ? dbOperations.ORDER_ADDED : dbOperations.ORDER_CHANGED, order);
+                    }
+                }
+                break;
+
+            case ORDER_REMOVED:
+                if (Preconditions.isNotNull(payload) && payload instanceof String && chef.ORDERS.removeOrder((String) payload).isSuccess()) {
+                    notifyOrderObservers(operationType, payload);
+                }
+                break;
+
+            default:
+                Log.e("handleOrderChange", "Not an order change: " + operationType);
+        }
+    }
+
+    /**
+     * Method which is called when the chef's orders can no longer be listened to
+     * @param message a descriptive error message for the developers and analyst
+     */
+    public void handleOrderChangeFailure(String message) {
+        Log.e("handleOrderChange", message);
+        for (StatefulView observer : new ArrayList<>(orderObservers)) {
+            observer.dbOperationFailureHandler(dbOperations.ORDER_CHANGED, "Failed to update orders!");
+        }
+    }
+
+    private void notifyOrderObservers(OrderHandler.dbOperations operationType, Object payload) {
+        // copy, an observer may stop observing while being notified
+        for (StatefulView observer : new ArrayList<>(orderObservers)) {
+            observer.dbOperationSuccessHandler(operationType, payload);
+        }
+    }
+
     public void updateChefRating(String orderId, String chefId, Double newRating, StatefulView uiScreen){
         this.uiScreen = uiScreen;
 
@@ -9,9 +9,12 @@ import com.example.mealer_project.utils.Result;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class Orders implements Comparator<Order> {
     private Map<String, Order> orders;
@@ -41,6 +44,51 @@ public class Orders implements Comparator<Order> {
         }
     }
 
+    /**
+     * Add an order, or update the status of the order with the same ID (ex: an order changed in the database)
+     * @param order order to add or update
+     * @return true if the order was added or its status changed, false if the order is invalid or unchanged
+     */
+    public boolean putOrder(@NonNull Order order) {
+        // guard-clause
+        if (!Preconditions.isNotEmptyString(order.getOrderID())) {
+            return false;
+        }
+        Order currentOrder = this.orders.get(order.getOrderID());
+        if (currentOrder == null) {
+            this.orders.put(order.getOrderID(), order);
+            return true;
+        }
+        if (currentOrder.getIsPending() == order.getIsPending() && currentOrder.getIsRejected() == order.getIsRejected()
+                && currentOrder.getIsCompleted() == order.getIsCompleted() && currentOrder.isRated() == order.isRated()
+                && currentOrder.getRating() == order.getRating() && currentOrder.isComplaintSubmitted() == order.isComplaintSubmitted()) {
+            return false;
+        }
+        // update the current instance, screens may hold it
+        currentOrder.setIsPending(order.getIsPending());
+        currentOrder.setIsRejected(order.getIsRejected());
+        currentOrder.setIsCompleted(order.getIsCompleted());
+        currentOrder.setIsRated(order.isRated());
+        currentOrder.setRating(order.getRating());
+        currentOrder.setComplaintSubmitted(order.isComplaintSubmitted());
+        return true;
+    }
+
+    /**
+     * Put a page of orders loaded together, in one operation, adding new orders and updating the others
+     * @param newOrders orders to put
+     * @return number of orders added or changed
+     */
+    public int putOrders(@NonNull List<Order> newOrders) {
+        int changed = 0;
+        for (Order newOrder : newOrders) {
+            if (putOrder(newOrder)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
     public Result<Order, String> getOrder(@NonNull String orderID) {
         // guard-clause
         if (Preconditions.isNotEmptyString(orderID)) {
@@ -165,6 +213,33 @@ public class Orders implements Comparator<Order> {
         return completedList;
     };
 
+    /**
+     * Remove the orders which are not in a set of orders read together (ex: orders deleted in the database)
+     * Orders placed after the newest order of the set are kept, they were added after the set was read
+     * @param orderIds ids of the orders to keep
+     * @return number of orders removed
+     */
+    public int retainOrders(@NonNull Set<String> orderIds) {
+        Date newestDate = null;
+        for (String orderId : orderIds) {
+            Order order = this.orders.get(orderId);
+            if (order != null && order.getOrderDate() != null && (newestDate == null || order.getOrderDate().after(newestDate))) {
+                newestDate = order.getOrderDate();
+            }
+        }
+        int removed = 0;
+        Iterator<Order> iterator = this.orders.values().iterator();
+        while (iterator.hasNext()) {
+            Order order = iterator.next();
+            boolean placedLater = newestDate != null && order.getOrderDate() != null && order.getOrderDate().after(newestDate);
+            if (!placedLater && !orderIds.contains(order.getOrderID())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
     public Response removeOrder(@NonNull String orderId) {
         // guard-clause
         if (Preconditions.isNotEmptyString(orderId)) {
@@ -1,8 +1,12 @@
 package com.example.mealer_project.data.models.meals;
 
 import com.example.mealer_project.data.entity_models.MealEntityModel;
+import com.example.mealer_project.utils.TrieSearch.TermDictionary;
 import com.example.mealer_project.utils.Utilities;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,8 +27,9 @@ public class Meal implements Serializable {
     private String description;
     private boolean offered;
     private double price;
-    // store a list of searchable keywords for the meal
-    private List<String> keywords;
+    // ids of the searchable keywords of the meal in the shared TermDictionary, null if keywords are not set
+    // ids are only valid while the app runs, so keywords are serialized as strings (see writeObject)
+    private transient int[] keywordIds;
 
     /**
      * Create an instance of an existing meal with a mealID from FireBase
@@ -379,7 +384,7 @@ public class Meal implements Serializable {
      * @return list of keywords
      */
     public List<String> getKeywords() {
-        return keywords;
+        return keywordIds != null ? TermDictionary.getInstance().getTerms(keywordIds) : null;
     }
 
     /**
@@ -387,7 +392,34 @@ public class Meal implements Serializable {
      * @param keywords list of keywords
      */
     public void setKeywords(List<String> keywords) {
-        this.keywords = keywords;
+        this.keywordIds = keywords != null ? TermDictionary.getInstance().getOrAddIds(keywords) : null;
+    }
+
+    /**
+     * Get ids of the keywords of the meal in the shared TermDictionary
+     * @return array of term ids, null if keywords are not set
+     */
+    public int[] getKeywordIds() {
+        return keywordIds;
+    }
+
+    /**
+     * Set the keywords of the meal by their ids in the shared TermDictionary
+     * @param keywordIds array of term ids, null to clear the keywords
+     */
+    public void setKeywordIds(int[] keywordIds) {
+        this.keywordIds = keywordIds;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(keywordIds != null ? new ArrayList<>(getKeywords()) : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        setKeywords((List<String>) in.readObject());
     }
 
     public List<String> getSearchMealItemKeywords(String chefName, String chefAddress) {
@@ -7,6 +7,7 @@ public abstract class FirebaseCollections {
     public final static String ADMIN_COLLECTION = "Admin";
     public final static String MEALS_COLLECTION = "Meals";
     public final static String MEALS_COLLECTION_CHEF_KEY = "chef";
+    public final static String MEALS_COLLECTION_MIGRATED_KEY = "mealsMigrated";
     public final static String ORDER_COLLECTION = "Orders";
     public final static String CHEF_ORDERS_COLLECTION = "orders";
     public final static String CLIENT_ORDERS_COLLECTION = "orders";
@@ -15,14 +15,16 @@ public class FirebaseRepository {
     public InboxActions INBOX;
     public MealActions MEALS;
     public OrderActions ORDERS;
+    // reads shared by the actions, following a read policy and timing each read
+    public final FirestoreReads READS = new FirestoreReads();
 
     public FirebaseRepository(FirebaseAuth mAuth) {
         FirebaseFirestore db = FirebaseFirestore.getInstance();
-        this.USER = new UserActions(db);
+        this.USER = new UserActions(db, READS);
         this.AUTH = new AuthActions(mAuth, db, this);
         this.INBOX = new InboxActions(db, this);
-        this.MEALS = new MealActions(db);
-        this.ORDERS = new OrderActions(db);
+        this.MEALS = new MealActions(db, READS);
+        this.ORDERS = new OrderActions(db, READS);
     }
 
 }
\ No newline at end of file
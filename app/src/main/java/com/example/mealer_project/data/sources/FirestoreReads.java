@@ -0,0 +1,234 @@
+package com.example.mealer_project.data.sources;
+
+import static com.example.mealer_project.data.sources.FirebaseCollections.*;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.mealer_project.data.sources.ReadMetrics.ReadSource;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads from Firestore following a ReadPolicy, so screens can show cached data right away and be refreshed in place
+ * when the data from the server arrives. Every read is timed, latencies are kept per source (cache or server) in
+ * ReadMetrics and logged every LOG_INTERVAL reads
+ */
+public class FirestoreReads {
+
+    /**
+     * Reads the data of an action from a given source, with as many Firestore reads as needed
+     * Must read from the given source only, so cached data is never mistaken for data from the server
+     */
+    public interface Loader<T> {
+        Task<T> load(Source source);
+    }
+
+    /**
+     * Receives the data of a read, with CACHE_THEN_SERVER and STALE_WHILE_REVALIDATE the cached data can be followed
+     * by the data from the server
+     */
+    public interface ResultListener<T> {
+        /**
+         * @param result data read
+         * @param fromServer true if the data is from the server and replaces any cached data received before, false
+         *                   if the data is from the cache and may be incomplete or outdated
+         */
+        void onResult(T result, boolean fromServer);
+    }
+
+    // name of the shared preferences storing the time of the last server read of each read key
+    public static final String SERVER_READ_TIMES_PREFERENCES = "firestore_server_reads";
+
+    // max age of cached data before stale-while-revalidate reads it again from the server, for collections not listed
+    private static final long DEFAULT_MAX_AGE_MILLIS = 60 * 1000;
+    // reads between two logs of the latencies
+    private static final int LOG_INTERVAL = 50;
+
+    private final ReadMetrics metrics = new ReadMetrics();
+    // max age of cached data of each collection, in milliseconds
+    private final Map<String, Long> maxAges = new HashMap<>();
+    // time of the last server read of each read key, in milliseconds (guarded by itself)
+    private final Map<String, Long> serverReadTimes = new HashMap<>();
+    // stores the server read times so they are known after a cold start, null until set (guarded by serverReadTimes)
+    private SharedPreferences serverReadTimesStorage;
+    // number of reads timed (guarded by metrics)
+    private int readCount;
+
+    public FirestoreReads() {
+        // meals and chefs change rarely, orders and complaints are followed closely
+        setMaxAge(MEALS_COLLECTION, 5 * 60 * 1000);
+        setMaxAge(CHEF_COLLECTION, 10 * 60 * 1000);
+        setMaxAge(CLIENT_COLLECTION, 10 * 60 * 1000);
+        setMaxAge(ORDER_COLLECTION, 30 * 1000);
+    }
+
+    /**
+     * Set how long cached data of a collection is fresh for stale-while-revalidate reads
+     * @param collection name of the collection
+     * @param maxAgeMillis max age, in milliseconds
+     */
+    public void setMaxAge(String collection, long maxAgeMillis) {
+        if (maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Invalid max age: " + maxAgeMillis);
+        }
+        synchronized (maxAges) {
+            maxAges.put(collection, maxAgeMillis);
+        }
+    }
+
+    /**
+     * Store the time of the server reads in shared preferences, and restore the times stored by a previous session
+     * Without it every read key is stale after a cold start, even if the cached data was read from the server just before
+     * The first preferences set are kept, setting preferences again does nothing
+     * @param preferences preferences of the app, see SERVER_READ_TIMES_PREFERENCES
+     */
+    public void setServerReadTimesStorage(SharedPreferences preferences) {
+        synchronized (serverReadTimes) {
+            if (serverReadTimesStorage != null) {
+                return;
+            }
+            serverReadTimesStorage = preferences;
+            for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                // keep the reads of this session, they are more recent
+                if (entry.getValue() instanceof Long && !serverReadTimes.containsKey(entry.getKey())) {
+                    serverReadTimes.put(entry.getKey(), (Long) entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the latencies of the reads
+     * @return latency metrics of cache and server reads
+     */
+    public ReadMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Read data following a policy
+     * With CACHE_THEN_SERVER and STALE_WHILE_REVALIDATE, onResult can be called twice: with the cached data, then
+     * with the data from the server, which replaces the cached data. onFailure is only called if no data could be read
+     * at all
+     * @param collection collection the data is read from, to get its max age
+     * @param key identifies the data (ex: "Orders/chef/{chefId}"), to know when it was last read from the server
+     * @param policy where the data is read from
+     * @param loader reads the data from a source
+     * @param onResult receives the data
+     * @param onFailure receives the error if no data could be read
+     */
+    public <T> void read(String collection, String key, ReadPolicy policy, Loader<T> loader, ResultListener<T> onResult, OnFailureListener onFailure) {
+        switch (policy) {
+            case CACHE_ONLY:
+                loader.load(Source.CACHE).addOnSuccessListener(result -> onResult.onResult(result, false)).addOnFailureListener(onFailure);
+                break;
+
+            case SERVER_ONLY:
+                loadFromServer(key, loader).addOnSuccessListener(result -> onResult.onResult(result, true)).addOnFailureListener(onFailure);
+                break;
+
+            case CACHE_THEN_SERVER:
+                readCacheThenServer(key, loader, onResult, onFailure, true);
+                break;
+
+            case STALE_WHILE_REVALIDATE:
+                readCacheThenServer(key, loader, onResult, onFailure, isStale(collection, key));
+                break;
+        }
+    }
+
+    private <T> void readCacheThenServer(String key, Loader<T> loader, ResultListener<T> onResult, OnFailureListener onFailure, boolean revalidate) {
+        loader.load(Source.CACHE).addOnCompleteListener(cacheTask -> {
+            // data not cached fails the task
+            boolean cached = cacheTask.isSuccessful();
+            if (cached) {
+                onResult.onResult(cacheTask.getResult(), false);
+                if (!revalidate) {
+                    return;
+                }
+            }
+            loadFromServer(key, loader)
+                    .addOnSuccessListener(result -> onResult.onResult(result, true))
+                    .addOnFailureListener(e -> {
+                        if (cached) {
+                            // keep showing the cached data
+                            Log.e("readCacheThenServer", "Failed to refresh " + key + " from server: " + e.getMessage());
+                        } else {
+                            onFailure.onFailure(e);
+                        }
+                    });
+        });
+    }
+
+    private <T> Task<T> loadFromServer(String key, Loader<T> loader) {
+        long requestTime = System.currentTimeMillis();
+        return loader.load(Source.SERVER).addOnSuccessListener(result -> {
+            synchronized (serverReadTimes) {
+                serverReadTimes.put(key, requestTime);
+                if (serverReadTimesStorage != null) {
+                    serverReadTimesStorage.edit().putLong(key, requestTime).apply();
+                }
+            }
+        });
+    }
+
+    /**
+     * Check if data must be read again from the server
+     * @return true if the data was never read from the server, or longer than the max age of its collection ago
+     */
+    private boolean isStale(String collection, String key) {
+        long maxAge;
+        synchronized (maxAges) {
+            Long collectionMaxAge = maxAges.get(collection);
+            maxAge = collectionMaxAge != null ? collectionMaxAge : DEFAULT_MAX_AGE_MILLIS;
+        }
+        Long serverReadTime;
+        synchronized (serverReadTimes) {
+            serverReadTime = serverReadTimes.get(key);
+        }
+        return serverReadTime == null || System.currentTimeMillis() - serverReadTime > maxAge;
+    }
+
+    /**
+     * Get a document from a source, timing the read
+     * @param document document to read
+     * @param source where to read the document from
+     * @return task with the document
+     */
+    public Task<DocumentSnapshot> get(DocumentReference document, Source source) {
+        long start = System.nanoTime();
+        return document.get(source).addOnSuccessListener(snapshot -> record(snapshot.getMetadata().isFromCache(), start));
+    }
+
+    /**
+     * Get the result of a query from a source, timing the read
+     * @param query query to run
+     * @param source where to read the result from
+     * @return task with the result
+     */
+    public Task<QuerySnapshot> get(Query query, Source source) {
+        long start = System.nanoTime();
+        return query.get(source).addOnSuccessListener(snapshot -> record(snapshot.getMetadata().isFromCache(), start));
+    }
+
+    private void record(boolean fromCache, long start) {
+        long latency = System.nanoTime() - start;
+        boolean log;
+        synchronized (metrics) {
+            metrics.record(fromCache ? ReadSource.CACHE : ReadSource.SERVER, latency);
+            log = ++readCount % LOG_INTERVAL == 0;
+        }
+        if (log) {
+            Log.d("readMetrics", metrics.toString());
+        }
+    }
+}
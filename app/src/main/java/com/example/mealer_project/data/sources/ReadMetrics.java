@@ -0,0 +1,82 @@
+package com.example.mealer_project.data.sources;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latency of the recent reads answered by the local cache and by the server
+ * Keeps the last SAMPLES latencies of each source, percentiles are computed from them
+ */
+public class ReadMetrics {
+
+    public enum ReadSource {
+        CACHE,
+        SERVER
+    }
+
+    // latencies kept for each source
+    static final int SAMPLES = 256;
+
+    // latencies of each source in nanoseconds, oldest overwritten first (guarded by this)
+    private final long[][] latencies = new long[ReadSource.values().length][SAMPLES];
+    // number of reads recorded for each source (guarded by this)
+    private final long[] counts = new long[ReadSource.values().length];
+
+    /**
+     * Record the latency of a read
+     * @param source where the read was answered from
+     * @param latencyNanos time from the request to the result, in nanoseconds
+     */
+    public synchronized void record(ReadSource source, long latencyNanos) {
+        int index = source.ordinal();
+        latencies[index][(int) (counts[index] % SAMPLES)] = latencyNanos;
+        counts[index]++;
+    }
+
+    /**
+     * Get the number of reads recorded
+     * @param source where the reads were answered from
+     * @return number of reads, including those no longer kept
+     */
+    public synchronized long getCount(ReadSource source) {
+        return counts[source.ordinal()];
+    }
+
+    /**
+     * Get a percentile of the latency of the recent reads, with the nearest rank method
+     * @param source where the reads were answered from
+     * @param percentile percentile, from 1 to 100 (ex: 50 for the median)
+     * @return latency in milliseconds, 0 if no read was recorded
+     */
+    public synchronized double getPercentileMillis(ReadSource source, int percentile) {
+        if (percentile < 1 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        int index = source.ordinal();
+        int size = (int) Math.min(counts[index], SAMPLES);
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies[index], size);
+        Arrays.sort(sorted);
+        // smallest latency which at least percentile % of the reads do not exceed
+        int rank = (int) Math.ceil(percentile / 100.0 * size);
+        return sorted[rank - 1] / 1e6;
+    }
+
+    /**
+     * Summary of the latencies, ex: "cache p50 2.1 ms p95 6.0 ms (40 reads), server p50 ..."
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (ReadSource source : ReadSource.values()) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(String.format(Locale.US, "%s p50 %.1f ms p95 %.1f ms (%d reads)", source.name().toLowerCase(Locale.US),
+                    getPercentileMillis(source, 50), getPercentileMillis(source, 95), getCount(source)));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.mealer_project.data.sources;
+
+/**
+ * Where a read is answered from: the local Firestore cache, the server, or both
+ */
+public enum ReadPolicy {
+    /**
+     * Only the local cache, fails if the data is not cached
+     */
+    CACHE_ONLY,
+    /**
+     * The cached data first if any, then the data from the server
+     */
+    CACHE_THEN_SERVER,
+    /**
+     * Only the server, fails when offline
+     */
+    SERVER_ONLY,
+    /**
+     * The cached data first if any, then the data from the server only if it was last read from the server longer
+     * than the max age of its collection ago
+     */
+    STALE_WHILE_REVALIDATE
+}
@@ -7,6 +7,8 @@ import androidx.annotation.NonNull;
 import com.example.mealer_project.data.handlers.InboxHandler;
 import com.example.mealer_project.data.models.inbox.Complaint;
 import com.example.mealer_project.data.sources.FirebaseRepository;
+import com.example.mealer_project.data.sources.FirestoreReads;
+import com.example.mealer_project.data.sources.ReadPolicy;
 import com.example.mealer_project.utils.Preconditions;
 import com.example.mealer_project.utils.Utilities;
 import com.google.android.gms.tasks.OnCompleteListener;
@@ -39,14 +41,15 @@ public class InboxActions {
      */
     public void getAllComplaints(InboxHandler inboxHandler) {
         Log.e("complaint", "called 1");
-        // get all complaints from Firestore and once done, call appropriate method in inboxHandler
-        database.collection(COMPLAINTS_COLLECTION).get().addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-            @Override
-            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                if (task.isSuccessful()) {
+        // get all complaints from the cache then from Firestore, each time calling appropriate method in inboxHandler
+        // (a new admin inbox replaces the previous one, so the inbox shows the cached complaints until refreshed)
+        FirestoreReads reads = firebaseRepository.READS;
+        reads.read(COMPLAINTS_COLLECTION, COMPLAINTS_COLLECTION, ReadPolicy.CACHE_THEN_SERVER,
+                source -> reads.get(database.collection(COMPLAINTS_COLLECTION), source),
+                (snapshot, fromServer) -> {
                     List<Complaint> complaints = new ArrayList<>();
                     Log.e("complaint", "called 2");
-                    for (QueryDocumentSnapshot document : task.getResult()) {
+                    for (QueryDocumentSnapshot document : snapshot) {
                         try {
                             complaints.add(getComplaintObject(document.getId(), document.getData()));
                         } catch (Exception e) {
@@ -56,11 +59,8 @@ public class InboxActions {
                     }
                     // pass complaints to inbox handler
                     inboxHandler.createNewAdminInbox(complaints);
-                } else {
-                    inboxHandler.errorGettingComplaints("Error getting complaints from database: " + task.getException());
-                }
-            }
-        });
+                },
+                e -> inboxHandler.errorGettingComplaints("Error getting complaints from database: " + e));
     }
 
     /**
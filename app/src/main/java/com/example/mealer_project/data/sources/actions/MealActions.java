@@ -7,8 +7,6 @@ import static com.example.mealer_project.data.sources.FirebaseCollections.*;
 
 import android.util.Log;
 
-import androidx.annotation.NonNull;
-
 import com.example.mealer_project.app.App;
 import com.example.mealer_project.data.entity_models.AddressEntityModel;
 import com.example.mealer_project.data.entity_models.MealEntityModel;
@@ -17,34 +15,69 @@ import com.example.mealer_project.data.models.Address;
 import com.example.mealer_project.data.models.Chef;
 import com.example.mealer_project.data.models.meals.Meal;
 import com.example.mealer_project.data.models.orders.ChefInfo;
+import com.example.mealer_project.data.sources.FirestoreReads;
+import com.example.mealer_project.data.sources.ReadPolicy;
 import com.example.mealer_project.ui.screens.search.SearchMealItem;
 import com.example.mealer_project.ui.screens.LoginScreen;
 import com.example.mealer_project.utils.Preconditions;
 import com.example.mealer_project.utils.Result;
-import com.google.android.gms.tasks.OnCompleteListener;
+import com.example.mealer_project.utils.Utilities;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MealActions {
 
+    // most values Firestore accepts in a whereIn filter
+    private static final int IN_QUERY_LIMIT = 10;
+    // meals moved per batch by the migration, each meal is a write and a delete (Firestore allows 500 writes per batch)
+    private static final int MIGRATION_BATCH_MEALS = 200;
+
     FirebaseFirestore database;
+    FirestoreReads reads;
 
-    public MealActions(FirebaseFirestore database) {
+    public MealActions(FirebaseFirestore database, FirestoreReads reads) {
         this.database = database;
+        this.reads = reads;
     }
 
-    private void addChefMeal(String chefMealsId, Meal meal, String chefName, String chefAddress) {
+    /**
+     * Get the meals collection of a chef, Meals/{chefId}/meals
+     * The Meals document of a chef is keyed by the chef's id, so meals can be written without looking it up first
+     * @param chefId id of the chef
+     * @return reference to the chef's meals collection
+     */
+    private CollectionReference getChefMealsCollection(String chefId) {
+        return database.collection(MEALS_COLLECTION).document(chefId).collection(CHEF_MEALS_COLLECTION);
+    }
+
+    /**
+     * Data of the Meals document of a chef, merged into it so the chef is listed in the Meals collection
+     */
+    private Map<String, Object> makeMealsDocumentData(String chefId) {
+        Map<String, Object> mealsCollectionData = new HashMap<>();
+        mealsCollectionData.put(MEALS_COLLECTION_CHEF_KEY, chefId);
+        return mealsCollectionData;
+    }
+
+    private Map<String, Object> makeDatabaseMeal(Meal meal, String chefName, String chefAddress) {
 
         Map<String, Object> databaseMeal = new HashMap<>();
         databaseMeal.put("name", meal.getName());
@@ -57,30 +90,12 @@ public class MealActions {
         databaseMeal.put("isOffered", meal.isOffered());
         databaseMeal.put("price", meal.getPrice());
         databaseMeal.put("keywords", meal.getSearchMealItemKeywords(chefName, chefAddress));
-
-        database.collection(MEALS_COLLECTION)
-                .document(chefMealsId)
-                .collection(CHEF_MEALS_COLLECTION)
-                .add(databaseMeal)
-                .addOnSuccessListener(new OnSuccessListener<DocumentReference>() {
-                    @Override
-                    public void onSuccess(DocumentReference documentReference) {
-                        // update meal id
-                        meal.setMealID(documentReference.getId());
-                        Log.e("MEAL ID", documentReference.getId());
-                        App.MEAL_HANDLER.handleActionSuccess(ADD_MEAL, meal);
-                    }
-                })
-                .addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Failed to add meal to chef in database: " + e.getMessage());
-                    }
-                });
+        return databaseMeal;
     }
 
     /**
      * Add meal to list of meals in Firebase
+     * The chef's Meals document and the meal are written in one batch
      * @param meal The meal to be added
      */
     public void addMeal(Meal meal) {
@@ -91,45 +106,20 @@ public class MealActions {
             try {
                 chef = (Chef) App.getUser();
 
-                // Add meal to chef's list in firebase
-                database.collection(MEALS_COLLECTION)   // top-level meals collection
-                        .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    // if chef currently doesn't have a meal
-                                    if (task.getResult() == null || task.getResult().isEmpty()) {
-                                        Log.e("addMeal", "Chef not in meals collection, adding to it");
-                                        // add the chef first
-                                        Map<String, Object> mealsCollectionData = new HashMap<>();
-                                        mealsCollectionData.put("chef", chef.getUserId());
-                                        database.collection(MEALS_COLLECTION)
-                                                .add(mealsCollectionData)
-                                                .addOnSuccessListener(new OnSuccessListener<DocumentReference>() {
-                                                @Override
-                                                public void onSuccess(DocumentReference documentReference) {
-                                                        addChefMeal(documentReference.getId(), meal, chef.getFirstName() + " " + chef.getLastName(), chef.getAddress().toString());
-                                                    }
-                                                })
-                                                    .addOnFailureListener(new OnFailureListener() {
-                                                        @Override
-                                                        public void onFailure(@NonNull Exception e) {
-                                                            App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Failed to add meal to chef in database: " + e.getMessage());
-                                                        }
-                                                    });
-                                    } else {
-                                        for (QueryDocumentSnapshot document : task.getResult()) {
-                                            addChefMeal(document.getId(), meal, chef.getFirstName() + " " + chef.getLastName(), chef.getAddress().toString());
-                                        }
-                                    }
-                                } else {
-                                    App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Failed to add meal to chef in database");
-                                    Log.d("addMeal", "Error getting chef's meals: ", task.getException());
-                                }
-                            }
-                        });
+                // meal id is generated locally, so the meal can be written together with the chef's Meals document
+                DocumentReference mealReference = getChefMealsCollection(chef.getUserId()).document();
+
+                WriteBatch batch = database.batch();
+                // add the chef to the Meals collection if the chef doesn't have a meal yet
+                batch.set(database.collection(MEALS_COLLECTION).document(chef.getUserId()), makeMealsDocumentData(chef.getUserId()), SetOptions.merge());
+                batch.set(mealReference, makeDatabaseMeal(meal, chef.getFirstName() + " " + chef.getLastName(), chef.getAddress().toString()));
+                batch.commit()
+                        .addOnSuccessListener(aVoid -> {
+                            // update meal id
+                            meal.setMealID(mealReference.getId());
+                            App.MEAL_HANDLER.handleActionSuccess(ADD_MEAL, meal);
+                        })
+                        .addOnFailureListener(e -> App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Failed to add meal to chef in database: " + e.getMessage()));
 
             } catch (Exception e) {
                 App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Failed to add meal to chef in database: " + e.getMessage());
@@ -150,39 +140,12 @@ public class MealActions {
 
                 chef = (Chef) App.getUser();
 
-                database.collection(MEALS_COLLECTION)   // top-level meals collection
-                        .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-
-                                        // Remove meal from chef's list in firebase
-                                        database.collection(MEALS_COLLECTION)
-                                                .document(document.getId())
-                                                .collection(CHEF_MEALS_COLLECTION)
-                                                .document(mealId)
-                                                .delete()
-                                                .addOnSuccessListener(new OnSuccessListener<Void>() {
-                                                    @Override
-                                                    public void onSuccess(Void aVoid) {
-                                                        App.MEAL_HANDLER.handleActionSuccess(REMOVE_MEAL, mealId);
-                                                    }
-                                                })
-                                                .addOnFailureListener(new OnFailureListener() {
-                                                    @Override
-                                                    public void onFailure(@NonNull Exception e) {
-                                                        App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL, "Failed to remove meal in chef's list in Firebase: " + e.getMessage());
-                                                    }
-                                                });
-                                    }
-                                } else {
-                                    App.MEAL_HANDLER.handleActionFailure(ADD_MEAL, "Unable to get chef's meals: " + task.getException());
-                                }
-                            }
-                        });
+                // Remove meal from chef's list in firebase
+                getChefMealsCollection(chef.getUserId())
+                        .document(mealId)
+                        .delete()
+                        .addOnSuccessListener(aVoid -> App.MEAL_HANDLER.handleActionSuccess(REMOVE_MEAL, mealId))
+                        .addOnFailureListener(e -> App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL, "Failed to remove meal in chef's list in Firebase: " + e.getMessage()));
 
             } else {
                 // if Preconditions fail
@@ -204,38 +167,11 @@ public class MealActions {
                 // ensure a chef is logged in & get the chef instance
                 Chef chef = (Chef) App.getUser();
                 // Set isOffered to true in chef's meals in firebase
-                database.collection(MEALS_COLLECTION)   // top-level meals collection
-                        .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-
-                                        database.collection(MEALS_COLLECTION)
-                                                .document(document.getId())
-                                                .collection(CHEF_MEALS_COLLECTION)
-                                                .document(mealId)
-                                                .update("isOffered", true)
-                                                .addOnSuccessListener(new OnSuccessListener<Void>() {
-                                                    @Override
-                                                    public void onSuccess(Void aVoid) {
-                                                        App.MEAL_HANDLER.handleActionSuccess(ADD_MEAL_TO_OFFERED_LIST, mealId);
-                                                    }
-                                                })
-                                                .addOnFailureListener(new OnFailureListener() {
-                                                    @Override
-                                                    public void onFailure(@NonNull Exception e) {
-                                                        App.MEAL_HANDLER.handleActionFailure(ADD_MEAL_TO_OFFERED_LIST, "Failed to add meal to offered list in chef in database: " + e.getMessage());
-                                                    }
-                                                });
-                                    }
-                                } else {
-                                    App.MEAL_HANDLER.handleActionFailure(ADD_MEAL_TO_OFFERED_LIST, "Failed to retrieve chef's meals");
-                                }
-                            }
-                        });
+                getChefMealsCollection(chef.getUserId())
+                        .document(mealId)
+                        .update("isOffered", true)
+                        .addOnSuccessListener(aVoid -> App.MEAL_HANDLER.handleActionSuccess(ADD_MEAL_TO_OFFERED_LIST, mealId))
+                        .addOnFailureListener(e -> App.MEAL_HANDLER.handleActionFailure(ADD_MEAL_TO_OFFERED_LIST, "Failed to add meal to offered list in chef in database: " + e.getMessage()));
 
             } catch (Exception e) {
                 App.MEAL_HANDLER.handleActionFailure(ADD_MEAL_TO_OFFERED_LIST, "Failed to add meal to offered list in chef in database: " + e.getMessage());
@@ -256,39 +192,12 @@ public class MealActions {
             try {
                 // ensure a chef is logged in & get the chef instance
                 Chef chef = (Chef) App.getUser();
-                // Set isOffered to true in chef's meals in firebase
-                database.collection(MEALS_COLLECTION)   // top-level meals collection
-                        .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-
-                                        database.collection(MEALS_COLLECTION)
-                                                .document(document.getId())
-                                                .collection(CHEF_MEALS_COLLECTION)
-                                                .document(mealId)
-                                                .update("isOffered", false)
-                                                .addOnSuccessListener(new OnSuccessListener<Void>() {
-                                                    @Override
-                                                    public void onSuccess(Void aVoid) {
-                                                        App.MEAL_HANDLER.handleActionSuccess(REMOVE_MEAL_FROM_OFFERED_LIST, mealId);
-                                                    }
-                                                })
-                                                .addOnFailureListener(new OnFailureListener() {
-                                                    @Override
-                                                    public void onFailure(@NonNull Exception e) {
-                                                        App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL_FROM_OFFERED_LIST, "Failed to remove meal from offered list in database: " + e.getMessage());
-                                                    }
-                                                });
-                                    }
-                                } else {
-                                    App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL_FROM_OFFERED_LIST, "Error getting chef's meals");
-                                }
-                            }
-                        });
+                // Set isOffered to false in chef's meals in firebase
+                getChefMealsCollection(chef.getUserId())
+                        .document(mealId)
+                        .update("isOffered", false)
+                        .addOnSuccessListener(aVoid -> App.MEAL_HANDLER.handleActionSuccess(REMOVE_MEAL_FROM_OFFERED_LIST, mealId))
+                        .addOnFailureListener(e -> App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL_FROM_OFFERED_LIST, "Failed to remove meal from offered list in database: " + e.getMessage()));
 
             } catch (Exception e) {
                 App.MEAL_HANDLER.handleActionFailure(REMOVE_MEAL_FROM_OFFERED_LIST, "Unable to retrieve a Chef: " + e.getMessage());
@@ -301,34 +210,216 @@ public class MealActions {
 
     /**
      * Get meal from Firebase given the mealId AND chefId
+     * The meal is read with stale-while-revalidate: the cached meal is passed to the handler right away, and the meal
+     * from the server only if nothing was cached. A cached meal older than the max age of the Meals collection is
+     * still read from the server, which refreshes the cache for the next read, so the handler is informed only once
      * @param mealId The mealId of meal
+     * @param chefId id of the chef of the meal
      */
     public void getMealById (String mealId, String chefId) {
 
-        database.collection(MEALS_COLLECTION + "/" + chefId + "/" + CHEF_MEALS_COLLECTION)
-                .document(mealId)
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                        if (task.isSuccessful()) {
+        DocumentReference mealDocument = getChefMealsCollection(chefId).document(mealId);
+
+        AtomicBoolean received = new AtomicBoolean();
+        reads.read(MEALS_COLLECTION, mealDocument.getPath(), ReadPolicy.STALE_WHILE_REVALIDATE,
+                source -> reads.get(mealDocument, source)
+                        .continueWithTask(task -> {
+                            if (!task.isSuccessful()) {
+                                return Tasks.forException(task.getException());
+                            }
                             DocumentSnapshot document = task.getResult();
-                            if (document.exists() && document.getData() != null) {
-                                try  {
-                                    Meal meal = makeMealFromFirebase(document);
-                                    // set the meal id
-                                    meal.setMealID(document.getId());
-                                    App.MEAL_HANDLER.handleActionSuccess(GET_MEAL_BY_ID, meal);
-                                } catch (Exception e) {
-                                    App.MEAL_HANDLER.handleActionFailure(GET_MEAL_BY_ID, "Error making a meal from data retrieved");
+                            // fails the cached read too, a meal missing from the cache is read from the server
+                            if (!document.exists() || document.getData() == null) {
+                                return Tasks.forException(new IllegalStateException("Error getting the meal for given id"));
+                            }
+                            Meal meal = makeMealFromFirebase(document);
+                            // set the meal id
+                            meal.setMealID(document.getId());
+                            return Tasks.forResult(meal);
+                        }),
+                (meal, fromServer) -> {
+                    // the screen asking for the meal expects a single answer
+                    if (!received.getAndSet(true)) {
+                        App.MEAL_HANDLER.handleActionSuccess(GET_MEAL_BY_ID, meal);
+                    }
+                },
+                e -> App.MEAL_HANDLER.handleActionFailure(GET_MEAL_BY_ID, "Error getting the meal: " + e.getMessage()));
+    }
+
+    /**
+     * Get the meal documents of a chef
+     * Until Meals/{chefId} is marked as migrated, some of the chef's meals may still be in a Meals document with a
+     * generated id (stored before documents were keyed by chef id), even if Meals/{chefId} already has meals because
+     * a migration stopped partway: those are moved to Meals/{chefId} first, and Meals/{chefId} is marked as migrated
+     * once all of them are moved, so the previous documents are only looked up until then
+     * @param chefId id of the chef
+     * @param onSuccess receives the meal documents of the chef
+     * @param onFailure receives the error if the meals could not be read
+     */
+    private void getChefMealsDocuments(String chefId, OnSuccessListener<List<DocumentSnapshot>> onSuccess, OnFailureListener onFailure) {
+
+        Task<DocumentSnapshot> mealsDocumentTask = database.collection(MEALS_COLLECTION).document(chefId).get();
+        Task<QuerySnapshot> mealsTask = getChefMealsCollection(chefId).get();
+
+        Tasks.whenAllSuccess(mealsDocumentTask, mealsTask)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    QuerySnapshot snapshot = mealsTask.getResult();
+                    // meals already in Meals/{chefId} don't mean all of them were moved, only the flag does
+                    if (isMealsMigrated(mealsDocumentTask.getResult().getData())) {
+                        return Tasks.forResult(snapshot);
+                    }
+                    // fallback for documents not migrated yet
+                    return database.collection(MEALS_COLLECTION)
+                            .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chefId)
+                            .get()
+                            .continueWithTask(legacyTask -> {
+                                if (!legacyTask.isSuccessful()) {
+                                    return Tasks.forException(legacyTask.getException());
                                 }
-                            } else {
-                                App.MEAL_HANDLER.handleActionFailure(GET_MEAL_BY_ID, "Error getting the meal for given id");
+                                List<Task<Void>> migrations = new ArrayList<>();
+                                for (QueryDocumentSnapshot document : legacyTask.getResult()) {
+                                    if (!document.getId().equals(chefId)) {
+                                        migrations.add(migrateChefMeals(document.getId(), chefId));
+                                    }
+                                }
+                                if (migrations.isEmpty()) {
+                                    // no meals left to move, nothing to look up next time
+                                    return markMealsMigrated(chefId).continueWith(marked -> snapshot);
+                                }
+                                Log.e("loadMeals", "Moving meals of chef " + chefId + " to " + MEALS_COLLECTION + "/" + chefId);
+                                return Tasks.whenAll(migrations)
+                                        .continueWithTask(migrated -> {
+                                            if (!migrated.isSuccessful()) {
+                                                return Tasks.forException(migrated.getException());
+                                            }
+                                            return markMealsMigrated(chefId);
+                                        })
+                                        .continueWithTask(marked -> {
+                                            if (!marked.isSuccessful()) {
+                                                return Tasks.forException(marked.getException());
+                                            }
+                                            return getChefMealsCollection(chefId).get();
+                                        });
+                            });
+                })
+                .addOnSuccessListener(chefMealsSnapshot -> onSuccess.onSuccess(chefMealsSnapshot.getDocuments()))
+                .addOnFailureListener(onFailure);
+    }
+
+    /**
+     * Check if all the meals of a chef were moved to Meals/{chefId}
+     * @param mealsDocumentData data of Meals/{chefId}, null if the document does not exist
+     * @return true only if the document is marked as migrated
+     */
+    static boolean isMealsMigrated(Map<String, Object> mealsDocumentData) {
+        return mealsDocumentData != null && Boolean.TRUE.equals(mealsDocumentData.get(MEALS_COLLECTION_MIGRATED_KEY));
+    }
+
+    /**
+     * Mark the Meals document of a chef as migrated, once no Meals document with a generated id is left for the chef
+     * Only called after the last batch of the chef's migrations is committed
+     * @param chefId id of the chef
+     * @return task completed once the Meals document is written
+     */
+    private Task<Void> markMealsMigrated(String chefId) {
+        Map<String, Object> mealsCollectionData = makeMealsDocumentData(chefId);
+        mealsCollectionData.put(MEALS_COLLECTION_MIGRATED_KEY, true);
+        return database.collection(MEALS_COLLECTION).document(chefId).set(mealsCollectionData, SetOptions.merge());
+    }
+
+    /**
+     * Move the meals of a chef from a Meals document with a generated id to Meals/{chefId}, keeping meal ids
+     * Each meal is copied and deleted in the same batch, so an interrupted migration can be run again
+     * @param legacyDocumentId id of the chef's Meals document with a generated id
+     * @param chefId id of the chef
+     * @return task completed once the meals are moved and the previous Meals document is deleted
+     */
+    private Task<Void> migrateChefMeals(String legacyDocumentId, String chefId) {
+
+        DocumentReference legacyDocument = database.collection(MEALS_COLLECTION).document(legacyDocumentId);
+        DocumentReference chefMealsDocument = database.collection(MEALS_COLLECTION).document(chefId);
+
+        return legacyDocument.collection(CHEF_MEALS_COLLECTION)
+                .get()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    List<DocumentSnapshot> meals = task.getResult().getDocuments();
+                    List<Task<Void>> commits = new ArrayList<>();
+                    for (int start = 0; start < meals.size(); start += MIGRATION_BATCH_MEALS) {
+                        WriteBatch batch = database.batch();
+                        // chef is listed in the Meals collection before its meals are moved
+                        batch.set(chefMealsDocument, makeMealsDocumentData(chefId), SetOptions.merge());
+                        for (DocumentSnapshot meal : meals.subList(start, Math.min(start + MIGRATION_BATCH_MEALS, meals.size()))) {
+                            batch.set(getChefMealsCollection(chefId).document(meal.getId()), meal.getData());
+                            batch.delete(meal.getReference());
+                        }
+                        commits.add(batch.commit());
+                    }
+                    return Tasks.whenAll(commits);
+                })
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        // keep the previous document, the remaining meals are moved by the next migration
+                        return task;
+                    }
+                    WriteBatch batch = database.batch();
+                    batch.set(chefMealsDocument, makeMealsDocumentData(chefId), SetOptions.merge());
+                    batch.delete(legacyDocument);
+                    return batch.commit();
+                });
+    }
+
+    /**
+     * One-shot migration of the Meals collection to documents keyed by chef id
+     * Moves the meals of every Meals document with a generated id to Meals/{chefId}, and marks Meals/{chefId} as
+     * migrated once all the documents of the chef are moved. Chefs which are not migrated are migrated when their
+     * meals are loaded, so this only needs to be run once to migrate all existing data
+     * @return task with the number of chefs migrated
+     */
+    public Task<Integer> migrateMealsDocuments() {
+
+        return database.collection(MEALS_COLLECTION)
+                .get()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    // migrations of the Meals documents of each chef
+                    Map<String, List<Task<Void>>> chefMigrations = new HashMap<>();
+                    for (QueryDocumentSnapshot document : task.getResult()) {
+                        String chefId = document.getString(MEALS_COLLECTION_CHEF_KEY);
+                        if (chefId != null && !chefId.equals(document.getId())) {
+                            List<Task<Void>> migrations = chefMigrations.get(chefId);
+                            if (migrations == null) {
+                                migrations = new ArrayList<>();
+                                chefMigrations.put(chefId, migrations);
                             }
-                        } else {
-                            App.MEAL_HANDLER.handleActionFailure(GET_MEAL_BY_ID, "Error getting chef's meals");
+                            migrations.add(migrateChefMeals(document.getId(), chefId));
                         }
                     }
+                    List<Task<Void>> migratedChefs = new ArrayList<>(chefMigrations.size());
+                    for (Map.Entry<String, List<Task<Void>>> entry : chefMigrations.entrySet()) {
+                        String chefId = entry.getKey();
+                        migratedChefs.add(Tasks.whenAll(entry.getValue()).continueWithTask(migrated -> {
+                            if (!migrated.isSuccessful()) {
+                                return migrated;
+                            }
+                            return markMealsMigrated(chefId);
+                        }));
+                    }
+                    return Tasks.whenAll(migratedChefs).continueWith(migrated -> {
+                        if (!migrated.isSuccessful()) {
+                            Log.e("migrateMeals", "failed to migrate meals: " + migrated.getException());
+                            throw migrated.getException();
+                        }
+                        Log.e("migrateMeals", "migrated meals of " + migratedChefs.size() + " chefs");
+                        return migratedChefs.size();
+                    });
                 });
     }
 
@@ -338,41 +429,11 @@ public class MealActions {
     public void getMeals(){
         try {
             Chef chef = (Chef) App.getUser();
-            database.collection(MEALS_COLLECTION)   // top-level meals collection
-                    .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                    .get()
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            if (task.isSuccessful()) {
-                                for (QueryDocumentSnapshot document : task.getResult()) {
-
-                                    database.collection(MEALS_COLLECTION)
-                                            .document(document.getId())
-                                            .collection(CHEF_MEALS_COLLECTION)
-                                            .get()
-                                            .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                                                @Override
-                                                public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                                    if (task.isSuccessful()) {
-                                                        Map<String, Meal> meals = new HashMap<String, Meal>();
-                                                        Meal meal;
-                                                        for (QueryDocumentSnapshot document : task.getResult()) {
-                                                            meal = makeMealFromFirebase(document);
-                                                            // set the meal id
-                                                            meal.setMealID(document.getId());
-                                                            meals.put(document.getId(), meal);
-                                                        }
-                                                        App.MEAL_HANDLER.handleActionSuccess(GET_MENU, meals);
-                                                    } else {
-                                                        Log.d(TAG, "Error getting documents: ", task.getException());
-                                                        App.MEAL_HANDLER.handleActionFailure(GET_MENU, "Failed to retrieve meals from firebase");
-                                                    }
-                                                }
-                                            });
-                                }
-                            }
-                        }
+            getChefMealsDocuments(chef.getUserId(),
+                    documents -> App.MEAL_HANDLER.handleActionSuccess(GET_MENU, makeMealsFromFirebase(documents)),
+                    e -> {
+                        Log.d(TAG, "Error getting documents: ", e);
+                        App.MEAL_HANDLER.handleActionFailure(GET_MENU, "Failed to retrieve meals from firebase");
                     });
         } catch (Exception e) {
             App.MEAL_HANDLER.handleActionFailure(GET_MENU, "Failed to get menu: " + e.getMessage());
@@ -385,53 +446,19 @@ public class MealActions {
     public void loadChefMeals(LoginScreen loginScreen){
         try {
             Chef chef = (Chef) App.getUser();
-            database.collection(MEALS_COLLECTION)   // top-level meals collection
-                    .whereEqualTo(MEALS_COLLECTION_CHEF_KEY, chef.getUserId()) // get meals document of the chef
-                    .get()
-                    .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                        @Override
-                        public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                            if (task.isSuccessful()) {
-                                // check if chef has any meals currently
-                                if (task.getResult() == null || task.getResult().isEmpty()) {
-                                    Log.e("loadMeals", "Chef has no meals currently");
-                                    loginScreen.showNextScreen();
-                                } else {
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-                                        //Log.e("loadMeals", "creating meals");
-                                        database.collection(MEALS_COLLECTION)
-                                                .document(document.getId())
-                                                .collection(CHEF_MEALS_COLLECTION)
-                                                .get()
-                                                .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                                                    @Override
-                                                    public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                                        if (task.isSuccessful()) {
-                                                            Map<String, Meal> meals = new HashMap<String, Meal>();
-                                                            Meal meal;
-                                                            for (QueryDocumentSnapshot document : task.getResult()) {
-                                                                meal = makeMealFromFirebase(document);
-                                                                // set the meal id
-                                                                meal.setMealID(document.getId());
-                                                                meals.put(document.getId(), meal);
-                                                            }
-                                                            // add meals to Chef
-                                                            ((Chef) App.getUser()).MEALS.setMeals(meals);
-                                                            // let login screen show Chef screen
-                                                            loginScreen.showNextScreen();
-                                                        } else {
-                                                            Log.d("loadMeals", "Error getting documents: ", task.getException());
-                                                            loginScreen.dbOperationFailureHandler(UserHandler.dbOperations.USER_LOG_IN, "Failed to retrieve meals from firebase");
-                                                        }
-                                                    }
-                                                });
-                                    }
-                                }
-                            } else {
-                                loginScreen.dbOperationFailureHandler(UserHandler.dbOperations.USER_LOG_IN, "Failed to load meals");
-                                Log.e("loadMeals", "failed to load meals: " + task.getException());
-                            }
+            getChefMealsDocuments(chef.getUserId(),
+                    documents -> {
+                        if (documents.isEmpty()) {
+                            Log.e("loadMeals", "Chef has no meals currently");
                         }
+                        // add meals to Chef
+                        ((Chef) App.getUser()).MEALS.setMeals(makeMealsFromFirebase(documents));
+                        // let login screen show Chef screen
+                        loginScreen.showNextScreen();
+                    },
+                    e -> {
+                        loginScreen.dbOperationFailureHandler(UserHandler.dbOperations.USER_LOG_IN, "Failed to retrieve meals from firebase");
+                        Log.e("loadMeals", "failed to load meals: " + e.getMessage());
                     });
         } catch (Exception e) {
             loginScreen.dbOperationFailureHandler(UserHandler.dbOperations.USER_LOG_IN, "Failed to get Chef's meals");
@@ -439,65 +466,143 @@ public class MealActions {
         }
     }
 
+    private Map<String, Meal> makeMealsFromFirebase(List<DocumentSnapshot> documents) {
+        Map<String, Meal> meals = new HashMap<String, Meal>();
+        Meal meal;
+        for (DocumentSnapshot document : documents) {
+            meal = makeMealFromFirebase(document);
+            // set the meal id
+            meal.setMealID(document.getId());
+            meals.put(document.getId(), meal);
+        }
+        return meals;
+    }
+
     /**
      * get all meals of all chefs
+     * The catalog is read with stale-while-revalidate: the cached catalog is passed to the handler right away, then
+     * the catalog from the server if the cached one is older than the max age of the Meals collection. Cached items
+     * replace the items with the same id, the catalog from the server replaces the whole search list, so meals no
+     * longer offered and meals of suspended chefs can no longer be found
      */
     public void getAllMeals() {
 
         Log.e("searchMeals", "Initiating request to get all meals");
 
-        // get all documents from meals collection
-        database.collection(MEALS_COLLECTION)
-                        .get()
-                        .addOnCompleteListener(new OnCompleteListener<QuerySnapshot>() {
-                            @Override
-                            public void onComplete(@NonNull Task<QuerySnapshot> task) {
-                                if (task.isSuccessful()) {
-                                    // for each Meals row (which contains a chef id and a nested meals collection
-                                    for (QueryDocumentSnapshot document : task.getResult()) {
-                                        // make the next call to get Chef data
-                                        getChefForSearchMeals(document.getId(), (String) document.getData().get("chef"));
-                                    }
-                                } else {
-                                    App.MEAL_HANDLER.handleActionFailure(ADD_MEALS_TO_SEARCH_LIST, "Failed to retrieve chef from Meals: " + task.getException());
-                                }
-                            }
-                        });
+        reads.read(MEALS_COLLECTION, MEALS_COLLECTION + "/catalog", ReadPolicy.STALE_WHILE_REVALIDATE, this::loadCatalog,
+                (smItems, fromServer) -> {
+                    Log.e("searchMeals", "updating meals: " + smItems.size() + (fromServer ? " from server" : " from cache"));
+                    // pass list containing SearchMealItems of all chefs to handler so our App's search meal list is updated once
+                    App.MEAL_HANDLER.handleActionSuccess(fromServer ? REPLACE_MEALS_IN_SEARCH_LIST : ADD_MEALS_TO_SEARCH_LIST, smItems);
+                },
+                e -> {
+                    Log.e("searchMeals", "failed to load meals: " + e.getMessage());
+                    App.MEAL_HANDLER.handleActionFailure(ADD_MEALS_TO_SEARCH_LIST, "Failed to retrieve meals from firebase: " + e.getMessage());
+                });
     }
 
-    private void getChefForSearchMeals(String mealDocumentId, String chefId) {
+    /**
+     * Read the offered meals of every chef from a source
+     * Offered meals are read with one collection group query on the meals subcollections, together with the Meals
+     * collection (which maps each nested meals collection to its chef). Chefs are then read in chunks of at most
+     * IN_QUERY_LIMIT ids, all chunks at once.
+     * Requires the single field index on isOffered to be enabled for the collection group scope in Firestore
+     * @param source cache or server
+     * @return task with the SearchMealItems of all chefs which are not suspended
+     */
+    private Task<ArrayList<SearchMealItem>> loadCatalog(Source source) {
 
-        database.collection(CHEF_COLLECTION)
-                .document(chefId)
-                .get()
-                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                    @Override
-                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-                                if (document.getData() != null){
-                                    // if chef is suspended, we don't need to get the meals of this chef
-                                    // get value of isSuspended for check
-                                    boolean isSuspended = (Boolean) document.getData().get("isSuspended");
-                                    // we load the meals only if chef is not suspended
-                                    if (!isSuspended) {
-                                        // create ChefInfo for the chef
-                                        Result<ChefInfo, String> result = getChefInfoInstance(document);
-                                        if (result.isSuccess()) {
-                                            // call next method to retrieve meals of the chef
-                                            getChefMeals(mealDocumentId, result.getSuccessObject());
-                                        } else {
-                                            App.MEAL_HANDLER.handleActionFailure(ADD_MEALS_TO_SEARCH_LIST, result.getErrorObject());
-                                        }
-                                    }
-                                }
+        Task<QuerySnapshot> mealsTask = reads.get(database.collectionGroup(CHEF_MEALS_COLLECTION).whereEqualTo("isOffered", true), source);
+        Task<QuerySnapshot> chefsOfMealsTask = reads.get(database.collection(MEALS_COLLECTION), source);
+
+        return Tasks.whenAllSuccess(mealsTask, chefsOfMealsTask)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    // id of the chef of each Meals document
+                    Map<String, String> chefIdsOfMeals = new HashMap<>();
+                    for (QueryDocumentSnapshot document : chefsOfMealsTask.getResult()) {
+                        chefIdsOfMeals.put(document.getId(), (String) document.get(MEALS_COLLECTION_CHEF_KEY));
+                    }
+                    // offered meals and the id of their chef, in the same order
+                    List<DocumentSnapshot> mealDocuments = new ArrayList<>();
+                    List<String> chefIds = new ArrayList<>();
+                    for (QueryDocumentSnapshot document : mealsTask.getResult()) {
+                        // meal is at Meals/{mealDocumentId}/meals/{mealId}
+                        DocumentReference mealsDocument = document.getReference().getParent().getParent();
+                        String chefId = mealsDocument == null ? null : chefIdsOfMeals.get(mealsDocument.getId());
+                        if (chefId != null) {
+                            mealDocuments.add(document);
+                            chefIds.add(chefId);
+                        }
+                    }
+                    return loadSearchMealItems(mealDocuments, chefIds, source);
+                });
+    }
 
+    /**
+     * Read the chefs of the offered meals from a source, each chef once, and make the SearchMealItems of the meals
+     * of chefs which are not suspended
+     * @param mealDocuments documents of the offered meals
+     * @param chefIds id of the chef of each meal
+     * @param source cache or server
+     * @return task with the SearchMealItems
+     */
+    private Task<ArrayList<SearchMealItem>> loadSearchMealItems(List<DocumentSnapshot> mealDocuments, List<String> chefIds, Source source) {
+
+        List<List<String>> chunks = Utilities.getDistinctChunks(chefIds, IN_QUERY_LIMIT);
+        Log.e("searchMeals", "Initiating " + chunks.size() + " requests to get chefs of " + mealDocuments.size() + " meals");
+
+        List<Task<QuerySnapshot>> chefTasks = new ArrayList<>(chunks.size());
+        for (List<String> chunk : chunks) {
+            chefTasks.add(reads.get(database.collection(CHEF_COLLECTION).whereIn(FieldPath.documentId(), chunk), source));
+        }
+
+        return Tasks.whenAllSuccess(chefTasks)
+                .continueWith(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+                    Map<String, ChefInfo> chefs = new HashMap<>();
+                    for (Task<QuerySnapshot> chefTask : chefTasks) {
+                        for (QueryDocumentSnapshot document : chefTask.getResult()) {
+                            // we load the meals only if chef is not suspended
+                            if (Boolean.TRUE.equals(document.getBoolean("isSuspended"))) {
+                                continue;
+                            }
+                            Result<ChefInfo, String> result = getChefInfoInstance(document);
+                            if (result.isSuccess()) {
+                                chefs.put(document.getId(), result.getSuccessObject());
+                            } else {
+                                Log.e("searchMeals", result.getErrorObject());
                             }
-                        } else {
-                            Log.d(TAG, "get failed with ", task.getException());
                         }
                     }
+
+                    ArrayList<SearchMealItem> smItems = new ArrayList<>(mealDocuments.size());
+                    for (int i = 0; i < mealDocuments.size(); i++) {
+                        ChefInfo chefInfo = chefs.get(chefIds.get(i));
+                        if (chefInfo == null) {
+                            continue;
+                        }
+                        DocumentSnapshot document = mealDocuments.get(i);
+                        try {
+                            // create the meal
+                            Meal meal = makeMealFromFirebase(document);
+                            // set the meal id
+                            meal.setMealID(document.getId());
+                            // add keywords to meal instance (only need to do this when we need search meal functionality i.e., for a client)
+                            // keywords are extracted again rather than read from the document, so they follow the same
+                            // analyzer rules as search queries even if the meal was stored by an older version of the app
+                            meal.setKeywords(meal.getSearchMealItemKeywords(chefInfo.getChefName(), String.valueOf(chefInfo.getChefAddress())));
+                            // create SearchMealItem adding to it the meal and chefInfo
+                            smItems.add(new SearchMealItem(meal, chefInfo));
+                        } catch (Exception e) {
+                            Log.e("searchMeals", "skipping meal " + document.getId() + ": " + e.getMessage());
+                        }
+                    }
+                    return smItems;
                 });
     }
 
@@ -527,52 +632,6 @@ public class MealActions {
         }
     }
 
-    private void getChefMeals(String mealDocumentId, ChefInfo chefInfo) {
-
-        Log.e("searchMeals", "Initiating request to get meals of chef: " + chefInfo.getChefName());
-        Log.e("searchMeals", "path: " + MEALS_COLLECTION + "/" + mealDocumentId + "/" + CHEF_MEALS_COLLECTION);
-
-        database.collection(MEALS_COLLECTION + "/" + mealDocumentId + "/" + CHEF_MEALS_COLLECTION)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        List<SearchMealItem> smItems = new ArrayList<>();
-                        SearchMealItem smItem;
-                        Meal meal;
-                        if (task.getResult() == null || task.getResult().isEmpty()) {
-                            Log.e("searchMeals", "empty result");
-                        }
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            // check if we have a isOffered property
-                            if (document.getData().get("isOffered") != null) {
-                                // get the isOffered property's value
-                                boolean isOffered = (Boolean) document.getData().get("isOffered");
-                                // if only the meal if offered
-                                if (isOffered) {
-                                    // create the meal
-                                    meal = makeMealFromFirebase(document);
-                                    // set the meal id
-                                    meal.setMealID(document.getId());
-                                    // add keywords to meal instance (only need to do this when we need search meal functionality i.e., for a client)
-                                    meal.setKeywords((ArrayList<String>) document.getData().get("keywords"));
-                                    // create SearchMealItem adding to it the meal and chefInfo
-                                    smItem = new SearchMealItem(meal, chefInfo);
-                                    Log.e("searchMeals", "adding meal: " + meal.getName());
-                                    // store current SearchMealItem in our list
-                                    smItems.add(smItem);
-                                }
-                            }
-                        }
-                        Log.e("searchMeals", "updating meals");
-                        // pass list containing SearchMealItems to handler so our App's search meal list can be updated
-                        App.MEAL_HANDLER.handleActionSuccess(ADD_MEALS_TO_SEARCH_LIST, smItems);
-                    } else {
-                        Log.d("searchMeals", "Error getting documents: ", task.getException());
-                        App.MEAL_HANDLER.handleActionFailure(ADD_MEALS_TO_SEARCH_LIST, "Failed to retrieve meals from firebase");
-                    }
-                });
-    }
-
     protected Meal makeMealFromFirebase(DocumentSnapshot document) {
 
         if (document.getData() == null) {
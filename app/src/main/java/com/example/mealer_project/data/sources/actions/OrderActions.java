@@ -12,35 +12,56 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.example.mealer_project.app.App;
+import com.example.mealer_project.data.handlers.OrderHandler;
 import com.example.mealer_project.data.entity_models.AddressEntityModel;
 import com.example.mealer_project.data.models.Address;
 import com.example.mealer_project.data.models.Order;
+import com.example.mealer_project.data.models.Orders;
 import com.example.mealer_project.data.models.orders.ChefInfo;
 import com.example.mealer_project.data.models.orders.ClientInfo;
 import com.example.mealer_project.data.models.orders.MealInfo;
+import com.example.mealer_project.data.sources.FirestoreReads;
+import com.example.mealer_project.data.sources.ReadPolicy;
 import com.example.mealer_project.utils.Preconditions;
 import com.example.mealer_project.utils.Utilities;
-import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class OrderActions {
 
+    // orders read per request when loading the orders of a user
+    private static final int ORDERS_PAGE_SIZE = 100;
+
     FirebaseFirestore database;
+    FirestoreReads reads;
+
+    // listener of the logged in chef's orders, null when no screen shows the orders
+    private ListenerRegistration chefOrdersListener;
 
-    public OrderActions(FirebaseFirestore database) {
+    public OrderActions(FirebaseFirestore database, FirestoreReads reads) {
         this.database = database;
+        this.reads = reads;
     }
 
     /**
@@ -213,126 +234,173 @@ public class OrderActions {
         }
     }
 
+    /**
+     * Load all orders of a chef into the logged in chef's orders, newest first, one page at a time
+     * @param chefId id of the chef
+     */
     public void loadChefOrders(String chefId){
 
         if (Preconditions.isNotNull(chefId)) {
-
-            // retrieve chef object from firebase
-            database.collection(CHEF_COLLECTION)
-                    .document(chefId)
-                    .get()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-
-                                // retrieve list of orderIds from chef
-                                ArrayList<String> orderIds = (ArrayList<String>) document.getData().get(CHEF_ORDERS_COLLECTION);
-
-                                // if no orders
-                                if (orderIds == null) {
-                                    return;
-                                }
-
-                                // iterate through list
-                                for (String orderId : orderIds) {
-
-                                    // go to orders_collection and retrieve order using the given orderId in the list
-                                    database.collection(ORDER_COLLECTION)
-                                            .document(orderId)
-                                            .get()
-                                            .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                                                @Override
-                                                public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                                                    if (task.isSuccessful()) {
-                                                        DocumentSnapshot document = task.getResult();
-                                                        if (document.exists()) {
-
-                                                            //make order object from firebase
-                                                            Order order = makeOrderFromFirebase(document);
-
-                                                            //update orders of the logged in chef
-
-                                                            App.getChef().ORDERS.addOrder(order);
-
-                                                        } else {
-                                                            Log.d("loadChefOrders", "Order not found given orderId stored in chef orders");
-                                                        }
-                                                    } else {
-                                                        Log.d("loadChefOrders", "get failed with ", task.getException());
-                                                    }
-                                                }
-                                            });
-                                }
-                            } else {
-                                Log.d("loadChefOrders", "Chef not found");
-                            }
-                        } else {
-                            Log.d("loadChefOrders", "get failed with ", task.getException());
-                        }
-                    });
+            if (App.getChef() == null) {
+                App.ORDER_HANDLER.handleActionFailure(LOAD_CHEF_ORDERS, "No chef logged in to load orders of");
+                return;
+            }
+            loadOrders(database.collection(ORDER_COLLECTION).whereEqualTo("chefInfo.chefId", chefId),
+                    App.getChef().ORDERS, LOAD_CHEF_ORDERS, chefId);
         }
     }
 
+    /**
+     * Load all orders of a client into the logged in client's orders, newest first, one page at a time
+     * @param clientId id of the client
+     */
     public void loadClientOrders(String clientId){
 
         if (Preconditions.isNotNull(clientId)) {
+            if (App.getClient() == null) {
+                App.ORDER_HANDLER.handleActionFailure(LOAD_CLIENT_ORDERS, "No client logged in to load orders of");
+                return;
+            }
+            loadOrders(database.collection(ORDER_COLLECTION).whereEqualTo("clientInfo.clientId", clientId),
+                    App.getClient().ORDERS, LOAD_CLIENT_ORDERS, clientId);
+        }
+    }
 
-            // retrieve client object from firebase
-            database.collection(CLIENT_COLLECTION)
-                    .document(clientId)
-                    .get()
-                    .addOnCompleteListener(task -> {
-                        if (task.isSuccessful()) {
-                            DocumentSnapshot document = task.getResult();
-                            if (document.exists()) {
-
-                                if (document.getData().get(CHEF_ORDERS_COLLECTION) != null) {
-
-                                    // retrieve list of orderIds from client
-                                    ArrayList<String> orderIds = (ArrayList<String>) document.getData().get(CHEF_ORDERS_COLLECTION);
-
+    /**
+     * Load the orders matched by a query from the cache, then from the server
+     * The orders from the server replace the cached orders: orders deleted in the database are removed. The handler
+     * is informed when the first orders are loaded, and again if the orders from the server changed the orders
+     * loaded from the cache (ex: nothing was cached), so screens are refreshed in place
+     * @param query orders of a chef or of a client
+     * @param orders orders of the logged in user
+     * @param operationType LOAD_CHEF_ORDERS or LOAD_CLIENT_ORDERS
+     * @param userId id of the chef or client, passed to the handler
+     */
+    private void loadOrders(Query query, Orders orders, OrderHandler.dbOperations operationType, String userId) {
+
+        AtomicBoolean loaded = new AtomicBoolean();
+        reads.read(ORDER_COLLECTION, ORDER_COLLECTION + "/" + userId, ReadPolicy.CACHE_THEN_SERVER,
+                source -> {
+                    Set<String> orderIds = new HashSet<>();
+                    return loadOrderPages(query, orders, source, null, 0, orderIds)
+                            .continueWithTask(task -> {
+                                if (!task.isSuccessful() || source != Source.SERVER) {
+                                    return task;
+                                }
+                                // orders deleted in the database are still cached, orders received since the first
+                                // page was read are kept
+                                return Tasks.forResult(task.getResult() + orders.retainOrders(orderIds));
+                            });
+                },
+                (updated, fromServer) -> {
+                    Log.d("loadOrders", "loaded " + updated + " new, changed or removed orders of " + userId + (fromServer ? " from server" : " from cache"));
+                    // cached orders the server did not change were already shown
+                    if (!loaded.getAndSet(true) || (fromServer && updated > 0)) {
+                        App.ORDER_HANDLER.handleActionSuccess(operationType, userId);
+                    }
+                },
+                e -> App.ORDER_HANDLER.handleActionFailure(operationType, "Failed to load orders: " + e.getMessage()));
+    }
 
-                                    // iterate through list
-                                    for (String orderId : orderIds) {
+    /**
+     * Load the orders matched by a query from a source, ORDERS_PAGE_SIZE orders per request ordered by date, newest first
+     * Each page is put in the orders at once, orders already loaded are updated
+     * Requires a composite index on the filtered field and date (descending) in Firestore
+     * @param query orders of a chef or of a client
+     * @param orders orders of the logged in user
+     * @param source cache or server
+     * @param lastDocument last order of the previous page, null for the first page
+     * @param updated number of orders added or changed by the previous pages
+     * @param orderIds receives the ids of the orders read
+     * @return task with the number of orders added or changed
+     */
+    private Task<Integer> loadOrderPages(Query query, Orders orders, Source source, DocumentSnapshot lastDocument, int updated, Set<String> orderIds) {
 
-                                        // go to orders_collection and retrieve order using the given orderId in the list
-                                        database.collection(ORDER_COLLECTION)
-                                                .document(orderId)
-                                                .get()
-                                                .addOnCompleteListener(new OnCompleteListener<DocumentSnapshot>() {
-                                                    @Override
-                                                    public void onComplete(@NonNull Task<DocumentSnapshot> task) {
-                                                        if (task.isSuccessful()) {
-                                                            DocumentSnapshot document = task.getResult();
-                                                            if (document.exists()) {
+        Query page = query.orderBy("date", Query.Direction.DESCENDING).limit(ORDERS_PAGE_SIZE);
+        if (lastDocument != null) {
+            page = page.startAfter(lastDocument);
+        }
 
-                                                                //make order object from firebase
-                                                                Order order = makeOrderFromFirebase(document);
+        return reads.get(page, source)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.forException(task.getException());
+                    }
+                    QuerySnapshot snapshot = task.getResult();
+                    List<Order> pageOrders = new ArrayList<>(snapshot.size());
+                    for (DocumentSnapshot document : snapshot.getDocuments()) {
+                        orderIds.add(document.getId());
+                        try {
+                            //make order object from firebase
+                            pageOrders.add(makeOrderFromFirebase(document));
+                        } catch (Exception e) {
+                            Log.e("loadOrders", "skipping order " + document.getId() + ": " + e.getMessage());
+                        }
+                    }
+                    //update orders of the logged in user with the whole page
+                    int total = updated + orders.putOrders(pageOrders);
 
-                                                                //update orders of the logged in client
-                                                                App.getClient().ORDERS.addOrder(order);
+                    if (snapshot.size() == ORDERS_PAGE_SIZE) {
+                        // a full page, there may be older orders
+                        return loadOrderPages(query, orders, source, snapshot.getDocuments().get(snapshot.size() - 1), total, orderIds);
+                    }
+                    return Tasks.forResult(total);
+                });
+    }
 
-                                                            } else {
-                                                                Log.d("loadClientOrders", "Order not found given orderId stored in chef orders");
-                                                            }
-                                                        } else {
-                                                            Log.d("loadClientOrders", "get failed with ", task.getException());
-                                                        }
-                                                    }
-                                                });
+    /**
+     * Listen to all orders of a chef, passing each added, modified or removed order to the handler
+     * All orders are listened to so changes to orders loaded before (accepted, rejected or cancelled elsewhere) are
+     * received too. The first snapshot lists all orders of the chef as added, the handler ignores orders which are
+     * already up to date. The listener stays attached while screens showing the orders follow each other, so it is
+     * only attached again when the app comes back to the foreground
+     * @param chefId id of the chef
+     */
+    public void listenToChefOrders(String chefId){
+
+        if (Preconditions.isNotNull(chefId) && chefOrdersListener == null) {
+
+            chefOrdersListener = database.collection(ORDER_COLLECTION)
+                    .whereEqualTo("chefInfo.chefId", chefId)
+                    .addSnapshotListener((snapshot, error) -> {
+                        if (error != null || snapshot == null) {
+                            // the listener is stopped after an error, a new one is attached by the next screen
+                            chefOrdersListener = null;
+                            App.ORDER_HANDLER.handleOrderChangeFailure("Failed to listen to chef's orders: " + error);
+                            return;
+                        }
+                        // only the documents which changed since the previous snapshot
+                        for (DocumentChange change : snapshot.getDocumentChanges()) {
+                            DocumentSnapshot document = change.getDocument();
+                            switch (change.getType()) {
+                                case ADDED:
+                                case MODIFIED:
+                                    try {
+                                        App.ORDER_HANDLER.handleOrderChange(change.getType() == DocumentChange.Type.ADDED ? ORDER_ADDED : ORDER_CHANGED, makeOrderFromFirebase(document));
+                                    } catch (Exception e) {
+                                        Log.e("listenToChefOrders", "skipping order " + document.getId() + ": " + e.getMessage());
                                     }
-                                } else {
-                                    Log.d("loadClientOrders", "Chef not found");
-                                }
+                                    break;
+                                case REMOVED:
+                                    App.ORDER_HANDLER.handleOrderChange(ORDER_REMOVED, document.getId());
+                                    break;
                             }
-                        } else {
-                            Log.d("loadClientOrders", "get failed with ", task.getException());
                         }
                     });
         }
     }
 
+    /**
+     * Stop listening to the orders of the chef, if listening
+     */
+    public void stopListeningToChefOrders(){
+
+        if (chefOrdersListener != null) {
+            chefOrdersListener.remove();
+            chefOrdersListener = null;
+        }
+    }
+
     public void updateChefRating(String orderId, String chefId, Double newRating){
 
         if (Preconditions.isNotNull(chefId)) {
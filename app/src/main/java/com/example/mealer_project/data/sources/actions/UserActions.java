@@ -17,6 +17,7 @@ import com.example.mealer_project.data.models.Chef;
 import com.example.mealer_project.data.models.Client;
 import com.example.mealer_project.data.models.CreditCard;
 import com.example.mealer_project.data.models.UserRoles;
+import com.example.mealer_project.data.sources.FirestoreReads;
 import com.example.mealer_project.ui.screens.ComplaintScreen;
 import com.example.mealer_project.ui.screens.LoginScreen;
 import com.example.mealer_project.utils.Response;
@@ -31,6 +32,7 @@ import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
 
 import java.text.DateFormat;
 import java.util.Locale;
@@ -38,9 +40,11 @@ import java.util.Locale;
 public class UserActions {
 
     FirebaseFirestore database;
+    FirestoreReads reads;
 
-    public UserActions(FirebaseFirestore database) {
+    public UserActions(FirebaseFirestore database, FirestoreReads reads) {
         this.database = database;
+        this.reads = reads;
     }
 
     protected void getUserById(String userId, LoginScreen loginScreen) {
@@ -49,7 +53,8 @@ public class UserActions {
         // then check if Chef
         DocumentReference userReference = database.collection(ADMIN_COLLECTION).document(userId);
 
-        userReference.get().addOnCompleteListener(task -> {
+        // login reads the user from the server only, a cached chef may no longer be suspended (signing in needs the network anyway)
+        reads.get(userReference, Source.SERVER).addOnCompleteListener(task -> {
             if (task.isSuccessful()) {
                 DocumentSnapshot document = task.getResult();
                 if (document.exists()) {
@@ -81,7 +86,7 @@ public class UserActions {
         DocumentReference userReference = database.collection(CHEF_COLLECTION).document(userId);
 
         // get Chef's data
-        userReference.get().addOnCompleteListener(task -> {
+        reads.get(userReference, Source.SERVER).addOnCompleteListener(task -> {
             if (task.isSuccessful()) {
                 DocumentSnapshot document = task.getResult();
                 if (document.exists()) {
@@ -139,7 +144,7 @@ public class UserActions {
     protected void getClientById(String userId, LoginScreen loginScreen) {
         DocumentReference userReference = database.collection(CLIENT_COLLECTION).document(userId);
 
-        userReference.get().addOnCompleteListener(task -> {
+        reads.get(userReference, Source.SERVER).addOnCompleteListener(task -> {
             if (task.isSuccessful()) {
                 DocumentSnapshot document = task.getResult();
                 if (document.exists()) {
@@ -1,14 +1,25 @@
 package com.example.mealer_project.ui.core;
 
+import android.os.Bundle;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.mealer_project.app.App;
+import com.example.mealer_project.data.sources.FirestoreReads;
+
 /**
  * Superclass for most UI screens, containing methods with common implementation
  */
 public class UIScreen extends AppCompatActivity {
 
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // any screen can be the first one created after a cold start, restore when data was last read from the server
+        App.getPrimaryDatabase().READS.setServerReadTimesStorage(getSharedPreferences(FirestoreReads.SERVER_READ_TIMES_PREFERENCES, MODE_PRIVATE));
+    }
+
     protected void displaySuccessToast(String message) {
         Toast.makeText(this.getApplicationContext(), message, Toast.LENGTH_SHORT).show();
     }
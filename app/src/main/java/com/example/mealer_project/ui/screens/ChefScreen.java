@@ -71,6 +71,27 @@ public class ChefScreen extends UIScreen implements StatefulView {
 
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Process: receiving each change of the orders while the screen is visible
+        App.ORDER_HANDLER.observeChefOrders(this);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        // Process: showing the changes made while the screen was not visible
+        updateAdapter();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Process: no listener while the screen is not visible
+        App.ORDER_HANDLER.stopObservingChefOrders(this);
+    }
+
     /**
      * retrieves the current chef's orders in progress
      */
@@ -318,6 +339,24 @@ public class ChefScreen extends UIScreen implements StatefulView {
 
     @Override
     public void dbOperationSuccessHandler(Object dbOperation, Object payload) {
+        // orders loaded or refreshed from the database
+        if (dbOperation == OrderHandler.dbOperations.LOAD_CHEF_ORDERS) {
+            updateAdapter();
+            return;
+        }
+
+        // an order of the chef changed in the database
+        if (dbOperation == OrderHandler.dbOperations.ORDER_ADDED || dbOperation == OrderHandler.dbOperations.ORDER_CHANGED
+                || dbOperation == OrderHandler.dbOperations.ORDER_REMOVED) {
+
+            if (dbOperation == OrderHandler.dbOperations.ORDER_ADDED && ((Order) payload).getIsPending()) {
+                // Output: new order received
+                displaySuccessToast("New order received!");
+            }
+            updateAdapter();
+            return;
+        }
+
         if (dbOperation == OrderHandler.dbOperations.UPDATE_ORDER) {
 
             // Output: successfully completed an order
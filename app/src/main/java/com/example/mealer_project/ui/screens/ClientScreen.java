@@ -17,8 +17,11 @@ import com.example.mealer_project.ui.core.StatefulView;
 import com.example.mealer_project.ui.core.UIScreen;
 import com.example.mealer_project.ui.screens.completed_orders.CompletedOrdersScreen;
 import com.example.mealer_project.ui.screens.pending_orders.PendingOrdersClientScreen;
+import com.example.mealer_project.ui.screens.search.SearchIndexSnapshot;
 import com.example.mealer_project.ui.screens.search.SearchScreen;
 
+import java.io.File;
+
 public class ClientScreen extends UIScreen implements StatefulView {
 
     @Override
@@ -26,6 +29,11 @@ public class ClientScreen extends UIScreen implements StatefulView {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_client_screen);
 
+        // restore searchable meals saved in a previous session, so search works before meals are retrieved from firebase
+        if (App.getClient() != null) {
+            App.getClient().getSearchMeals().restoreSnapshot(getSearchSnapshotFile());
+        }
+
         // initiate loading of searchable meals (so we have them before client goes to search screen)
         App.MEAL_HANDLER.dispatch(MealHandler.dbOperations.ADD_MEALS_TO_SEARCH_LIST, null, this);
 
@@ -37,6 +45,23 @@ public class ClientScreen extends UIScreen implements StatefulView {
         }
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // app may be killed once in background, save the searchable meals for next cold start
+        if (App.getClient() != null) {
+            App.getClient().getSearchMeals().saveSnapshot(getSearchSnapshotFile());
+        }
+    }
+
+    /**
+     * Get the file storing the snapshot of searchable meals
+     * @return snapshot file in app's private storage
+     */
+    private File getSearchSnapshotFile() {
+        return new File(getFilesDir(), SearchIndexSnapshot.FILE_NAME);
+    }
+
     private void attachOnClickListeners(){
 
         // create alert dialog
@@ -62,6 +62,27 @@ public class PendingOrdersScreen extends UIScreen implements StatefulView {
 
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Process: receiving each change of the orders while the screen is visible
+        App.ORDER_HANDLER.observeChefOrders(this);
+    }
+
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        // Process: showing the changes made while the screen was not visible
+        updatePendingOrdersList();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Process: no listener while the screen is not visible
+        App.ORDER_HANDLER.stopObservingChefOrders(this);
+    }
+
     /**
      * this helper method retrieves the current CHEF's Orders
      */
@@ -117,6 +138,19 @@ public class PendingOrdersScreen extends UIScreen implements StatefulView {
 
     }
 
+    /**
+     * this helper method reloads and shows the pending orders
+     */
+    private void updatePendingOrdersList() {
+
+        loadPendingOrdersData();
+        repopulatePendingOrdersList();
+
+        // Process: telling adapter that orders have been updated
+        pendingOrdersAdapter.notifyDataSetChanged();
+
+    }
+
     @Override
     public void updateUI() {
 
@@ -130,6 +164,26 @@ public class PendingOrdersScreen extends UIScreen implements StatefulView {
     @Override
     public void dbOperationSuccessHandler(Object dbOperation, Object payload) {
 
+        // orders loaded or refreshed from the database
+        if (dbOperation == OrderHandler.dbOperations.LOAD_CHEF_ORDERS) {
+            updatePendingOrdersList();
+            return;
+        }
+
+        // an order of the chef changed in the database
+        if (dbOperation == OrderHandler.dbOperations.ORDER_ADDED || dbOperation == OrderHandler.dbOperations.ORDER_CHANGED
+                || dbOperation == OrderHandler.dbOperations.ORDER_REMOVED) {
+
+            if (dbOperation == OrderHandler.dbOperations.ORDER_ADDED && ((Order) payload).getIsPending()) {
+                // Output: new order received
+                displaySuccessToast("New order received!");
+            }
+
+            updatePendingOrdersList();
+            return;
+
+        }
+
         if (dbOperation == OrderHandler.dbOperations.ADD_ORDER) {
 
             // Output: successfully add new order
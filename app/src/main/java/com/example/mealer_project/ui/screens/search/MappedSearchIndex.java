@@ -0,0 +1,479 @@
+package com.example.mealer_project.ui.screens.search;
+
+import com.example.mealer_project.utils.TrieSearch.Bm25Index;
+import com.example.mealer_project.utils.TrieSearch.PostingLists;
+import com.example.mealer_project.utils.TrieSearch.SearchQuery;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Search index stored in a SearchIndexSnapshot file and queried in place from the mapped file
+ * Restored meals can be searched as soon as the file is mapped, while the in-memory SearchIndex of the same
+ * meals is built in the background. Nothing is built from the file: terms, postings and BM25 statistics are
+ * read from the buffer for each query
+ * Layout of the index section, after the items of the snapshot:
+ *  - number of fields and sum of the lengths of each field over all rows
+ *  - number of rows and lengths of each field of each row, row ordinals are the order of the items in the file
+ *  - number of terms, offset of each term in the term bytes, offset of the postings of each term
+ *  - UTF-8 bytes of the terms, sorted by bytes so the terms starting with a prefix are a range of terms
+ *  - postings of each term: ordinals of the rows having the term, then the frequency of the term in each field
+ *    of each row, packed 8 bits per field (see Bm25Index)
+ * Rows match a term like in PrefixIndex, if one of their keywords starts with the term. Terms are not matched
+ * inside keywords, and facet conditions are not supported: such queries wait for the in-memory index
+ */
+final class MappedSearchIndex {
+
+    // BM25 field boosts, in the same order as SearchIndex.getRankingTerms
+    static final double[] FIELD_BOOSTS = {SearchMeals.NAME_BOOST, SearchMeals.CUISINE_BOOST, SearchMeals.DESCRIPTION_BOOST, SearchMeals.KEYWORDS_BOOST};
+    // field of the meal keywords, only keywords are matched by a query
+    private static final int KEYWORDS_FIELD = 3;
+
+    // snapshot data, only read with absolute gets so it can be searched by several threads
+    private final ByteBuffer buffer;
+    // items by ordinal, null if the stored meal is no longer valid
+    private final SearchMealItem[] items;
+    // valid items by id, in the order they were stored
+    private final Map<String, SearchMealItem> searchMealItems;
+    // sum of lengths of each field over all rows
+    private final long[] totalFieldLengths;
+    private final int rowCount;
+    private final int termCount;
+    // position of each section in the buffer
+    private final int fieldLengthsStart;
+    private final int termOffsetsStart;
+    private final int postingOffsetsStart;
+    private final int termBytesStart;
+    private final int ordinalsStart;
+    private final int frequenciesStart;
+
+    /**
+     * Map the index section of a snapshot
+     * @param buffer snapshot data, positioned at the start of the index section
+     * @param items items of the snapshot by ordinal, null for items which are no longer valid
+     * @throws IOException if the index section does not match the items
+     */
+    MappedSearchIndex(ByteBuffer buffer, SearchMealItem[] items) throws IOException {
+        int fieldCount = buffer.getInt();
+        if (fieldCount != FIELD_BOOSTS.length) {
+            throw new IOException("Unexpected number of fields: " + fieldCount);
+        }
+        this.totalFieldLengths = new long[fieldCount];
+        for (int field = 0; field < fieldCount; field++) {
+            this.totalFieldLengths[field] = buffer.getLong();
+        }
+        this.rowCount = buffer.getInt();
+        if (this.rowCount != items.length) {
+            throw new IOException("Unexpected number of rows: " + this.rowCount);
+        }
+        // sections are skipped, a truncated file fails here rather than during a search
+        this.fieldLengthsStart = skip(buffer, (long) this.rowCount * fieldCount * 4);
+        this.termCount = buffer.getInt();
+        this.termOffsetsStart = skip(buffer, (this.termCount + 1L) * 4);
+        this.postingOffsetsStart = skip(buffer, (this.termCount + 1L) * 4);
+        this.termBytesStart = skip(buffer, buffer.getInt(this.termOffsetsStart + this.termCount * 4));
+        int postingCount = buffer.getInt(this.postingOffsetsStart + this.termCount * 4);
+        this.ordinalsStart = skip(buffer, postingCount * 4L);
+        this.frequenciesStart = skip(buffer, postingCount * 4L);
+        this.buffer = buffer;
+        this.items = items;
+        Map<String, SearchMealItem> itemsById = new LinkedHashMap<>();
+        for (SearchMealItem item : items) {
+            if (item != null) {
+                itemsById.put(item.getId(), item);
+            }
+        }
+        this.searchMealItems = Collections.unmodifiableMap(itemsById);
+    }
+
+    /**
+     * Skip a section of the buffer
+     * @return position of the section
+     */
+    private static int skip(ByteBuffer buffer, long length) {
+        int start = buffer.position();
+        if (length < 0 || start + length > buffer.limit()) {
+            throw new IndexOutOfBoundsException("Section out of the snapshot");
+        }
+        buffer.position((int) (start + length));
+        return start;
+    }
+
+    /**
+     * Write the index section of a snapshot
+     * @param out snapshot file, after the items
+     * @param items items of the snapshot, in the order they were written
+     * @throws IOException if the section could not be written
+     */
+    static void write(DataOutputStream out, Collection<SearchMealItem> items) throws IOException {
+        int fieldCount = FIELD_BOOSTS.length;
+        long[] totalFieldLengths = new long[fieldCount];
+        int[] fieldLengths = new int[items.size() * fieldCount];
+        Map<String, TermPostings> postingsByTerm = new HashMap<>();
+        int ordinal = 0;
+        for (SearchMealItem item : items) {
+            List<List<String>> fields = SearchIndex.getRankingTerms(item.getMeal());
+            // frequencies of each term of the row, packed 8 bits per field
+            Map<String, Integer> rowFrequencies = new HashMap<>();
+            for (int field = 0; field < fieldCount; field++) {
+                List<String> fieldTerms = fields.get(field);
+                fieldLengths[ordinal * fieldCount + field] = fieldTerms.size();
+                totalFieldLengths[field] += fieldTerms.size();
+                for (String term : fieldTerms) {
+                    Integer packed = rowFrequencies.get(term);
+                    rowFrequencies.put(term, Bm25Index.addFrequency(packed != null ? packed : 0, field));
+                }
+            }
+            // rows are added in ordinal order, so postings are sorted
+            for (Map.Entry<String, Integer> entry : rowFrequencies.entrySet()) {
+                TermPostings postings = postingsByTerm.get(entry.getKey());
+                if (postings == null) {
+                    postings = new TermPostings(entry.getKey());
+                    postingsByTerm.put(entry.getKey(), postings);
+                }
+                postings.add(ordinal, entry.getValue());
+            }
+            ordinal++;
+        }
+        List<TermPostings> terms = new ArrayList<>(postingsByTerm.values());
+        Collections.sort(terms, new Comparator<TermPostings>() {
+            @Override
+            public int compare(TermPostings first, TermPostings second) {
+                return compareBytes(first.bytes, second.bytes);
+            }
+        });
+
+        out.writeInt(fieldCount);
+        for (long totalFieldLength : totalFieldLengths) {
+            out.writeLong(totalFieldLength);
+        }
+        out.writeInt(items.size());
+        for (int fieldLength : fieldLengths) {
+            out.writeInt(fieldLength);
+        }
+        out.writeInt(terms.size());
+        // offsets of the term bytes, then of the postings, each with the end offset of the last term
+        int offset = 0;
+        for (TermPostings postings : terms) {
+            out.writeInt(offset);
+            offset += postings.bytes.length;
+        }
+        out.writeInt(offset);
+        offset = 0;
+        for (TermPostings postings : terms) {
+            out.writeInt(offset);
+            offset += postings.count;
+        }
+        out.writeInt(offset);
+        for (TermPostings postings : terms) {
+            out.write(postings.bytes);
+        }
+        for (TermPostings postings : terms) {
+            for (int i = 0; i < postings.count; i++) {
+                out.writeInt(postings.ordinals[i]);
+            }
+        }
+        for (TermPostings postings : terms) {
+            for (int i = 0; i < postings.count; i++) {
+                out.writeInt(postings.frequencies[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the valid items of the snapshot
+     * @return unmodifiable map of SearchMealItems by id, in the order they were stored
+     */
+    Map<String, SearchMealItem> getSearchMealItems() {
+        return this.searchMealItems;
+    }
+
+    /**
+     * Get the items matching a query, in the order they were stored
+     * @param query parsed text query
+     * @return matching items, empty list if no match
+     */
+    List<SearchMealItem> search(SearchQuery query) {
+        int[] matches = getMatches(query);
+        List<SearchMealItem> result = new ArrayList<>(matches.length);
+        for (int ordinal : matches) {
+            if (this.items[ordinal] != null) {
+                result.add(this.items[ordinal]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the k best items matching a query, ranked like Bm25Index.topK
+     * @param query parsed text query
+     * @param k maximum number of items
+     * @param rowKey key of each item id, lower keys rank first (null to rank by score only)
+     * @return at most k items, by increasing key then decreasing score (ties by the order they were stored)
+     */
+    List<SearchMealItem> topK(SearchQuery query, int k, Bm25Index.RowKey rowKey) {
+        int[] candidates = getMatches(query);
+        if (k <= 0 || candidates.length == 0) {
+            return new ArrayList<>();
+        }
+        // scores of the candidates, by position in the candidates
+        double[] scores = new double[candidates.length];
+        double[] averageLengths = Bm25Index.getAverageLengths(this.totalFieldLengths, this.rowCount);
+        for (List<String> clause : query.getRequiredClauses()) {
+            for (String term : clause) {
+                accumulate(getBytes(term), candidates, scores, averageLengths);
+            }
+        }
+        // keep the k best candidates in a min heap
+        PriorityQueue<ScoredItem> heap = new PriorityQueue<>(Math.min(k, candidates.length) + 1);
+        for (int i = 0; i < candidates.length; i++) {
+            SearchMealItem item = this.items[candidates[i]];
+            if (item == null) continue;
+            ScoredItem scoredItem = new ScoredItem(item, candidates[i], rowKey != null ? rowKey.getKey(item.getId()) : 0, scores[i]);
+            if (heap.size() < k) {
+                heap.add(scoredItem);
+            } else if (scoredItem.compareTo(heap.peek()) > 0) {
+                heap.poll();
+                heap.add(scoredItem);
+            }
+        }
+        // heap returns the worst item first
+        List<SearchMealItem> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().item);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Evaluate a query to the sorted ordinals of the matching rows
+     */
+    private int[] getMatches(SearchQuery query) {
+        if (query.isEmpty() || this.rowCount == 0) {
+            return PostingLists.EMPTY;
+        }
+        int[] result = null;
+        for (List<String> clause : query.getRequiredClauses()) {
+            int[] postings = getClausePostings(clause);
+            result = result == null ? postings : PostingLists.intersect(result, result.length, postings, postings.length);
+            if (result.length == 0) {
+                return result;
+            }
+        }
+        for (List<String> clause : query.getExcludedClauses()) {
+            int[] excluded = getClausePostings(clause);
+            result = PostingLists.difference(result, result.length, excluded, excluded.length);
+        }
+        return result;
+    }
+
+    /**
+     * Get the sorted ordinals of the rows having a keyword starting with any of the terms of a clause
+     */
+    private int[] getClausePostings(List<String> clause) {
+        int[] result = PostingLists.EMPTY;
+        for (String term : clause) {
+            byte[] prefix = getBytes(term);
+            int start = findTerm(prefix, false);
+            int end = findTerm(prefix, true);
+            // rows of all the keywords starting with the term, a row with several of them appears once
+            int count = 0;
+            int[] collected = new int[16];
+            for (int termIndex = start; termIndex < end; termIndex++) {
+                int from = getPostingOffset(termIndex);
+                int to = getPostingOffset(termIndex + 1);
+                for (int i = from; i < to; i++) {
+                    if (Bm25Index.getFrequency(getFrequencies(i), KEYWORDS_FIELD) == 0) continue;
+                    if (count == collected.length) {
+                        collected = Arrays.copyOf(collected, count * 2);
+                    }
+                    collected[count++] = getOrdinal(i);
+                }
+            }
+            Arrays.sort(collected, 0, count);
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (size == 0 || collected[size - 1] != collected[i]) {
+                    collected[size++] = collected[i];
+                }
+            }
+            result = PostingLists.union(result, result.length, collected, size);
+        }
+        return result;
+    }
+
+    /**
+     * Add the score of a query term to the candidates having it, like Bm25Index: the term and the first terms
+     * starting with it are scored as one term sharing the same idf, terms only starting with it weigh less
+     */
+    private void accumulate(byte[] term, int[] candidates, double[] scores, double[] averageLengths) {
+        int start = findTerm(term, false);
+        int end = Math.min(findTerm(term, true), start + 1 + Bm25Index.MAX_PREFIX_EXPANSIONS);
+        if (start == end) return;
+        boolean hasExact = getTermLength(start) == term.length;
+        if (!hasExact) {
+            end = Math.min(end, start + Bm25Index.MAX_PREFIX_EXPANSIONS);
+        }
+        int documentFrequency = getPostingOffset(end) - getPostingOffset(start);
+        double idf = Bm25Index.getIdf(this.rowCount, Math.min(documentFrequency, this.rowCount));
+        for (int termIndex = start; termIndex < end; termIndex++) {
+            double weight = hasExact && termIndex == start ? idf : Bm25Index.PREFIX_MATCH_WEIGHT * idf;
+            // candidates and postings are both sorted by ordinal
+            int candidate = 0;
+            int to = getPostingOffset(termIndex + 1);
+            for (int i = getPostingOffset(termIndex); i < to && candidate < candidates.length; i++) {
+                int ordinal = getOrdinal(i);
+                while (candidate < candidates.length && candidates[candidate] < ordinal) candidate++;
+                if (candidate == candidates.length || candidates[candidate] != ordinal) continue;
+                int packed = getFrequencies(i);
+                double frequency = 0;
+                for (int field = 0; field < FIELD_BOOSTS.length; field++) {
+                    int fieldFrequency = Bm25Index.getFrequency(packed, field);
+                    if (fieldFrequency == 0) continue;
+                    frequency += Bm25Index.getFieldFrequency(FIELD_BOOSTS[field], fieldFrequency, getFieldLength(ordinal, field), averageLengths[field]);
+                }
+                scores[candidate] += Bm25Index.saturate(weight, frequency);
+            }
+        }
+    }
+
+    /**
+     * Binary search of the sorted terms
+     * @param prefix UTF-8 bytes of a term
+     * @param after false to find the first term >= prefix, true to find the first term after all the terms
+     *              starting with prefix
+     * @return index of the term, termCount if there is none
+     */
+    private int findTerm(byte[] prefix, boolean after) {
+        int low = 0;
+        int high = this.termCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(middle, prefix);
+            if (comparison < 0 || (after && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compare the start of a term with a prefix
+     * @return negative if the term is before the prefix, 0 if it starts with the prefix, positive if it is after
+     */
+    private int comparePrefix(int termIndex, byte[] prefix) {
+        int start = this.termBytesStart + this.buffer.getInt(this.termOffsetsStart + termIndex * 4);
+        int length = getTermLength(termIndex);
+        for (int i = 0; i < Math.min(length, prefix.length); i++) {
+            int difference = (this.buffer.get(start + i) & 0xFF) - (prefix[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length < prefix.length ? -1 : 0;
+    }
+
+    private int getTermLength(int termIndex) {
+        return this.buffer.getInt(this.termOffsetsStart + (termIndex + 1) * 4) - this.buffer.getInt(this.termOffsetsStart + termIndex * 4);
+    }
+
+    private int getPostingOffset(int termIndex) {
+        return this.buffer.getInt(this.postingOffsetsStart + termIndex * 4);
+    }
+
+    private int getOrdinal(int posting) {
+        return this.buffer.getInt(this.ordinalsStart + posting * 4);
+    }
+
+    private int getFrequencies(int posting) {
+        return this.buffer.getInt(this.frequenciesStart + posting * 4);
+    }
+
+    private int getFieldLength(int ordinal, int field) {
+        return this.buffer.getInt(this.fieldLengthsStart + (ordinal * FIELD_BOOSTS.length + field) * 4);
+    }
+
+    private static byte[] getBytes(String term) {
+        return term.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare byte arrays as unsigned bytes, the order of the code points of UTF-8 strings
+     */
+    private static int compareBytes(byte[] first, byte[] second) {
+        for (int i = 0; i < Math.min(first.length, second.length); i++) {
+            int difference = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return first.length - second.length;
+    }
+
+    /**
+     * Rows having a term, collected while the snapshot is written
+     */
+    private static class TermPostings {
+        final byte[] bytes;
+        int[] ordinals = new int[2];
+        int[] frequencies = new int[2];
+        int count;
+
+        TermPostings(String term) {
+            this.bytes = term.getBytes(StandardCharsets.UTF_8);
+        }
+
+        void add(int ordinal, int packedFrequencies) {
+            if (count == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, count * 2);
+                frequencies = Arrays.copyOf(frequencies, count * 2);
+            }
+            ordinals[count] = ordinal;
+            frequencies[count] = packedFrequencies;
+            count++;
+        }
+    }
+
+    /**
+     * Candidate item with its key and score, ordered like the rows of Bm25Index
+     */
+    private static class ScoredItem implements Comparable<ScoredItem> {
+        final SearchMealItem item;
+        final int ordinal;
+        final long key;
+        final double score;
+
+        ScoredItem(SearchMealItem item, int ordinal, long key, double score) {
+            this.item = item;
+            this.ordinal = ordinal;
+            this.key = key;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredItem other) {
+            // lower key ranks higher
+            int comparison = Long.compare(other.key, key);
+            if (comparison != 0) return comparison;
+            comparison = Double.compare(score, other.score);
+            // lower ordinal ranks higher on ties
+            return comparison != 0 ? comparison : Integer.compare(other.ordinal, ordinal);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.mealer_project.ui.screens.search;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs search queries off the main thread
+ * Keystrokes are debounced: a query only starts once the user stops typing for a short delay.
+ * Queries run one at a time on a background worker, a newer query cancels the query still running
+ * and only the result of the latest query is posted back to the main thread.
+ * All public methods must be called from the main thread.
+ * @param <T> type of the search result
+ */
+public class SearchExecutor<T> {
+
+    /**
+     * Search to run on the background worker
+     */
+    public interface SearchTask<T> {
+        T search(String query);
+    }
+
+    /**
+     * Receives the result of the latest query on the main thread
+     */
+    public interface ResultListener<T> {
+        void onSearchResult(String query, T result);
+    }
+
+    // default delay after the last keystroke before a query starts
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+    private final SearchTask<T> searchTask;
+    private final ResultListener<T> resultListener;
+    private final long debounceMillis;
+
+    private final Handler mainHandler;
+    private final ExecutorService worker;
+    // generation of the latest submitted query, results of older generations are discarded
+    private final AtomicLong latestGeneration;
+
+    // query waiting for the debounce delay
+    private Runnable pendingSearch;
+    // query submitted to the worker
+    private Future<?> runningSearch;
+
+    public SearchExecutor(SearchTask<T> searchTask, ResultListener<T> resultListener) {
+        this(searchTask, resultListener, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public SearchExecutor(SearchTask<T> searchTask, ResultListener<T> resultListener, long debounceMillis) {
+        this.searchTask = searchTask;
+        this.resultListener = resultListener;
+        this.debounceMillis = debounceMillis;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.worker = Executors.newSingleThreadExecutor();
+        this.latestGeneration = new AtomicLong();
+    }
+
+    /**
+     * Submit a new query, cancelling any query pending or still running
+     * @param query query entered by the user
+     */
+    public void submit(final String query) {
+        final long generation = cancel();
+        pendingSearch = new Runnable() {
+            @Override
+            public void run() {
+                pendingSearch = null;
+                runningSearch = worker.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        runSearch(query, generation);
+                    }
+                });
+            }
+        };
+        mainHandler.postDelayed(pendingSearch, debounceMillis);
+    }
+
+    /**
+     * Cancel the query pending or still running, its result won't be delivered
+     * @return generation of queries submitted after this call
+     */
+    public long cancel() {
+        long generation = latestGeneration.incrementAndGet();
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+        if (runningSearch != null) {
+            runningSearch.cancel(true);
+            runningSearch = null;
+        }
+        return generation;
+    }
+
+    /**
+     * Cancel all queries and stop the background worker, the executor can't be used afterwards
+     */
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    /**
+     * Run a query on the worker thread and post its result if it's still the latest query
+     * @param query query to run
+     * @param generation generation of the query
+     */
+    private void runSearch(final String query, final long generation) {
+        // skip queries which were superseded while waiting for the worker
+        if (generation != latestGeneration.get()) {
+            return;
+        }
+        final T result = searchTask.search(query);
+        if (generation != latestGeneration.get() || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // a newer query may have been submitted while the result was being posted
+                if (generation == latestGeneration.get()) {
+                    resultListener.onSearchResult(query, result);
+                }
+            }
+        });
+    }
+}
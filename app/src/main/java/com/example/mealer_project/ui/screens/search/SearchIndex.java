@@ -0,0 +1,445 @@
+package com.example.mealer_project.ui.screens.search;
+
+import com.example.mealer_project.data.models.meals.Meal;
+import com.example.mealer_project.data.models.orders.ChefInfo;
+import com.example.mealer_project.utils.PostalCodes.FsaCentroids;
+import com.example.mealer_project.utils.PostalCodes.LocationIndex;
+import com.example.mealer_project.utils.PostalCodes.PostalCode;
+import com.example.mealer_project.utils.PostalCodes.PostalCodeComparator;
+import com.example.mealer_project.utils.TrieSearch.Bm25Index;
+import com.example.mealer_project.utils.TrieSearch.FacetIndex;
+import com.example.mealer_project.utils.TrieSearch.FacetQuery;
+import com.example.mealer_project.utils.TrieSearch.KeywordSearch;
+import com.example.mealer_project.utils.TrieSearch.PrefixIndex;
+import com.example.mealer_project.utils.TrieSearch.PriceIndex;
+import com.example.mealer_project.utils.TrieSearch.RoaringBitmap;
+import com.example.mealer_project.utils.TrieSearch.RowIds;
+import com.example.mealer_project.utils.TrieSearch.SearchQuery;
+import com.example.mealer_project.utils.TrieSearch.TermDictionary;
+import com.example.mealer_project.utils.TrieSearch.TriesSearch;
+import com.example.mealer_project.utils.Utilities;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the searchable meals and of their indexes
+ * A snapshot is fully built before it is published by SearchMeals, and is never modified afterwards, so any
+ * number of threads can search it without locking. Adding items builds a new snapshot of the next generation,
+ * which forks the indexes of the previous snapshot and only adds the new items: both snapshots share the items
+ * and index structures which did not change
+ */
+final class SearchIndex {
+
+    // number of builds which produced this snapshot, cached results of another generation are outdated
+    final int generation;
+    // map to store SearchMealItem with their id's as the key value, in the order the items were added
+    final Map<String, SearchMealItem> searchMealItems;
+    // ids of the items by ordinal, and the items by ordinal, shared with the other snapshots which only read the
+    // items of their own ordinals
+    private final RowIds itemRows;
+    private SearchMealItem[] items;
+    // instance of KeywordSearch - the utility we use for search
+    final KeywordSearch triesSearch;
+    // relevance ranking of the items
+    final Bm25Index rankingIndex;
+    // bitmaps of the items having each cuisine, meal type, allergen and price
+    final FacetIndex facetIndex;
+    // items sorted by price, used to browse meals by price
+    final PriceIndex priceIndex;
+    // chef of the items by chef id, shared with the previous snapshot until a chef is added or changed
+    private Map<String, ChefInfo> chefs;
+    private boolean chefsShared;
+    // proximity of each chef to the origin of the latest proximity search, computed once per origin
+    private volatile ChefProximity chefProximity;
+    // location of each chef with a valid postal code, built by the first nearest chefs search
+    private volatile LocationIndex chefLocations;
+    // cursor of each searching thread for search-as-you-type (PrefixIndex only), a cursor keeps the state of
+    // the previous query of its thread so it can't be shared
+    private final ThreadLocal<PrefixIndex.Cursor> searchCursors;
+
+    private SearchIndex(boolean usePrefixIndex, int generation) {
+        this.generation = generation;
+        this.itemRows = new RowIds();
+        this.items = new SearchMealItem[16];
+        this.rankingIndex = new Bm25Index(SearchMeals.NAME_BOOST, SearchMeals.CUISINE_BOOST, SearchMeals.DESCRIPTION_BOOST, SearchMeals.KEYWORDS_BOOST);
+        this.facetIndex = new FacetIndex();
+        this.priceIndex = new PriceIndex();
+        this.chefs = new HashMap<>();
+        this.triesSearch = usePrefixIndex ? new PrefixIndex(SearchMeals.USE_INFIX_SEARCH) : new TriesSearch();
+        this.searchCursors = createSearchCursors(this.triesSearch);
+        this.searchMealItems = new ItemsView();
+    }
+
+    private SearchIndex(SearchIndex previous, Collection<SearchMealItem> newItems) {
+        this.generation = previous.generation + 1;
+        this.itemRows = previous.itemRows.fork();
+        this.items = previous.items;
+        this.rankingIndex = previous.rankingIndex.fork();
+        this.facetIndex = previous.facetIndex.fork();
+        this.priceIndex = previous.priceIndex.fork();
+        this.chefs = previous.chefs;
+        this.chefsShared = true;
+        this.triesSearch = previous.triesSearch.fork();
+        this.searchCursors = createSearchCursors(this.triesSearch);
+        this.searchMealItems = new ItemsView();
+        for (SearchMealItem item : newItems) {
+            addItem(item);
+        }
+        // sort the price index now, so searches never modify it
+        this.priceIndex.merge();
+    }
+
+    /**
+     * Create the empty snapshot, searched until the first items are added
+     * @param usePrefixIndex true to use a shared PrefixIndex, false to use one Trie per item
+     * @return snapshot of generation 0
+     */
+    static SearchIndex empty(boolean usePrefixIndex) {
+        return new SearchIndex(usePrefixIndex, 0);
+    }
+
+    /**
+     * Build the snapshot following a previous one
+     * The indexes of the previous snapshot are forked, so only the new items are indexed
+     * @param previous snapshot currently published, the latest snapshot built
+     * @param newItems items to add, an item replaces the previous item with the same id
+     * @return new snapshot containing the items of the previous snapshot and the new items
+     */
+    static SearchIndex build(SearchIndex previous, Collection<SearchMealItem> newItems) {
+        return new SearchIndex(previous, newItems);
+    }
+
+    /**
+     * Build the snapshot following a previous one from new indexes, containing only the given items
+     * Items of the previous snapshot which are not given are dropped, the indexes can't remove items
+     * @param previous snapshot currently published, the latest snapshot built
+     * @param items items of the new snapshot
+     * @return new snapshot containing only the given items, of the generation following the previous snapshot
+     */
+    static SearchIndex rebuild(SearchIndex previous, Collection<SearchMealItem> items) {
+        return new SearchIndex(new SearchIndex(previous.triesSearch instanceof PrefixIndex, previous.generation), items);
+    }
+
+    private static ThreadLocal<PrefixIndex.Cursor> createSearchCursors(KeywordSearch triesSearch) {
+        if (!(triesSearch instanceof PrefixIndex)) {
+            return null;
+        }
+        final PrefixIndex prefixIndex = (PrefixIndex) triesSearch;
+        return new ThreadLocal<PrefixIndex.Cursor>() {
+            @Override
+            protected PrefixIndex.Cursor initialValue() {
+                return prefixIndex.cursor();
+            }
+        };
+    }
+
+    private void addItem(SearchMealItem item) {
+        // a replaced item moves to the end, like an item added again to the indexes
+        int ordinal = this.itemRows.add(item.getId());
+        // the previous snapshot only reads the items of its own ordinals, so appending to the shared array is safe
+        if (ordinal == this.items.length) {
+            this.items = Arrays.copyOf(this.items, ordinal + (ordinal >> 1));
+        }
+        this.items[ordinal] = item;
+        // add meal's keywords to the TriesSearch dataset with an associated SearchMealItem id
+        // if there is a match in these keywords, we would get the corresponding SearchMealItem id
+        this.triesSearch.addData(item.getId(), item.getMeal().getKeywordIds());
+        // update term statistics used to rank results
+        this.rankingIndex.addData(item.getId(), getRankingFields(item.getMeal()));
+        // index the facets used to filter results
+        addFacets(item);
+        this.priceIndex.addData(item.getId(), item.getMeal().getPrice());
+        ChefInfo chef = item.getChef();
+        if (chef != null && chef.getChefId() != null && this.chefs.get(chef.getChefId()) != chef) {
+            if (this.chefsShared) {
+                this.chefs = new HashMap<>(this.chefs);
+                this.chefsShared = false;
+            }
+            this.chefs.put(chef.getChefId(), chef);
+        }
+    }
+
+    /**
+     * Get ids of SearchMealItems matching a query
+     * Facet conditions are answered with bitmaps, then used to filter the items matching the text of the query
+     * @param facetQuery query entered by the client, split into facet conditions and text
+     * @return list of ids, empty list if no match
+     */
+    List<String> getMatchingIds(FacetQuery facetQuery) {
+        if (!facetQuery.hasConditions()) {
+            return getTextMatchingIds(facetQuery.getTextQuery());
+        }
+        RoaringBitmap facetMatches = this.facetIndex.evaluate(facetQuery);
+        if (SearchQuery.parse(facetQuery.getTextQuery()).isEmpty()) {
+            // only facet conditions, e.g. browsing all Indian meals
+            return this.facetIndex.getIds(facetMatches);
+        }
+        return this.facetIndex.filter(getTextMatchingIds(facetQuery.getTextQuery()), facetMatches);
+    }
+
+    /**
+     * Get ids of SearchMealItems matching the text of a query
+     * @param query query entered by the client, without facet conditions
+     * @return list of ids, empty list if no match
+     */
+    private List<String> getTextMatchingIds(String query) {
+        // query is split into terms with the same rules as meal keywords, terms are combined with AND
+        // unless OR / NOT operators are used, and each term is matched as a prefix of a keyword
+        // get a list containing ids of SearchMealItems which have a match
+        // when available, the cursor only processes characters added since the previous query
+        List<String> triesSearchResult = this.searchCursors != null ? this.searchCursors.get().pMatch(query) : SearchQuery.parse(query).evaluate(this.triesSearch);
+        // no data to search in, or invalid query
+        if (triesSearchResult == null) {
+            return new ArrayList<>();
+        }
+        // if nothing matched, the query may contain typos: retry with a typo tolerant match
+        if (triesSearchResult.isEmpty() && this.triesSearch instanceof PrefixIndex) {
+            triesSearchResult = ((PrefixIndex) this.triesSearch).fuzzySearch(SearchQuery.parse(query));
+        }
+        return triesSearchResult;
+    }
+
+    /**
+     * Get the proximity of the chef of each item to an origin, used to rank items by closeness
+     * Items are ordered by the distance between the FSA centroids of the chef and of the origin, then by closeness
+     * of the postal codes (see PostalCodeComparator) for chefs in the same area.
+     * The distance of each chef is computed once per origin, not once per comparison
+     * @param originPostalCode postal code of the client
+     * @return key of each item id, lower keys are closer, items of chefs without a valid postal code rank last
+     * @throws IllegalArgumentException if the origin postal code is invalid
+     */
+    Bm25Index.RowKey getProximityKey(String originPostalCode) throws IllegalArgumentException {
+        ChefProximity proximity = this.chefProximity;
+        if (proximity == null || !proximity.origin.equals(originPostalCode)) {
+            proximity = new ChefProximity(originPostalCode, this.chefs.values());
+            // racing searches compute the same keys, any of them can be kept
+            this.chefProximity = proximity;
+        }
+        return getProximityKey(proximity, this.searchMealItems);
+    }
+
+    /**
+     * Get the proximity of the chef of each item to an origin, for items which are not in a snapshot
+     * @param originPostalCode postal code of the client
+     * @param items items to rank by id
+     * @return key of each item id, lower keys are closer, items of chefs without a valid postal code rank last
+     * @throws IllegalArgumentException if the origin postal code is invalid
+     */
+    static Bm25Index.RowKey getProximityKey(String originPostalCode, Map<String, SearchMealItem> items) throws IllegalArgumentException {
+        Map<String, ChefInfo> chefs = new HashMap<>();
+        for (SearchMealItem item : items.values()) {
+            ChefInfo chef = item.getChef();
+            if (chef != null && chef.getChefId() != null) {
+                chefs.put(chef.getChefId(), chef);
+            }
+        }
+        return getProximityKey(new ChefProximity(originPostalCode, chefs.values()), items);
+    }
+
+    private static Bm25Index.RowKey getProximityKey(ChefProximity proximity, Map<String, SearchMealItem> items) {
+        final Map<String, Long> chefKeys = proximity.chefKeys;
+        return id -> {
+            ChefInfo chef = items.get(id).getChef();
+            Long key = chef != null ? chefKeys.get(chef.getChefId()) : null;
+            return key != null ? key : Long.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Get the chefs nearest to an origin
+     * Chefs are found in a k-d tree of their locations, without computing the distance of every chef
+     * @param originPostalCode postal code of the client
+     * @param k maximum number of chefs
+     * @return at most k chefs, nearest first, chefs without a valid postal code are never returned
+     * @throws IllegalArgumentException if the origin postal code is invalid
+     */
+    List<ChefInfo> getNearestChefs(String originPostalCode, int k) throws IllegalArgumentException {
+        double[] origin = FsaCentroids.getCentroid(new PostalCode(originPostalCode));
+        List<ChefInfo> nearestChefs = new ArrayList<>();
+        for (String chefId : getChefLocations().getNearest(origin[0], origin[1], k)) {
+            nearestChefs.add(this.chefs.get(chefId));
+        }
+        return nearestChefs;
+    }
+
+    private LocationIndex getChefLocations() {
+        LocationIndex locations = this.chefLocations;
+        if (locations == null) {
+            List<String> chefIds = new ArrayList<>();
+            List<double[]> centroids = new ArrayList<>();
+            for (ChefInfo chef : this.chefs.values()) {
+                PostalCode postalCode = getPostalCode(chef);
+                if (postalCode != null) {
+                    chefIds.add(chef.getChefId());
+                    centroids.add(FsaCentroids.getCentroid(postalCode));
+                }
+            }
+            double[] latitudes = new double[centroids.size()];
+            double[] longitudes = new double[centroids.size()];
+            for (int i = 0; i < centroids.size(); i++) {
+                latitudes[i] = centroids.get(i)[0];
+                longitudes[i] = centroids.get(i)[1];
+            }
+            locations = new LocationIndex(chefIds, latitudes, longitudes);
+            // racing searches build the same index, any of them can be kept
+            this.chefLocations = locations;
+        }
+        return locations;
+    }
+
+    /**
+     * Get the postal code of a chef
+     * @param chef chef of an item
+     * @return postal code, null if the chef has no valid postal code
+     */
+    private static PostalCode getPostalCode(ChefInfo chef) {
+        if (chef.getChefAddress() == null || chef.getChefAddress().getPostalCode() == null) {
+            return null;
+        }
+        try {
+            return new PostalCode(chef.getChefAddress().getPostalCode());
+        } catch (IllegalArgumentException e) {
+            // invalid postal code
+            return null;
+        }
+    }
+
+    /**
+     * Add the cuisine, meal type, allergens and price of an item to the facet index
+     * @param item item to index
+     */
+    private void addFacets(SearchMealItem item) {
+        Meal meal = item.getMeal();
+        int ordinal = this.facetIndex.addRow(item.getId());
+        this.facetIndex.addValue(ordinal, SearchMeals.CUISINE_FACET, meal.getCuisineType());
+        this.facetIndex.addValue(ordinal, SearchMeals.MEAL_TYPE_FACET, meal.getMealType());
+        this.facetIndex.addValues(ordinal, SearchMeals.ALLERGEN_FACET, meal.getAllergens());
+        this.facetIndex.addNumber(ordinal, SearchMeals.PRICE_FACET, meal.getPrice());
+    }
+
+    /**
+     * Get the term ids of each field of a meal used for ranking, in the order of the field boosts
+     * @param meal meal to be ranked
+     * @return term ids for name, cuisine, description and keywords
+     */
+    private static int[][] getRankingFields(Meal meal) {
+        TermDictionary dictionary = TermDictionary.getInstance();
+        int[] keywords = meal.getKeywordIds() != null ? meal.getKeywordIds() : new int[0];
+        return new int[][] {
+                dictionary.getOrAddIds(Utilities.getKeywordTokens(meal.getName())),
+                dictionary.getOrAddIds(Utilities.getKeywordTokens(meal.getCuisineType())),
+                dictionary.getOrAddIds(Utilities.getKeywordTokens(meal.getDescription())),
+                keywords
+        };
+    }
+
+    /**
+     * Get the terms of each field of a meal used for ranking, the same fields as getRankingFields
+     * Used to store ranking statistics where term ids are not valid, ex: in a snapshot file
+     * @param meal meal to be ranked
+     * @return terms of name, cuisine, description and keywords
+     */
+    static List<List<String>> getRankingTerms(Meal meal) {
+        List<String> keywords = meal.getKeywords() != null ? meal.getKeywords() : new ArrayList<String>();
+        return Arrays.asList(
+                Utilities.getKeywordTokens(meal.getName()),
+                Utilities.getKeywordTokens(meal.getCuisineType()),
+                Utilities.getKeywordTokens(meal.getDescription()),
+                keywords
+        );
+    }
+
+    /**
+     * Read only map of the items of this snapshot, in the order the items were added
+     */
+    private class ItemsView extends AbstractMap<String, SearchMealItem> {
+
+        @Override
+        public SearchMealItem get(Object id) {
+            int ordinal = id instanceof String ? itemRows.getOrdinal((String) id) : -1;
+            return ordinal >= 0 ? items[ordinal] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object id) {
+            return get(id) != null;
+        }
+
+        @Override
+        public int size() {
+            return itemRows.size();
+        }
+
+        @Override
+        public Set<Entry<String, SearchMealItem>> entrySet() {
+            return new AbstractSet<Entry<String, SearchMealItem>>() {
+                @Override
+                public Iterator<Entry<String, SearchMealItem>> iterator() {
+                    return new Iterator<Entry<String, SearchMealItem>>() {
+                        // ordinal of the next item, replaced items are skipped
+                        private int next = skipRemoved(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < itemRows.getOrdinalCount();
+                        }
+
+                        @Override
+                        public Entry<String, SearchMealItem> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int ordinal = next;
+                            next = skipRemoved(ordinal + 1);
+                            return new SimpleImmutableEntry<>(itemRows.getId(ordinal), items[ordinal]);
+                        }
+
+                        private int skipRemoved(int ordinal) {
+                            while (ordinal < itemRows.getOrdinalCount() && itemRows.isRemoved(ordinal)) ordinal++;
+                            return ordinal;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return itemRows.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Distance key of each chef to an origin postal code: distance between FSA centroids in the high bits, closeness
+     * of the postal codes (PostalCodeComparator distance key, 30 bits) in the low bits
+     */
+    private static class ChefProximity {
+        final String origin;
+        final Map<String, Long> chefKeys;
+
+        ChefProximity(String origin, Collection<ChefInfo> chefs) throws IllegalArgumentException {
+            PostalCode originPostalCode = new PostalCode(origin);
+            int originCode = originPostalCode.getCode();
+            this.origin = origin;
+            this.chefKeys = new HashMap<>();
+            for (ChefInfo chef : chefs) {
+                // chefs without a valid postal code have no key and rank last
+                PostalCode postalCode = getPostalCode(chef);
+                if (postalCode == null) continue;
+                // distance in units of 100 meters
+                long distance = Math.round(FsaCentroids.getDistance(originPostalCode, postalCode) * 10);
+                this.chefKeys.put(chef.getChefId(), (distance << 30) | PostalCodeComparator.getDistanceKey(originCode, postalCode.getCode()));
+            }
+        }
+    }
+}
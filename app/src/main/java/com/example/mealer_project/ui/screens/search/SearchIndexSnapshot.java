@@ -0,0 +1,347 @@
+package com.example.mealer_project.ui.screens.search;
+
+import com.example.mealer_project.data.models.Address;
+import com.example.mealer_project.data.models.meals.Meal;
+import com.example.mealer_project.data.models.orders.ChefInfo;
+import com.example.mealer_project.utils.TrieSearch.TermDictionary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the searchable meals, stored in app storage so search works on a cold start
+ * before the meals are retrieved from firebase
+ * Layout: header (magic, version, creation time), string table, items, index (see MappedSearchIndex)
+ * Every string is stored once in the string table (keywords, chef names and addresses are shared
+ * by many meals) and items refer to strings by their index
+ * The index section stores the terms, postings and ranking statistics of the items, so the restored meals
+ * are searched from the mapped file without building any index
+ */
+public class SearchIndexSnapshot {
+
+    // name of the snapshot file in the app's files directory
+    public static final String FILE_NAME = "search_meals.snapshot";
+
+    // "MBSI", identifies a snapshot file
+    static final int MAGIC = 0x4D425349;
+    // incremented whenever the layout or the keyword rules (Analyzer) change, snapshots of another version are ignored
+    static final int VERSION = 3;
+    // string index used for null strings
+    private static final int NO_STRING = -1;
+    // count stored for null lists
+    private static final int NO_LIST = -1;
+
+    private SearchIndexSnapshot() {}
+
+    /**
+     * Write a snapshot of the items, replacing any previous snapshot
+     * The snapshot is written to a temporary file first so a failed write never leaves a corrupted snapshot
+     * @param file snapshot file
+     * @param items items to store
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(File file, Collection<SearchMealItem> items) throws IOException {
+        // first pass: collect distinct strings
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (SearchMealItem item : items) {
+            for (String value : getStrings(item)) {
+                addString(value, stringIndexes, strings);
+            }
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            // string table: length and UTF-8 bytes of each string
+            out.writeInt(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            // items
+            out.writeInt(items.size());
+            for (SearchMealItem item : items) {
+                writeItem(out, item, stringIndexes);
+            }
+            // index of the items, ordinals are the order of the items above
+            MappedSearchIndex.write(out, items);
+        }
+        if (!tempFile.renameTo(file)) {
+            // rename does not replace an existing file on every file system
+            if (!file.delete() || !tempFile.renameTo(file)) {
+                throw new IOException("Failed to replace snapshot file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Read the items of a snapshot
+     * The file is memory mapped, so it is decoded straight from the page cache without copying it into a buffer
+     * Items which are no longer valid meals are skipped
+     * @param file snapshot file
+     * @return list of items stored in the snapshot
+     * @throws IOException if the file could not be read, or is not a snapshot of the current version
+     */
+    public static List<SearchMealItem> read(File file) throws IOException {
+        List<SearchMealItem> items = new ArrayList<>();
+        for (SearchMealItem item : decode(map(file))) {
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Open the index of a snapshot, to search its items before they are added to an in-memory index
+     * The file stays mapped while the index is used, its terms and postings are read in place by each search
+     * @param file snapshot file
+     * @return index of the items stored in the snapshot
+     * @throws IOException if the file could not be read, or is not a snapshot of the current version
+     */
+    static MappedSearchIndex open(File file) throws IOException {
+        ByteBuffer buffer = map(file);
+        SearchMealItem[] items = decode(buffer);
+        try {
+            return new MappedSearchIndex(buffer, items);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted search snapshot", e);
+        }
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        // the mapping stays valid once the channel is closed
+        try (FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Decode the items of a snapshot, leaving the buffer at the start of the index section
+     * @param buffer snapshot data
+     * @return items stored in the snapshot by ordinal, null for items which are no longer valid meals
+     * @throws IOException if the data is not a snapshot of the current version
+     */
+    static SearchMealItem[] decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a search snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported search snapshot version: " + version);
+            }
+            // creation time, not used yet
+            buffer.getLong();
+            // string table
+            String[] strings = new String[readCount(buffer, 4)];
+            byte[] bytes = new byte[64];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readCount(buffer, 1);
+                if (length > bytes.length) {
+                    bytes = new byte[Math.max(length, bytes.length * 2)];
+                }
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            // term id of each string used as a keyword, looked up once per string instead of once per meal
+            int[] termIds = new int[strings.length];
+            Arrays.fill(termIds, TermDictionary.NO_TERM);
+            // items
+            SearchMealItem[] items = new SearchMealItem[readCount(buffer, 4)];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = readItem(buffer, strings, termIds);
+            }
+            return items;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupted search snapshot", e);
+        }
+    }
+
+    /**
+     * Read the number of elements of a list, checking the elements fit in the rest of the buffer, so a corrupted
+     * count fails before anything is allocated
+     * @param buffer snapshot data, at the count
+     * @param elementSize minimum number of bytes of each element
+     * @return number of elements
+     * @throws IOException if the count is negative or the elements can't fit in the rest of the buffer
+     */
+    private static int readCount(ByteBuffer buffer, int elementSize) throws IOException {
+        return checkCount(buffer, buffer.getInt(), elementSize);
+    }
+
+    private static int checkCount(ByteBuffer buffer, int count, int elementSize) throws IOException {
+        if (count < 0 || count > buffer.remaining() / elementSize) {
+            throw new IOException("Corrupted search snapshot, invalid count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Get all strings of an item, in the order they are written
+     */
+    private static List<String> getStrings(SearchMealItem item) {
+        Meal meal = item.getMeal();
+        ChefInfo chef = item.getChef();
+        List<String> values = new ArrayList<>();
+        values.add(meal.getName());
+        values.add(meal.getMealID());
+        values.add(meal.getChefID());
+        values.add(meal.getCuisineType());
+        values.add(meal.getMealType());
+        values.add(meal.getIngredients());
+        values.add(meal.getDescription());
+        if (meal.getAllergens() != null) {
+            values.addAll(meal.getAllergens());
+        }
+        if (meal.getKeywords() != null) {
+            values.addAll(meal.getKeywords());
+        }
+        values.add(chef.getChefId());
+        values.add(chef.getChefName());
+        values.add(chef.getChefDescription());
+        Address address = chef.getChefAddress();
+        if (address != null) {
+            values.add(address.getStreetAddress());
+            values.add(address.getCity());
+            values.add(address.getPostalCode());
+            values.add(address.getCountry());
+        }
+        return values;
+    }
+
+    private static void addString(String value, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (value != null && !stringIndexes.containsKey(value)) {
+            stringIndexes.put(value, strings.size());
+            strings.add(value);
+        }
+    }
+
+    private static void writeItem(DataOutputStream out, SearchMealItem item, Map<String, Integer> stringIndexes) throws IOException {
+        Meal meal = item.getMeal();
+        ChefInfo chef = item.getChef();
+        writeString(out, meal.getName(), stringIndexes);
+        writeString(out, meal.getMealID(), stringIndexes);
+        writeString(out, meal.getChefID(), stringIndexes);
+        writeString(out, meal.getCuisineType(), stringIndexes);
+        writeString(out, meal.getMealType(), stringIndexes);
+        writeString(out, meal.getIngredients(), stringIndexes);
+        writeString(out, meal.getDescription(), stringIndexes);
+        out.writeBoolean(meal.isOffered());
+        out.writeDouble(meal.getPrice());
+        writeStrings(out, meal.getAllergens(), stringIndexes);
+        writeStrings(out, meal.getKeywords(), stringIndexes);
+        writeString(out, chef.getChefId(), stringIndexes);
+        writeString(out, chef.getChefName(), stringIndexes);
+        writeString(out, chef.getChefDescription(), stringIndexes);
+        out.writeDouble(chef.getChefRating());
+        Address address = chef.getChefAddress();
+        out.writeBoolean(address != null);
+        if (address != null) {
+            writeString(out, address.getStreetAddress(), stringIndexes);
+            writeString(out, address.getCity(), stringIndexes);
+            writeString(out, address.getPostalCode(), stringIndexes);
+            writeString(out, address.getCountry(), stringIndexes);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value, Map<String, Integer> stringIndexes) throws IOException {
+        out.writeInt(value != null ? stringIndexes.get(value) : NO_STRING);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values, Map<String, Integer> stringIndexes) throws IOException {
+        out.writeInt(values != null ? values.size() : NO_LIST);
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value, stringIndexes);
+            }
+        }
+    }
+
+    /**
+     * Read an item
+     * @return the item, or null if the stored meal is no longer valid
+     */
+    private static SearchMealItem readItem(ByteBuffer buffer, String[] strings, int[] termIds) throws IOException {
+        String name = readString(buffer, strings);
+        String mealId = readString(buffer, strings);
+        String chefId = readString(buffer, strings);
+        String cuisineType = readString(buffer, strings);
+        String mealType = readString(buffer, strings);
+        String ingredients = readString(buffer, strings);
+        String description = readString(buffer, strings);
+        boolean offered = buffer.get() != 0;
+        double price = buffer.getDouble();
+        ArrayList<String> allergens = readStrings(buffer, strings);
+        int[] keywordIds = readTermIds(buffer, strings, termIds);
+        String chefInfoId = readString(buffer, strings);
+        String chefName = readString(buffer, strings);
+        String chefDescription = readString(buffer, strings);
+        double chefRating = buffer.getDouble();
+        Address address = null;
+        if (buffer.get() != 0) {
+            address = new Address(readString(buffer, strings), readString(buffer, strings),
+                    readString(buffer, strings), readString(buffer, strings));
+        }
+        try {
+            Meal meal = new Meal(name, mealId, chefId, cuisineType, mealType, ingredients,
+                    allergens, description, offered, price);
+            meal.setKeywordIds(keywordIds);
+            return new SearchMealItem(meal, new ChefInfo(chefInfoId, chefName, chefDescription, chefRating, address));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            // meal validation rules changed since the snapshot was written
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, String[] strings) {
+        int index = buffer.getInt();
+        return index != NO_STRING ? strings[index] : null;
+    }
+
+    private static int[] readTermIds(ByteBuffer buffer, String[] strings, int[] termIds) throws IOException {
+        int count = buffer.getInt();
+        if (count == NO_LIST) {
+            return null;
+        }
+        int[] values = new int[checkCount(buffer, count, 4)];
+        for (int i = 0; i < count; i++) {
+            int index = buffer.getInt();
+            if (termIds[index] == TermDictionary.NO_TERM) {
+                termIds[index] = TermDictionary.getInstance().getOrAddId(strings[index]);
+            }
+            values[i] = termIds[index];
+        }
+        return values;
+    }
+
+    private static ArrayList<String> readStrings(ByteBuffer buffer, String[] strings) throws IOException {
+        int count = buffer.getInt();
+        if (count == NO_LIST) {
+            return null;
+        }
+        ArrayList<String> values = new ArrayList<>(checkCount(buffer, count, 4));
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer, strings));
+        }
+        return values;
+    }
+}
@@ -5,6 +5,7 @@ import com.example.mealer_project.data.models.meals.Meal;
 import com.example.mealer_project.data.models.orders.ChefInfo;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 public class SearchMealItem implements Serializable {
@@ -13,13 +14,22 @@ public class SearchMealItem implements Serializable {
     private ChefInfo chef;
 
     public SearchMealItem(Meal meal, ChefInfo chef) {
-        this.setId();
         this.setMeal(meal);
         this.setChef(chef);
+        this.setId();
     }
 
+    /**
+     * Set the id of the item
+     * A meal stored in firebase always gets the same id (derived from its chef and meal ids), so a meal loaded again
+     * replaces its previous item in the search data, other items get a random id
+     */
     public void setId() {
-        this.id = UUID.randomUUID();
+        if (meal != null && meal.getMealID() != null && chef != null && chef.getChefId() != null) {
+            this.id = UUID.nameUUIDFromBytes((chef.getChefId() + "/" + meal.getMealID()).getBytes(StandardCharsets.UTF_8));
+        } else {
+            this.id = UUID.randomUUID();
+        }
     }
 
     public String getId() {
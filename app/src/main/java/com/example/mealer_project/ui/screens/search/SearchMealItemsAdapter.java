@@ -2,79 +2,127 @@ package com.example.mealer_project.ui.screens.search;
 
 import static androidx.core.content.ContextCompat.startActivity;
 
-import android.content.Context;
 import android.content.Intent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.LinearLayout;
 import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.mealer_project.R;
 import com.example.mealer_project.data.models.meals.Meal;
 import com.example.mealer_project.data.models.orders.ChefInfo;
 import com.example.mealer_project.ui.screens.OrderScreen;
 
-import java.util.List;
+import java.util.UUID;
 
-public class SearchMealItemsAdapter extends ArrayAdapter<SearchMealItem> {
+/**
+ * Adapter to display SearchMealItems in a RecyclerView
+ * When a new list is submitted, the difference with the current list is computed on a background thread
+ * using the stable ids of the items, and only the inserted, removed and moved rows are updated,
+ * all other row views are kept and recycled
+ */
+public class SearchMealItemsAdapter extends ListAdapter<SearchMealItem, SearchMealItemsAdapter.ViewHolder> {
 
     /**
-     * Constructor
-     *
-     * @param context  The current context.
-     * @param resource The resource ID for a layout file containing a TextView to use when
-     *                 instantiating views.
-     * @param objects  The objects to represent in the ListView.
+     * Compares SearchMealItems by their id
      */
-    public SearchMealItemsAdapter(@NonNull Context context, int resource, @NonNull List<SearchMealItem> objects) {
-        super(context, resource, objects);
+    private static final DiffUtil.ItemCallback<SearchMealItem> DIFF_CALLBACK = new DiffUtil.ItemCallback<SearchMealItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull SearchMealItem oldItem, @NonNull SearchMealItem newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull SearchMealItem oldItem, @NonNull SearchMealItem newItem) {
+            // items are not modified once created, a changed meal gets a new SearchMealItem
+            return oldItem == newItem;
+        }
+    };
+
+    public SearchMealItemsAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
     }
 
     @NonNull
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-        // Get the data item for this position
-        SearchMealItem sMItem = getItem(position);
-        // retrieve the meal
-        Meal meal = sMItem.getMeal();
-        // retrieve ChefInfo
-        ChefInfo chefInfo = sMItem.getChef();
-        // Check if an existing view is being reused, otherwise inflate the view
-        if (convertView == null) {
-            // using activity_meals_list_item view
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.activity_search_meal_item, parent, false);
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        // using activity_search_meal_item view
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(R.layout.activity_search_meal_item, parent, false);
+        return new ViewHolder(itemView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // SearchMealItem ids are UUIDs, fold them to a long
+        UUID id = UUID.fromString(getItem(position).getId());
+        return id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+    }
+
+    /**
+     * Holds the views of a row so they are only looked up once per inflated row
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+
+        private final TextView mealId;
+        private final TextView mealName;
+        private final TextView mealDescription;
+        private final TextView chefName;
+        private final RatingBar chefRating;
+        // item currently displayed by the row
+        private SearchMealItem sMItem;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            mealId = itemView.findViewById(R.id.smMealId);
+            mealName = itemView.findViewById(R.id.smMealName);
+            mealDescription = itemView.findViewById(R.id.smMealDescription);
+            chefName = itemView.findViewById(R.id.smChef);
+            chefRating = itemView.findViewById(R.id.smChefRating);
+
+            // attach on click listener to the meal item
+            LinearLayout mealItemContainer = itemView.findViewById(R.id.smItemContainer);
+            mealItemContainer.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    if (sMItem == null) return;
+                    Intent orderScreenIntent = new Intent(view.getContext(), OrderScreen.class);
+                    orderScreenIntent.putExtra(OrderScreen.SEARCH_MEAL_ITEM_ARG_KEY, sMItem);
+
+                    // show order screen, passing it the search meal item data which contains meal and chef info
+                    startActivity(view.getContext(), orderScreenIntent, null);
+                }
+            });
+        }
+
+        /**
+         * Populate the row with a SearchMealItem
+         * @param sMItem item to display
+         */
+        void bind(SearchMealItem sMItem) {
+            this.sMItem = sMItem;
+            // retrieve the meal
+            Meal meal = sMItem.getMeal();
+            // retrieve ChefInfo
+            ChefInfo chefInfo = sMItem.getChef();
+            // Populate the meal data
+            mealId.setText(meal.getMealID());
+            mealName.setText(meal.getName());
+            mealDescription.setText(meal.getDescription());
+            chefName.setText(chefInfo.getChefName());
+            chefRating.setRating((float) chefInfo.getChefRating());
         }
-        // Populate the meal data
-        ((TextView) convertView.findViewById(R.id.smMealId)).setText(meal.getMealID());
-        ((TextView) convertView.findViewById(R.id.smMealName)).setText(meal.getName());
-        ((TextView) convertView.findViewById(R.id.smMealDescription)).setText(meal.getDescription());
-        ((TextView) convertView.findViewById(R.id.smChef)).setText(chefInfo.getChefName());
-        ((RatingBar) convertView.findViewById(R.id.smChefRating)).setRating((float) chefInfo.getChefRating());
-        // attach on click listener to the meal item
-        LinearLayout mealItemContainer = convertView.findViewById(R.id.smItemContainer);
-        // Cache row position inside the button using `setTag`
-        mealItemContainer.setTag(position);
-        // attach the click event handler
-        mealItemContainer.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View view) {
-                int position = (Integer) view.getTag();
-                // Use the cached row position number inside LinearLayout's tag
-                SearchMealItem sMItemData = getItem(position);
-
-                Intent orderScreenIntent = new Intent(getContext(), OrderScreen.class);
-                orderScreenIntent.putExtra(OrderScreen.SEARCH_MEAL_ITEM_ARG_KEY, sMItemData);
-
-                // show order screen, passing it the search meal item data which contains meal and chef info
-                startActivity(getContext(), orderScreenIntent, null);
-            }
-        });
-        return convertView;
     }
-}
\ No newline at end of file
+}
@@ -1,65 +1,552 @@
 package com.example.mealer_project.ui.screens.search;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
-import com.example.mealer_project.utils.TrieSearch.TriesSearch;
+import com.example.mealer_project.data.models.orders.ChefInfo;
+import com.example.mealer_project.utils.TrieSearch.Bm25Index;
+import com.example.mealer_project.utils.TrieSearch.FacetQuery;
+import com.example.mealer_project.utils.TrieSearch.SearchQuery;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Searchable meals offered by all chefs
+ * Items are added from firebase callbacks while searches run on the SearchExecutor worker. Searches read an
+ * immutable SearchIndex snapshot without locking: added items are indexed in the background into a new
+ * snapshot, which is published with a single atomic swap. Items added while a snapshot is being built are
+ * coalesced into the next build
+ */
 public class SearchMeals {
 
-    // map to store SearchMealItem with their id's as the key value
-    Map<String, SearchMealItem> searchMealItems;
-    // instance of TrieSearch - the utility we use for search
-    TriesSearch triesSearch;
+    // flag to select the search engine: shared PrefixIndex if true, else one Trie per item (TriesSearch)
+    public static final boolean USE_PREFIX_INDEX = true;
+    // flag to also match terms inside keywords ("burger" finds "cheeseburger"), PrefixIndex only
+    public static final boolean USE_INFIX_SEARCH = true;
+
+    // maximum number of queries whose ranked results are cached
+    static final int QUERY_CACHE_SIZE = 64;
+
+    // BM25 field boosts used to rank search results: meal name, cuisine, description, keywords
+    static final double NAME_BOOST = 3.0;
+    static final double CUISINE_BOOST = 2.0;
+    static final double DESCRIPTION_BOOST = 1.0;
+    static final double KEYWORDS_BOOST = 1.0;
+
+    // facets which can be used in a query, ex: "curry cuisine=Indian AND mealType=main AND NOT allergen=peanut AND price<=15"
+    public static final String CUISINE_FACET = "cuisine";
+    public static final String MEAL_TYPE_FACET = "mealtype";
+    public static final String ALLERGEN_FACET = "allergen";
+    public static final String PRICE_FACET = "price";
+
+    // snapshot searched by readers, replaced as a whole when items are added
+    private final AtomicReference<SearchIndex> searchIndex;
+    // runs the snapshot builds
+    private final Executor buildExecutor;
+    // items added since the last build started, in order (guarded by this)
+    List<SearchMealItem> pendingItems;
+    // true while a build is scheduled or running (guarded by this)
+    boolean buildScheduled;
     // store a reference to the SearchMealScreen so it could be notified of the updates to the list
     SearchScreen searchScreen;
+    // ranked result ids of recent queries by normalized query, in access order (least recently used first)
+    // the cache has its own lock, only held for a lookup or an insertion
+    final Map<String, CachedResult> queryCache;
+    // number of searches answered from / not found in the query cache (guarded by queryCache)
+    long cacheHitCount;
+    long cacheMissCount;
+    // ids of items restored from the snapshot which have not been loaded from firebase yet
+    Set<String> restoredIds;
+    // true if items were loaded from firebase since the snapshot was last saved
+    boolean snapshotOutdated;
+    // index of the restored snapshot file, searched until the restored items are built into a snapshot
+    private volatile MappedSearchIndex restoredIndex;
+    // true while the restored items are queued for a build (guarded by this)
+    boolean restoredItemsPending;
+    // true if the pending items replace all the items of the current snapshot (guarded by this)
+    boolean replacePending;
+    // true once all items were replaced by the items from the server, restored items are then outdated (guarded by this)
+    boolean itemsReplaced;
+
+    // reads and writes snapshot files one at a time, off the main thread
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newSingleThreadExecutor();
+    // builds search snapshots off the main thread
+    private static final ExecutorService BUILD_EXECUTOR = Executors.newSingleThreadExecutor();
 
     public SearchMeals() {
-        this.searchMealItems = new HashMap<>();
-        this.triesSearch = new TriesSearch();
+        this(USE_PREFIX_INDEX);
+    }
+
+    /**
+     * Create an instance of SearchMeals with a specific search engine
+     * @param usePrefixIndex true to use a shared PrefixIndex, false to use one Trie per item
+     */
+    public SearchMeals(boolean usePrefixIndex) {
+        this(usePrefixIndex, BUILD_EXECUTOR);
+    }
+
+    /**
+     * Create an instance of SearchMeals building its snapshots with a specific executor
+     * @param usePrefixIndex true to use a shared PrefixIndex, false to use one Trie per item
+     * @param buildExecutor executor running the snapshot builds
+     */
+    SearchMeals(boolean usePrefixIndex, Executor buildExecutor) {
+        this.buildExecutor = buildExecutor;
+        this.searchIndex = new AtomicReference<>(SearchIndex.empty(usePrefixIndex));
+        this.pendingItems = new ArrayList<>();
+        this.restoredIds = new HashSet<>();
+        this.queryCache = new LinkedHashMap<String, CachedResult>(QUERY_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > QUERY_CACHE_SIZE;
+            }
+        };
     }
 
+    /**
+     * Get the searchable items of the current snapshot
+     * @return unmodifiable map of SearchMealItems by id, items added later are not included
+     */
     public Map<String, SearchMealItem> getSearchMealItems() {
-        return searchMealItems;
+        SearchIndex index = this.searchIndex.get();
+        MappedSearchIndex restored = getRestoredIndex(index);
+        return restored != null ? restored.getSearchMealItems() : index.searchMealItems;
     }
 
+    /**
+     * Get the index of the restored snapshot file, if it is the one to search
+     * @param index current snapshot
+     * @return mapped index of the restored items, null once items were built into a snapshot
+     */
+    private MappedSearchIndex getRestoredIndex(SearchIndex index) {
+        MappedSearchIndex restored = this.restoredIndex;
+        return restored != null && index.searchMealItems.isEmpty() ? restored : null;
+    }
+
+    /**
+     * Add items loaded from firebase, they can be searched once the next snapshot is published
+     * An item replaces the item with the same id
+     * @param items items to add
+     */
     public void addItems(List<SearchMealItem> items) {
-        // TODO test
-        Log.e("searchMeals", "adding new items: " + items.size());
-        for (SearchMealItem item: items) {
-            // store the item in our map
-            this.searchMealItems.put(item.getId(), item);
-            // add meal's keywords to the TriesSearch dataset with an associated SearchMealItem id
-            // if there is a match in these keywords, we would get the corresponding SearchMealItem id
-            this.triesSearch.addData(item.getId(), item.getMeal().getKeywords());
+        boolean scheduleBuild;
+        synchronized (this) {
+            for (SearchMealItem item : items) {
+                // item is now up to date
+                this.restoredIds.remove(item.getId());
+            }
+            this.snapshotOutdated = true;
+            scheduleBuild = enqueue(items);
+        }
+        // build outside of the lock, the executor may run it on this thread
+        if (scheduleBuild) {
+            this.buildExecutor.execute(this::buildSnapshots);
+        }
+    }
+
+    /**
+     * Replace all items by the items loaded from the server, they can be searched once the next snapshot is published
+     * Items which are not given (meals no longer offered, meals of suspended chefs) are no longer searched, and
+     * items restored from a snapshot are dropped. Items added before are dropped even if they are not built yet,
+     * items added after are added to the given items
+     * @param items all searchable items
+     */
+    public void replaceItems(List<SearchMealItem> items) {
+        boolean scheduleBuild;
+        synchronized (this) {
+            this.restoredIds.clear();
+            this.restoredItemsPending = false;
+            this.itemsReplaced = true;
+            this.replacePending = true;
+            this.pendingItems.clear();
+            this.snapshotOutdated = true;
+            scheduleBuild = enqueue(items);
+        }
+        // build outside of the lock, the executor may run it on this thread
+        if (scheduleBuild) {
+            this.buildExecutor.execute(this::buildSnapshots);
+        }
+    }
+
+    /**
+     * Queue items for the next build
+     * @param items items to add
+     * @return true if a build must be scheduled, false if the scheduled build will pick up the items
+     */
+    private boolean enqueue(List<SearchMealItem> items) {
+        this.pendingItems.addAll(items);
+        if (this.buildScheduled) {
+            return false;
+        }
+        this.buildScheduled = true;
+        return true;
+    }
+
+    /**
+     * Build and publish snapshots until no item is pending
+     * Only one build runs at a time: a build is only scheduled when none is scheduled or running
+     */
+    private void buildSnapshots() {
+        try {
+            buildPendingSnapshots();
+        } catch (RuntimeException e) {
+            Log.e("searchMeals", "Failed to publish search snapshot: " + e);
+            // let the next items schedule a build, the pending items are built with them
+            synchronized (this) {
+                this.buildScheduled = false;
+            }
+        }
+    }
+
+    private void buildPendingSnapshots() {
+        while (true) {
+            List<SearchMealItem> batch;
+            SearchScreen screen;
+            boolean batchHasRestoredItems;
+            boolean replace;
+            synchronized (this) {
+                // replacing by no items still builds an empty snapshot
+                if (this.pendingItems.isEmpty() && !this.replacePending) {
+                    this.buildScheduled = false;
+                    return;
+                }
+                // all items queued so far go into this build
+                batch = this.pendingItems;
+                this.pendingItems = new ArrayList<>();
+                screen = this.searchScreen;
+                batchHasRestoredItems = this.restoredItemsPending;
+                this.restoredItemsPending = false;
+                replace = this.replacePending;
+                this.replacePending = false;
+            }
+            SearchIndex next = buildSnapshot(this.searchIndex.get(), batch, replace);
+            if (next == null) {
+                // the batch is dropped, the current snapshot is still searched
+                continue;
+            }
+            // readers see either the previous snapshot or this one, never a partially built one
+            this.searchIndex.set(next);
+            if (batchHasRestoredItems || replace) {
+                // restored items are now searched in memory, the snapshot file can be unmapped
+                this.restoredIndex = null;
+            }
+            // if we have a subscribed search screen observing data changes
+            if (screen != null) {
+                // notify search screen of changes
+                if (replace) {
+                    new Handler(Looper.getMainLooper()).post(screen::searchItemsReplaced);
+                } else {
+                    new Handler(Looper.getMainLooper()).post(() -> screen.newSearchItemsAdded(batch));
+                }
+            }
+        }
+    }
+
+    /**
+     * Build the snapshot following the current one
+     * If the build fails, the indexes of the current snapshot may already be forked and can no longer be forked
+     * again: the snapshot is then built from new indexes with all the items
+     * @param current snapshot currently published
+     * @param batch items to add
+     * @param replace true if the items replace all the items of the current snapshot
+     * @return new snapshot, null if it could not be built with the items
+     */
+    private SearchIndex buildSnapshot(SearchIndex current, List<SearchMealItem> batch, boolean replace) {
+        try {
+            return replace ? SearchIndex.rebuild(current, batch) : SearchIndex.build(current, batch);
+        } catch (RuntimeException e) {
+            Log.e("searchMeals", "Failed to build search snapshot, building it again from all items: " + e);
+        }
+        List<SearchMealItem> allItems = batch;
+        if (!replace) {
+            allItems = new ArrayList<>(current.searchMealItems.values());
+            allItems.addAll(batch);
         }
-        // if we have a subscribed search screen observing data changes
-        if (this.searchScreen != null) {
-            // notify search screen of changes
-            this.searchScreen.newSearchItemsAdded(items);
+        try {
+            return SearchIndex.rebuild(current, allItems);
+        } catch (RuntimeException e) {
+            Log.e("searchMeals", "Failed to build search snapshot, dropping " + batch.size() + " items: " + e);
+            return null;
         }
     }
 
     public List<SearchMealItem> searchMealItems(String query) {
-        // use TriesSearch to perform a pattern match and
-        // get a list containing ids of SearchMealItems which have a match
-        List<String> triesSearchResult = this.triesSearch.pMatch(query);
+        SearchIndex index = this.searchIndex.get();
+        FacetQuery facetQuery = FacetQuery.parse(query);
+        MappedSearchIndex restored = getRestoredIndex(index);
+        if (restored != null && !facetQuery.hasConditions()) {
+            // cold start: search the restored snapshot file until its items are built into a snapshot
+            return restored.search(SearchQuery.parse(facetQuery.getTextQuery()));
+        }
         // store result
         List<SearchMealItem> sMItems = new ArrayList<>();
         // for each id in search result
-        for (String sMItemId: triesSearchResult) {
-            // get the corresponding SearchMealItem from our local map and add to result list
-            sMItems.add(this.searchMealItems.get(sMItemId));
+        for (String sMItemId: index.getMatchingIds(facetQuery)) {
+            // get the corresponding SearchMealItem from the same snapshot and add to result list
+            sMItems.add(index.searchMealItems.get(sMItemId));
         }
         // return result list, will be empty if no match
         return sMItems;
     }
 
-    public void subscribeToDataChanges(SearchScreen dataObserver) {
+    /**
+     * Search meal items and return only the most relevant ones
+     * Results are ranked with BM25 over meal name, cuisine, description and keywords
+     * @param query query entered by the client, can contain facet conditions (see FacetQuery)
+     * @param k maximum number of results
+     * @return at most k SearchMealItems by decreasing relevance, empty list if no match
+     */
+    public List<SearchMealItem> searchTopMealItems(String query, int k) {
+        return searchTopMealItems(query, k, null);
+    }
+
+    /**
+     * Search meal items and return the ones closest to the client, the most relevant first among chefs at the
+     * same distance (distance between the FSA centroids of the postal codes, then closeness of the postal codes)
+     * Closeness and relevance are ranked in a single pass over the matches, keeping only the top k in a bounded
+     * heap, so only the returned items are ordered
+     * @param query query entered by the client, can contain facet conditions (see FacetQuery)
+     * @param k maximum number of results
+     * @param originPostalCode postal code of the client, null to rank by relevance only
+     * @return at most k SearchMealItems by closeness then decreasing relevance, empty list if no match
+     * @throws IllegalArgumentException if the origin postal code is invalid
+     */
+    public List<SearchMealItem> searchTopMealItems(String query, int k, String originPostalCode) throws IllegalArgumentException {
+        SearchIndex index = this.searchIndex.get();
+        FacetQuery facetQuery = FacetQuery.parse(query);
+        SearchQuery parsedQuery = SearchQuery.parse(facetQuery.getTextQuery());
+        MappedSearchIndex restored = getRestoredIndex(index);
+        if (restored != null && !facetQuery.hasConditions()) {
+            // cold start: rank from the restored snapshot file, results are not cached as they are replaced soon
+            Bm25Index.RowKey proximityKey = originPostalCode != null ? SearchIndex.getProximityKey(originPostalCode, restored.getSearchMealItems()) : null;
+            return restored.topK(parsedQuery, k, proximityKey);
+        }
+        // queries differing only by case, spacing or stop words share the same entry
+        String cacheKey = k + ":" + (originPostalCode != null ? originPostalCode : "") + ":" + parsedQuery.getNormalizedQuery() + "|" + facetQuery.getNormalizedConditions();
+        List<String> rankedIds = getCachedResult(cacheKey, index.generation);
+        if (rankedIds == null) {
+            // rank matches, keeping only the top k in a bounded heap
+            Bm25Index.RowKey proximityKey = originPostalCode != null ? index.getProximityKey(originPostalCode) : null;
+            rankedIds = index.rankingIndex.topK(parsedQuery, index.getMatchingIds(facetQuery), k, proximityKey);
+            synchronized (this.queryCache) {
+                this.queryCache.put(cacheKey, new CachedResult(rankedIds, index.generation));
+            }
+        }
+        // store result
+        List<SearchMealItem> sMItems = new ArrayList<>(rankedIds.size());
+        for (String sMItemId: rankedIds) {
+            sMItems.add(index.searchMealItems.get(sMItemId));
+        }
+        return sMItems;
+    }
+
+    /**
+     * Browse meal items by price, without sorting the items
+     * @param minPrice minimum price, inclusive
+     * @param maxPrice maximum price, inclusive
+     * @param cheapestFirst true to order by increasing price, false by decreasing price
+     * @param page index of the page, starting at 0
+     * @param pageSize maximum number of items per page
+     * @return SearchMealItems of the page, empty list if the page is after the last item
+     */
+    public List<SearchMealItem> getMealItemsByPrice(double minPrice, double maxPrice, boolean cheapestFirst, int page, int pageSize) {
+        SearchIndex index = this.searchIndex.get();
+        List<SearchMealItem> sMItems = new ArrayList<>();
+        for (String sMItemId: index.priceIndex.getRange(minPrice, maxPrice, cheapestFirst, page, pageSize)) {
+            sMItems.add(index.searchMealItems.get(sMItemId));
+        }
+        return sMItems;
+    }
+
+    /**
+     * Count the meal items in a price range, used to compute the number of pages
+     * @param minPrice minimum price, inclusive
+     * @param maxPrice maximum price, inclusive
+     * @return number of items
+     */
+    public int countMealItemsByPrice(double minPrice, double maxPrice) {
+        return this.searchIndex.get().priceIndex.count(minPrice, maxPrice);
+    }
+
+    /**
+     * Get the chefs offering meals who are nearest to the client, by distance between the FSA centroids of their
+     * postal codes
+     * @param originPostalCode postal code of the client
+     * @param k maximum number of chefs
+     * @return at most k chefs, nearest first
+     * @throws IllegalArgumentException if the origin postal code is invalid
+     */
+    public List<ChefInfo> getNearestChefs(String originPostalCode, int k) throws IllegalArgumentException {
+        return this.searchIndex.get().getNearestChefs(originPostalCode, k);
+    }
+
+    /**
+     * Get the ranked result ids of a query from the query cache
+     * @param cacheKey normalized query and number of results
+     * @param generation generation of the snapshot being searched
+     * @return ranked ids, null if the query is not cached or was cached for another snapshot
+     */
+    private List<String> getCachedResult(String cacheKey, int generation) {
+        synchronized (this.queryCache) {
+            CachedResult cachedResult = this.queryCache.get(cacheKey);
+            if (cachedResult != null && cachedResult.generation != generation) {
+                // computed before items were added
+                this.queryCache.remove(cacheKey);
+                cachedResult = null;
+            }
+            if (cachedResult == null) {
+                this.cacheMissCount++;
+                return null;
+            }
+            this.cacheHitCount++;
+            return cachedResult.rankedIds;
+        }
+    }
+
+    /**
+     * Get the number of searches answered from the query cache
+     * @return number of cache hits
+     */
+    public long getCacheHitCount() {
+        synchronized (this.queryCache) {
+            return cacheHitCount;
+        }
+    }
+
+    /**
+     * Get the number of searches which were not found in the query cache, or whose cached result was outdated
+     * @return number of cache misses
+     */
+    public long getCacheMissCount() {
+        synchronized (this.queryCache) {
+            return cacheMissCount;
+        }
+    }
+
+    /**
+     * Restore the items saved by saveSnapshot, so meals can be searched before they are retrieved from firebase
+     * The snapshot is mapped in the background and text searches are answered from its index right away, while
+     * the items are added on the main thread and built into a snapshot. Items already loaded from firebase are
+     * more recent and are not replaced
+     * @param snapshotFile snapshot file, nothing is restored if it does not exist
+     */
+    public void restoreSnapshot(File snapshotFile) {
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        SNAPSHOT_EXECUTOR.execute(() -> {
+            try {
+                MappedSearchIndex index = SearchIndexSnapshot.open(snapshotFile);
+                this.restoredIndex = index;
+                List<SearchMealItem> items = new ArrayList<>(index.getSearchMealItems().values());
+                mainHandler.post(() -> addRestoredItems(items));
+            } catch (FileNotFoundException e) {
+                // no snapshot saved yet
+            } catch (IOException | RuntimeException e) {
+                Log.e("searchMeals", "Failed to restore search snapshot: " + e.getMessage());
+                // outdated or corrupted snapshot (decoding may fail in unexpected ways), will be replaced on next save
+                if (!snapshotFile.delete()) {
+                    Log.e("searchMeals", "Failed to delete search snapshot");
+                }
+            }
+        });
+    }
+
+    /**
+     * Save the items loaded from firebase to a snapshot file in the background
+     * Restored items which were not loaded again are left out, so meals no longer offered disappear
+     * from the next snapshot
+     * @param snapshotFile snapshot file
+     */
+    public synchronized void saveSnapshot(File snapshotFile) {
+        // nothing new since last save, or firebase could not be reached: keep the previous snapshot
+        if (!this.snapshotOutdated) {
+            return;
+        }
+        // items of the current snapshot, unless they are being replaced, along with the items not built into a snapshot yet
+        Map<String, SearchMealItem> allItems = this.replacePending ? new LinkedHashMap<>() : new LinkedHashMap<>(this.searchIndex.get().searchMealItems);
+        for (SearchMealItem item : this.pendingItems) {
+            allItems.put(item.getId(), item);
+        }
+        List<SearchMealItem> items = new ArrayList<>(allItems.size());
+        for (SearchMealItem item : allItems.values()) {
+            if (!this.restoredIds.contains(item.getId())) {
+                items.add(item);
+            }
+        }
+        this.snapshotOutdated = false;
+        SNAPSHOT_EXECUTOR.execute(() -> {
+            try {
+                SearchIndexSnapshot.write(snapshotFile, items);
+            } catch (IOException e) {
+                Log.e("searchMeals", "Failed to save search snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Add items restored from a snapshot, skipping items already loaded from firebase
+     * @param items restored items
+     */
+    void addRestoredItems(List<SearchMealItem> items) {
+        boolean scheduleBuild = false;
+        synchronized (this) {
+            if (this.itemsReplaced) {
+                // items from the server arrived first, restored items are outdated
+                this.restoredIndex = null;
+                return;
+            }
+            Set<String> knownIds = new HashSet<>(this.searchIndex.get().searchMealItems.keySet());
+            for (SearchMealItem item : this.pendingItems) {
+                knownIds.add(item.getId());
+            }
+            List<SearchMealItem> newItems = new ArrayList<>();
+            for (SearchMealItem item : items) {
+                if (!knownIds.contains(item.getId())) {
+                    newItems.add(item);
+                    this.restoredIds.add(item.getId());
+                }
+            }
+            // restored items do not make the snapshot outdated
+            if (!newItems.isEmpty()) {
+                scheduleBuild = enqueue(newItems);
+                this.restoredItemsPending = true;
+            } else {
+                // every restored item was already loaded from firebase
+                this.restoredIndex = null;
+            }
+        }
+        if (scheduleBuild) {
+            this.buildExecutor.execute(this::buildSnapshots);
+        }
+    }
+
+    public synchronized void subscribeToDataChanges(SearchScreen dataObserver) {
         this.searchScreen = dataObserver;
     }
-}
\ No newline at end of file
+
+    /**
+     * Ranked result ids of a query, along with the generation of the snapshot they were computed from
+     */
+    private static class CachedResult {
+        final List<String> rankedIds;
+        final int generation;
+
+        CachedResult(List<String> rankedIds, int generation) {
+            this.rankedIds = Collections.unmodifiableList(rankedIds);
+            this.generation = generation;
+        }
+    }
+}
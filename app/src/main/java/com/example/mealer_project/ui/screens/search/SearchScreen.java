@@ -9,41 +9,47 @@ import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.ImageButton;
-import android.widget.ListView;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.mealer_project.R;
 import com.example.mealer_project.app.App;
 import com.example.mealer_project.ui.core.UIScreen;
 import com.example.mealer_project.ui.screens.checkout.CheckoutScreen;
-import com.example.mealer_project.utils.PostalCodes.PostalCodeComparator;
+import com.example.mealer_project.utils.PostalCodes.PostalCode;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SearchScreen extends UIScreen {
 
+    // maximum number of search results displayed, most relevant first
+    static final int MAX_SEARCH_RESULTS = 50;
+
     // map to load search meal items
     Map<String, SearchMealItem> sMItemsData;
-    // list used by SearchMealItemsAdapter to populate SearchMealItems on the ListView
-    List<SearchMealItem> sMItems;
 
     ImageButton backButton;
     //ImageButton searchButton;
     ImageButton checkoutButton;
 
-    ListView sMList;
+    RecyclerView sMList;
     EditText searchBox;
     TextView noSearchResultMessage;
 
-    // adapter to handle list view
+    // adapter to handle list view, created once and updated with the difference between old and new lists
     private SearchMealItemsAdapter sMItemsAdapter;
 
-    // instantiate a Postal Code comparator to sort search results by
-    // closeness to Client's postal code
-    PostalCodeComparator postalCodeComparator;
+    // Client's postal code, search results are ranked by closeness to it
+    // null if results can't be ranked by closeness
+    String clientPostalCode;
+
+    // runs search queries on a background worker, debouncing keystrokes
+    SearchExecutor<List<SearchMealItem>> searchExecutor;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,9 +62,16 @@ public class SearchScreen extends UIScreen {
 
         // get the list view component
         sMList = findViewById(R.id.smMealsList);
+        sMList.setLayoutManager(new LinearLayoutManager(this));
+        // attach the adapter once, rows are recycled across searches
+        sMItemsAdapter = new SearchMealItemsAdapter();
+        sMList.setAdapter(sMItemsAdapter);
         searchBox = (EditText) findViewById(R.id.searchBox);
         noSearchResultMessage = (TextView) findViewById(R.id.noSearchResultMessage);
 
+        // search runs off the main thread, only the latest result is displayed
+        searchExecutor = new SearchExecutor<>(this::getSearchResult, (query, searchResult) -> displaySearchResult(searchResult));
+
         attachOnClickListeners();
 
         // load the search meal data
@@ -69,9 +82,10 @@ public class SearchScreen extends UIScreen {
         subscribeToDataChanges();
 
         try {
-            postalCodeComparator = new PostalCodeComparator(App.getClient().getAddress().getPostalCode());
+            // validate the postal code once, instead of on every search
+            clientPostalCode = new PostalCode(App.getClient().getAddress().getPostalCode()).toString();
         } catch (Exception e) {
-            Log.e("searchMeals", "Unable to create instance of postal code comparator: " + e.getMessage());
+            Log.e("searchMeals", "Unable to parse client postal code: " + e.getMessage());
             displayErrorToast("Unable to sort results by closeness to client");
         }
 
@@ -109,10 +123,12 @@ public class SearchScreen extends UIScreen {
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 // if nothing in search box
                 if(s.length() != 0) {
-                    // display search results based on the query entered by client
-                    displaySearchResult(s.toString());
+                    // search in background, results are displayed once the client stops typing
+                    searchExecutor.submit(s.toString());
                 } else {
-                    // display all meals
+                    // cancel any search in progress and display all meals
+                    searchExecutor.cancel();
+                    setNoSearchResultMessageVisibility(false);
                     populateListView();
                 }
                 Log.e("searchR", "Search box text changed: " + s);
@@ -123,12 +139,28 @@ public class SearchScreen extends UIScreen {
     public void newSearchItemsAdded(List<SearchMealItem> newItems) {
         // update our local data store
         loadSearchMealData();
-        // add all new items
-        this.sMItems.addAll(newItems);
-        // inform adapter of the change
-        sMItemsAdapter.notifyDataSetChanged();
+        // add all new items to the displayed items, adapter only inserts the new rows
+        // a meal loaded again (e.g. refreshed after being restored from the snapshot) replaces its displayed row
+        Map<String, SearchMealItem> displayedItems = new LinkedHashMap<>();
+        for (SearchMealItem item : sMItemsAdapter.getCurrentList()) {
+            displayedItems.put(item.getId(), item);
+        }
+        for (SearchMealItem item : newItems) {
+            displayedItems.put(item.getId(), item);
+        }
+        List<SearchMealItem> sMItems = new ArrayList<>(displayedItems.values());
+        sMItemsAdapter.submitList(sMItems);
         // TODO: below line for test, remove later
-        Log.e("searchMeals", "new search items added, sM: " + this.sMItems.size() + " sM D: " + this.sMItemsData.size());
+        Log.e("searchMeals", "new search items added, sM: " + sMItems.size() + " sM D: " + this.sMItemsData.size());
+    }
+
+    /**
+     * Method which is called when the searchable items were replaced by the items loaded from the server, items no
+     * longer offered are removed from the displayed items
+     */
+    public void searchItemsReplaced() {
+        loadSearchMealData();
+        populateListView();
     }
 
     /**
@@ -147,17 +179,11 @@ public class SearchScreen extends UIScreen {
      * Use the adapter to update the items being displayed in list view
      */
     private void populateListView() {
-        // initialize smItems as empty list
-        this.sMItems = new ArrayList<>();
-        // get the adapter
-        this.sMItemsAdapter = new SearchMealItemsAdapter(this, R.layout.activity_search_meal_item, this.sMItems);
-        // attach adapter to list view
-        sMList.setAdapter(this.sMItemsAdapter);
-        // add data to the adapter
-        for (String sMItemId: this.sMItemsData.keySet()) {
-            this.sMItems.add(this.sMItemsData.get(sMItemId));
-        }
-        Log.e("searchMeals", "Populated the list: " + this.sMItems.size());
+        // list of all search meal items
+        List<SearchMealItem> sMItems = new ArrayList<>(this.sMItemsData.values());
+        // submit to the adapter, only rows which differ from the displayed list are updated
+        sMItemsAdapter.submitList(sMItems);
+        Log.e("searchMeals", "Populated the list: " + sMItems.size());
     }
 
     /**
@@ -170,40 +196,50 @@ public class SearchScreen extends UIScreen {
         }
     }
 
-    private void displaySearchResult(String query) {
-        if (App.getClient() != null) {
-            // get the list of SearchMealItems matching the query entered in search box
-            List<SearchMealItem> searchResult = App.getClient().getSearchMeals().searchMealItems(query);
-
-            // if there are no matching results, display a message indicating so and return
-            if (searchResult.isEmpty()) {
-                setNoSearchResultMessageVisibility(true);
-                return;
-            } else {
-                // hide the no search result message and continue processing
-                setNoSearchResultMessageVisibility(false);
-            }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // stop background search
+        searchExecutor.shutdown();
+    }
 
-            // sort the search results by closeness to client (based on postal codes)
-            if (postalCodeComparator != null) {
-                Collections.sort(searchResult, (sR1, sR2) -> postalCodeComparator.comparePostalCodes(sR1.getChef().getChefAddress().getPostalCode(), sR2.getChef().getChefAddress().getPostalCode()));
-                Log.e("searchMeals", "search results sorted");
-            }
-            // clear current items in sMItems
-            this.sMItems = new ArrayList<>();
-            // get the adapter
-            this.sMItemsAdapter = new SearchMealItemsAdapter(this, R.layout.activity_search_meal_item, this.sMItems);
-            // attach adapter to list view
-            sMList.setAdapter(this.sMItemsAdapter);
-            // load the result meals
-            this.sMItems.addAll(searchResult);
+    /**
+     * Get the search results for a query, sorted by closeness to client
+     * Runs on the search executor's background worker, must not touch any view
+     * @param query query entered by the client
+     * @return list of SearchMealItems to display, empty list if no match
+     */
+    private List<SearchMealItem> getSearchResult(String query) {
+        if (App.getClient() == null) {
+            return new ArrayList<>();
         }
+        // get the SearchMealItems matching the query entered in search box which are closest to client (based on
+        // postal codes), the most relevant first among chefs at the same distance
+        return App.getClient().getSearchMeals().searchTopMealItems(query, MAX_SEARCH_RESULTS, clientPostalCode);
+    }
+
+    /**
+     * Display search results in the list view, on the main thread
+     * @param searchResult list of SearchMealItems to display
+     */
+    private void displaySearchResult(List<SearchMealItem> searchResult) {
+        // if there are no matching results, display a message indicating so and return
+        if (searchResult.isEmpty()) {
+            setNoSearchResultMessageVisibility(true);
+            return;
+        } else {
+            // hide the no search result message and continue processing
+            setNoSearchResultMessageVisibility(false);
+        }
+
+        // load the result meals, adapter applies only the inserts, removals and moves from the displayed list
+        sMItemsAdapter.submitList(searchResult);
     }
 
     private void setNoSearchResultMessageVisibility(boolean visible) {
         if (visible) {
             // clear the list items, and display no result
-            sMItemsAdapter.clear();
+            sMItemsAdapter.submitList(new ArrayList<SearchMealItem>());
             noSearchResultMessage.setVisibility(View.VISIBLE);
         } else {
             noSearchResultMessage.setVisibility(View.GONE);
@@ -0,0 +1,297 @@
+package com.example.mealer_project.utils;
+
+import com.example.mealer_project.utils.TrieSearch.StopWords;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Splits text into search terms in a single pass over the characters
+ * Each term goes through the chain: tokenizer (words separated by whitespace) -> accent folding (é -> e, œ -> oe)
+ * -> lower case -> French elision (l'agneau -> agneau) -> stop word filter -> optional light stemming
+ * Only letters, digits, apostrophes and hyphens are kept in a term
+ * The same rules are used for meal keywords and for search queries
+ * An analyzer reuses its buffers, an instance must not be used by several threads at once
+ */
+public class Analyzer {
+
+    /**
+     * Receives the terms produced by an analyzer
+     */
+    public interface TermConsumer {
+        /**
+         * Called for each term, the buffer is reused for the next term
+         * @param buffer characters of the term
+         * @param length length of the term
+         */
+        void onTerm(char[] buffer, int length);
+    }
+
+    // folded character of each character below this limit, 0 if the character is dropped
+    private static final char[] FOLDED_CHARS = createFoldedChars(0x250);
+
+    // remove plural endings from terms
+    private final boolean stem;
+    // characters of the current term
+    private char[] term;
+
+    /**
+     * Create an analyzer without stemming
+     */
+    public Analyzer() {
+        this(false);
+    }
+
+    /**
+     * Create an analyzer
+     * @param stem true to remove plural endings (dishes -> dish, gateaux -> gateau), terms of prefix searches
+     *             should not be stemmed as a stemmed query may no longer be a prefix of the keyword
+     */
+    public Analyzer(boolean stem) {
+        this.stem = stem;
+        this.term = new char[32];
+    }
+
+    /**
+     * Analyze a text
+     * @param text text to analyze
+     * @param consumer receives each term, in order, repeated terms included
+     */
+    public void analyze(CharSequence text, TermConsumer consumer) {
+        int length = 0;
+        int textLength = text.length();
+        for (int i = 0; i <= textLength; i++) {
+            char c = i < textLength ? text.charAt(i) : ' ';
+            if (Character.isWhitespace(c)) {
+                // end of a word
+                length = filter(length);
+                if (length > 0) {
+                    consumer.onTerm(term, length);
+                }
+                length = 0;
+                continue;
+            }
+            length = append(c, length);
+        }
+    }
+
+    /**
+     * Get the terms of a text
+     * @param text text to analyze
+     * @return list of terms in the order they appear in the text, repeated terms included
+     */
+    public List<String> getTerms(CharSequence text) {
+        final List<String> terms = new ArrayList<>();
+        addTerms(text, terms);
+        return terms;
+    }
+
+    /**
+     * Add the terms of a text to a collection
+     * @param text text to analyze
+     * @param terms collection to which terms are added, a Set keeps distinct terms
+     */
+    public void addTerms(CharSequence text, final Collection<String> terms) {
+        analyze(text, new TermConsumer() {
+            @Override
+            public void onTerm(char[] buffer, int length) {
+                terms.add(new String(buffer, 0, length));
+            }
+        });
+    }
+
+    /**
+     * Get the term of a single word
+     * @param word a single word (no whitespace)
+     * @return term, null if the word has no term (ex: stop word, punctuation only)
+     */
+    public String getTerm(CharSequence word) {
+        int length = filter(normalize(word));
+        return length > 0 ? new String(term, 0, length) : null;
+    }
+
+    /**
+     * Normalize a single word without filtering stop words or stemming, used for a word still being typed
+     * @param word a single word (no whitespace)
+     * @return folded, lower case word, empty string if nothing is left
+     */
+    public String getNormalizedWord(CharSequence word) {
+        return new String(term, 0, normalize(word));
+    }
+
+    /**
+     * Fold a character to the characters kept in terms: lower case, without accents
+     * @param c character to fold
+     * @param out buffer receiving the folded characters, must have room for 2 characters
+     * @param offset position in the buffer
+     * @return number of characters written (0 if the character is dropped, 2 for ligatures like œ)
+     */
+    public static int fold(char c, char[] out, int offset) {
+        switch (c) {
+            case '\u00C6': // Æ
+            case '\u00E6': // æ
+                out[offset] = 'a';
+                out[offset + 1] = 'e';
+                return 2;
+            case '\u0152': // Œ
+            case '\u0153': // œ
+                out[offset] = 'o';
+                out[offset + 1] = 'e';
+                return 2;
+            case '\u00DF': // ß
+                out[offset] = 's';
+                out[offset + 1] = 's';
+                return 2;
+            case '\u2019': // typographic apostrophes
+            case '\u02BC':
+                out[offset] = '\'';
+                return 1;
+            case '\u2010': // typographic hyphens
+            case '\u2011':
+                out[offset] = '-';
+                return 1;
+        }
+        char folded;
+        if (c < FOLDED_CHARS.length) {
+            folded = FOLDED_CHARS[c];
+        } else {
+            // other scripts are kept as is
+            folded = Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+        }
+        if (folded == 0) {
+            return 0;
+        }
+        out[offset] = folded;
+        return 1;
+    }
+
+    /**
+     * Check if the characters of a word before an apostrophe are a French elided article or pronoun
+     * (l', d', j', m', n', s', t', c', qu')
+     * @param word characters of the word
+     * @param length number of characters before the apostrophe
+     * @return true if the characters are elided
+     */
+    public static boolean isElision(char[] word, int length) {
+        if (length == 1) {
+            return "cdjlmnst".indexOf(word[0]) >= 0;
+        }
+        return length == 2 && word[0] == 'q' && word[1] == 'u';
+    }
+
+    /**
+     * Fold the characters of a single word into the term buffer
+     * @return length of the normalized word
+     */
+    private int normalize(CharSequence word) {
+        int length = 0;
+        for (int i = 0; i < word.length(); i++) {
+            length = append(word.charAt(i), length);
+        }
+        return length;
+    }
+
+    /**
+     * Fold a character and append it to the term buffer
+     * @param c character of the word
+     * @param length length of the term before the character
+     * @return new length of the term
+     */
+    private int append(char c, int length) {
+        if (length + 2 > term.length) {
+            term = Arrays.copyOf(term, term.length * 2);
+        }
+        length += fold(c, term, length);
+        // an elided article is dropped and the term starts again after the apostrophe
+        if (length > 0 && term[length - 1] == '\'' && isElision(term, length - 1)) {
+            return 0;
+        }
+        return length;
+    }
+
+    /**
+     * Apply the stop word filter and stemming to the term buffer
+     * @param length length of the term
+     * @return new length of the term, 0 if the term is dropped
+     */
+    private int filter(int length) {
+        if (length == 0 || !hasLetterOrDigit(length) || StopWords.isStopWord(term, length)) {
+            return 0;
+        }
+        return stem ? stem(length) : length;
+    }
+
+    private boolean hasLetterOrDigit(int length) {
+        for (int i = 0; i < length; i++) {
+            if (term[i] != '\'' && term[i] != '-') return true;
+        }
+        return false;
+    }
+
+    /**
+     * Light stemming removing English and French plural endings
+     * @param length length of the term
+     * @return new length of the term
+     */
+    private int stem(int length) {
+        if (length <= 3) {
+            return length;
+        }
+        char last = term[length - 1];
+        if (last == 's') {
+            if (endsWith(length, "ies") && length > 4) {
+                // berries -> berry
+                term[length - 3] = 'y';
+                return length - 2;
+            }
+            if (endsWith(length, "oes") || endsWith(length, "ches") || endsWith(length, "shes") || endsWith(length, "xes")) {
+                // tomatoes -> tomato, dishes -> dish
+                return length - 2;
+            }
+            if (endsWith(length, "ss") || endsWith(length, "us") || endsWith(length, "is")) {
+                // not plural: glass, couscous, anis
+                return length;
+            }
+            return length - 1;
+        }
+        if (last == 'x' && (endsWith(length, "eaux") || endsWith(length, "eux"))) {
+            // gateaux -> gateau, choux -> chou is left as is
+            return length - 1;
+        }
+        return length;
+    }
+
+    private boolean endsWith(int length, String suffix) {
+        int start = length - suffix.length();
+        if (start < 0) return false;
+        for (int i = 0; i < suffix.length(); i++) {
+            if (term[start + i] != suffix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compute the folded character of each Latin character: letters are lower cased and accents are removed
+     * (canonical decomposition without the combining marks), digits, apostrophes and hyphens are kept
+     */
+    private static char[] createFoldedChars(int size) {
+        char[] folded = new char[size];
+        for (char c = 0; c < size; c++) {
+            if (c == '\'' || c == '-') {
+                folded[c] = c;
+            } else if (Character.isLetterOrDigit(c)) {
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                folded[c] = Character.toLowerCase(decomposed.charAt(0));
+            }
+        }
+        // letters with a stroke have no decomposition
+        folded['\u00D8'] = folded['\u00F8'] = 'o'; // Ø ø
+        folded['\u0110'] = folded['\u0111'] = 'd'; // Đ đ
+        folded['\u0141'] = folded['\u0142'] = 'l'; // Ł ł
+        folded['\u0131'] = 'i'; // dotless ı
+        return folded;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.mealer_project.utils.PostalCodes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Approximate location (latitude, longitude) of Canadian postal codes, from the centroid of their FSA
+ * The table is bundled with the app, no network access is needed. Entries are keyed by a prefix of the FSA: a full
+ * FSA ("K1N"), an FSA without its region identifier ("K1"), or a postal district ("K"). The longest matching prefix
+ * is used, so the table can be refined with more FSAs without changing the lookups.
+ * Bundled entries cover each postal district and the FSA prefixes of the main urban areas
+ */
+public class FsaCentroids {
+
+    // mean radius of the Earth, in kilometers
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    // latitude and longitude of each FSA prefix
+    private static final Map<String, double[]> CENTROIDS = new HashMap<>();
+
+    static {
+        // Newfoundland and Labrador
+        put("A", 47.56, -52.71);
+        put("A1", 47.56, -52.71); // St. John's
+        put("A2", 48.95, -57.95); // Corner Brook
+        // Nova Scotia
+        put("B", 44.65, -63.57);
+        put("B3", 44.65, -63.57); // Halifax
+        put("B1", 46.14, -60.19); // Sydney
+        // Prince Edward Island
+        put("C", 46.24, -63.13);
+        put("C1", 46.24, -63.13); // Charlottetown
+        // New Brunswick
+        put("E", 46.09, -64.78);
+        put("E1", 46.09, -64.78); // Moncton
+        put("E2", 45.27, -66.06); // Saint John
+        put("E3", 45.96, -66.64); // Fredericton
+        // Eastern Quebec
+        put("G", 46.81, -71.21);
+        put("G1", 46.81, -71.21); // Quebec City
+        put("G2", 46.83, -71.30); // Quebec City
+        put("G7", 48.43, -71.07); // Saguenay
+        put("G8", 46.35, -72.55); // Trois-Rivieres
+        put("G9", 46.35, -72.55); // Trois-Rivieres
+        // Metropolitan Montreal
+        put("H", 45.50, -73.57);
+        put("H7", 45.57, -73.75); // Laval
+        put("H9", 45.46, -73.83); // West Island
+        // Western Quebec
+        put("J", 45.78, -74.00);
+        put("J1", 45.40, -71.89); // Sherbrooke
+        put("J4", 45.53, -73.52); // Longueuil
+        put("J8", 45.48, -75.70); // Gatineau
+        put("J9", 45.48, -75.70); // Gatineau
+        // Eastern Ontario
+        put("K", 45.42, -75.70);
+        put("K1", 45.42, -75.70); // Ottawa
+        put("K2", 45.33, -75.78); // Ottawa
+        put("K7", 44.23, -76.49); // Kingston
+        put("K9", 44.30, -78.32); // Peterborough
+        // Central Ontario
+        put("L", 43.59, -79.64);
+        put("L1", 43.90, -78.86); // Oshawa
+        put("L2", 43.16, -79.24); // St. Catharines
+        put("L5", 43.59, -79.64); // Mississauga
+        put("L8", 43.26, -79.87); // Hamilton
+        put("L9", 43.22, -79.90); // Hamilton
+        // Metropolitan Toronto
+        put("M", 43.70, -79.42);
+        put("M1", 43.77, -79.23); // Scarborough
+        put("M2", 43.77, -79.41); // North York
+        put("M3", 43.75, -79.45); // North York
+        put("M4", 43.69, -79.35); // East York
+        put("M5", 43.65, -79.38); // Downtown Toronto
+        put("M6", 43.67, -79.46); // West Toronto
+        put("M8", 43.62, -79.51); // Etobicoke
+        put("M9", 43.67, -79.55); // Etobicoke
+        // Southwestern Ontario
+        put("N", 42.98, -81.25);
+        put("N1", 43.55, -80.25); // Guelph
+        put("N2", 43.45, -80.49); // Kitchener-Waterloo
+        put("N6", 42.98, -81.25); // London
+        put("N8", 42.30, -83.03); // Windsor
+        put("N9", 42.30, -83.03); // Windsor
+        // Northern Ontario
+        put("P", 46.49, -80.99);
+        put("P1", 46.31, -79.46); // North Bay
+        put("P3", 46.49, -80.99); // Sudbury
+        put("P6", 46.52, -84.33); // Sault Ste. Marie
+        put("P7", 48.38, -89.25); // Thunder Bay
+        // Manitoba
+        put("R", 49.90, -97.14);
+        put("R2", 49.90, -97.14); // Winnipeg
+        put("R3", 49.88, -97.17); // Winnipeg
+        put("R7", 49.85, -99.95); // Brandon
+        // Saskatchewan
+        put("S", 51.30, -105.60);
+        put("S4", 50.45, -104.61); // Regina
+        put("S7", 52.13, -106.67); // Saskatoon
+        // Alberta
+        put("T", 52.27, -113.81);
+        put("T2", 51.05, -114.07); // Calgary
+        put("T3", 51.08, -114.13); // Calgary
+        put("T4", 52.27, -113.81); // Red Deer
+        put("T5", 53.55, -113.49); // Edmonton
+        put("T6", 53.52, -113.52); // Edmonton
+        // British Columbia
+        put("V", 49.26, -123.11);
+        put("V1", 49.89, -119.50); // Kelowna
+        put("V3", 49.19, -122.85); // Surrey
+        put("V5", 49.25, -123.07); // Vancouver
+        put("V6", 49.27, -123.13); // Vancouver
+        put("V7", 49.32, -123.07); // North Vancouver
+        put("V8", 48.43, -123.37); // Victoria
+        put("V9", 48.45, -123.45); // Victoria
+        // Northwest Territories/Nunavut
+        put("X", 62.45, -114.37);
+        put("X1", 62.45, -114.37); // Yellowknife
+        put("X0A", 63.75, -68.52); // Iqaluit
+        // Yukon
+        put("Y", 60.72, -135.05);
+    }
+
+    private static void put(String fsaPrefix, double latitude, double longitude) {
+        CENTROIDS.put(fsaPrefix, new double[] {latitude, longitude});
+    }
+
+    /**
+     * Get the approximate location of a postal code, from the longest FSA prefix in the table
+     * @param postalCode instance of PostalCode
+     * @return latitude and longitude, in degrees
+     */
+    public static double[] getCentroid(PostalCode postalCode) {
+        String fsa = postalCode.toString().substring(0, 3);
+        for (int length = fsa.length(); length > 0; length--) {
+            double[] centroid = CENTROIDS.get(fsa.substring(0, length));
+            if (centroid != null) {
+                return centroid.clone();
+            }
+        }
+        // every postal district is in the table
+        throw new IllegalArgumentException("No location for postal code: " + postalCode);
+    }
+
+    /**
+     * Get the approximate distance between two postal codes, along the surface of the Earth
+     * @param firstPostalCode instance of PostalCode for first postal code
+     * @param secondPostalCode instance of PostalCode for second postal code
+     * @return distance between the centroids of their FSA, in kilometers
+     */
+    public static double getDistance(PostalCode firstPostalCode, PostalCode secondPostalCode) {
+        double[] first = getCentroid(firstPostalCode);
+        double[] second = getCentroid(secondPostalCode);
+        return haversine(first[0], first[1], second[0], second[1]);
+    }
+
+    /**
+     * Great circle distance between two locations, with the haversine formula
+     * @param latitude1 latitude of first location, in degrees
+     * @param longitude1 longitude of first location, in degrees
+     * @param latitude2 latitude of second location, in degrees
+     * @param longitude2 longitude of second location, in degrees
+     * @return distance, in kilometers
+     */
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.mealer_project.utils.PostalCodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial index of locations, answering "k nearest locations to this point" without computing every distance
+ * Locations are stored as points on the unit sphere (x, y, z) in a k-d tree: the straight line distance between two
+ * points grows with their distance along the surface, so nearest points are nearest locations, and a whole subtree
+ * is skipped when the splitting plane is farther than the k-th nearest point found so far.
+ * The tree is balanced when built and never modified, so it can be searched by several threads at once
+ */
+public class LocationIndex {
+
+    private static final int DIMENSIONS = 3;
+
+    // ids of the locations, in tree order: the node of a range [start, end) is at the middle of the range, the
+    // nodes of its left and right subtrees are before and after it
+    private final String[] ids;
+    // coordinates of each location on the unit sphere, DIMENSIONS values per location, in tree order
+    private final double[] points;
+
+    /**
+     * Build the index
+     * @param ids id of each location
+     * @param latitudes latitude of each location, in degrees
+     * @param longitudes longitude of each location, in degrees
+     */
+    public LocationIndex(List<String> ids, double[] latitudes, double[] longitudes) {
+        if (ids.size() != latitudes.length || ids.size() != longitudes.length) {
+            throw new IllegalArgumentException("Expected " + ids.size() + " locations, got " + latitudes.length + " latitudes and " + longitudes.length + " longitudes");
+        }
+        int size = ids.size();
+        this.ids = ids.toArray(new String[size]);
+        this.points = new double[size * DIMENSIONS];
+        for (int i = 0; i < size; i++) {
+            toPoint(latitudes[i], longitudes[i], this.points, i * DIMENSIONS);
+        }
+        build(0, size, 0);
+    }
+
+    /**
+     * Get the number of locations in the index
+     * @return number of locations
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Get the locations nearest to a point
+     * @param latitude latitude of the point, in degrees
+     * @param longitude longitude of the point, in degrees
+     * @param k maximum number of locations
+     * @return ids of at most k locations, nearest first
+     */
+    public List<String> getNearest(double latitude, double longitude, int k) {
+        k = Math.min(k, ids.length);
+        List<String> result = new ArrayList<>(Math.max(k, 0));
+        if (k <= 0) {
+            return result;
+        }
+        double[] target = new double[DIMENSIONS];
+        toPoint(latitude, longitude, target, 0);
+        Neighbours neighbours = new Neighbours(k);
+        search(0, ids.length, 0, target, neighbours);
+        for (int i = 0; i < neighbours.count; i++) {
+            result.add(ids[neighbours.positions[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Arrange the locations of a range in tree order: median on the axis of the depth at the middle, smaller
+     * coordinates before it and larger after it, then each half on the next axis
+     */
+    private void build(int start, int end, int depth) {
+        if (end - start <= 1) return;
+        int middle = (start + end) >>> 1;
+        select(start, end, middle, depth % DIMENSIONS);
+        build(start, middle, depth + 1);
+        build(middle + 1, end, depth + 1);
+    }
+
+    /**
+     * Partial sort of a range on an axis, so that position holds the location it would hold if the range was sorted
+     */
+    private void select(int start, int end, int position, int axis) {
+        int low = start;
+        int high = end - 1;
+        while (low < high) {
+            double pivot = coordinate((low + high) >>> 1, axis);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coordinate(i, axis) < pivot) i++;
+                while (coordinate(j, axis) > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (position <= j) {
+                high = j;
+            } else if (position >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void search(int start, int end, int depth, double[] target, Neighbours neighbours) {
+        if (start >= end) return;
+        int middle = (start + end) >>> 1;
+        neighbours.offer(middle, squaredDistance(middle, target));
+        int axis = depth % DIMENSIONS;
+        double delta = target[axis] - coordinate(middle, axis);
+        // search the side of the target first, the other side only if the splitting plane is close enough
+        if (delta < 0) {
+            search(start, middle, depth + 1, target, neighbours);
+            if (delta * delta < neighbours.getMaxDistance()) search(middle + 1, end, depth + 1, target, neighbours);
+        } else {
+            search(middle + 1, end, depth + 1, target, neighbours);
+            if (delta * delta < neighbours.getMaxDistance()) search(start, middle, depth + 1, target, neighbours);
+        }
+    }
+
+    private double coordinate(int position, int axis) {
+        return points[position * DIMENSIONS + axis];
+    }
+
+    private double squaredDistance(int position, double[] target) {
+        double distance = 0;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double delta = points[position * DIMENSIONS + axis] - target[axis];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+
+    private void swap(int first, int second) {
+        String id = ids[first];
+        ids[first] = ids[second];
+        ids[second] = id;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double coordinate = points[first * DIMENSIONS + axis];
+            points[first * DIMENSIONS + axis] = points[second * DIMENSIONS + axis];
+            points[second * DIMENSIONS + axis] = coordinate;
+        }
+    }
+
+    private static void toPoint(double latitude, double longitude, double[] point, int offset) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        point[offset] = Math.cos(latitudeRadians) * Math.cos(longitudeRadians);
+        point[offset + 1] = Math.cos(latitudeRadians) * Math.sin(longitudeRadians);
+        point[offset + 2] = Math.sin(latitudeRadians);
+    }
+
+    /**
+     * The k nearest locations found so far, sorted by distance (k is small, so insertion is a shift of the array)
+     */
+    private static class Neighbours {
+        final int[] positions;
+        final double[] distances;
+        int count;
+
+        Neighbours(int k) {
+            this.positions = new int[k];
+            this.distances = new double[k];
+        }
+
+        /**
+         * Squared distance a location must be under to be one of the k nearest
+         */
+        double getMaxDistance() {
+            return count < positions.length ? Double.POSITIVE_INFINITY : distances[count - 1];
+        }
+
+        void offer(int position, double distance) {
+            if (distance >= getMaxDistance()) return;
+            int i = count < positions.length ? count++ : count - 1;
+            // shift farther locations, dropping the farthest when full
+            while (i > 0 && distances[i - 1] > distance) {
+                positions[i] = positions[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            positions[i] = position;
+            distances[i] = distance;
+        }
+    }
+}
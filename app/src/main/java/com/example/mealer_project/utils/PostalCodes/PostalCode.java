@@ -1,184 +1,224 @@
 package com.example.mealer_project.utils.PostalCodes;
 
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Objects;
-
 /**
  * Class representing a Canadian Postal Code
+ * The postal code is stored packed into a single int (see encode), ranks of letters are read from arrays
  */
 public class PostalCode {
 
-    // part of FSA
-    private char postalDistrictCharacter;
-    private int urbanRuralIdentifier;
-    private char regionIdentifier;
+    // bits of each character in the packed postal code, from the most significant: postal district (5 bits),
+    // urban rural identifier (4 bits), region identifier (5 bits), LDU first digit (4 bits), LDU character (5 bits),
+    // LDU last digit (4 bits). Letters are stored as their rank, digits as their value
+    static final int LDU_LAST_DIGIT_SHIFT = 0;
+    static final int LDU_CHAR_SHIFT = 4;
+    static final int LDU_FIRST_DIGIT_SHIFT = 9;
+    static final int REGION_IDENTIFIER_SHIFT = 13;
+    static final int URBAN_RURAL_IDENTIFIER_SHIFT = 18;
+    static final int POSTAL_DISTRICT_SHIFT = 22;
+    static final int DIGIT_MASK = 0xF;
+    static final int LETTER_MASK = 0x1F;
 
-    // part of LDU
-    private int LDUFirstDigit;
-    private char LDUChar;
-    private int LDULastDigit;
+    // packed postal code
+    private int code;
 
     /**
      * Postal District Codes - First bit of the FSA
+     * Letter of each rank, rank of a letter is its index + 1
      */
-    protected static final Map<Character, Integer> POSTAL_DISTRICT_CODES = new HashMap<Character, Integer>() {{
-        put('A',1); // Newfoundland and Labrador
-        put('B',2); // Nova Scotia
-        put('C',3); // Prince Edward Island
-        put('E',4); // New Brunswick
-        put('G',5); // Eastern Quebec
-        put('H',6); // Metropolitan Montreal
-        put('J',7); // Western Quebec
-        put('K',8); // Eastern Ontario
-        put('L',9); // Central Ontario
-        put('M',10); // Metropolitan Toronto
-        put('N',11); // Southwestern Ontario
-        put('P',12); // Northern Ontario
-        put('R',13); // Manitoba
-        put('S',14); // Saskatchewan
-        put('T',15); // Alberta
-        put('V',16); // British Columbia
-        put('X',17); // Northwest Territories/Nunavut
-        put('Y',18); // Yukon
-    }};
+    private static final String POSTAL_DISTRICT_LETTERS =
+            "A" + // Newfoundland and Labrador
+            "B" + // Nova Scotia
+            "C" + // Prince Edward Island
+            "E" + // New Brunswick
+            "G" + // Eastern Quebec
+            "H" + // Metropolitan Montreal
+            "J" + // Western Quebec
+            "K" + // Eastern Ontario
+            "L" + // Central Ontario
+            "M" + // Metropolitan Toronto
+            "N" + // Southwestern Ontario
+            "P" + // Northern Ontario
+            "R" + // Manitoba
+            "S" + // Saskatchewan
+            "T" + // Alberta
+            "V" + // British Columbia
+            "X" + // Northwest Territories/Nunavut
+            "Y"; // Yukon
 
     /**
      * List of all allowed letters that can be used in Postal Code
+     * Letter of each rank, rank of a letter is its index + 1
+     */
+    private static final String VALID_POSTAL_CODE_LETTERS = "ABCEGHJKLMNPRSTVWXYZ";
+
+    /**
+     * Rank of each character as a postal district / postal code letter, 0 if not allowed
+     * Indexed by character, only characters below 128 can be allowed
      */
-    protected static final Map<Character, Integer> VALID_POSTAL_CODE_LETTERS = new HashMap<Character, Integer>() {{
-        put('A',1);
-        put('B',2);
-        put('C',3);
-        put('E',4);
-        put('G',5);
-        put('H',6);
-        put('J',7);
-        put('K',8);
-        put('L',9);
-        put('M',10);
-        put('N',11);
-        put('P',12);
-        put('R',13);
-        put('S',14);
-        put('T',15);
-        put('V',16);
-        put('W',17);
-        put('X',18);
-        put('Y',19);
-        put('Z',20);
-    }};
+    static final int[] POSTAL_DISTRICT_RANKS = getRanks(POSTAL_DISTRICT_LETTERS);
+    static final int[] POSTAL_CODE_LETTER_RANKS = getRanks(VALID_POSTAL_CODE_LETTERS);
+
+    private static int[] getRanks(String letters) {
+        int[] ranks = new int[128];
+        for (int i = 0; i < letters.length(); i++) {
+            char letter = letters.charAt(i);
+            ranks[letter] = i + 1;
+            ranks[Character.toLowerCase(letter)] = i + 1;
+        }
+        return ranks;
+    }
 
     public PostalCode(String postalCode) throws IllegalArgumentException {
-        // remove spaces from postal code
-        postalCode = postalCode.replaceAll("\\s+", "").toUpperCase(Locale.US);
-        // parse and store postal code information
-        this.parsePostalCode(postalCode);
+        // parse and store postal code information, spaces are ignored
+        this.code = encode(postalCode);
     }
 
-    private void parsePostalCode(String postalCode) throws IllegalArgumentException {
+    /**
+     * Encode a postal code into a single int
+     * Encoded postal codes are equal if the postal codes are equal, and can be compared with
+     * PostalCodeComparator.getDistanceKey without creating any object
+     * @param postalCode string representation of the postal code, ex: "T6X8X9" or "t6x 8x9"
+     * @return packed postal code
+     * @throws IllegalArgumentException if the postal code is not a valid Canadian postal code
+     */
+    public static int encode(String postalCode) throws IllegalArgumentException {
         // validate input postal code
-        if (postalCode == null || postalCode.length() != 6) {
+        if (postalCode == null) {
+            throw new IllegalArgumentException("Invalid value of postal code for parsing: null");
+        }
+        int code = 0;
+        int position = 0;
+        for (int i = 0; i < postalCode.length(); i++) {
+            char character = postalCode.charAt(i);
+            // skip spaces
+            if (Character.isWhitespace(character)) continue;
+            int value;
+            switch (position) {
+                case 0:
+                    // FSA postal district
+                    value = getRank(POSTAL_DISTRICT_RANKS, character);
+                    break;
+                case 2:
+                case 4:
+                    // FSA region identifier and LDU character
+                    value = getRank(POSTAL_CODE_LETTER_RANKS, character);
+                    break;
+                case 1:
+                case 3:
+                case 5:
+                    // FSA urban rural identifier and LDU digits, stored as value + 1 to be validated like letters
+                    value = isValidPostalCodeDigit(character - '0') ? character - '0' + 1 : 0;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid value of postal code for parsing: " + postalCode);
+            }
+            if (value == 0) {
+                throw new IllegalArgumentException("Invalid character " + character + " in postal code: " + postalCode);
+            }
+            // letters at even positions, digits at odd positions
+            code = position % 2 == 0 ? (code << 5) | value : (code << 4) | (value - 1);
+            position++;
+        }
+        if (position != 6) {
             throw new IllegalArgumentException("Invalid value of postal code for parsing: " + postalCode);
         }
+        return code;
+    }
 
-        // parse FSA values
-        this.setPostalDistrictCharacter(postalCode.charAt(0));
-        this.setUrbanRuralIdentifier(postalCode.charAt(1));
-        this.setRegionIdentifier(postalCode.charAt(2));
-        // parse LDU values
-        this.setLDUFirstDigit(postalCode.charAt(3));
-        this.setLDUChar(postalCode.charAt(4));
-        this.setLDULastDigit(postalCode.charAt(5));
+    private static int getRank(int[] ranks, char character) {
+        return character < ranks.length ? ranks[character] : 0;
+    }
+
+    /**
+     * Get the packed representation of the postal code
+     * @return packed postal code, see encode
+     */
+    public int getCode() {
+        return code;
+    }
+
+    private int get(int shift, int mask) {
+        return (code >>> shift) & mask;
+    }
+
+    private void set(int shift, int mask, int value) {
+        code = (code & ~(mask << shift)) | (value << shift);
     }
 
     public char getPostalDistrictCharacter() {
-        return postalDistrictCharacter;
+        return POSTAL_DISTRICT_LETTERS.charAt(get(POSTAL_DISTRICT_SHIFT, LETTER_MASK) - 1);
     }
 
     public void setPostalDistrictCharacter(char postalDistrictCharacter) throws IllegalArgumentException {
         if (isValidFSAPostalDistrict(postalDistrictCharacter)) {
-            this.postalDistrictCharacter = postalDistrictCharacter;
+            set(POSTAL_DISTRICT_SHIFT, LETTER_MASK, POSTAL_DISTRICT_RANKS[postalDistrictCharacter]);
         } else {
          throw new IllegalArgumentException("Invalid Postal District Character: " + postalDistrictCharacter);
         }
     }
 
     public int getUrbanRuralIdentifier() {
-        return urbanRuralIdentifier;
+        return get(URBAN_RURAL_IDENTIFIER_SHIFT, DIGIT_MASK);
     }
 
     public void setUrbanRuralIdentifier(char urbanRuralIdentifierCharacter) throws IllegalArgumentException {
-        try {
-            int urbanRuralIdentifier = Integer.parseInt(String.valueOf(urbanRuralIdentifierCharacter));
-            if (isValidFSADigit(urbanRuralIdentifier)) {
-                this.urbanRuralIdentifier = urbanRuralIdentifier;
-            } else {
-                throw new IllegalArgumentException("Invalid Urban Rural Identifier digit: " + urbanRuralIdentifier);
-            }
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Unable to parse URI identifier: " + e.getMessage());
+        int urbanRuralIdentifier = urbanRuralIdentifierCharacter - '0';
+        if (isValidFSADigit(urbanRuralIdentifier)) {
+            set(URBAN_RURAL_IDENTIFIER_SHIFT, DIGIT_MASK, urbanRuralIdentifier);
+        } else {
+            throw new IllegalArgumentException("Unable to parse URI identifier: " + urbanRuralIdentifierCharacter);
         }
     }
 
     public char getRegionIdentifier() {
-        return regionIdentifier;
+        return VALID_POSTAL_CODE_LETTERS.charAt(get(REGION_IDENTIFIER_SHIFT, LETTER_MASK) - 1);
     }
 
     public void setRegionIdentifier(char regionIdentifier) throws IllegalArgumentException {
         if (isValidPostalCodeLetter(regionIdentifier)) {
-            this.regionIdentifier = regionIdentifier;
+            set(REGION_IDENTIFIER_SHIFT, LETTER_MASK, POSTAL_CODE_LETTER_RANKS[regionIdentifier]);
         } else {
             throw new IllegalArgumentException("Invalid character provided for FSA third character: " + regionIdentifier);
         }
     }
 
     public int getLDUFirstDigit() {
-        return LDUFirstDigit;
+        return get(LDU_FIRST_DIGIT_SHIFT, DIGIT_MASK);
     }
 
     public void setLDUFirstDigit(char LDUFirstDigitChar) throws IllegalArgumentException {
-        try {
-            int LDUFirstDigit = Integer.parseInt(String.valueOf(LDUFirstDigitChar));
-            // LDU Digit can be from 0 to 9 (inclusive)
-            if (LDUFirstDigit >= 0 && LDUFirstDigit <= 9) {
-                this.LDUFirstDigit = LDUFirstDigit;
-            } else {
-                throw new IllegalArgumentException("Invalid LDU digit: " + LDUFirstDigit);
-            }
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Unable to parse " + LDUFirstDigitChar + " to LDU digit: " + e.getMessage());
+        int LDUFirstDigit = LDUFirstDigitChar - '0';
+        // LDU Digit can be from 0 to 9 (inclusive)
+        if (isValidPostalCodeDigit(LDUFirstDigit)) {
+            set(LDU_FIRST_DIGIT_SHIFT, DIGIT_MASK, LDUFirstDigit);
+        } else {
+            throw new IllegalArgumentException("Unable to parse " + LDUFirstDigitChar + " to LDU digit");
         }
     }
 
     public char getLDUChar() {
-        return LDUChar;
+        return VALID_POSTAL_CODE_LETTERS.charAt(get(LDU_CHAR_SHIFT, LETTER_MASK) - 1);
     }
 
     public void setLDUChar(char LDUChar) throws IllegalArgumentException {
         if (isValidPostalCodeLetter(LDUChar)) {
-            this.LDUChar = LDUChar;
+            set(LDU_CHAR_SHIFT, LETTER_MASK, POSTAL_CODE_LETTER_RANKS[LDUChar]);
         } else {
         throw new IllegalArgumentException("Invalid letter provided for LDU first character");
         }
     }
 
     public int getLDULastDigit() {
-        return this.LDULastDigit;
+        return get(LDU_LAST_DIGIT_SHIFT, DIGIT_MASK);
     }
 
     public void setLDULastDigit(char LDULastDigitChar) throws IllegalArgumentException {
-        try {
-            int LDULastDigit = Integer.parseInt(String.valueOf(LDULastDigitChar));
-            // LDU Digit can be from 0 to 9 (inclusive)
-            if (LDULastDigit >= 0 && LDULastDigit <= 9) {
-                this.LDULastDigit = LDULastDigit;
-            } else {
-                throw new IllegalArgumentException("Invalid LDU digit: " + LDULastDigit);
-            }
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Unable to parse " + LDULastDigitChar + " to LDU digit: " + e.getMessage());
+        int LDULastDigit = LDULastDigitChar - '0';
+        // LDU Digit can be from 0 to 9 (inclusive)
+        if (isValidPostalCodeDigit(LDULastDigit)) {
+            set(LDU_LAST_DIGIT_SHIFT, DIGIT_MASK, LDULastDigit);
+        } else {
+            throw new IllegalArgumentException("Unable to parse " + LDULastDigitChar + " to LDU digit");
         }
     }
 
@@ -199,7 +239,7 @@ public class PostalCode {
      * @return true if character is a valid FSA postal district character, else false
      */
     protected static boolean isValidFSAPostalDistrict(char postalDistrictCharacter) {
-        return POSTAL_DISTRICT_CODES.containsKey(postalDistrictCharacter);
+        return getRank(POSTAL_DISTRICT_RANKS, postalDistrictCharacter) != 0;
     }
 
     /**
@@ -217,7 +257,7 @@ public class PostalCode {
      * @return true, if the letter is allowed in a postal code, else false
      */
     protected static boolean isValidPostalCodeLetter(char letter) {
-        return VALID_POSTAL_CODE_LETTERS.containsKey(letter);
+        return getRank(POSTAL_CODE_LETTER_RANKS, letter) != 0;
     }
 
     /**
@@ -226,11 +266,11 @@ public class PostalCode {
      */
     @Override
     public String toString() {
-        return "" + postalDistrictCharacter + urbanRuralIdentifier + regionIdentifier + LDUFirstDigit + LDUChar + LDULastDigit;
+        return "" + getPostalDistrictCharacter() + getUrbanRuralIdentifier() + getRegionIdentifier() + getLDUFirstDigit() + getLDUChar() + getLDULastDigit();
     }
 
     /**
-     * Override equals to check all values are same
+     * Override equals to check all values are same (packed codes are equal)
      * @param o object to compare with
      * @return true is object is same as current postal code, else false
      */
@@ -239,7 +279,7 @@ public class PostalCode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PostalCode that = (PostalCode) o;
-        return postalDistrictCharacter == that.postalDistrictCharacter && urbanRuralIdentifier == that.urbanRuralIdentifier && regionIdentifier == that.regionIdentifier && LDUFirstDigit == that.LDUFirstDigit && LDUChar == that.LDUChar && LDULastDigit == that.LDULastDigit;
+        return code == that.code;
     }
 
     /**
@@ -248,6 +288,6 @@ public class PostalCode {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(postalDistrictCharacter, urbanRuralIdentifier, regionIdentifier, LDUFirstDigit, LDUChar, LDULastDigit);
+        return code;
     }
 }
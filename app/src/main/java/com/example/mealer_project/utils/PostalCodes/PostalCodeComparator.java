@@ -40,102 +40,82 @@ public class PostalCodeComparator implements Comparator<String> {
         this.origin = new PostalCode(origin);
     }
 
-    private static int getPDDigit(char key) {
-        return PostalCode.POSTAL_DISTRICT_CODES.get(key);
-    }
+    /**
+     * Shift and mask of each character of a packed postal code, from the postal district to the LDU last digit
+     * Distances of the characters to the origin are compared in this order
+     */
+    private static final int[] CHARACTER_SHIFTS = {
+            PostalCode.POSTAL_DISTRICT_SHIFT,
+            PostalCode.URBAN_RURAL_IDENTIFIER_SHIFT,
+            PostalCode.REGION_IDENTIFIER_SHIFT,
+            PostalCode.LDU_FIRST_DIGIT_SHIFT,
+            PostalCode.LDU_CHAR_SHIFT,
+            PostalCode.LDU_LAST_DIGIT_SHIFT
+    };
+    private static final int[] CHARACTER_MASKS = {
+            PostalCode.LETTER_MASK,
+            PostalCode.DIGIT_MASK,
+            PostalCode.LETTER_MASK,
+            PostalCode.DIGIT_MASK,
+            PostalCode.LETTER_MASK,
+            PostalCode.DIGIT_MASK
+    };
+    // bits of each character distance in a distance key, distances are at most 19 (letters) or 9 (digits)
+    private static final int DISTANCE_BITS = 5;
 
-    private int getDistanceFromOrigin(PostalCode postalCode) {
-        return Math.abs(getPDDigit(origin.getPostalDistrictCharacter()) - getPDDigit(postalCode.getPostalDistrictCharacter()));
+    /**
+     * Distance between a character of two packed postal codes (difference of the letter ranks or of the digits)
+     */
+    private static int getCharacterDistance(int firstCode, int secondCode, int character) {
+        int shift = CHARACTER_SHIFTS[character];
+        int mask = CHARACTER_MASKS[character];
+        return Math.abs(((firstCode >>> shift) & mask) - ((secondCode >>> shift) & mask));
     }
 
-    private int comparePostalDistricts(PostalCode firstPostalCode, PostalCode secondPostalCode) throws IllegalArgumentException {
-        // guard-clause
-        if (firstPostalCode == null || secondPostalCode == null) {
-            throw new IllegalArgumentException("Invalid arguments for comparePostalDistrict");
-        }
-        // confirm we have origin PostalCode
-        if (origin == null) {
-            throw new IllegalArgumentException("No origin Postal Code currently defined");
-        }
-        // compare and return result
-        // if the postal district codes of both postal codes belong to same postal district as origin, return 0
-        if (firstPostalCode.getPostalDistrictCharacter() == origin.getPostalDistrictCharacter() && secondPostalCode.getPostalDistrictCharacter() == origin.getPostalDistrictCharacter())
+    /**
+     * Compares three packed postal codes: origin, first postal code and second postal code
+     * Postal codes are ordered by their distance to the origin, compared character by character from the postal
+     * district to the LDU last digit: the first character whose distance to the origin differs decides.
+     * Postal codes at the same distance (ex: one letter before and one letter after the origin's) are ordered by
+     * their packed code, so the order is total: it only returns 0 for equal postal codes, and is antisymmetric and
+     * transitive as required by Comparator (and TimSort)
+     * @param originCode packed origin postal code
+     * @param firstCode packed first postal code
+     * @param secondCode packed second postal code
+     * @return -1, 0, 1 based on comparison
+     */
+    private static int comparePostalCodes(int originCode, int firstCode, int secondCode) {
+        // base case
+        if (firstCode == secondCode) {
+            // if both postal codes equal, return zero
             return 0;
-        // else compare and see which one is closer
-        else
-            return (getDistanceFromOrigin(firstPostalCode) <= getDistanceFromOrigin(secondPostalCode)) ? -1 : 1;
-    }
-
-    private static int getDistanceBetweenCodes(PostalCode firstCode, PostalCode secondCode) {
-        return Math.abs(getPDDigit(firstCode.getPostalDistrictCharacter()) - getPDDigit(secondCode.getPostalDistrictCharacter()));
-    }
-
-    private static int comparePostalDistricts(PostalCode origin, PostalCode firstPostalCode, PostalCode secondPostalCode) throws IllegalArgumentException {
-        // guard-clause
-        if (origin == null || firstPostalCode == null || secondPostalCode == null) {
-            throw new IllegalArgumentException("Invalid arguments for comparePostalDistrict");
         }
-        // compare and return result
-        return (getDistanceBetweenCodes(origin, firstPostalCode) <= getDistanceBetweenCodes(origin, secondPostalCode)) ? -1 : 1;
-    }
-
-    private int getURIDifference(PostalCode postalCode) {
-        return Math.abs(this.origin.getUrbanRuralIdentifier() - postalCode.getUrbanRuralIdentifier());
-    }
-
-    private int compareUrbanRuralIdentifier(PostalCode firstPostalCode, PostalCode secondPostalCode) throws IllegalArgumentException {
-        // validate input
-        if (firstPostalCode == null || secondPostalCode == null) {
-            throw new IllegalArgumentException("Invalid values for urban and rural identifier for comparison");
-        }
-        // confirm we have origin PostalCode
-        if (origin == null) {
-            throw new IllegalArgumentException("No origin Postal Code currently defined");
-        }
-        // if the URI bit is same as origin for both, we return 0
-        if (firstPostalCode.getUrbanRuralIdentifier() == origin.getUrbanRuralIdentifier() && secondPostalCode.getUrbanRuralIdentifier() == origin.getUrbanRuralIdentifier())
-            return 0;
-        else
-            return (getURIDifference(firstPostalCode) <= getURIDifference(secondPostalCode)) ? -1 : 1;
-    }
-
-    private static int getDifferenceBetweenCodeDigits(int firstDigit, int secondDigit) {
-        return Math.abs(firstDigit - secondDigit);
-    }
-
-    private static int comparePostalCodeDigits(int originDigit, int firstCodeDigit, int secondCodeDigit) throws IllegalArgumentException {
-        // validate input
-        if (PostalCode.isValidPostalCodeDigit(originDigit) && PostalCode.isValidPostalCodeDigit(firstCodeDigit) && PostalCode.isValidPostalCodeDigit(secondCodeDigit)) {
-            // if digits same, return 0
-            if (firstCodeDigit == originDigit && secondCodeDigit == originDigit)
-                return 0;
-            else
-                // return -1 if first digit closer to origin, else 1
-                return (getDifferenceBetweenCodeDigits(originDigit, firstCodeDigit) <= getDifferenceBetweenCodeDigits(originDigit, secondCodeDigit)) ? -1 : 1;
-
+        // distance keys compare the distances of each character in order
+        int comparisonResult = Long.compare(getDistanceKey(originCode, firstCode), getDistanceKey(originCode, secondCode));
+        if (comparisonResult != 0) {
+            // return -1 if first code closer, else 1
+            return comparisonResult;
         }
-        // if invalid values
-        throw new IllegalArgumentException("Invalid values for urban and rural identifier for comparison");
+        // as close as each other, but different postal codes
+        return Integer.compare(firstCode, secondCode);
     }
 
-    private static int getLetterDistance(char firstLetter, char secondLetter) {
-        return Math.abs(PostalCode.VALID_POSTAL_CODE_LETTERS.get(firstLetter) - PostalCode.VALID_POSTAL_CODE_LETTERS.get(secondLetter));
-    }
-
-    private static int comparePostalCodeLetters(char originLetter, char firstCodeLetter, char secondCodeLetter) throws IllegalArgumentException {
-        // validate input
-        if (PostalCode.isValidPostalCodeLetter(originLetter) && PostalCode.isValidPostalCodeLetter(firstCodeLetter) && PostalCode.isValidPostalCodeLetter(secondCodeLetter)) {
-            // compare and return result
-            // if the letters of first and second postal codes same as origin letter, return 0
-            if (firstCodeLetter == originLetter && secondCodeLetter == originLetter)
-                return 0;
-            else
-                // else compare and see which one is closer
-                return (getLetterDistance(originLetter, firstCodeLetter) <= getLetterDistance(originLetter, secondCodeLetter)) ? -1 : 1;
-        } else {
-            // if invalid letters
-            throw new IllegalArgumentException("Invalid argument values for comparison");
+    /**
+     * Get a key ordering packed postal codes by closeness to an origin, lower keys are closer
+     * The key packs the distances of each character to the origin, from the postal district to the LDU last digit,
+     * so comparing two keys compares the distances character by character like comparePostalCodes (postal codes at
+     * the same distance have the same key). Sorting n postal codes by closeness costs n encodings and keys, then
+     * only primitive comparisons
+     * @param originCode packed origin postal code (see PostalCode.encode)
+     * @param postalCode packed postal code
+     * @return distance key, 0 if postal code is the origin
+     */
+    public static long getDistanceKey(int originCode, int postalCode) {
+        long key = 0;
+        for (int character = 0; character < CHARACTER_SHIFTS.length; character++) {
+            key = (key << DISTANCE_BITS) | getCharacterDistance(originCode, postalCode, character);
         }
+        return key;
     }
 
     /**
@@ -143,12 +123,12 @@ public class PostalCodeComparator implements Comparator<String> {
      * Returns 0 if first postal code is same as second postal code
      * Returns -1 if first postal code is closer to the origin
      * Returns 1 if second postal code is closer to the origin
+     * Different postal codes at the same distance are ordered by their packed code
      * @param firstPostalCode instance of PostalCode for first postal code
      * @param secondPostalCode instance of PostalCode for second postal code
      * @return -1, 0, 1 based on comparison
      */
     public int comparePostalCodes(PostalCode firstPostalCode, PostalCode secondPostalCode) throws IllegalArgumentException {
-
         // validate arguments
         if (firstPostalCode == null || secondPostalCode == null) {
             throw new IllegalArgumentException("Invalid value provided for postal codes");
@@ -157,64 +137,7 @@ public class PostalCodeComparator implements Comparator<String> {
         if (origin == null) {
             throw new IllegalArgumentException("No origin Postal Code currently defined");
         }
-        // base case
-        if (firstPostalCode.equals(secondPostalCode)) {
-            // if both postal codes equal, return zero
-            return 0;
-        }
-        // store result
-        int comparisonResult;
-
-        // FSA Postal District comparison
-        // if postal districts of both provided codes are different from that of origin
-        // we return the one closer to origin right away (no more comparison needed)
-        comparisonResult = comparePostalDistricts(firstPostalCode, secondPostalCode);
-        if (comparisonResult != 0) {
-            // Postal District Comparison result would be -1 if first postal code is closer to origin, else 1
-            return comparisonResult;
-        }
-
-        // if Postal Districts of all postal codes (origin, firstPostalCode and secondPostalCode) are same
-        // we need to compare second bit of FSA
-
-        // URI - Urban Rural Identifier comparison
-        comparisonResult = compareUrbanRuralIdentifier(firstPostalCode, secondPostalCode);
-        // if URI not the same of all three postal codes (origin, first, second)
-        if (comparisonResult != 0) {
-            // return -1 if URI of firstPostalCode closer to origin, else 1
-            return comparisonResult;
-        }
-
-        // if URI same of all three codes (origin, first, second)
-        // we need to compare third region identifier bit of the FSA
-        comparisonResult = comparePostalCodeLetters(origin.getRegionIdentifier(), firstPostalCode.getRegionIdentifier(), secondPostalCode.getRegionIdentifier());
-        // if region identifiers are same
-        if (comparisonResult != 0) {
-            // return -1 if region identifier of first code closer to origin than second
-            return comparisonResult;
-        }
-
-        // if URI's same for all, we need to start comparing LDU
-
-        // compare LDU first character
-        comparisonResult = comparePostalCodeDigits(origin.getLDUFirstDigit(), firstPostalCode.getLDUFirstDigit(), secondPostalCode.getLDUFirstDigit());
-        // if all not same
-        if (comparisonResult != 0) {
-            // return -1 if first code closer, else 1
-            return comparisonResult;
-        }
-
-        // compare LDU character
-        comparisonResult = comparePostalCodeLetters(origin.getLDUChar(), firstPostalCode.getLDUChar(), secondPostalCode.getLDUChar());
-        // if all not same
-        if (comparisonResult != 0) {
-            // return comparison result
-            return comparisonResult;
-        }
-
-        // Last comparison
-        // compare last character of postal codes (LDU last digit)
-        return comparePostalCodeDigits(origin.getLDULastDigit(), firstPostalCode.getLDULastDigit(), secondPostalCode.getLDULastDigit());
+        return comparePostalCodes(origin.getCode(), firstPostalCode.getCode(), secondPostalCode.getCode());
     }
 
     /**
@@ -222,15 +145,49 @@ public class PostalCodeComparator implements Comparator<String> {
      * Returns 0 if first postal code is same as second postal code
      * Returns -1 if first postal code is closer to the origin
      * Returns 1 if second postal code is closer to the origin
+     * Different postal codes at the same distance are ordered by their packed code
      * @param firstPostalCodeStr string representation of first postal code, ex: "T6X8X9" or "T6x 8X9"
      * @param secondPostalCodeStr string representation of first postal code, ex: "L6B3M9" or "L6B 3M9"
      * @return -1, 0, 1 based on comparison
      */
     public int comparePostalCodes(String firstPostalCodeStr, String secondPostalCodeStr) throws IllegalArgumentException {
-        // remove any spaces from the postal codes string representations
-        firstPostalCodeStr = firstPostalCodeStr.replaceAll("\\s+", "");
-        secondPostalCodeStr = secondPostalCodeStr.replaceAll("\\s+", "");
-        return comparePostalCodes(new PostalCode(firstPostalCodeStr), new PostalCode(secondPostalCodeStr));
+        // confirm we have origin PostalCode
+        if (origin == null) {
+            throw new IllegalArgumentException("No origin Postal Code currently defined");
+        }
+        // encode the postal codes without creating any object, spaces are ignored
+        return comparePostalCodes(origin.getCode(), PostalCode.encode(firstPostalCodeStr), PostalCode.encode(secondPostalCodeStr));
+    }
+
+    /**
+     * Get a key ordering postal codes by closeness to the origin, lower keys are closer
+     * Computing the key once per postal code avoids parsing the postal codes on every comparison
+     * @param postalCode instance of PostalCode
+     * @return distance key, 0 if postal code is the origin
+     */
+    public long getDistanceKey(PostalCode postalCode) throws IllegalArgumentException {
+        // validate arguments
+        if (postalCode == null) {
+            throw new IllegalArgumentException("Invalid value provided for postal code");
+        }
+        // confirm we have origin PostalCode
+        if (origin == null) {
+            throw new IllegalArgumentException("No origin Postal Code currently defined");
+        }
+        return getDistanceKey(origin.getCode(), postalCode.getCode());
+    }
+
+    /**
+     * Get a key ordering postal codes by closeness to the origin, lower keys are closer
+     * @param postalCodeStr string representation of the postal code, ex: "T6X8X9" or "T6x 8X9"
+     * @return distance key, 0 if postal code is the origin
+     */
+    public long getDistanceKey(String postalCodeStr) throws IllegalArgumentException {
+        // confirm we have origin PostalCode
+        if (origin == null) {
+            throw new IllegalArgumentException("No origin Postal Code currently defined");
+        }
+        return getDistanceKey(origin.getCode(), PostalCode.encode(postalCodeStr));
     }
 
     /**
@@ -239,6 +196,7 @@ public class PostalCodeComparator implements Comparator<String> {
      * @param firstPostalCode string representation of first postal code, ex: "T6X8X9" or "T6x 8X9"
      * @param secondPostalCode string representation of first postal code, ex: "L6B3M9" or "L6B 3M9"
      * @return 1 - if second postal code closer to origin, -1 if first postal code closer to origin, 0 is all same
+     * (total order, see comparePostalCodes)
      */
     @Override
     public int compare(String firstPostalCode, String secondPostalCode) {
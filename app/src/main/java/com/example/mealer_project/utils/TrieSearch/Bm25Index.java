@@ -0,0 +1,542 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Relevance ranking of rows using BM25F
+ * Each row has a fixed number of fields (ex: name, cuisine, description, keywords), each with its own boost.
+ * Term statistics (document frequency, field lengths) are updated when rows are added or replaced, so scoring
+ * never rescans the data. Scores are accumulated term at a time, and only the top k rows are kept in a bounded heap.
+ * Once all rows are added, topK can be called by several threads at once: each thread has its own scratch arrays.
+ * fork() creates the next version of the index, which updates the statistics of this version instead of computing
+ * them again: both versions share the field lengths and the postings of the terms, the new version copies the
+ * postings of a term the first time it adds to them.
+ */
+public class Bm25Index {
+
+    // BM25 term frequency saturation
+    private static final double K1 = 1.2;
+    // BM25 field length normalization
+    private static final double B = 0.75;
+    // weight of a keyword which only starts with the query term (search-as-you-type), exact matches have weight 1
+    public static final double PREFIX_MATCH_WEIGHT = 0.7;
+    // maximum number of keywords a prefix term is expanded to
+    public static final int MAX_PREFIX_EXPANSIONS = 64;
+    // term frequencies are stored in 8 bits per field
+    private static final int BITS_PER_FIELD = 8;
+    private static final int MAX_TERM_FREQUENCY = (1 << BITS_PER_FIELD) - 1;
+    public static final int MAX_FIELDS = Integer.SIZE / BITS_PER_FIELD;
+
+    // version of the index, postings of another version are shared and copied before a change
+    private final int version;
+    // boost of each field
+    private final double[] fieldBoosts;
+    // id of each term, sorted to expand prefix terms, shared with the other versions (terms added by newer
+    // versions have no postings in this version)
+    private final ConcurrentSkipListMap<String, Integer> terms;
+    // postings of each term by its id in the shared TermDictionary, null if no row has the term
+    // (postings keep the ordinals of replaced rows, which are never candidates)
+    private TermPostings[] termPostings;
+    // number of rows having each term by its id, replaced rows excluded
+    private int[] documentFrequencies;
+    // lengths of each field of each row: fieldLengths[field][ordinal], the arrays are shared with the other
+    // versions, which only read the lengths of their own rows
+    private final int[][] fieldLengths;
+    // sum of lengths of each field over all rows
+    private final long[] totalFieldLengths;
+    // ids of the distinct terms of each row by ordinal, shared with the other versions like the field lengths
+    private int[][] rowTermIds;
+    // ids of the rows, by ordinal
+    private final RowIds rows;
+
+    // scratch arrays of each searching thread, reused across queries and indexes
+    private static final ThreadLocal<QueryScratch> QUERY_SCRATCH = new ThreadLocal<QueryScratch>() {
+        @Override
+        protected QueryScratch initialValue() {
+            return new QueryScratch();
+        }
+    };
+
+    // scratch array reused across added rows: term id and field of each term of the row
+    private long[] rowTerms;
+
+    /**
+     * Create an empty index
+     * @param fieldBoosts boost of each field, the number of boosts is the number of fields of each row
+     */
+    public Bm25Index(double... fieldBoosts) {
+        if (fieldBoosts.length == 0 || fieldBoosts.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("Invalid number of fields: " + fieldBoosts.length);
+        }
+        this.version = 0;
+        this.fieldBoosts = fieldBoosts.clone();
+        this.terms = new ConcurrentSkipListMap<>();
+        this.termPostings = new TermPostings[16];
+        this.documentFrequencies = new int[16];
+        this.fieldLengths = new int[fieldBoosts.length][16];
+        this.totalFieldLengths = new long[fieldBoosts.length];
+        this.rowTermIds = new int[16][];
+        this.rows = new RowIds();
+        this.rowTerms = new long[16];
+    }
+
+    private Bm25Index(Bm25Index previous) {
+        this.version = previous.version + 1;
+        this.fieldBoosts = previous.fieldBoosts;
+        this.terms = previous.terms;
+        this.termPostings = previous.termPostings.clone();
+        this.documentFrequencies = previous.documentFrequencies.clone();
+        this.fieldLengths = previous.fieldLengths.clone();
+        this.totalFieldLengths = previous.totalFieldLengths.clone();
+        this.rowTermIds = previous.rowTermIds;
+        this.rows = previous.rows.fork();
+        this.rowTerms = new long[16];
+    }
+
+    /**
+     * Create the next version of the index, sharing the statistics and postings of this version
+     * This version keeps returning the same results and can no longer be modified
+     * @return new version containing the same rows
+     */
+    public Bm25Index fork() {
+        return new Bm25Index(this);
+    }
+
+    /**
+     * Add a row to the index, updating term statistics
+     * If the id was already added, the previous row is no longer returned
+     * @param id id of the row
+     * @param fields ids of the terms of each field in the shared TermDictionary, in the same order as the field boosts
+     */
+    public void addData(String id, int[][] fields) {
+        if (fields.length != fieldBoosts.length) {
+            throw new IllegalArgumentException("Expected " + fieldBoosts.length + " fields, got " + fields.length);
+        }
+        // if row already exists, remove its previous ordinal from the statistics
+        int previousOrdinal = this.rows.getOrdinal(id);
+        int ordinal = this.rows.add(id);
+        if (previousOrdinal >= 0) {
+            for (int field = 0; field < fieldBoosts.length; field++) {
+                totalFieldLengths[field] -= fieldLengths[field][previousOrdinal];
+            }
+            for (int termId : rowTermIds[previousOrdinal]) {
+                documentFrequencies[termId]--;
+            }
+        }
+        ensureCapacity(ordinal + 1);
+
+        // collect the terms of the row as (term id, field) pairs, sorting groups the occurrences of each term
+        int termCount = 0;
+        for (int field = 0; field < fieldBoosts.length; field++) {
+            int[] fieldTerms = fields[field];
+            int length = fieldTerms == null ? 0 : fieldTerms.length;
+            fieldLengths[field][ordinal] = length;
+            totalFieldLengths[field] += length;
+            if (termCount + length > rowTerms.length) {
+                rowTerms = Arrays.copyOf(rowTerms, Math.max(termCount + length, rowTerms.length * 2));
+            }
+            for (int i = 0; i < length; i++) {
+                rowTerms[termCount++] = ((long) fieldTerms[i] << BITS_PER_FIELD) | field;
+            }
+        }
+        Arrays.sort(rowTerms, 0, termCount);
+
+        // count term frequencies packed 8 bits per field, and append the row to the postings of its terms
+        int[] termIds = new int[termCount];
+        int distinctTermCount = 0;
+        int i = 0;
+        while (i < termCount) {
+            int termId = (int) (rowTerms[i] >>> BITS_PER_FIELD);
+            int packed = 0;
+            for (; i < termCount && (int) (rowTerms[i] >>> BITS_PER_FIELD) == termId; i++) {
+                packed = addFrequency(packed, (int) (rowTerms[i] & MAX_TERM_FREQUENCY));
+            }
+            getOrAddPostings(termId).add(ordinal, packed);
+            documentFrequencies[termId]++;
+            termIds[distinctTermCount++] = termId;
+        }
+        // the previous version only reads the terms of its own ordinals, so writing to the shared array is safe
+        rowTermIds[ordinal] = Arrays.copyOf(termIds, distinctTermCount);
+    }
+
+    /**
+     * Get the postings of a term, creating them if no row had the term yet, or copying them if they belong
+     * to a previous version
+     * @param termId id of the term in the shared TermDictionary
+     * @return postings of the term
+     */
+    private TermPostings getOrAddPostings(int termId) {
+        if (termId >= termPostings.length) {
+            int newLength = Math.max(termId + 1, termPostings.length * 2);
+            termPostings = Arrays.copyOf(termPostings, newLength);
+            documentFrequencies = Arrays.copyOf(documentFrequencies, newLength);
+        }
+        TermPostings postings = termPostings[termId];
+        if (postings == null) {
+            postings = new TermPostings(this.version);
+            termPostings[termId] = postings;
+            terms.put(TermDictionary.getInstance().getTerm(termId), termId);
+        } else if (postings.version != this.version) {
+            postings = postings.copy(this.version);
+            termPostings[termId] = postings;
+        }
+        return postings;
+    }
+
+    /**
+     * Get the postings of a term in this version
+     * @param termId id of the term in the shared TermDictionary
+     * @return postings of the term, null if no row of this version has the term
+     */
+    private TermPostings getPostings(int termId) {
+        return termId < termPostings.length ? termPostings[termId] : null;
+    }
+
+    /**
+     * Get the number of rows having a term in this version
+     * @param termId id of the term in the shared TermDictionary
+     * @return number of rows having the term, replaced rows excluded
+     */
+    private int getDocumentFrequency(int termId) {
+        return termId < documentFrequencies.length ? documentFrequencies[termId] : 0;
+    }
+
+    /**
+     * Get the number of rows currently stored in the index
+     * @return number of rows
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * Rank candidate rows for a query and return the k best ones
+     * Terms of the required clauses are scored, excluded clauses are ignored (candidates are expected to be filtered).
+     * Each term scores keywords equal to it, and with a lower weight keywords starting with it.
+     * @param query parsed query
+     * @param candidateIds ids of rows matching the query
+     * @param k maximum number of rows to return
+     * @return ids of at most k rows, by decreasing score (ties by insertion order)
+     */
+    public List<String> topK(SearchQuery query, Collection<String> candidateIds, int k) {
+        return topK(query, candidateIds, k, null);
+    }
+
+    /**
+     * Rank candidate rows for a query by a key of each row, then by score, and return the k best ones
+     * The key is read once per candidate, and rows are ordered in the same pass as the scores, so only the k
+     * returned rows are ever compared with each other
+     * @param query parsed query
+     * @param candidateIds ids of rows matching the query
+     * @param k maximum number of rows to return
+     * @param rowKey key of each row, lower keys rank first (null to rank by score only)
+     * @return ids of at most k rows, by increasing key then decreasing score (ties by insertion order)
+     */
+    public List<String> topK(SearchQuery query, Collection<String> candidateIds, int k, RowKey rowKey) {
+        if (k <= 0 || candidateIds == null || candidateIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        QueryScratch scratch = QUERY_SCRATCH.get();
+        scratch.ensureCapacity(this.rows.getOrdinalCount());
+        boolean[] isCandidate = scratch.isCandidate;
+        double[] scores = scratch.scores;
+        // mark candidates
+        int[] candidates = new int[candidateIds.size()];
+        int candidateCount = 0;
+        for (String id : candidateIds) {
+            int ordinal = this.rows.getOrdinal(id);
+            if (ordinal >= 0 && !isCandidate[ordinal]) {
+                isCandidate[ordinal] = true;
+                candidates[candidateCount++] = ordinal;
+            }
+        }
+
+        // accumulate scores term at a time
+        if (query != null) {
+            for (List<String> clause : query.getRequiredClauses()) {
+                for (String term : clause) {
+                    accumulate(term.toLowerCase(Locale.ROOT), scratch);
+                }
+            }
+        }
+
+        // keep the k best candidates in a min heap
+        PriorityQueue<ScoredRow> heap = new PriorityQueue<>(Math.min(k, candidateCount) + 1);
+        for (int i = 0; i < candidateCount; i++) {
+            int ordinal = candidates[i];
+            long key = rowKey != null ? rowKey.getKey(this.rows.getId(ordinal)) : 0;
+            ScoredRow row = new ScoredRow(ordinal, key, scores[ordinal]);
+            if (heap.size() < k) {
+                heap.add(row);
+            } else if (row.compareTo(heap.peek()) > 0) {
+                heap.poll();
+                heap.add(row);
+            }
+            // reset scratch arrays for the next query
+            scores[ordinal] = 0;
+            isCandidate[ordinal] = false;
+        }
+
+        // heap returns the worst row first
+        List<String> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(this.rows.getId(heap.poll().ordinal));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Get the score of a row for a query, as ranked by topK
+     * @param query parsed query
+     * @param id id of the row
+     * @return score of the row, 0 if the index has no row with the id
+     */
+    double getScore(SearchQuery query, String id) {
+        int ordinal = this.rows.getOrdinal(id);
+        if (ordinal < 0) return 0;
+        QueryScratch scratch = QUERY_SCRATCH.get();
+        scratch.ensureCapacity(this.rows.getOrdinalCount());
+        scratch.isCandidate[ordinal] = true;
+        for (List<String> clause : query.getRequiredClauses()) {
+            for (String term : clause) {
+                accumulate(term.toLowerCase(Locale.ROOT), scratch);
+            }
+        }
+        double score = scratch.scores[ordinal];
+        // reset scratch arrays for the next query
+        scratch.scores[ordinal] = 0;
+        scratch.isCandidate[ordinal] = false;
+        return score;
+    }
+
+    /**
+     * Add the score of a query term to the candidates containing it
+     * The term and the keywords it expands to are scored as one term, sharing the same idf, so that a rare
+     * keyword which only starts with the term doesn't outrank the keyword equal to the term
+     * @param term lower case query term
+     * @param scratch scores and candidates of the query
+     */
+    private void accumulate(String term, QueryScratch scratch) {
+        int rowCount = size();
+        if (rowCount == 0) return;
+
+        List<TermPostings> matches = new ArrayList<>();
+        Integer exactId = terms.get(term);
+        TermPostings exact = exactId != null ? getPostings(exactId) : null;
+        // expand the term to keywords starting with it, skipping terms only added by newer versions
+        SortedMap<String, Integer> expansions = terms.subMap(term + '\0', term + Character.MAX_VALUE);
+        int documentFrequency = exact != null ? getDocumentFrequency(exactId) : 0;
+        for (int termId : expansions.values()) {
+            if (matches.size() == MAX_PREFIX_EXPANSIONS) break;
+            TermPostings postings = getPostings(termId);
+            if (postings == null) continue;
+            matches.add(postings);
+            documentFrequency += getDocumentFrequency(termId);
+        }
+        // a row having several of the expanded keywords is counted once per keyword
+        documentFrequency = Math.min(documentFrequency, rowCount);
+
+        double idf = getIdf(rowCount, documentFrequency);
+        double[] averageLengths = getAverageLengths(totalFieldLengths, rowCount);
+        if (exact != null) {
+            accumulate(exact, idf, averageLengths, scratch);
+        }
+        for (TermPostings postings : matches) {
+            accumulate(postings, PREFIX_MATCH_WEIGHT * idf, averageLengths, scratch);
+        }
+    }
+
+    private void accumulate(TermPostings postings, double weight, double[] averageLengths, QueryScratch scratch) {
+        boolean[] isCandidate = scratch.isCandidate;
+        double[] scores = scratch.scores;
+        for (int i = 0; i < postings.count; i++) {
+            int ordinal = postings.ordinals[i];
+            if (!isCandidate[ordinal]) continue;
+            // BM25F: combine boosted, length normalized frequencies of all fields before saturation
+            int packed = postings.frequencies[i];
+            double frequency = 0;
+            for (int field = 0; field < fieldBoosts.length; field++) {
+                int fieldFrequency = getFrequency(packed, field);
+                if (fieldFrequency == 0) continue;
+                frequency += getFieldFrequency(fieldBoosts[field], fieldFrequency, fieldLengths[field][ordinal], averageLengths[field]);
+            }
+            scores[ordinal] += saturate(weight, frequency);
+        }
+    }
+
+    // BM25F formulas, shared with indexes storing the same statistics in another form (ex: a mapped snapshot file)
+
+    /**
+     * Count one more occurrence of a term in a field
+     * @param packedFrequencies term frequencies of each field packed 8 bits per field
+     * @param field index of the field
+     * @return packed frequencies, the frequency of a field stops at 255
+     */
+    public static int addFrequency(int packedFrequencies, int field) {
+        int shift = field * BITS_PER_FIELD;
+        if (((packedFrequencies >>> shift) & MAX_TERM_FREQUENCY) < MAX_TERM_FREQUENCY) {
+            packedFrequencies += 1 << shift;
+        }
+        return packedFrequencies;
+    }
+
+    /**
+     * Get the frequency of a term in a field
+     * @param packedFrequencies term frequencies of each field packed 8 bits per field
+     * @param field index of the field
+     * @return number of occurrences of the term in the field
+     */
+    public static int getFrequency(int packedFrequencies, int field) {
+        return (packedFrequencies >>> (field * BITS_PER_FIELD)) & MAX_TERM_FREQUENCY;
+    }
+
+    /**
+     * Get the inverse document frequency of a term
+     * @param rowCount number of rows
+     * @param documentFrequency number of rows containing the term
+     */
+    public static double getIdf(int rowCount, int documentFrequency) {
+        return Math.log(1 + (rowCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Get the average length of each field
+     * @param totalFieldLengths sum of lengths of each field over all rows
+     * @param rowCount number of rows
+     */
+    public static double[] getAverageLengths(long[] totalFieldLengths, int rowCount) {
+        double[] averageLengths = new double[totalFieldLengths.length];
+        for (int field = 0; field < totalFieldLengths.length; field++) {
+            averageLengths[field] = Math.max(1.0, totalFieldLengths[field] / (double) rowCount);
+        }
+        return averageLengths;
+    }
+
+    /**
+     * Get the boosted, length normalized frequency of a term in a field of a row
+     * Frequencies of all fields are added before saturation
+     */
+    public static double getFieldFrequency(double fieldBoost, int fieldFrequency, int fieldLength, double averageLength) {
+        double normalization = 1 - B + B * fieldLength / averageLength;
+        return fieldBoost * fieldFrequency / normalization;
+    }
+
+    /**
+     * Get the score of a term in a row
+     * @param weight idf of the term, lowered for keywords only starting with the term
+     * @param frequency sum of the field frequencies of the term in the row
+     */
+    public static double saturate(double weight, double frequency) {
+        return weight * frequency * (K1 + 1) / (frequency + K1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = fieldLengths[0].length;
+        if (capacity <= length) return;
+        int newCapacity = Math.max(capacity, length + (length >> 1));
+        for (int field = 0; field < fieldBoosts.length; field++) {
+            fieldLengths[field] = Arrays.copyOf(fieldLengths[field], newCapacity);
+        }
+        rowTermIds = Arrays.copyOf(rowTermIds, newCapacity);
+    }
+
+    /**
+     * Key ranking rows before their score, ex: distance of the row to the user
+     */
+    public interface RowKey {
+        /**
+         * Get the key of a row
+         * @param id id of the row
+         * @return key of the row, lower keys rank first
+         */
+        long getKey(String id);
+    }
+
+    /**
+     * Scores and candidate flags of a query, indexed by ordinal
+     * Both arrays are all zero / false between queries
+     */
+    private static class QueryScratch {
+        double[] scores = new double[16];
+        boolean[] isCandidate = new boolean[16];
+
+        void ensureCapacity(int capacity) {
+            if (capacity <= scores.length) return;
+            int newCapacity = Math.max(capacity, scores.length + (scores.length >> 1));
+            scores = Arrays.copyOf(scores, newCapacity);
+            isCandidate = Arrays.copyOf(isCandidate, newCapacity);
+        }
+    }
+
+    /**
+     * Rows containing a term, along with the term frequency in each field
+     * A copy shares the arrays of the postings, and only appends after the count of the postings it was copied from
+     */
+    private static class TermPostings {
+        // version of the index which created the postings, only that version modifies them
+        final int version;
+        int[] ordinals;
+        // term frequencies of each field packed 8 bits per field
+        int[] frequencies;
+        int count;
+
+        TermPostings(int version) {
+            this.version = version;
+            this.ordinals = new int[2];
+            this.frequencies = new int[2];
+        }
+
+        TermPostings copy(int newVersion) {
+            TermPostings copy = new TermPostings(newVersion);
+            copy.ordinals = this.ordinals;
+            copy.frequencies = this.frequencies;
+            copy.count = this.count;
+            return copy;
+        }
+
+        void add(int ordinal, int packedFrequencies) {
+            if (count == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, count * 2);
+                frequencies = Arrays.copyOf(frequencies, count * 2);
+            }
+            ordinals[count] = ordinal;
+            frequencies[count] = packedFrequencies;
+            count++;
+        }
+    }
+
+    /**
+     * Candidate row with its key and score, ordered by key (lower keys first), then by score, then by ordinal
+     * (earlier rows first)
+     */
+    private static class ScoredRow implements Comparable<ScoredRow> {
+        final int ordinal;
+        final long key;
+        final double score;
+
+        ScoredRow(int ordinal, long key, double score) {
+            this.ordinal = ordinal;
+            this.key = key;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredRow other) {
+            // lower key ranks higher
+            int comparison = Long.compare(other.key, key);
+            if (comparison != 0) return comparison;
+            comparison = Double.compare(score, other.score);
+            // lower ordinal ranks higher on ties
+            return comparison != 0 ? comparison : Integer.compare(other.ordinal, ordinal);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import com.example.mealer_project.utils.Utilities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Bitmap index of facet values, used to filter rows without checking each row
+ * Each row gets a dense ordinal, like in PrefixIndex, and each facet value keeps a RoaringBitmap of the rows
+ * having that value. A FacetQuery is answered by combining bitmaps: AND for conditions, ANDNOT for negated ones
+ *  - categorical facets (cuisine, allergen) match values folded like keywords (case and accents are ignored)
+ *  - numeric facets (price) keep their bitmaps sorted by value, so a range is the union of the bitmaps in it
+ * Numeric values are stored with 2 decimals (ex: prices in cents)
+ * fork() creates the next version of the index without copying it: the value maps and bitmaps of this version are
+ * shared, and the new version copies a map or a bitmap the first time it adds a row to it
+ */
+public class FacetIndex {
+
+    // bitmaps of each value of each categorical facet
+    private final Map<String, Map<String, RoaringBitmap>> categoricalFacets;
+    // bitmaps of each value of each numeric facet, sorted by value
+    private final Map<String, TreeMap<Long, RoaringBitmap>> numericFacets;
+    // value maps and bitmaps created or copied by this version, the others are shared with the previous version
+    private final Set<Object> ownedValues;
+    // ids of the rows, by ordinal
+    private final RowIds rows;
+    // all ordinals assigned so far
+    private final RoaringBitmap allRows;
+    // true once a newer version was forked from this one
+    private boolean forked;
+
+    /**
+     * Create an empty index
+     */
+    public FacetIndex() {
+        this.categoricalFacets = new HashMap<>();
+        this.numericFacets = new HashMap<>();
+        this.ownedValues = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        this.rows = new RowIds();
+        this.allRows = new RoaringBitmap();
+    }
+
+    private FacetIndex(FacetIndex previous) {
+        this.categoricalFacets = new HashMap<>(previous.categoricalFacets);
+        this.numericFacets = new HashMap<>(previous.numericFacets);
+        this.ownedValues = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        this.rows = previous.rows.fork();
+        this.allRows = previous.allRows.copy();
+    }
+
+    /**
+     * Create the next version of the index, sharing the bitmaps of this version
+     * This version keeps returning the same results and can no longer be modified
+     * @return new version containing the same rows
+     */
+    public FacetIndex fork() {
+        FacetIndex next = new FacetIndex(this);
+        this.forked = true;
+        return next;
+    }
+
+    /**
+     * Add a row to the index, its facet values are then added with addValue and addNumber
+     * If the id was already added, the previous row is replaced
+     * @param id id of the row
+     * @return ordinal of the row
+     */
+    public int addRow(String id) {
+        // if row already exists, its previous ordinal is marked as removed
+        // ordinals are assigned in increasing order, so bitmaps are filled by appending
+        int ordinal = this.rows.add(id);
+        this.allRows.add(ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Add a value of a categorical facet to a row
+     * @param ordinal ordinal returned by addRow
+     * @param facet lower case facet name
+     * @param value value of the facet, ignored if null or empty once folded
+     */
+    public void addValue(int ordinal, String facet, String value) {
+        String key = getValueKey(value);
+        if (key == null) {
+            return;
+        }
+        checkNotForked();
+        Map<String, RoaringBitmap> values = this.categoricalFacets.get(facet);
+        if (values == null) {
+            values = new HashMap<>();
+            this.categoricalFacets.put(facet, values);
+            this.ownedValues.add(values);
+        } else if (!this.ownedValues.contains(values)) {
+            values = new HashMap<>(values);
+            this.categoricalFacets.put(facet, values);
+            this.ownedValues.add(values);
+        }
+        getOrAddBitmap(values, key).add(ordinal);
+    }
+
+    /**
+     * Add the values of a categorical facet having several values per row (ex: allergens)
+     * @param ordinal ordinal returned by addRow
+     * @param facet lower case facet name
+     * @param values values of the facet, can be null
+     */
+    public void addValues(int ordinal, String facet, Collection<String> values) {
+        if (values != null) {
+            for (String value : values) {
+                addValue(ordinal, facet, value);
+            }
+        }
+    }
+
+    /**
+     * Add the value of a numeric facet to a row
+     * @param ordinal ordinal returned by addRow
+     * @param facet lower case facet name
+     * @param value value of the facet, rounded to 2 decimals
+     */
+    public void addNumber(int ordinal, String facet, double value) {
+        checkNotForked();
+        TreeMap<Long, RoaringBitmap> values = this.numericFacets.get(facet);
+        if (values == null) {
+            values = new TreeMap<>();
+            this.numericFacets.put(facet, values);
+            this.ownedValues.add(values);
+        } else if (!this.ownedValues.contains(values)) {
+            values = new TreeMap<>(values);
+            this.numericFacets.put(facet, values);
+            this.ownedValues.add(values);
+        }
+        getOrAddBitmap(values, toHundredths(value)).add(ordinal);
+    }
+
+    /**
+     * Get the rows matching all the conditions of a query
+     * A condition on an unknown facet, or comparing a categorical facet or a non numeric value with <, <=, >, >=,
+     * matches no row
+     * @param query parsed query
+     * @return bitmap of the ordinals of the matching rows, replaced rows excluded
+     */
+    public RoaringBitmap evaluate(FacetQuery query) {
+        RoaringBitmap result = null;
+        // negated conditions are removed once the required ones are intersected
+        List<RoaringBitmap> excluded = new ArrayList<>();
+        for (FacetQuery.Condition condition : query.getConditions()) {
+            RoaringBitmap matches = getMatches(condition);
+            if (condition.isNegated()) {
+                excluded.add(matches);
+            } else {
+                result = result == null ? matches : RoaringBitmap.and(result, matches);
+            }
+        }
+        if (result == null) {
+            // only negated conditions, start from all rows
+            result = this.allRows;
+        }
+        for (RoaringBitmap matches : excluded) {
+            if (result.isEmpty()) break;
+            result = RoaringBitmap.andNot(result, matches);
+        }
+        return RoaringBitmap.andNot(result, this.rows.getRemovedOrdinals());
+    }
+
+    /**
+     * Keep the ids of the rows in a bitmap
+     * @param ids ids to filter, ex: the rows matching a text query
+     * @param rows bitmap returned by evaluate
+     * @return ids of the list whose row is in the bitmap, in the same order
+     */
+    public List<String> filter(Collection<String> ids, RoaringBitmap rows) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            int ordinal = this.rows.getOrdinal(id);
+            if (ordinal >= 0 && rows.contains(ordinal)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert a bitmap of ordinals to the list of row ids
+     * @param rows bitmap returned by evaluate
+     * @return list of row ids, in ordinal order
+     */
+    public List<String> getIds(RoaringBitmap rows) {
+        int[] rowOrdinals = rows.toArray();
+        List<String> result = new ArrayList<>(rowOrdinals.length);
+        for (int ordinal : rowOrdinals) {
+            String id = this.rows.getId(ordinal);
+            if (id != null) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of rows currently stored in the index
+     * @return number of rows
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * Get the bitmap of the rows matching a condition, ignoring its negation
+     */
+    private RoaringBitmap getMatches(FacetQuery.Condition condition) {
+        String operator = condition.getOperator();
+        if (operator.equals("=")) {
+            Map<String, RoaringBitmap> values = this.categoricalFacets.get(condition.getFacet());
+            if (values != null) {
+                RoaringBitmap matches = values.get(getValueKey(condition.getValue()));
+                return matches != null ? matches : new RoaringBitmap();
+            }
+        }
+        TreeMap<Long, RoaringBitmap> values = this.numericFacets.get(condition.getFacet());
+        if (values == null) {
+            return new RoaringBitmap();
+        }
+        long value;
+        try {
+            value = toHundredths(Double.parseDouble(condition.getValue()));
+        } catch (NumberFormatException e) {
+            return new RoaringBitmap();
+        }
+        NavigableMap<Long, RoaringBitmap> range;
+        switch (operator) {
+            case "<":
+                range = values.headMap(value, false);
+                break;
+            case "<=":
+                range = values.headMap(value, true);
+                break;
+            case ">":
+                range = values.tailMap(value, false);
+                break;
+            case ">=":
+                range = values.tailMap(value, true);
+                break;
+            default:
+                range = values.subMap(value, true, value, true);
+                break;
+        }
+        RoaringBitmap matches = new RoaringBitmap();
+        for (RoaringBitmap bitmap : range.values()) {
+            matches = RoaringBitmap.or(matches, bitmap);
+        }
+        return matches;
+    }
+
+    /**
+     * Get the bitmap of a value to add a row to, copying it if it is shared with the previous version
+     */
+    private <K> RoaringBitmap getOrAddBitmap(Map<K, RoaringBitmap> values, K key) {
+        RoaringBitmap bitmap = values.get(key);
+        if (bitmap == null) {
+            bitmap = new RoaringBitmap();
+        } else if (!this.ownedValues.contains(bitmap)) {
+            bitmap = bitmap.copy();
+        } else {
+            return bitmap;
+        }
+        values.put(key, bitmap);
+        this.ownedValues.add(bitmap);
+        return bitmap;
+    }
+
+    private void checkNotForked() {
+        if (this.forked) {
+            throw new IllegalStateException("Rows can only be added to the latest version");
+        }
+    }
+
+    /**
+     * Fold a categorical value like a keyword, so "Middle Eastern", "middle_eastern" and "Middle-Eastern" are equal
+     * @return folded value without separators, null if nothing is left
+     */
+    private static String getValueKey(String value) {
+        if (value == null) {
+            return null;
+        }
+        String folded = Utilities.getNormalizedWord(value);
+        StringBuilder key = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (c != '-' && c != '\'') key.append(c);
+        }
+        return key.length() > 0 ? key.toString() : null;
+    }
+
+    private static long toHundredths(double value) {
+        return Math.round(value * 100);
+    }
+}
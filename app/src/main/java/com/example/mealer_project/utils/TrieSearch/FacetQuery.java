@@ -0,0 +1,169 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Facet conditions of a search query, along with the remaining text of the query
+ * A condition is a single word "facet operator value", operators are =, !=, <, <=, >, >=, and a condition preceded
+ * by NOT is negated. Conditions are always combined with AND, the AND operators around them are optional:
+ * ex: "spicy cuisine=Indian AND mealType=main AND NOT allergen=peanut AND price<=15" has the text query "spicy"
+ * and 4 conditions
+ * Values can't contain whitespace, words of multi word values can be joined with '_' (cuisine=middle_eastern)
+ */
+public class FacetQuery {
+
+    // facet name, operator, value
+    private static final Pattern CONDITION_PATTERN = Pattern.compile("([A-Za-z]+)(<=|>=|!=|=|<|>)(\\S+)");
+
+    /**
+     * Comparison of a facet with a value
+     */
+    public static class Condition {
+        // lower case facet name
+        private final String facet;
+        // one of =, <, <=, >, >= (!= is stored as a negated =)
+        private final String operator;
+        private final String value;
+        // true if rows matching the comparison are excluded
+        private final boolean negated;
+
+        Condition(String facet, String operator, String value, boolean negated) {
+            this.facet = facet;
+            this.operator = operator;
+            this.value = value;
+            this.negated = negated;
+        }
+
+        public String getFacet() {
+            return facet;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isNegated() {
+            return negated;
+        }
+
+        @Override
+        public String toString() {
+            return (negated ? SearchQuery.NOT_OPERATOR + " " : "") + facet + operator + value;
+        }
+    }
+
+    // conditions which must all hold
+    private final List<Condition> conditions;
+    // query without the conditions, to be parsed by SearchQuery
+    private final String textQuery;
+
+    private FacetQuery(List<Condition> conditions, String textQuery) {
+        this.conditions = conditions;
+        this.textQuery = textQuery;
+    }
+
+    /**
+     * Separate the facet conditions of a query entered by a user from its text
+     * @param query raw query string
+     * @return parsed query, without any condition if the query has none
+     */
+    public static FacetQuery parse(String query) {
+        List<Condition> conditions = new ArrayList<>();
+        if (query == null || query.trim().isEmpty()) {
+            return new FacetQuery(conditions, query == null ? "" : query);
+        }
+
+        List<String> textWords = new ArrayList<>();
+        // AND operators following a condition are dropped with it
+        boolean afterCondition = false;
+        for (String word : query.trim().split("\\s+")) {
+            Matcher matcher = CONDITION_PATTERN.matcher(word);
+            if (!matcher.matches()) {
+                if (!(afterCondition && word.equals(SearchQuery.AND_OPERATOR))) {
+                    textWords.add(word);
+                    afterCondition = false;
+                }
+                continue;
+            }
+            boolean negated = removeLast(textWords, SearchQuery.NOT_OPERATOR);
+            // AND operator between the text and the condition
+            removeLast(textWords, SearchQuery.AND_OPERATOR);
+            String operator = matcher.group(2);
+            if (operator.equals("!=")) {
+                operator = "=";
+                negated = !negated;
+            }
+            conditions.add(new Condition(matcher.group(1).toLowerCase(Locale.ROOT), operator, matcher.group(3), negated));
+            afterCondition = true;
+        }
+
+        StringBuilder textQuery = new StringBuilder();
+        for (String word : textWords) {
+            if (textQuery.length() > 0) textQuery.append(' ');
+            textQuery.append(word);
+        }
+        // keep the trailing space telling SearchQuery the last word is complete, which is also the case when
+        // the last word is a condition
+        if (textQuery.length() > 0 && (afterCondition || Character.isWhitespace(query.charAt(query.length() - 1)))) {
+            textQuery.append(' ');
+        }
+        return new FacetQuery(conditions, textQuery.toString());
+    }
+
+    private static boolean removeLast(List<String> words, String word) {
+        if (!words.isEmpty() && words.get(words.size() - 1).equals(word)) {
+            words.remove(words.size() - 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the facet conditions of the query
+     * @return list of conditions, in the order of the query
+     */
+    public List<Condition> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * Check if the query has facet conditions
+     * @return true if there is at least one condition
+     */
+    public boolean hasConditions() {
+        return !conditions.isEmpty();
+    }
+
+    /**
+     * Get the query without its facet conditions
+     * @return text of the query, to be parsed by SearchQuery
+     */
+    public String getTextQuery() {
+        return textQuery;
+    }
+
+    /**
+     * Get a canonical form of the conditions, used with SearchQuery.getNormalizedQuery to identify a query
+     * ex: "cuisine=Indian AND NOT allergen=Peanut" -> "cuisine=indian NOT allergen=peanut"
+     * @return normalized conditions, empty string if the query has no condition
+     */
+    public String getNormalizedConditions() {
+        StringBuilder normalized = new StringBuilder();
+        for (Condition condition : conditions) {
+            if (normalized.length() > 0) normalized.append(' ');
+            if (condition.isNegated()) normalized.append(SearchQuery.NOT_OPERATOR).append(' ');
+            normalized.append(condition.getFacet()).append(condition.getOperator());
+            normalized.append(condition.getValue().toLowerCase(Locale.ROOT));
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.List;
+
+/**
+ * Generic keyword search interface to enforce implementation of certain methods
+ * Each implementation stores rows of keywords identified by a String id, and returns ids of rows having a match
+ */
+public interface KeywordSearch {
+    /**
+     * Add data to the search dataset by providing an id and the keywords
+     * @param id id which is returned if match found in provided keywords
+     * @param keywords list of string keywords
+     */
+    void addData(String id, List<String> keywords);
+
+    /**
+     * Add data to the search dataset by providing an id and the ids of its keywords
+     * @param id id which is returned if match found in provided keywords
+     * @param termIds ids of the keywords in the shared TermDictionary
+     */
+    void addData(String id, int[] termIds);
+
+    /**
+     * pMatch - Pattern Match
+     * Performs a non-exact (prefix) search of a query in all the rows
+     * @param query string representing characters to be found
+     * @return list of ids of rows in which matches were found, null if no data or invalid query
+     */
+    List<String> pMatch(String query);
+
+    /**
+     * eMatch - Exact Match
+     * Performs a search to find an exact match of the query in all the rows
+     * @param query string representing the word to be found
+     * @return list of ids of rows in which matches were found, null if no data or invalid query
+     */
+    List<String> eMatch(String query);
+
+    /**
+     * Create the next version of the search dataset, to add data to without changing the results of this version
+     * @return new version containing the same rows
+     */
+    KeywordSearch fork();
+}
@@ -0,0 +1,289 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Trigram index of a vocabulary of distinct terms, used to find terms containing a string anywhere
+ * (ex: "burger" -> "cheeseburger"), which a prefix Trie can't do
+ * Each term is split into its overlapping 3 character grams, and each gram keeps the sorted list of ordinals
+ * of the terms containing it. Terms containing all the grams of a query are candidates, and candidates are
+ * checked against the term itself since grams may appear in a different order.
+ * Posting lists of common grams are delta encoded with a variable byte encoding, so memory stays bounded
+ * as the vocabulary grows
+ * fork() creates the next version of the index: both versions share the terms and the posting lists, the new
+ * version copies the map of grams and the posting lists it adds to, the first time it adds a term
+ */
+public class NGramIndex {
+
+    // number of characters in a gram
+    public static final int GRAM_LENGTH = 3;
+    // posting lists longer than this are compressed
+    static final int COMPRESSION_THRESHOLD = 32;
+
+    // version of the index, posting lists of another version are shared and copied before a change
+    private final int version;
+    // terms of the vocabulary by ordinal, shared with the other versions, this version only reads the first
+    // termCount terms
+    private String[] terms;
+    private int termCount;
+    // posting list of each gram, grams are packed in a long (16 bits per character)
+    private Map<Long, GramPostings> grams;
+    // true while the map of grams is shared with the previous version
+    private boolean gramsShared;
+    // true once a newer version was forked from this one
+    private boolean forked;
+
+    /**
+     * Create an empty index
+     */
+    public NGramIndex() {
+        this.version = 0;
+        this.terms = new String[16];
+        this.grams = new HashMap<>();
+    }
+
+    private NGramIndex(NGramIndex previous) {
+        this.version = previous.version + 1;
+        this.terms = previous.terms;
+        this.termCount = previous.termCount;
+        this.grams = previous.grams;
+        this.gramsShared = true;
+    }
+
+    /**
+     * Create the next version of the index, sharing the terms and posting lists of this version
+     * This version keeps returning the same results and can no longer be modified
+     * @return new version containing the same terms
+     */
+    public NGramIndex fork() {
+        checkNotForked();
+        this.forked = true;
+        return new NGramIndex(this);
+    }
+
+    /**
+     * Add a term to the vocabulary, the caller is responsible for adding each term only once
+     * @param term term to add, compared in lower case
+     * @return ordinal of the term
+     */
+    public int addTerm(String term) {
+        checkNotForked();
+        term = term.toLowerCase(Locale.ROOT);
+        int ordinal = this.termCount;
+        // the previous version only reads terms below its own count, so appending to the shared array is safe
+        if (ordinal == this.terms.length) {
+            this.terms = Arrays.copyOf(this.terms, ordinal * 2);
+        }
+        this.terms[ordinal] = term;
+        this.termCount++;
+        if (this.gramsShared) {
+            this.grams = new HashMap<>(this.grams);
+            this.gramsShared = false;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            long gram = getGram(term, i);
+            GramPostings postings = this.grams.get(gram);
+            if (postings == null) {
+                postings = new GramPostings(this.version);
+                this.grams.put(gram, postings);
+            } else if (postings.version != this.version) {
+                postings = postings.copy(this.version);
+                this.grams.put(gram, postings);
+            }
+            // ordinals are added in increasing order, a gram repeated in a term is only added once
+            postings.add(ordinal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Get a term of the vocabulary
+     * @param ordinal ordinal returned by addTerm
+     * @return lower case term
+     */
+    public String getTerm(int ordinal) {
+        if (ordinal < 0 || ordinal >= this.termCount) {
+            throw new IndexOutOfBoundsException("Invalid term ordinal: " + ordinal);
+        }
+        return this.terms[ordinal];
+    }
+
+    /**
+     * Get the number of terms in the vocabulary
+     * @return number of terms
+     */
+    public int size() {
+        return this.termCount;
+    }
+
+    /**
+     * Find terms containing a string
+     * @param query string to find, compared in lower case, must have at least GRAM_LENGTH characters
+     * @return sorted ordinals of the terms containing the query, empty array if the query is too short
+     */
+    public int[] getTermsContaining(String query) {
+        query = query.toLowerCase(Locale.ROOT);
+        if (query.length() < GRAM_LENGTH) {
+            return PostingLists.EMPTY;
+        }
+        // posting lists of the distinct grams of the query
+        List<GramPostings> queryPostings = new ArrayList<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            GramPostings postings = this.grams.get(getGram(query, i));
+            if (postings == null) {
+                // no term has this gram
+                return PostingLists.EMPTY;
+            }
+            if (!queryPostings.contains(postings)) {
+                queryPostings.add(postings);
+            }
+        }
+        // intersect the shortest lists first
+        GramPostings shortest = queryPostings.get(0);
+        for (GramPostings postings : queryPostings) {
+            if (postings.count < shortest.count) shortest = postings;
+        }
+        int[] candidates = shortest.decode();
+        for (GramPostings postings : queryPostings) {
+            if (postings == shortest || candidates.length == 0) continue;
+            int[] decoded = postings.decode();
+            candidates = PostingLists.intersect(candidates, candidates.length, decoded, decoded.length);
+        }
+        // verify candidates against the terms, the grams may be in a different order (ex: "abcab" for "cabc")
+        int size = 0;
+        for (int candidate : candidates) {
+            if (this.terms[candidate].contains(query)) {
+                candidates[size++] = candidate;
+            }
+        }
+        return size == candidates.length ? candidates : Arrays.copyOf(candidates, size);
+    }
+
+    private void checkNotForked() {
+        if (this.forked) {
+            throw new IllegalStateException("Terms can only be added to the latest version");
+        }
+    }
+
+    /**
+     * Pack the gram starting at a position of a string in a long
+     */
+    private static long getGram(String term, int position) {
+        long gram = 0;
+        for (int i = 0; i < GRAM_LENGTH; i++) {
+            gram = (gram << 16) | term.charAt(position + i);
+        }
+        return gram;
+    }
+
+    /**
+     * Sorted posting list of term ordinals
+     * Short lists are stored as an int array, lists longer than COMPRESSION_THRESHOLD are stored as
+     * the differences between consecutive ordinals, 7 bits per byte (high bit set when more bytes follow)
+     * A copy shares the arrays of the list, and only appends after the count of the list it was copied from
+     */
+    static class GramPostings {
+        // version of the index which created the list, only that version modifies it
+        final int version;
+        // uncompressed ordinals, null once compressed
+        int[] ordinals = new int[2];
+        // compressed ordinals
+        byte[] bytes;
+        int byteCount;
+        // number of ordinals in the list
+        int count;
+        // last ordinal added
+        int last = -1;
+
+        GramPostings(int version) {
+            this.version = version;
+        }
+
+        /**
+         * Copy the list for a newer version of the index
+         * @param newVersion version of the index which will modify the copy
+         * @return copy sharing the arrays of this list
+         */
+        GramPostings copy(int newVersion) {
+            GramPostings copy = new GramPostings(newVersion);
+            copy.ordinals = this.ordinals;
+            copy.bytes = this.bytes;
+            copy.byteCount = this.byteCount;
+            copy.count = this.count;
+            copy.last = this.last;
+            return copy;
+        }
+
+        void add(int ordinal) {
+            if (ordinal == last) return;
+            if (ordinals != null) {
+                if (count == COMPRESSION_THRESHOLD) {
+                    compress();
+                } else {
+                    if (count == ordinals.length) {
+                        ordinals = Arrays.copyOf(ordinals, Math.min(count * 2, COMPRESSION_THRESHOLD));
+                    }
+                    ordinals[count++] = ordinal;
+                    last = ordinal;
+                    return;
+                }
+            }
+            writeDelta(ordinal - last);
+            count++;
+            last = ordinal;
+        }
+
+        /**
+         * Get the ordinals of the list
+         * @return sorted array of ordinals
+         */
+        int[] decode() {
+            if (ordinals != null) {
+                return Arrays.copyOf(ordinals, count);
+            }
+            int[] decoded = new int[count];
+            int value = 0;
+            int position = 0;
+            for (int i = 0; i < count; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                value = i == 0 ? delta : value + delta;
+                decoded[i] = value;
+            }
+            return decoded;
+        }
+
+        private void compress() {
+            bytes = new byte[count * 2];
+            int previous = 0;
+            for (int i = 0; i < count; i++) {
+                // the first value is stored as is
+                writeDelta(ordinals[i] - previous);
+                previous = ordinals[i];
+            }
+            ordinals = null;
+        }
+
+        private void writeDelta(int delta) {
+            if (byteCount + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                bytes[byteCount++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            bytes[byteCount++] = (byte) delta;
+        }
+    }
+}
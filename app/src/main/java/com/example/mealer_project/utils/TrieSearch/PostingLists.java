@@ -0,0 +1,141 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.Arrays;
+
+/**
+ * Set operations on sorted posting lists of row ordinals
+ * Each posting list is an int array sorted in increasing order without duplicates, along with the
+ * number of values used in the array
+ */
+public abstract class PostingLists {
+
+    // shared empty posting list
+    public static final int[] EMPTY = new int[0];
+
+    // when one list is this many times longer than the other, gallop through it instead of a linear merge
+    private static final int GALLOP_RATIO = 8;
+
+    /**
+     * Intersection of two posting lists
+     * Walks the shorter list, and gallops (exponential then binary search) through the longer one when
+     * sizes are very different, so cost is O(small x log(large)) instead of O(small + large)
+     * @return sorted array containing ordinals present in both lists
+     */
+    public static int[] intersect(int[] first, int firstCount, int[] second, int secondCount) {
+        // always walk the shorter list
+        if (firstCount > secondCount) {
+            return intersect(second, secondCount, first, firstCount);
+        }
+        int[] result = new int[firstCount];
+        int size = 0;
+        if (firstCount == 0) {
+            return EMPTY;
+        }
+
+        if ((long) firstCount * GALLOP_RATIO < secondCount) {
+            int position = 0;
+            for (int i = 0; i < firstCount && position < secondCount; i++) {
+                position = gallop(second, position, secondCount, first[i]);
+                if (position < secondCount && second[position] == first[i]) {
+                    result[size++] = first[i];
+                    position++;
+                }
+            }
+        } else {
+            // linear merge when sizes are comparable
+            int i = 0;
+            int j = 0;
+            while (i < firstCount && j < secondCount) {
+                if (first[i] < second[j]) i++;
+                else if (first[i] > second[j]) j++;
+                else {
+                    result[size++] = first[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Union of two posting lists
+     * @return sorted array containing ordinals present in either list
+     */
+    public static int[] union(int[] first, int firstCount, int[] second, int secondCount) {
+        int[] result = new int[firstCount + secondCount];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstCount && j < secondCount) {
+            if (first[i] < second[j]) result[size++] = first[i++];
+            else if (first[i] > second[j]) result[size++] = second[j++];
+            else {
+                result[size++] = first[i++];
+                j++;
+            }
+        }
+        while (i < firstCount) result[size++] = first[i++];
+        while (j < secondCount) result[size++] = second[j++];
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Difference of two posting lists
+     * @return sorted array containing ordinals of the first list which are not in the second list
+     */
+    public static int[] difference(int[] first, int firstCount, int[] second, int secondCount) {
+        int[] result = new int[firstCount];
+        int size = 0;
+        int position = 0;
+        boolean gallop = (long) firstCount * GALLOP_RATIO < secondCount;
+        for (int i = 0; i < firstCount; i++) {
+            if (gallop) {
+                position = gallop(second, position, secondCount, first[i]);
+            } else {
+                while (position < secondCount && second[position] < first[i]) position++;
+            }
+            if (position < secondCount && second[position] == first[i]) {
+                position++;
+            } else {
+                result[size++] = first[i];
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Find the first position in a sorted list, starting at a given position, holding a value >= target
+     * Probes positions at exponentially growing distance, then binary searches the last range
+     * @param list sorted list
+     * @param from position to start from
+     * @param count number of values in the list
+     * @param target value to find
+     * @return first position >= from at which list[position] >= target, or count if there is none
+     */
+    static int gallop(int[] list, int from, int count, int target) {
+        if (from >= count || list[from] >= target) {
+            return from;
+        }
+        // list[low] < target is always true
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < count && list[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        if (high > count) {
+            high = count;
+        }
+        // binary search in (low, high]
+        low++;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,804 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import com.example.mealer_project.utils.Analyzer;
+import com.example.mealer_project.utils.Utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Global inverted prefix index
+ * Unlike TriesSearch which keeps one Trie per row of data, PrefixIndex keeps one shared Trie for all rows
+ * Each node of the Trie stores a posting list containing ordinals of the rows having a keyword with that prefix,
+ * so a prefix lookup costs O(query length + number of hits) instead of O(number of rows x query length)
+ * Optionally, a trigram index of the distinct keywords also matches terms found inside a keyword
+ * ("burger" -> "cheeseburger")
+ * fork() creates the next version of the index without copying it: the new version copies a node the first time
+ * it adds to it, and shares the posting lists and all the nodes it does not modify with the previous version
+ */
+public class PrefixIndex implements KeywordSearch {
+
+    // maximum edit distance supported by fuzzy matching
+    public static final int MAX_EDIT_DISTANCE = 2;
+
+    // version of the index, nodes of another version are shared with other versions and copied before a change
+    private final int version;
+    // root of the shared Trie
+    private final PostingTrieNode root;
+    // ids of the rows, by ordinal
+    private final RowIds rows;
+    // number of modifications made to the index, used to invalidate cursors
+    private int modificationCount;
+    // trigram index of the distinct keywords, null if infix search is disabled
+    private final NGramIndex infixIndex;
+
+    /**
+     * Constructor to initialize an empty index, terms are only matched as prefixes of keywords
+     */
+    public PrefixIndex() {
+        this(false);
+    }
+
+    /**
+     * Constructor to initialize an empty index
+     * @param infixSearch if true, terms of at least NGramIndex.GRAM_LENGTH characters also match keywords
+     *                    containing them anywhere, at the cost of a trigram index of the distinct keywords
+     */
+    public PrefixIndex(boolean infixSearch) {
+        this.version = 0;
+        this.root = new PostingTrieNode(0);
+        this.rows = new RowIds();
+        this.infixIndex = infixSearch ? new NGramIndex() : null;
+    }
+
+    private PrefixIndex(PrefixIndex previous) {
+        this.version = previous.version + 1;
+        this.root = previous.root.copy(this.version);
+        this.rows = previous.rows.fork();
+        this.infixIndex = previous.infixIndex != null ? previous.infixIndex.fork() : null;
+    }
+
+    /**
+     * Create the next version of the index, sharing the nodes and posting lists of this version
+     * This version keeps returning the same results and can no longer be modified
+     * @return new version containing the same rows
+     */
+    @Override
+    public PrefixIndex fork() {
+        return new PrefixIndex(this);
+    }
+
+    /**
+     * Add data to the index by providing an id and the keywords
+     * If the id was already added, previous keywords of the id are discarded
+     * @param id id which is returned if match found in provided keywords
+     * @param keywords list of string keywords
+     */
+    @Override
+    public void addData(String id, List<String> keywords) {
+        int ordinal = addRow(id);
+        // add each keyword to the shared Trie
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                if (keyword != null && !keyword.isEmpty()) {
+                    insert(keyword, ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a row of keywords to the index, given the ids of its keywords
+     * If the id was already added, the previous row is replaced
+     * @param id id which is returned if a match is found in the keywords
+     * @param termIds ids of the keywords in the shared TermDictionary
+     */
+    @Override
+    public void addData(String id, int[] termIds) {
+        int ordinal = addRow(id);
+        if (termIds != null) {
+            TermDictionary dictionary = TermDictionary.getInstance();
+            for (int termId : termIds) {
+                String keyword = dictionary.getTerm(termId);
+                if (!keyword.isEmpty()) {
+                    insert(keyword, ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert a keyword of a row into the Trie, and into the trigram index if the keyword is new
+     * @param keyword keyword of the row
+     * @param ordinal ordinal of the row
+     */
+    private void insert(String keyword, int ordinal) {
+        boolean newKeyword = this.root.insert(keyword, ordinal);
+        if (newKeyword && this.infixIndex != null) {
+            this.infixIndex.addTerm(keyword);
+        }
+    }
+
+    /**
+     * Assign an ordinal to a new row, marking the previous ordinal of the same id as removed
+     * @param id id of the row
+     * @return ordinal of the row
+     */
+    private int addRow(String id) {
+        // ordinals are assigned in increasing order, which keeps all posting lists sorted
+        int ordinal = this.rows.add(id);
+        this.modificationCount++;
+        return ordinal;
+    }
+
+    /**
+     * pMatch - Pattern Match
+     * Method performs a non-exact search of a query in the index
+     * @param query string representing characters to be found
+     * @return list of ids of rows in which matches were found, empty list if no matches
+     */
+    @Override
+    public List<String> pMatch(String query) {
+        // ensure we have valid data & query
+        if (this.rows.size() == 0 || query == null || query.isEmpty())
+            return null;
+
+        PostingTrieNode node = findNode(query);
+        return node == null ? new ArrayList<String>() : getIds(node.prefixPostings, node.prefixCount);
+    }
+
+    /**
+     * eMatch - Exact Match
+     * Method performs a search to find an exact match of the query provided in the index
+     * @param query string representing the word to be found
+     * @return list of ids of rows in which matches were found, empty list if no matches
+     */
+    @Override
+    public List<String> eMatch(String query) {
+        // ensure we have valid data & query
+        if (this.rows.size() == 0 || query == null || query.isEmpty())
+            return null;
+
+        PostingTrieNode node = findNode(query);
+        return node == null ? new ArrayList<String>() : getIds(node.wordPostings, node.wordCount);
+    }
+
+    /**
+     * fMatch - Fuzzy Match
+     * Method performs a typo tolerant search, returning rows having a keyword within an edit distance of the query
+     * The Trie is walked with a Levenshtein automaton: one row of the edit distance matrix is computed per node,
+     * and a branch is pruned as soon as the minimum of its row goes above the maximum distance
+     * @param query string representing the word to be found
+     * @param maxDistance maximum number of insertions, deletions or substitutions (0 to 2)
+     * @param prefix if true, also match keywords starting with a word within the distance of the query
+     * @return list of ids of rows in which matches were found, null if no data or invalid query
+     */
+    public List<String> fMatch(String query, int maxDistance, boolean prefix) {
+        // ensure we have valid data & query
+        if (this.rows.size() == 0 || query == null || query.isEmpty())
+            return null;
+
+        int[] postings = getFuzzyPostings(query.toLowerCase(Locale.ROOT), maxDistance, prefix);
+        return getIds(postings, postings.length);
+    }
+
+    /**
+     * Search the index for a multi-term query, matching each term with a typo tolerant prefix match
+     * Maximum edit distance depends on the term length (see getMaxEditDistance)
+     * @param query parsed query
+     * @return list of ids of rows matching the query, empty list if no matches
+     */
+    public List<String> fuzzySearch(SearchQuery query) {
+        if (query == null || query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int[] result = evaluate(query, true);
+        return getIds(result, result.length);
+    }
+
+    /**
+     * Get maximum edit distance allowed for a term, short terms get fewer typos so results stay relevant
+     * @param term query term
+     * @return 0 for terms shorter than 4 characters, 1 up to 7 characters, else 2
+     */
+    public static int getMaxEditDistance(String term) {
+        if (term.length() < 4) return 0;
+        if (term.length() < 8) return 1;
+        return MAX_EDIT_DISTANCE;
+    }
+
+    /**
+     * Search the index for a multi-term query
+     * Each clause is resolved to a sorted posting list (union of the postings of its alternative terms),
+     * required clauses are intersected smallest first, then excluded clauses are removed
+     * @param query parsed query
+     * @return list of ids of rows matching the query, empty list if no matches
+     */
+    public List<String> search(SearchQuery query) {
+        if (query == null || query.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int[] result = evaluate(query, false);
+        return getIds(result, result.length);
+    }
+
+    /**
+     * Evaluate a query to a posting list
+     * @param query parsed query with at least one required clause
+     * @param fuzzy if true, terms are matched with a typo tolerant prefix match
+     * @return sorted posting list of matching row ordinals
+     */
+    private int[] evaluate(SearchQuery query, boolean fuzzy) {
+        List<List<String>> requiredClauses = query.getRequiredClauses();
+        int[][] clausePostings = new int[requiredClauses.size()][];
+        for (int i = 0; i < clausePostings.length; i++) {
+            clausePostings[i] = getClausePostings(requiredClauses.get(i), fuzzy);
+            // one clause without matches means no row can match
+            if (clausePostings[i].length == 0) {
+                return PostingLists.EMPTY;
+            }
+        }
+        // intersect smallest lists first, so intermediate results stay small
+        Arrays.sort(clausePostings, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] first, int[] second) {
+                return Integer.compare(first.length, second.length);
+            }
+        });
+        int[] result = clausePostings[0];
+        for (int i = 1; i < clausePostings.length && result.length > 0; i++) {
+            result = PostingLists.intersect(result, result.length, clausePostings[i], clausePostings[i].length);
+        }
+        for (List<String> clause : query.getExcludedClauses()) {
+            if (result.length == 0) break;
+            int[] excluded = getClausePostings(clause, fuzzy);
+            result = PostingLists.difference(result, result.length, excluded, excluded.length);
+        }
+        return result;
+    }
+
+    /**
+     * Get the posting list of a clause, rows having a keyword starting with (or containing, if infix search
+     * is enabled) any of the clause's terms
+     * @param clause list of alternative terms
+     * @param fuzzy if true, terms are matched with a typo tolerant prefix match
+     * @return sorted posting list of row ordinals
+     */
+    private int[] getClausePostings(List<String> clause, boolean fuzzy) {
+        int[] postings = PostingLists.EMPTY;
+        for (String term : clause) {
+            if (fuzzy) {
+                int[] termPostings = getFuzzyPostings(term, getMaxEditDistance(term), true);
+                postings = PostingLists.union(postings, postings.length, termPostings, termPostings.length);
+                continue;
+            }
+            int[] infixPostings = getInfixPostings(term);
+            if (infixPostings != null) {
+                // keywords starting with the term also contain it
+                postings = PostingLists.union(postings, postings.length, infixPostings, infixPostings.length);
+                continue;
+            }
+            PostingTrieNode node = findNode(term);
+            if (node != null) {
+                postings = PostingLists.union(postings, postings.length, node.prefixPostings, node.prefixCount);
+            }
+        }
+        return postings;
+    }
+
+    /**
+     * Get the posting list of rows having a keyword containing a term
+     * Candidate keywords come from the trigram index, and the postings of their Trie nodes are merged
+     * @param term query term
+     * @return sorted posting list of row ordinals, null if infix search is disabled or the term is shorter
+     * than a trigram (only prefixes are matched then)
+     */
+    private int[] getInfixPostings(String term) {
+        if (this.infixIndex == null || term.length() < NGramIndex.GRAM_LENGTH) {
+            return null;
+        }
+        int[] keywords = this.infixIndex.getTermsContaining(term);
+        // nodes of the keywords are found again in the Trie, as they are copied by newer versions
+        PostingTrieNode[] nodes = new PostingTrieNode[keywords.length];
+        int count = 0;
+        for (int i = 0; i < keywords.length; i++) {
+            nodes[i] = findNode(this.infixIndex.getTerm(keywords[i]));
+            count += nodes[i].wordCount;
+        }
+        int[] collected = new int[count];
+        count = 0;
+        for (PostingTrieNode node : nodes) {
+            System.arraycopy(node.wordPostings, 0, collected, count, node.wordCount);
+            count += node.wordCount;
+        }
+        // a row with several matching keywords appears once
+        Arrays.sort(collected);
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || collected[size - 1] != collected[i]) {
+                collected[size++] = collected[i];
+            }
+        }
+        return size == collected.length ? collected : Arrays.copyOf(collected, size);
+    }
+
+    /**
+     * Get the number of rows currently stored in the index
+     * @return number of rows
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * Create a cursor for search-as-you-type
+     * @return a new cursor positioned at the root of the index
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walk the Trie with a Levenshtein automaton and collect postings of matching nodes
+     * @param query lower case query
+     * @param maxDistance maximum edit distance (0 to 2)
+     * @param prefix if true, a node matching the query also matches all keywords below it
+     * @return sorted posting list of row ordinals
+     */
+    private int[] getFuzzyPostings(String query, int maxDistance, boolean prefix) {
+        if (maxDistance < 0 || maxDistance > MAX_EDIT_DISTANCE) {
+            throw new IllegalArgumentException("Invalid maximum edit distance: " + maxDistance);
+        }
+        FuzzyWalk walk = new FuzzyWalk(query, maxDistance, prefix);
+        // first row: distance of each query prefix from the empty string
+        int[] firstRow = walk.row(0);
+        for (int i = 0; i <= query.length(); i++) {
+            firstRow[i] = i;
+        }
+        walk.walk(this.root);
+        return walk.getPostings();
+    }
+
+    /**
+     * Walk the Trie following the characters of the query
+     * @param query string representing characters to be found
+     * @return node reached after the last character, or null if there is no such path
+     */
+    private PostingTrieNode findNode(String query) {
+        // turn query to lower case, same as the keywords in the Trie
+        query = query.toLowerCase(Locale.ROOT);
+        TrieNode currentNode = this.root;
+        for (int i = 0; i < query.length() && currentNode != null; i++) {
+            currentNode = currentNode.getChild(query.charAt(i));
+        }
+        return (PostingTrieNode) currentNode;
+    }
+
+    /**
+     * Convert a posting list of ordinals to the list of row ids, skipping replaced rows
+     * @param postings posting list of row ordinals
+     * @param count number of postings in the list
+     * @return list of row ids
+     */
+    private List<String> getIds(int[] postings, int count) {
+        List<String> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = this.rows.getId(postings[i]);
+            if (id != null) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Cursor for search-as-you-type
+     * Keeps a state for each character of the previous query: the Trie node reached for the term being typed,
+     * the candidate rows matching the terms completed before it, and the candidate rows matching the query so far.
+     * When the new query extends the previous one, only the new characters are processed and each one narrows the
+     * previous candidate set. On backspace the cursor pops back to the state cached for the shorter query.
+     * Queries using operators (OR, NOT) are evaluated from scratch.
+     * With infix search, the Trie only gives the candidates of a term shorter than a trigram, longer terms are
+     * looked up in the trigram index and intersected with the candidates of the completed terms.
+     */
+    public class Cursor {
+
+        // query the cursor is currently positioned at
+        private final StringBuilder query;
+        // states[i] is the state after the first i characters of the query
+        private State[] states;
+        // modification count of the index when the cached states were computed
+        private int indexModificationCount;
+        // buffers receiving folded characters
+        private final char[] folded = new char[2];
+        private final char[] termChars = new char[4];
+
+        private Cursor() {
+            this.query = new StringBuilder();
+            this.states = new State[16];
+            this.states[0] = new State(root, null, null, 0);
+            this.indexModificationCount = modificationCount;
+        }
+
+        /**
+         * pMatch - Pattern Match
+         * Move the cursor to the query and return the rows matching all its terms
+         * @param newQuery raw query string, terms are matched as prefixes of keywords
+         * @return list of ids of rows in which matches were found, null if no data or invalid query
+         */
+        public List<String> pMatch(String newQuery) {
+            // ensure we have valid data & query
+            if (rows.size() == 0 || newQuery == null || newQuery.isEmpty())
+                return null;
+
+            SearchQuery parsedQuery = SearchQuery.parse(newQuery);
+            if (parsedQuery.hasOperators()) {
+                return search(parsedQuery);
+            }
+
+            State state = moveTo(newQuery);
+            int[] candidates = state.candidates;
+            if (candidates != null && infixIndex != null) {
+                candidates = getTermCandidates(state, Utilities.getNormalizedWord(query.substring(state.termStart)));
+            }
+            // no term to search for
+            if (candidates == null) {
+                return new ArrayList<>();
+            }
+            return getIds(candidates, candidates.length);
+        }
+
+        /**
+         * Position the cursor at a query, reusing the states cached for the common prefix with the previous query
+         * @param newQuery raw query
+         * @return state reached for the query
+         */
+        private State moveTo(String newQuery) {
+            // cached states are stale once the index changes, start again from the root
+            int common = 0;
+            if (indexModificationCount == modificationCount) {
+                int max = Math.min(query.length(), newQuery.length());
+                while (common < max && query.charAt(common) == newQuery.charAt(common)) {
+                    common++;
+                }
+            } else {
+                indexModificationCount = modificationCount;
+            }
+            // pop back to the state of the common prefix
+            query.setLength(common);
+
+            // only process the characters added after the common prefix
+            if (states.length <= newQuery.length()) {
+                states = Arrays.copyOf(states, newQuery.length() + 1);
+            }
+            for (int i = common; i < newQuery.length(); i++) {
+                query.append(newQuery.charAt(i));
+                states[i + 1] = next(states[i], i);
+            }
+            return states[newQuery.length()];
+        }
+
+        /**
+         * Compute the state after processing one more character of the query
+         * @param state state before the character
+         * @param position position of the character in the query
+         * @return new state
+         */
+        private State next(State state, int position) {
+            char c = query.charAt(position);
+            if (Character.isWhitespace(c)) {
+                // the term being typed is complete, it only narrows the candidates if it's a keyword (not a stop word)
+                String term = Utilities.getKeyword(query.substring(state.termStart, position));
+                int[] base = state.base;
+                if (term != null) {
+                    base = infixIndex != null ? getTermCandidates(state, term) : state.candidates;
+                }
+                return new State(root, base, base, position + 1);
+            }
+            int count = Analyzer.fold(c, folded, 0);
+            if (count == 0) {
+                // character is dropped by keyword normalization
+                return state;
+            }
+            if (folded[0] == '\'' && isElision(state.termStart, position)) {
+                // elided article (l'agneau), the term starts again after the apostrophe
+                return new State(root, state.base, state.base, position + 1);
+            }
+            PostingTrieNode node = state.node;
+            int[] candidates = state.candidates;
+            // a ligature folds to two characters
+            for (int i = 0; i < count; i++) {
+                node = node == null ? null : (PostingTrieNode) node.getChild(folded[i]);
+                if (node == null) {
+                    candidates = PostingLists.EMPTY;
+                } else if (candidates == null) {
+                    candidates = Arrays.copyOf(node.prefixPostings, node.prefixCount);
+                } else {
+                    // postings of a child are a subset of its parent's, so narrowing the previous candidates is enough
+                    candidates = PostingLists.intersect(candidates, candidates.length, node.prefixPostings, node.prefixCount);
+                }
+            }
+            return new State(node, state.base, candidates, state.termStart);
+        }
+
+        /**
+         * Get the rows matching the completed terms of a state and a term containing the term being typed
+         * @param state state reached for the term
+         * @param term normalized term being typed
+         * @return sorted posting list of row ordinals
+         */
+        private int[] getTermCandidates(State state, String term) {
+            int[] infixPostings = getInfixPostings(term);
+            if (infixPostings == null) {
+                // term is too short for the trigram index, keep the prefix matches
+                return state.candidates;
+            }
+            if (state.base == null) {
+                return infixPostings;
+            }
+            return PostingLists.intersect(state.base, state.base.length, infixPostings, infixPostings.length);
+        }
+
+        /**
+         * Check if the characters of the query between the start of the term and an apostrophe are elided
+         * @param termStart position at which the term starts
+         * @param position position of the apostrophe
+         * @return true if the characters are an elided article or pronoun
+         */
+        private boolean isElision(int termStart, int position) {
+            int length = 0;
+            for (int i = termStart; i < position && length <= 2; i++) {
+                length += Analyzer.fold(query.charAt(i), termChars, length);
+            }
+            return Analyzer.isElision(termChars, length);
+        }
+    }
+
+    /**
+     * Depth first walk of the Trie computing one row of the edit distance matrix per node
+     */
+    private static class FuzzyWalk {
+
+        private final String query;
+        private final int maxDistance;
+        private final boolean prefix;
+        // rows[d] is the edit distance row for the node at depth d, rows are reused across branches
+        private int[][] rows;
+        // ordinals collected from matching nodes, sorted and deduplicated at the end
+        private int[] collected;
+        private int collectedCount;
+
+        FuzzyWalk(String query, int maxDistance, boolean prefix) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.prefix = prefix;
+            this.rows = new int[query.length() + maxDistance + 2][];
+            this.collected = new int[16];
+        }
+
+        int[] row(int depth) {
+            if (depth >= rows.length) {
+                rows = Arrays.copyOf(rows, depth + 8);
+            }
+            if (rows[depth] == null) {
+                rows[depth] = new int[query.length() + 1];
+            }
+            return rows[depth];
+        }
+
+        /**
+         * Walk the Trie from its root, whose row (depth 0) must already be computed
+         * A query no longer than the maximum distance is matched by the empty path at the root itself
+         * @param root root of the Trie
+         */
+        void walk(PostingTrieNode root) {
+            if (rows[0][query.length()] <= maxDistance) {
+                if (prefix) {
+                    // every keyword starts with a match, postings are kept from depth 1 down
+                    for (int c = 0; c < root.getChildCount(); c++) {
+                        PostingTrieNode child = (PostingTrieNode) root.children[c];
+                        collect(child.prefixPostings, child.prefixCount);
+                    }
+                    return;
+                }
+                collect(root.wordPostings, root.wordCount);
+            }
+            visit(root, 0);
+        }
+
+        /**
+         * Visit the children of a node whose row was computed at a given depth
+         * @param node current node
+         * @param depth depth of the node
+         */
+        void visit(TrieNode node, int depth) {
+            int[] previousRow = rows[depth];
+            int columns = query.length() + 1;
+            for (int c = 0; c < node.getChildCount(); c++) {
+                char label = node.labels[c];
+                PostingTrieNode child = (PostingTrieNode) node.children[c];
+                int[] row = row(depth + 1);
+                row[0] = previousRow[0] + 1;
+                int rowMinimum = row[0];
+                for (int i = 1; i < columns; i++) {
+                    int cost = query.charAt(i - 1) == label ? 0 : 1;
+                    int value = Math.min(Math.min(row[i - 1] + 1, previousRow[i] + 1), previousRow[i - 1] + cost);
+                    row[i] = value;
+                    if (value < rowMinimum) rowMinimum = value;
+                }
+
+                if (row[columns - 1] <= maxDistance) {
+                    if (prefix) {
+                        // every keyword below this node starts with a match, no need to go deeper
+                        collect(child.prefixPostings, child.prefixCount);
+                        continue;
+                    }
+                    collect(child.wordPostings, child.wordCount);
+                }
+                // prune the branch once no cell can get back under the maximum distance
+                if (rowMinimum <= maxDistance) {
+                    visit(child, depth + 1);
+                }
+            }
+        }
+
+        private void collect(int[] postings, int count) {
+            if (collectedCount + count > collected.length) {
+                collected = Arrays.copyOf(collected, Math.max(collected.length * 2, collectedCount + count));
+            }
+            System.arraycopy(postings, 0, collected, collectedCount, count);
+            collectedCount += count;
+        }
+
+        int[] getPostings() {
+            Arrays.sort(collected, 0, collectedCount);
+            int size = 0;
+            for (int i = 0; i < collectedCount; i++) {
+                if (size == 0 || collected[size - 1] != collected[i]) {
+                    collected[size++] = collected[i];
+                }
+            }
+            return Arrays.copyOf(collected, size);
+        }
+    }
+
+    /**
+     * State of a cursor after a number of characters of the query
+     */
+    private static class State {
+        // node reached for the term being typed, null if there is no such path
+        final PostingTrieNode node;
+        // rows matching all terms completed before the term being typed, null if no term completed yet
+        final int[] base;
+        // rows matching the query so far, null if the query has no term yet
+        final int[] candidates;
+        // position in the query at which the term being typed starts
+        final int termStart;
+
+        State(PostingTrieNode node, int[] base, int[] candidates, int termStart) {
+            this.node = node;
+            this.base = base;
+            this.candidates = candidates;
+            this.termStart = termStart;
+        }
+    }
+
+    /**
+     * Trie node which stores posting lists of row ordinals
+     * Posting lists are kept as int arrays with a count directly in the node, to avoid an extra object per list
+     * A node copied by a newer version of the index shares its posting arrays with the previous node: postings
+     * are only appended after the count of the previous node, which never reads them
+     */
+    static class PostingTrieNode extends TrieNode {
+
+        // shared empty posting list
+        private static final int[] NO_POSTINGS = new int[0];
+
+        // version of the index which created the node, only that version modifies it
+        final int version;
+        // ordinals of rows having a keyword which starts with the path to this node
+        int[] prefixPostings;
+        int prefixCount;
+        // ordinals of rows having a keyword which ends at this node
+        int[] wordPostings;
+        int wordCount;
+
+        PostingTrieNode(int version) {
+            super();
+            this.version = version;
+            this.prefixPostings = NO_POSTINGS;
+            this.wordPostings = NO_POSTINGS;
+        }
+
+        @Override
+        protected TrieNode createChild() {
+            return new PostingTrieNode(this.version);
+        }
+
+        /**
+         * Copy the node for a newer version of the index
+         * The copy shares the children and posting lists of the node, its children array is its own so that
+         * copied children can replace the shared ones
+         * @param newVersion version of the index which will modify the copy
+         * @return copy of the node
+         */
+        PostingTrieNode copy(int newVersion) {
+            PostingTrieNode copy = new PostingTrieNode(newVersion);
+            copy.labels = this.labels;
+            copy.children = this.children.clone();
+            copy.isCompleteWord = this.isCompleteWord;
+            copy.prefixPostings = this.prefixPostings;
+            copy.prefixCount = this.prefixCount;
+            copy.wordPostings = this.wordPostings;
+            copy.wordCount = this.wordCount;
+            return copy;
+        }
+
+        /**
+         * Get the child node for a character, creating it if not already there, and copying it if it belongs
+         * to another version
+         * @param c character of the child
+         * @return child node of the same version as this node
+         */
+        private PostingTrieNode getOrAddOwnChild(char c) {
+            int index = indexOf(c);
+            if (index < 0) {
+                return (PostingTrieNode) getOrAddChild(c);
+            }
+            PostingTrieNode child = (PostingTrieNode) this.children[index];
+            if (child.version != this.version) {
+                child = child.copy(this.version);
+                this.children[index] = child;
+            }
+            return child;
+        }
+
+        /**
+         * Insert a keyword of a row into the Trie
+         * @param word string representing the keyword
+         * @param ordinal ordinal of the row the keyword belongs to
+         * @return true if the keyword was not in the Trie yet
+         */
+        boolean insert(String word, int ordinal) {
+            PostingTrieNode currentNode = this;
+            // use only lower case characters
+            word = word.toLowerCase(Locale.ROOT);
+
+            for (int i = 0; i < word.length(); i++) {
+                currentNode = currentNode.getOrAddOwnChild(word.charAt(i));
+                currentNode.addPrefixPosting(ordinal);
+            }
+
+            // once all characters added, mark the word as complete for the row
+            boolean newWord = !currentNode.isCompleteWord;
+            currentNode.isCompleteWord = true;
+            currentNode.addWordPosting(ordinal);
+            return newWord;
+        }
+
+        private void addPrefixPosting(int ordinal) {
+            // ordinals arrive in increasing order, so a row is present only if it is the last posting
+            if (prefixCount > 0 && prefixPostings[prefixCount - 1] == ordinal) return;
+            if (prefixCount == prefixPostings.length) {
+                prefixPostings = Arrays.copyOf(prefixPostings, grow(prefixCount));
+            }
+            prefixPostings[prefixCount++] = ordinal;
+        }
+
+        private void addWordPosting(int ordinal) {
+            if (wordCount > 0 && wordPostings[wordCount - 1] == ordinal) return;
+            if (wordCount == wordPostings.length) {
+                wordPostings = Arrays.copyOf(wordPostings, grow(wordCount));
+            }
+            wordPostings[wordCount++] = ordinal;
+        }
+
+        private static int grow(int count) {
+            // posting lists of deep nodes stay tiny, so grow slowly at first
+            return count < 4 ? count + 1 : count + (count >> 1);
+        }
+    }
+}
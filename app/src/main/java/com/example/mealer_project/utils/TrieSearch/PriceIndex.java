@@ -0,0 +1,212 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of rows sorted by price, answering "rows between two prices, cheapest first, page N" without sorting rows
+ * Each row is one long entry: price in cents in the high 32 bits and row ordinal in the low 32 bits, so sorting
+ * the primitive array sorts by price then by ordinal (order in which rows were added)
+ * A range is found with two binary searches and a page is read directly from the array, so a query costs
+ * O(log n + page size). Rows added or replaced since the last query are merged into the sorted array by the
+ * next query, in one pass for the whole batch
+ * Like the other indexes, an instance must not be modified while it is used by other threads
+ * fork() merges the pending rows and creates the next version of the index, which shares the sorted entries:
+ * a merge always writes a new array, so the entries of the previous version never change
+ */
+public class PriceIndex {
+
+    // mask of the ordinal stored in the low bits of an entry
+    private static final long ORDINAL_MASK = 0xFFFFFFFFL;
+
+    // entries sorted by price then ordinal
+    private long[] entries;
+    private int entryCount;
+    // entries added since the last query, not sorted
+    private long[] addedEntries;
+    private int addedCount;
+    // entries of replaced rows to drop on the next merge, not sorted
+    private long[] removedEntries;
+    private int removedCount;
+    // ids of the rows, by ordinal
+    private final RowIds rows;
+    // price in cents of each row by ordinal, shared with the other versions, which only read their own rows
+    private int[] rowCents;
+
+    /**
+     * Create an empty index
+     */
+    public PriceIndex() {
+        this.entries = new long[0];
+        this.addedEntries = new long[16];
+        this.removedEntries = new long[4];
+        this.rows = new RowIds();
+        this.rowCents = new int[16];
+    }
+
+    private PriceIndex(PriceIndex previous) {
+        this.entries = previous.entries;
+        this.entryCount = previous.entryCount;
+        this.addedEntries = new long[16];
+        this.removedEntries = new long[4];
+        this.rows = previous.rows.fork();
+        this.rowCents = previous.rowCents;
+    }
+
+    /**
+     * Create the next version of the index, sharing the sorted entries of this version
+     * This version keeps returning the same results and can no longer be modified
+     * @return new version containing the same rows
+     */
+    public PriceIndex fork() {
+        // queries of this version must only read the index once forked
+        merge();
+        return new PriceIndex(this);
+    }
+
+    /**
+     * Add a row to the index
+     * If the id was already added, the previous row is replaced
+     * @param id id of the row
+     * @param price price of the row, rounded to the cent
+     */
+    public void addData(String id, double price) {
+        long cents = toCents(price);
+        if (cents < Integer.MIN_VALUE || cents > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid price: " + price);
+        }
+        // if row already exists, drop its previous entry
+        int previousOrdinal = this.rows.getOrdinal(id);
+        int ordinal = this.rows.add(id);
+        if (previousOrdinal >= 0) {
+            if (removedCount == removedEntries.length) {
+                removedEntries = Arrays.copyOf(removedEntries, removedCount * 2);
+            }
+            removedEntries[removedCount++] = ((long) this.rowCents[previousOrdinal] << 32) | previousOrdinal;
+        }
+        // the previous version only reads the prices of its own rows, so appending to the shared array is safe
+        if (ordinal == this.rowCents.length) {
+            this.rowCents = Arrays.copyOf(this.rowCents, ordinal + (ordinal >> 1));
+        }
+        this.rowCents[ordinal] = (int) cents;
+        long entry = (cents << 32) | ordinal;
+        if (addedCount == addedEntries.length) {
+            addedEntries = Arrays.copyOf(addedEntries, addedCount * 2);
+        }
+        addedEntries[addedCount++] = entry;
+    }
+
+    /**
+     * Count the rows in a price range
+     * @param minPrice minimum price, inclusive, rounded to the cent
+     * @param maxPrice maximum price, inclusive, rounded to the cent
+     * @return number of rows with a price in the range
+     */
+    public int count(double minPrice, double maxPrice) {
+        merge();
+        return Math.max(0, getRangeEnd(maxPrice) - getRangeStart(minPrice));
+    }
+
+    /**
+     * Get a page of the rows in a price range, ordered by price
+     * Rows with the same price are ordered by the time they were added (most recent first when descending)
+     * @param minPrice minimum price, inclusive, rounded to the cent (0 for no minimum)
+     * @param maxPrice maximum price, inclusive, rounded to the cent (Double.MAX_VALUE for no maximum)
+     * @param ascending true for the cheapest rows first, false for the most expensive first
+     * @param page index of the page, starting at 0
+     * @param pageSize maximum number of rows per page
+     * @return ids of the rows of the page, empty list if the page is after the last row
+     */
+    public List<String> getRange(double minPrice, double maxPrice, boolean ascending, int page, int pageSize) {
+        if (page < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page: " + page + ", size: " + pageSize);
+        }
+        merge();
+        int start = getRangeStart(minPrice);
+        int end = getRangeEnd(maxPrice);
+        long offset = (long) page * pageSize;
+        if (offset >= end - start) {
+            return new ArrayList<>();
+        }
+        int count = (int) Math.min(pageSize, end - start - offset);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int position = ascending ? start + (int) offset + i : end - 1 - (int) offset - i;
+            result.add(this.rows.getId(getOrdinal(entries[position])));
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of rows currently stored in the index
+     * @return number of rows
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * Position of the first entry with a price >= minPrice, rounded to the cent
+     */
+    private int getRangeStart(double minPrice) {
+        return search(clamp(toCents(minPrice)) << 32);
+    }
+
+    /**
+     * Position after the last entry with a price <= maxPrice, rounded to the cent
+     */
+    private int getRangeEnd(double maxPrice) {
+        return search((clamp(toCents(maxPrice)) << 32) | ORDINAL_MASK);
+    }
+
+    /**
+     * Binary search of the first entry >= key
+     */
+    private int search(long key) {
+        int index = Arrays.binarySearch(entries, 0, entryCount, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Merge the entries added since the last query into the sorted entries, dropping the entries of replaced rows
+     * Queries merge automatically, call it once all rows are added to share the index between threads: queries
+     * then only read the index
+     */
+    public void merge() {
+        if (addedCount == 0 && removedCount == 0) {
+            return;
+        }
+        Arrays.sort(addedEntries, 0, addedCount);
+        Arrays.sort(removedEntries, 0, removedCount);
+        long[] merged = new long[entryCount + addedCount];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        int removed = 0;
+        while (i < entryCount || j < addedCount) {
+            long entry = j == addedCount || (i < entryCount && entries[i] < addedEntries[j]) ? entries[i++] : addedEntries[j++];
+            while (removed < removedCount && removedEntries[removed] < entry) removed++;
+            if (removed < removedCount && removedEntries[removed] == entry) {
+                continue;
+            }
+            merged[size++] = entry;
+        }
+        entries = merged;
+        entryCount = size;
+        addedCount = 0;
+        removedCount = 0;
+    }
+
+    private static int getOrdinal(long entry) {
+        return (int) (entry & ORDINAL_MASK);
+    }
+
+    private static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    private static long clamp(long cents) {
+        return Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cents));
+    }
+}
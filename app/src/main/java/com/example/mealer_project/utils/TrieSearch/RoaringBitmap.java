@@ -0,0 +1,486 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of row ordinals, in the style of Roaring bitmaps
+ * Ordinals are split by their high 16 bits into chunks of 65536 values, and each chunk is stored in a container:
+ * a sorted array of the low 16 bits while the chunk has at most 4096 values (2 bytes per value), else a bitmap
+ * of 65536 bits (8 KB, so fewer than 2 bytes per value). Sparse facets stay small and dense facets are
+ * combined one 64 bit word at a time
+ * Set operations (and, or, andNot) return a new bitmap and leave their operands unchanged
+ * copy() shares the containers of the bitmap, a shared container is only copied when one of the bitmaps adds to it
+ */
+public class RoaringBitmap {
+
+    // containers with more values than this are stored as a bitmap
+    static final int ARRAY_MAX_SIZE = 4096;
+    // number of 64 bit words in a bitmap container
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    // high 16 bits of the ordinals of each container, sorted
+    private char[] keys;
+    // container of each key
+    private Container[] containers;
+    // number of containers
+    private int size;
+    // true for each container shared with a copy of the bitmap, null if no container is shared
+    private boolean[] shared;
+
+    /**
+     * Create an empty bitmap
+     */
+    public RoaringBitmap() {
+        this(4);
+    }
+
+    private RoaringBitmap(int capacity) {
+        this.keys = new char[capacity];
+        this.containers = new Container[capacity];
+    }
+
+    /**
+     * Add an ordinal to the bitmap
+     * @param ordinal non negative ordinal
+     */
+    public void add(int ordinal) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Invalid ordinal: " + ordinal);
+        }
+        char key = (char) (ordinal >>> 16);
+        // ordinals are usually added in increasing order, check the last container first
+        int index = size > 0 && keys[size - 1] == key ? size - 1 : Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer(new char[4], 0));
+        } else if (shared != null && shared[index]) {
+            // the other bitmap keeps the container as it is
+            containers[index] = containers[index].copy();
+            shared[index] = false;
+        }
+        containers[index] = containers[index].add((char) ordinal);
+    }
+
+    /**
+     * Copy the bitmap without copying its containers
+     * Both bitmaps share their containers until one of them adds to a container, so a bitmap which is only
+     * appended to (ordinals in increasing order) copies at most its last container
+     * @return new bitmap containing the same ordinals
+     */
+    public RoaringBitmap copy() {
+        RoaringBitmap result = new RoaringBitmap(size + 1);
+        System.arraycopy(keys, 0, result.keys, 0, size);
+        System.arraycopy(containers, 0, result.containers, 0, size);
+        result.size = size;
+        result.shared = new boolean[result.keys.length];
+        Arrays.fill(result.shared, 0, size, true);
+        if (shared == null || shared.length < keys.length) {
+            shared = shared == null ? new boolean[keys.length] : Arrays.copyOf(shared, keys.length);
+        }
+        Arrays.fill(shared, 0, size, true);
+        return result;
+    }
+
+    /**
+     * Check if the bitmap contains an ordinal
+     * @param ordinal ordinal to check
+     * @return true if the ordinal was added
+     */
+    public boolean contains(int ordinal) {
+        if (ordinal < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, (char) (ordinal >>> 16));
+        return index >= 0 && containers[index].contains((char) ordinal);
+    }
+
+    /**
+     * Get the number of ordinals in the bitmap
+     * @return number of ordinals
+     */
+    public int getCardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Check if the bitmap has no ordinal
+     * @return true if the bitmap is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the ordinals of the bitmap
+     * @return sorted array of ordinals, usable as a posting list
+     */
+    public int[] toArray() {
+        int[] ordinals = new int[getCardinality()];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            count = containers[i].fill(ordinals, count, keys[i] << 16);
+        }
+        return ordinals;
+    }
+
+    /**
+     * Intersection of two bitmaps
+     * @return new bitmap containing ordinals present in both bitmaps
+     */
+    public static RoaringBitmap and(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap(Math.min(first.size, second.size) + 1);
+        int i = 0;
+        int j = 0;
+        while (i < first.size && j < second.size) {
+            if (first.keys[i] < second.keys[j]) {
+                i++;
+            } else if (first.keys[i] > second.keys[j]) {
+                j++;
+            } else {
+                result.appendContainer(first.keys[i], first.containers[i].and(second.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Union of two bitmaps
+     * @return new bitmap containing ordinals present in any of the bitmaps
+     */
+    public static RoaringBitmap or(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap(first.size + second.size + 1);
+        int i = 0;
+        int j = 0;
+        while (i < first.size || j < second.size) {
+            if (j == second.size || (i < first.size && first.keys[i] < second.keys[j])) {
+                result.appendContainer(first.keys[i], first.containers[i].copy());
+                i++;
+            } else if (i == first.size || first.keys[i] > second.keys[j]) {
+                result.appendContainer(second.keys[j], second.containers[j].copy());
+                j++;
+            } else {
+                result.appendContainer(first.keys[i], first.containers[i].or(second.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Difference of two bitmaps
+     * @return new bitmap containing ordinals of the first bitmap which are not in the second bitmap
+     */
+    public static RoaringBitmap andNot(RoaringBitmap first, RoaringBitmap second) {
+        RoaringBitmap result = new RoaringBitmap(first.size + 1);
+        int j = 0;
+        for (int i = 0; i < first.size; i++) {
+            while (j < second.size && second.keys[j] < first.keys[i]) j++;
+            if (j < second.size && second.keys[j] == first.keys[i]) {
+                result.appendContainer(first.keys[i], first.containers[i].andNot(second.containers[j]));
+            } else {
+                result.appendContainer(first.keys[i], first.containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2 + 1);
+            containers = Arrays.copyOf(containers, size * 2 + 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        if (shared != null) {
+            if (shared.length < keys.length) {
+                shared = Arrays.copyOf(shared, keys.length);
+            }
+            System.arraycopy(shared, index, shared, index + 1, size - index);
+            shared[index] = false;
+        }
+        size++;
+    }
+
+    /**
+     * Append a container with a key greater than all existing keys, empty containers are dropped
+     */
+    private void appendContainer(char key, Container container) {
+        if (container.cardinality > 0) {
+            insertContainer(size, key, container);
+        }
+    }
+
+    /**
+     * Values of a chunk of 65536 ordinals, stored as their low 16 bits
+     */
+    private abstract static class Container {
+        // number of values in the container
+        int cardinality;
+
+        /**
+         * Add a value, the container may be converted to another type
+         * @return container holding the value, this container or a new one
+         */
+        abstract Container add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        /**
+         * Write the ordinals of the container to an array
+         * @param out array receiving the ordinals
+         * @param offset position of the first ordinal in the array
+         * @param high high 16 bits of the ordinals
+         * @return position after the last ordinal
+         */
+        abstract int fill(int[] out, int offset, int high);
+    }
+
+    /**
+     * Sparse container, a sorted array of values
+     */
+    private static final class ArrayContainer extends Container {
+        char[] values;
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = cardinality > 0 && values[cardinality - 1] < value ? -cardinality - 1
+                    : Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX_SIZE) {
+                // too many values to be stored as an array
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(cardinality * 2, 4), ARRAY_MAX_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) result[count++] = values[i];
+                }
+                return new ArrayContainer(result, count);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            int j = 0;
+            for (int i = 0; i < cardinality && j < array.cardinality; i++) {
+                while (j < array.cardinality && array.values[j] < values[i]) j++;
+                if (j < array.cardinality && array.values[j] == values[i]) result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX_SIZE) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) result[count++] = values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        int fill(int[] out, int offset, int high) {
+            for (int i = 0; i < cardinality; i++) {
+                out[offset++] = high | values[i];
+            }
+            return offset;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Dense container, one bit per value
+     */
+    private static final class BitmapContainer extends Container {
+        final long[] words;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long bit = 1L << value;
+            if ((words[value >>> 6] & bit) == 0) {
+                words[value >>> 6] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & otherWords[i];
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result[value >>> 6] |= 1L << value;
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] |= otherWords[i];
+                }
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = Arrays.copyOf(words, BITMAP_WORDS);
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result[value >>> 6] &= ~(1L << value);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                }
+            }
+            return fromWords(result);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        @Override
+        int fill(int[] out, int offset, int high) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    out[offset++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    // clear the lowest bit
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * Create the container of a result, converted back to an array if it became sparse
+         */
+        private static Container fromWords(long[] words) {
+            int cardinality = 0;
+            for (long word : words) {
+                cardinality += Long.bitCount(word);
+            }
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            if (cardinality > ARRAY_MAX_SIZE) {
+                return bitmap;
+            }
+            char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of the rows of an index and their ordinals
+ * Each added row gets the next ordinal, a row added again with the same id gets a new ordinal and its previous
+ * ordinal is removed, so ordinals can index posting lists which are only ever appended to.
+ * fork() starts a new version of the rows without copying them: both versions share the ids, and ordinals
+ * assigned by the new version are invisible to the previous one. Once forked, a version never changes and
+ * can be read by any number of threads, only the latest version can add rows
+ */
+public final class RowIds {
+
+    // ids by ordinal, shared with the other versions, this version only reads the first ordinalCount ids
+    private String[] ids;
+    // number of ordinals assigned in this version
+    private int ordinalCount;
+    // ordinals of each id in increasing order, shared with the other versions (an array is never modified
+    // once stored, a new ordinal stores a new array)
+    private final Map<String, int[]> idOrdinals;
+    // ordinals of replaced rows
+    private final RoaringBitmap removedOrdinals;
+    // number of rows, replaced rows excluded
+    private int size;
+    // true once a newer version was forked from this one
+    private boolean forked;
+
+    /**
+     * Create an empty list of rows
+     */
+    public RowIds() {
+        this.ids = new String[16];
+        this.idOrdinals = new ConcurrentHashMap<>();
+        this.removedOrdinals = new RoaringBitmap();
+    }
+
+    private RowIds(RowIds previous) {
+        this.ids = previous.ids;
+        this.ordinalCount = previous.ordinalCount;
+        this.idOrdinals = previous.idOrdinals;
+        this.removedOrdinals = previous.removedOrdinals.copy();
+        this.size = previous.size;
+    }
+
+    /**
+     * Create the next version of the rows, this version can no longer add rows
+     * @return new version containing the same rows
+     */
+    public RowIds fork() {
+        checkNotForked();
+        this.forked = true;
+        return new RowIds(this);
+    }
+
+    /**
+     * Add a row, replacing the row with the same id if any
+     * @param id id of the row
+     * @return ordinal of the row, greater than all ordinals assigned before
+     * @throws IllegalStateException if a newer version was forked from this one
+     */
+    public int add(String id) {
+        checkNotForked();
+        int previousOrdinal = getOrdinal(id);
+        if (previousOrdinal >= 0) {
+            this.removedOrdinals.add(previousOrdinal);
+        } else {
+            this.size++;
+        }
+        int ordinal = this.ordinalCount;
+        // the previous version only reads ids below its own count, so appending to the shared array is safe
+        if (ordinal == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, ordinal + (ordinal >> 1));
+        }
+        this.ids[ordinal] = id;
+        this.ordinalCount++;
+        int[] ordinals = this.idOrdinals.get(id);
+        int[] newOrdinals = ordinals == null ? new int[1] : Arrays.copyOf(ordinals, ordinals.length + 1);
+        newOrdinals[newOrdinals.length - 1] = ordinal;
+        this.idOrdinals.put(id, newOrdinals);
+        return ordinal;
+    }
+
+    /**
+     * Get the ordinal of a row in this version
+     * @param id id of the row
+     * @return ordinal of the row, -1 if there is no such row
+     */
+    public int getOrdinal(String id) {
+        int[] ordinals = id != null ? this.idOrdinals.get(id) : null;
+        if (ordinals == null) {
+            return -1;
+        }
+        // ordinals assigned by newer versions are ignored
+        for (int i = ordinals.length - 1; i >= 0; i--) {
+            if (ordinals[i] < this.ordinalCount) {
+                return this.removedOrdinals.contains(ordinals[i]) ? -1 : ordinals[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the id of a row
+     * @param ordinal ordinal of the row
+     * @return id of the row, null if the row was replaced or the ordinal is not assigned in this version
+     */
+    public String getId(int ordinal) {
+        if (ordinal < 0 || ordinal >= this.ordinalCount || this.removedOrdinals.contains(ordinal)) {
+            return null;
+        }
+        return this.ids[ordinal];
+    }
+
+    /**
+     * Check if a row was replaced
+     * @param ordinal ordinal of the row
+     * @return true if the ordinal was assigned and its row was then replaced
+     */
+    public boolean isRemoved(int ordinal) {
+        return this.removedOrdinals.contains(ordinal);
+    }
+
+    /**
+     * Get the ordinals of the replaced rows
+     * @return bitmap of the removed ordinals, must not be modified
+     */
+    public RoaringBitmap getRemovedOrdinals() {
+        return this.removedOrdinals;
+    }
+
+    /**
+     * Get the number of ordinals assigned, all ordinals are lower than this number
+     * @return number of ordinals, including the ordinals of replaced rows
+     */
+    public int getOrdinalCount() {
+        return this.ordinalCount;
+    }
+
+    /**
+     * Get the number of rows
+     * @return number of rows, replaced rows excluded
+     */
+    public int size() {
+        return this.size;
+    }
+
+    private void checkNotForked() {
+        if (this.forked) {
+            throw new IllegalStateException("Rows can only be added to the latest version");
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import com.example.mealer_project.utils.Utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A parsed multi-term search query
+ * The query is split into terms using the same rules as Utilities.getKeywords, and each term is matched as a prefix
+ * Terms are combined with AND by default, the upper case operators OR and NOT can be used:
+ * ex: "spicy chicken OR beef NOT peanut" matches rows with (spicy) AND (chicken OR beef) AND NOT (peanut)
+ */
+public class SearchQuery {
+
+    public static final String AND_OPERATOR = "AND";
+    public static final String OR_OPERATOR = "OR";
+    public static final String NOT_OPERATOR = "NOT";
+
+    // clauses which must all match, each clause is a list of alternative (OR) terms
+    private final List<List<String>> requiredClauses;
+    // clauses which must not match
+    private final List<List<String>> excludedClauses;
+    // flag to indicate if the raw query contains an operator
+    private final boolean hasOperators;
+
+    private SearchQuery(List<List<String>> requiredClauses, List<List<String>> excludedClauses, boolean hasOperators) {
+        this.requiredClauses = requiredClauses;
+        this.excludedClauses = excludedClauses;
+        this.hasOperators = hasOperators;
+    }
+
+    /**
+     * Parse a query entered by a user
+     * Stop words are dropped, except for the last word while it is still being typed (not followed by a space)
+     * @param query raw query string
+     * @return parsed query, without any clause if the query has no searchable terms
+     */
+    public static SearchQuery parse(String query) {
+        List<List<String>> required = new ArrayList<>();
+        List<List<String>> excluded = new ArrayList<>();
+        boolean hasOperators = false;
+
+        if (query == null || query.trim().isEmpty()) {
+            return new SearchQuery(required, excluded, false);
+        }
+
+        String[] words = query.trim().split("\\s+");
+        // last word is still being typed if the query doesn't end with a space
+        boolean lastWordInProgress = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        List<String> lastClause = null;
+        boolean orPending = false;
+        boolean notPending = false;
+
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            // operators
+            if (word.equals(AND_OPERATOR)) {
+                hasOperators = true;
+                orPending = false;
+                continue;
+            } else if (word.equals(OR_OPERATOR)) {
+                hasOperators = true;
+                orPending = lastClause != null;
+                continue;
+            } else if (word.equals(NOT_OPERATOR)) {
+                hasOperators = true;
+                notPending = true;
+                continue;
+            }
+
+            String term = (i == words.length - 1 && lastWordInProgress) ? Utilities.getNormalizedWord(word) : Utilities.getKeyword(word);
+            if (term != null && !term.isEmpty()) {
+                term = term.toLowerCase(Locale.ROOT);
+                if (orPending) {
+                    // alternative term of the previous clause
+                    lastClause.add(term);
+                } else {
+                    lastClause = new ArrayList<>();
+                    lastClause.add(term);
+                    if (notPending) excluded.add(lastClause);
+                    else required.add(lastClause);
+                }
+            }
+            orPending = false;
+            notPending = false;
+        }
+
+        return new SearchQuery(required, excluded, hasOperators);
+    }
+
+    /**
+     * Get clauses which must all match
+     * @return list of clauses, each clause is a list of alternative terms
+     */
+    public List<List<String>> getRequiredClauses() {
+        return Collections.unmodifiableList(requiredClauses);
+    }
+
+    /**
+     * Get clauses which must not match
+     * @return list of clauses, each clause is a list of alternative terms
+     */
+    public List<List<String>> getExcludedClauses() {
+        return Collections.unmodifiableList(excludedClauses);
+    }
+
+    /**
+     * Check if the raw query used any of the AND, OR, NOT operators
+     * @return true if query has operators, else false
+     */
+    public boolean hasOperators() {
+        return hasOperators;
+    }
+
+    /**
+     * Check if query has no term to search for
+     * @return true if there is no required clause
+     */
+    public boolean isEmpty() {
+        return requiredClauses.isEmpty();
+    }
+
+    /**
+     * Get a canonical form of the query, two raw queries with the same normalized form have the same matches
+     * ex: "Spicy  the chicken OR Beef " -> "spicy chicken OR beef"
+     * @return normalized query, empty string if the query has no term
+     */
+    public String getNormalizedQuery() {
+        StringBuilder normalized = new StringBuilder();
+        appendClauses(normalized, requiredClauses, "");
+        appendClauses(normalized, excludedClauses, NOT_OPERATOR + " ");
+        return normalized.toString();
+    }
+
+    private static void appendClauses(StringBuilder normalized, List<List<String>> clauses, String prefix) {
+        for (List<String> clause : clauses) {
+            if (normalized.length() > 0) normalized.append(' ');
+            normalized.append(prefix);
+            for (int i = 0; i < clause.size(); i++) {
+                if (i > 0) normalized.append(' ').append(OR_OPERATOR).append(' ');
+                normalized.append(clause.get(i));
+            }
+        }
+    }
+
+    /**
+     * Evaluate the query with any KeywordSearch engine, using pMatch for each term
+     * Engines which store posting lists (PrefixIndex) provide a faster evaluation
+     * @param search search engine to use
+     * @return list of ids of rows matching the query, empty list if no matches
+     */
+    public List<String> evaluate(KeywordSearch search) {
+        if (isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> result = null;
+        for (List<String> clause : requiredClauses) {
+            Set<String> clauseMatches = getMatches(search, clause);
+            if (result == null) result = clauseMatches;
+            else result.retainAll(clauseMatches);
+            if (result.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        for (List<String> clause : excludedClauses) {
+            result.removeAll(getMatches(search, clause));
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static Set<String> getMatches(KeywordSearch search, List<String> clause) {
+        Set<String> matches = new LinkedHashSet<>();
+        for (String term : clause) {
+            List<String> termMatches = search.pMatch(term);
+            if (termMatches != null) matches.addAll(termMatches);
+        }
+        return matches;
+    }
+}
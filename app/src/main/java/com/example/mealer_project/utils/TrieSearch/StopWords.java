@@ -1,142 +1,86 @@
 package com.example.mealer_project.utils.TrieSearch;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Common English and French words which are irrelevant for a search
+ * Words are stored lower case without accents (as produced by the Analyzer), and can be looked up
+ * directly from a char buffer without creating a String
+ */
 public class StopWords {
 
-    static private final Map<String, Boolean> engStopWords = new HashMap<String, Boolean>(){{
-            put("i", true);
-            put("me", true);
-            put("my", true);
-            put("myself", true);
-            put("we", true);
-            put("our", true);
-            put("ours", true);
-            put("ourselves", true);
-            put("you", true);
-            put("your", true);
-            put("yours", true);
-            put("yourself", true);
-            put("yourselves", true);
-            put("he", true);
-            put("him", true);
-            put("his", true);
-            put("himself", true);
-            put("she", true);
-            put("her", true);
-            put("hers", true);
-            put("herself", true);
-            put("it", true);
-            put("its", true);
-            put("itself", true);
-            put("they", true);
-            put("them", true);
-            put("their", true);
-            put("theirs", true);
-            put("themselves", true);
-            put("what", true);
-            put("which", true);
-            put("who", true);
-            put("whom", true);
-            put("this", true);
-            put("that", true);
-            put("these", true);
-            put("those", true);
-            put("am", true);
-            put("is", true);
-            put("are", true);
-            put("was", true);
-            put("were", true);
-            put("be", true);
-            put("been", true);
-            put("being", true);
-            put("have", true);
-            put("has", true);
-            put("had", true);
-            put("having", true);
-            put("do", true);
-            put("does", true);
-            put("did", true);
-            put("doing", true);
-            put("a", true);
-            put("an", true);
-            put("the", true);
-            put("and", true);
-            put("but", true);
-            put("if", true);
-            put("or", true);
-            put("because", true);
-            put("as", true);
-            put("until", true);
-            put("while", true);
-            put("of", true);
-            put("at", true);
-            put("by", true);
-            put("for", true);
-            put("with", true);
-            put("about", true);
-            put("against", true);
-            put("between", true);
-            put("into", true);
-            put("through", true);
-            put("during", true);
-            put("before", true);
-            put("after", true);
-            put("above", true);
-            put("below", true);
-            put("to", true);
-            put("from", true);
-            put("up", true);
-            put("down", true);
-            put("in", true);
-            put("out", true);
-            put("on", true);
-            put("off", true);
-            put("over", true);
-            put("under", true);
-            put("again", true);
-            put("further", true);
-            put("then", true);
-            put("once", true);
-            put("here", true);
-            put("there", true);
-            put("when", true);
-            put("where", true);
-            put("why", true);
-            put("how", true);
-            put("all", true);
-            put("any", true);
-            put("both", true);
-            put("each", true);
-            put("few", true);
-            put("more", true);
-            put("most", true);
-            put("other", true);
-            put("some", true);
-            put("such", true);
-            put("no", true);
-            put("nor", true);
-            put("not", true);
-            put("only", true);
-            put("own", true);
-            put("same", true);
-            put("so", true);
-            put("than", true);
-            put("too", true);
-            put("very", true);
-            put("s", true);
-            put("t", true);
-            put("can", true);
-            put("will", true);
-            put("just", true);
-            put("don", true);
-            put("should", true);
-            put("now", true);
-    }};
+    static private final String[] engStopWords = {
+            "i", "me", "my", "myself", "we", "our", "ours", "ourselves", "you", "your", "yours", "yourself",
+            "yourselves", "he", "him", "his", "himself", "she", "her", "hers", "herself", "it", "its", "itself",
+            "they", "them", "their", "theirs", "themselves", "what", "which", "who", "whom", "this", "that", "these",
+            "those", "am", "is", "are", "was", "were", "be", "been", "being", "have", "has", "had", "having", "do",
+            "does", "did", "doing", "a", "an", "the", "and", "but", "if", "or", "because", "as", "until", "while",
+            "of", "at", "by", "for", "with", "about", "against", "between", "into", "through", "during", "before",
+            "after", "above", "below", "to", "from", "up", "down", "in", "out", "on", "off", "over", "under",
+            "again", "further", "then", "once", "here", "there", "when", "where", "why", "how", "all", "any", "both",
+            "each", "few", "more", "most", "other", "some", "such", "no", "nor", "not", "only", "own", "same", "so",
+            "than", "too", "very", "s", "t", "can", "will", "just", "don", "should", "now"
+    };
+
+    // "mais" (but) is left out as it is also "maïs" (corn) once accents are removed
+    static private final String[] frStopWords = {
+            "au", "aux", "avec", "ce", "ces", "cet", "cette", "dans", "de", "des", "du", "elle", "elles", "en", "et",
+            "eux", "il", "ils", "je", "la", "le", "les", "leur", "leurs", "lui", "ma", "me", "meme", "mes", "moi",
+            "mon", "ne", "nos", "notre", "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "sa", "sans",
+            "se", "ses", "son", "sur", "ta", "te", "tes", "toi", "ton", "tu", "un", "une", "vos", "votre", "vous",
+            "est", "sont", "ete", "etre", "tres", "plus", "y", "c", "d", "j", "l", "m", "n"
+    };
+
+    // open addressing hash table of all stop words, null is an empty slot
+    static private final String[] table = createTable();
 
     static public boolean isStopWord(String word) {
-        return engStopWords.containsKey(word);
+        return isStopWord(word.toCharArray(), word.length());
+    }
+
+    /**
+     * Check if the first characters of a buffer are a stop word
+     * @param buffer characters of the word
+     * @param length length of the word
+     * @return true if the word is a stop word
+     */
+    static public boolean isStopWord(char[] buffer, int length) {
+        int mask = table.length - 1;
+        for (int slot = hash(buffer, length) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            if (equals(table[slot], buffer, length)) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    static private String[] createTable() {
+        // keep the table at most half full
+        int capacity = Integer.highestOneBit((engStopWords.length + frStopWords.length) * 2) * 2;
+        String[] table = new String[capacity];
+        for (String[] words : new String[][] {engStopWords, frStopWords}) {
+            for (String word : words) {
+                int slot = hash(word.toCharArray(), word.length()) & (capacity - 1);
+                while (table[slot] != null && !table[slot].equals(word)) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                table[slot] = word;
+            }
+        }
+        return table;
+    }
+
+    static private int hash(char[] buffer, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    static private boolean equals(String word, char[] buffer, int length) {
+        if (word.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != buffer[i]) return false;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,213 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Dictionary of all distinct search terms, mapping each lower case term to an int id
+ * Meals and search indexes store term ids instead of strings, so a term shared by many meals ("rice",
+ * "chicken", "curry") is stored only once, and term comparisons are int comparisons
+ * Ids are dense (0, 1, 2, ...) in order of first use and are never reused, so they can index arrays
+ * Ids are only valid while the app is running, they must not be stored
+ */
+public class TermDictionary {
+
+    // id returned for terms which are not in the dictionary
+    public static final int NO_TERM = -1;
+
+    // dictionary shared by all meals and search indexes
+    private static final TermDictionary INSTANCE = new TermDictionary();
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // terms and hash table readable without locking, replaced after each added term
+    private volatile Terms published;
+
+    /**
+     * Create an empty dictionary, use getInstance() for the dictionary shared by the app
+     */
+    TermDictionary() {
+        this.published = new Terms(new String[INITIAL_CAPACITY], new int[INITIAL_CAPACITY * 2], 0);
+    }
+
+    /**
+     * Get the dictionary shared by all meals and search indexes
+     * @return shared dictionary
+     */
+    public static TermDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the id of a term, adding it to the dictionary if needed
+     * Terms already in the dictionary are found without locking, only adding a term is synchronized
+     * @param term term, compared in lower case
+     * @return id of the term
+     */
+    public int getOrAddId(String term) {
+        term = term.toLowerCase(Locale.ROOT);
+        int id = this.published.getId(term);
+        return id != NO_TERM ? id : addId(term);
+    }
+
+    /**
+     * Add a lower case term, unless another thread added it first
+     */
+    private synchronized int addId(String term) {
+        Terms current = this.published;
+        int slot = current.findSlot(term);
+        if (current.table[slot] != 0) {
+            return current.table[slot] - 1;
+        }
+        String[] terms = current.terms;
+        int[] table = current.table;
+        // readers of the current terms only read ids below their size, so the arrays are appended in place
+        if (current.size == terms.length) {
+            terms = Arrays.copyOf(terms, current.size * 2);
+        }
+        int id = current.size;
+        terms[id] = term;
+        table[slot] = id + 1;
+        int size = id + 1;
+        // keep the table at most half full so probe sequences stay short
+        if (size * 2 > table.length) {
+            table = rehash(terms, size, table.length * 2);
+        }
+        this.published = new Terms(terms, table, size);
+        return id;
+    }
+
+    /**
+     * Get the ids of a list of terms, adding new terms to the dictionary
+     * @param terms list of terms, null terms are skipped
+     * @return ids of the terms, in the same order
+     */
+    public int[] getOrAddIds(List<String> terms) {
+        int[] ids = new int[terms.size()];
+        int count = 0;
+        for (String term : terms) {
+            if (term != null) {
+                ids[count++] = getOrAddId(term);
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Get the id of a term without adding it
+     * @param term term, compared in lower case
+     * @return id of the term, NO_TERM if the term is not in the dictionary
+     */
+    public int getId(String term) {
+        return this.published.getId(term.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the term of an id
+     * @param id id returned by the dictionary
+     * @return lower case term
+     */
+    public String getTerm(int id) {
+        return this.published.getTerm(id);
+    }
+
+    /**
+     * Get the terms of a list of ids
+     * @param ids ids returned by the dictionary
+     * @return list of lower case terms, in the same order
+     */
+    public List<String> getTerms(int[] ids) {
+        Terms current = this.published;
+        List<String> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(current.getTerm(id));
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of terms in the dictionary, all ids are lower than this number
+     * @return number of terms
+     */
+    public int size() {
+        return this.published.size;
+    }
+
+    private static int[] rehash(String[] terms, int size, int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(terms[id].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Spread the bits of a hash code, String hash codes of similar terms differ mostly in their low bits
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Terms of the dictionary at one point, shared by the readers without locking
+     * The arrays are shared with the next Terms: a term added later only fills an empty slot of the table and an
+     * id >= size, so a slot holding an id >= size is read as an empty slot
+     */
+    private static final class Terms {
+        // terms by id
+        final String[] terms;
+        // open addressing hash table (linear probing) storing id + 1, 0 is an empty slot
+        final int[] table;
+        final int size;
+
+        Terms(String[] terms, int[] table, int size) {
+            this.terms = terms;
+            this.table = table;
+            this.size = size;
+        }
+
+        int getId(String term) {
+            int mask = this.table.length - 1;
+            int slot = mix(term.hashCode()) & mask;
+            while (true) {
+                int entry = this.table[slot];
+                // a slot holding a term added after these terms was empty for them
+                if (entry == 0 || entry > this.size) {
+                    return NO_TERM;
+                }
+                if (this.terms[entry - 1].equals(term)) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        String getTerm(int id) {
+            if (id < 0 || id >= this.size) {
+                throw new IllegalArgumentException("Unknown term id: " + id);
+            }
+            return this.terms[id];
+        }
+
+        /**
+         * Find the slot of a term, or the empty slot where it should be added
+         * Only called by the thread adding terms, on the latest terms
+         */
+        int findSlot(String term) {
+            int mask = this.table.length - 1;
+            int slot = mix(term.hashCode()) & mask;
+            while (this.table[slot] != 0 && !this.terms[this.table[slot] - 1].equals(term)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
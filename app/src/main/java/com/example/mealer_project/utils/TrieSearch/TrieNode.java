@@ -1,16 +1,22 @@
 package com.example.mealer_project.utils.TrieSearch;
 
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * Represent a single Trie-node
+ * Children are stored in two parallel arrays sorted by character, instead of a Map<Character, TrieNode>,
+ * which avoids boxed Character keys and a hash table per node (most nodes have a single child)
  */
 public class TrieNode {
 
-    // map to store children nodes
-    Map<Character, TrieNode> children;
+    // shared empty arrays for nodes without children
+    private static final char[] NO_LABELS = new char[0];
+    private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+    // sorted characters of the children nodes
+    char[] labels;
+    // children nodes, children[i] is the node for character labels[i]
+    TrieNode[] children;
 
     // flag to indicate if a complete word
     boolean isCompleteWord;
@@ -19,7 +25,8 @@ public class TrieNode {
      * Constructor to initialize a Trie node
      */
     protected TrieNode() {
-        this.children = new HashMap<>();
+        this.labels = NO_LABELS;
+        this.children = NO_CHILDREN;
         this.isCompleteWord = false;
     }
 
@@ -35,12 +42,8 @@ public class TrieNode {
 
         // add each character
         for (char c : word.toCharArray()) {
-            // store a new child if character not already there
-            if (currentNode.children.get(c) == null) {
-                currentNode.children.put(c, new TrieNode());
-            }
-            // next node
-            currentNode = currentNode.children.get(c);
+            // store a new child if character not already there, and move to next node
+            currentNode = currentNode.getOrAddChild(c);
         }
 
         // once all characters added, mark the word as complete
@@ -68,7 +71,7 @@ public class TrieNode {
         for (char c: query.toCharArray()) {
 
             // get the node for current character
-            currentNode = currentNode.children.get(c);
+            currentNode = currentNode.getChild(c);
             // if character doesn't exist, means no match
             if (currentNode == null) {
                 return false;
@@ -96,7 +99,7 @@ public class TrieNode {
         for (char c: word.toCharArray()) {
 
             // get the node for current character
-            currentNode = currentNode.children.get(c);
+            currentNode = currentNode.getChild(c);
             // if character doesn't exist, means no match
             if (currentNode == null) {
                 return false;
@@ -105,4 +108,85 @@ public class TrieNode {
         // return true if all characters were found, and we're reached the end of a complete word
         return currentNode.isCompleteWord;
     }
+
+    /**
+     * Get the child node for a character
+     * @param c character of the child
+     * @return child node, or null if there is no child for the character
+     */
+    protected TrieNode getChild(char c) {
+        int index = indexOf(c);
+        return index >= 0 ? this.children[index] : null;
+    }
+
+    /**
+     * Get the child node for a character, creating it if not already there
+     * @param c character of the child
+     * @return child node for the character
+     */
+    protected TrieNode getOrAddChild(char c) {
+        int index = indexOf(c);
+        if (index >= 0) {
+            return this.children[index];
+        }
+        // position at which the character should be inserted to keep labels sorted
+        int insertAt = -(index + 1);
+        int count = this.labels.length;
+
+        char[] newLabels = new char[count + 1];
+        TrieNode[] newChildren = new TrieNode[count + 1];
+        System.arraycopy(this.labels, 0, newLabels, 0, insertAt);
+        System.arraycopy(this.children, 0, newChildren, 0, insertAt);
+        System.arraycopy(this.labels, insertAt, newLabels, insertAt + 1, count - insertAt);
+        System.arraycopy(this.children, insertAt, newChildren, insertAt + 1, count - insertAt);
+
+        TrieNode child = createChild();
+        newLabels[insertAt] = c;
+        newChildren[insertAt] = child;
+        this.labels = newLabels;
+        this.children = newChildren;
+        return child;
+    }
+
+    /**
+     * Get the number of children of the node
+     * @return number of children
+     */
+    protected int getChildCount() {
+        return this.labels.length;
+    }
+
+    /**
+     * Binary search the sorted labels for a character
+     * @param c character to search for
+     * @return index of the character if found, else (-(insertion point) - 1)
+     */
+    int indexOf(char c) {
+        char[] labels = this.labels;
+        // most nodes have one or two children, scan those directly
+        if (labels.length <= 2) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) return i;
+                if (labels[i] > c) return -(i + 1);
+            }
+            return -(labels.length + 1);
+        }
+        int low = 0;
+        int high = labels.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (labels[mid] < c) low = mid + 1;
+            else if (labels[mid] > c) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Create a new child node, subclasses storing extra data in nodes override this method
+     * @return a new empty Trie node
+     */
+    protected TrieNode createChild() {
+        return new TrieNode();
+    }
 }
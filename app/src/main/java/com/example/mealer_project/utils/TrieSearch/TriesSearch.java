@@ -10,7 +10,7 @@ import java.util.HashMap;
  * Each Trie inside this collection of TriesSearch represents one row of a table of data
  * This row could be a sentence or a list of keywords
  */
-public class TriesSearch {
+public class TriesSearch implements KeywordSearch {
 
     /**
      * Map to store all Trie data structures
@@ -87,16 +87,28 @@ public class TriesSearch {
      * @param trieId id which is returned if match found in provided keywords
      * @param keywords list of string keywords
      */
+    @Override
     public void addData(String trieId, List<String> keywords) {
         this.tries.put(trieId, getTrie(keywords));
     }
 
+    /**
+     * Add data to TrieSearch dataset by providing an id and the ids of its keywords
+     * @param trieId id which is returned if match found in provided keywords
+     * @param termIds ids of the keywords in the shared TermDictionary
+     */
+    @Override
+    public void addData(String trieId, int[] termIds) {
+        addData(trieId, termIds != null ? TermDictionary.getInstance().getTerms(termIds) : new ArrayList<String>());
+    }
+
     /**
      * pMatch - Pattern Match
      * Method performs a non-exact search of a query in all the tries
      * @param query string representing characters to be found
      * @return list of string values identifying the TriesSearch in which matches were found, empty list if no matches
      */
+    @Override
     public List<String> pMatch(String query) {
         // ensure we have valid data & query
         if (this.tries == null || this.tries.isEmpty() || query == null || query.isEmpty())
@@ -123,6 +135,7 @@ public class TriesSearch {
      * @param query string representing characters to be found
      * @return list of string values identifying the TriesSearch in which matches were found, empty list if no matches
      */
+    @Override
     public List<String> eMatch(String query) {
         // ensure we have valid data & query
         if (this.tries == null || this.tries.isEmpty() || query == null || query.isEmpty())
@@ -143,4 +156,16 @@ public class TriesSearch {
         return matches;
     }
 
+    /**
+     * Create the next version of the dataset
+     * The map of tries is copied, a Trie is never modified once added so the tries themselves are shared
+     * @return new dataset containing the same tries
+     */
+    @Override
+    public TriesSearch fork() {
+        TriesSearch next = new TriesSearch(this.tries.size());
+        next.tries.putAll(this.tries);
+        return next;
+    }
+
 }
@@ -1,9 +1,5 @@
 package com.example.mealer_project.utils;
 
-import android.util.Log;
-
-import com.example.mealer_project.utils.TrieSearch.StopWords;
-
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -11,11 +7,14 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -61,6 +60,14 @@ public class Utilities {
         return v.toString();
     }
 
+    // analyzer of each thread (keywords are extracted on the main thread, queries are parsed on the search worker)
+    static private final ThreadLocal<Analyzer> analyzer = new ThreadLocal<Analyzer>() {
+        @Override
+        protected Analyzer initialValue() {
+            return new Analyzer();
+        }
+    };
+
     /**
      * A utility method to extract a list of keywords from a string
      * Keywords include all words except common words which are irrelevant for a search like verbs (ex: is, are, doing)
@@ -70,50 +77,75 @@ public class Utilities {
     static public List<String> getKeywords(List<String> data) {
         // validate data
         if (Preconditions.isNotNull(data)) {
-            // list to store our keywords
-            Map<String, Boolean> keywords = new HashMap<>();
+            // distinct keywords, in the order they appear
+            Set<String> keywords = new LinkedHashSet<>();
             // iterate through each row containing sequence of words
             for (String rawWords: data) {
                 // validate the row containing words is not a null value or empty string
                 if (Preconditions.isNotEmptyString(rawWords)) {
-                    // split on space
-                    String[] words = rawWords.split("\\s+");
-                    // store normalized word, ex: remove commas or semicolons
-                    String normalizedWord;
-                    // for each word
-                    for (String word: words) {
-                        Log.e("wordK", "w: " + word);
-                        // if current word is not an empty string
-                        if (Preconditions.isNotEmptyString(word)) {
-                            // get normalized word
-                            normalizedWord = getNormalizedWord(word);
-                            // if word is a valid keyword, add it to our list of keywords
-                            if (isKeyword(normalizedWord)) {
-                                Log.e("wordK", "N: " + normalizedWord);
-                                // if the keyword has not already been added
-                                if (keywords.get(normalizedWord) == null) {
-                                    keywords.put(normalizedWord, true);
-                                }
-                            }
-                        }
-                    }
+                    analyzer.get().addTerms(rawWords, keywords);
                 }
             }
             // return the list of keywords
-            return new ArrayList<>(keywords.keySet());
+            return new ArrayList<>(keywords);
         }
 
         // if in valid value, or can't find any keywords, we return empty list
         return new ArrayList<>();
     }
 
-    static private String getNormalizedWord(String word) {
-        // returns string only containing a-z, A-Z, and apostrophe
-        return word.replaceAll("[^a-zA-Z0-9'-]","");
+    /**
+     * A utility method to extract the keywords of a text in order, keeping repeated keywords
+     * Uses the same rules as getKeywords
+     * @param text a sequence of words separated by space
+     * @return list of keywords in the order they appear in the text, empty list if no keywords
+     */
+    static public List<String> getKeywordTokens(String text) {
+        if (Preconditions.isNotEmptyString(text)) {
+            return analyzer.get().getTerms(text);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Normalize a single word and check if it is a keyword
+     * Same rules are used for meal keywords and for search queries
+     * @param word a single word (no spaces)
+     * @return normalized word if it is a keyword, else null
+     */
+    static public String getKeyword(String word) {
+        // if current word is an empty string
+        if (!Preconditions.isNotEmptyString(word)) {
+            return null;
+        }
+        return analyzer.get().getTerm(word);
+    }
+
+    /**
+     * Normalize a single word without checking if it is a keyword (ex: a word still being typed)
+     * @param word a single word (no spaces)
+     * @return lower case word without accents, only containing letters, digits, apostrophe and hyphen
+     */
+    static public String getNormalizedWord(String word) {
+        return analyzer.get().getNormalizedWord(word);
     }
 
-    static private boolean isKeyword(String word) {
-        // return true is word is not a stop word, else return false
-        return !StopWords.isStopWord(word);
+    /**
+     * Split values into chunks of distinct values, for queries limited in the number of values they accept
+     * (ex: Firestore whereIn filters)
+     * @param values values, possibly repeated
+     * @param chunkSize maximum number of values in a chunk
+     * @return lists of at most chunkSize values, each value in one chunk only, in the order values first appear
+     */
+    static public <T> List<List<T>> getDistinctChunks(Collection<T> values, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        List<T> distinctValues = new ArrayList<>(new LinkedHashSet<>(values));
+        List<List<T>> chunks = new ArrayList<>((distinctValues.size() + chunkSize - 1) / chunkSize);
+        for (int start = 0; start < distinctValues.size(); start += chunkSize) {
+            chunks.add(new ArrayList<>(distinctValues.subList(start, Math.min(start + chunkSize, distinctValues.size()))));
+        }
+        return chunks;
     }
 }
@@ -0,0 +1,94 @@
+package com.example.mealer_project.data.models;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+public class OrdersTest {
+
+    //Testing a page of orders is added at once, newest first when listed
+    @Test
+    public void putOrdersPage() {
+        Orders orders = new Orders();
+        List<Order> page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(makeOrder("order" + i, i));
+        }
+        assertEquals(100, orders.putOrders(page));
+        List<Order> pendingOrders = orders.getPendingOrders();
+        assertEquals(100, pendingOrders.size());
+        assertEquals("order99", pendingOrders.get(0).getOrderID());
+        assertTrue(orders.getOrder("order42").isSuccess());
+    }
+
+    //Testing orders already added are not added again and orders without an ID are skipped
+    @Test
+    public void putOrdersSkipsDuplicates() {
+        Orders orders = new Orders();
+        orders.addOrder(makeOrder("first", 1));
+        Order withoutId = makeOrder("", 2);
+        assertEquals(1, orders.putOrders(Arrays.asList(makeOrder("first", 3), makeOrder("second", 4), withoutId, makeOrder("second", 5))));
+        assertEquals(2, orders.getPendingOrders().size());
+        // the order added first is kept
+        assertEquals(new Date(1), orders.getOrder("first").getSuccessObject().getOrderDate());
+    }
+
+    //Testing a changed order updates the order already loaded, and an unchanged order is not reported as a change
+    @Test
+    public void putOrder() {
+        Orders orders = new Orders();
+        Order loadedOrder = makeOrder("order", 1);
+        assertTrue(orders.putOrder(loadedOrder));
+        // same order received again from the database
+        assertFalse(orders.putOrder(makeOrder("order", 1)));
+        Order acceptedOrder = makeOrder("order", 1);
+        acceptedOrder.setIsPending(false);
+        assertTrue(orders.putOrder(acceptedOrder));
+        assertSame(loadedOrder, orders.getOrder("order").getSuccessObject());
+        assertFalse(loadedOrder.getIsPending());
+        assertEquals(1, orders.getOrdersInProgress().size());
+        assertFalse(orders.putOrder(makeOrder("", 2)));
+    }
+
+    //Testing orders deleted in the database are removed, orders placed after the orders read are kept
+    @Test
+    public void retainOrders() {
+        Orders orders = new Orders();
+        orders.putOrders(Arrays.asList(makeOrder("kept", 1), makeOrder("deleted", 2), makeOrder("newer", 5)));
+        // orders read up to the date of "kept", the other orders were placed after them
+        assertEquals(0, orders.retainOrders(new HashSet<>(Arrays.asList("kept", "other"))));
+        assertEquals(1, orders.retainOrders(new HashSet<>(Arrays.asList("kept", "newer"))));
+        assertTrue(orders.getOrder("kept").isSuccess());
+        assertFalse(orders.getOrder("deleted").isSuccess());
+        assertTrue(orders.getOrder("newer").isSuccess());
+        // no orders read, none is kept
+        assertEquals(2, orders.retainOrders(new HashSet<String>()));
+        assertFalse(orders.getOrder("kept").isSuccess());
+    }
+
+    //Testing orders read again from the server only count the new and changed orders
+    @Test
+    public void putOrders() {
+        Orders orders = new Orders();
+        // orders read from the cache
+        assertEquals(2, orders.putOrders(Arrays.asList(makeOrder("first", 1), makeOrder("second", 2))));
+        // same orders read from the server, one of them accepted since, and a new one
+        Order acceptedOrder = makeOrder("second", 2);
+        acceptedOrder.setIsPending(false);
+        assertEquals(2, orders.putOrders(Arrays.asList(makeOrder("first", 1), acceptedOrder, makeOrder("third", 3))));
+        assertEquals(2, orders.getPendingOrders().size());
+        assertEquals(1, orders.getOrdersInProgress().size());
+    }
+
+    private static Order makeOrder(String orderId, long time) {
+        Order order = new Order();
+        order.setOrderID(orderId);
+        order.setDate(new Date(time));
+        return order;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mealer_project.data.sources;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.example.mealer_project.data.sources.ReadMetrics.ReadSource;
+
+public class ReadMetricsTest {
+
+    //Testing percentiles of each source use the nearest rank of its own reads
+    @Test
+    public void percentiles() {
+        ReadMetrics metrics = new ReadMetrics();
+        // cache reads of 1 ms to 20 ms, recorded out of order
+        for (int i = 20; i >= 1; i--) {
+            metrics.record(ReadSource.CACHE, i * 1000000L);
+        }
+        metrics.record(ReadSource.SERVER, 300 * 1000000L);
+        assertEquals(10.0, metrics.getPercentileMillis(ReadSource.CACHE, 50), 0);
+        assertEquals(19.0, metrics.getPercentileMillis(ReadSource.CACHE, 95), 0);
+        assertEquals(20.0, metrics.getPercentileMillis(ReadSource.CACHE, 100), 0);
+        assertEquals(300.0, metrics.getPercentileMillis(ReadSource.SERVER, 50), 0);
+        assertEquals(20, metrics.getCount(ReadSource.CACHE));
+        assertEquals(1, metrics.getCount(ReadSource.SERVER));
+    }
+
+    //Testing only the most recent reads are kept, and a source without reads has no latency
+    @Test
+    public void recentReadsOnly() {
+        ReadMetrics metrics = new ReadMetrics();
+        // slow reads, then as many fast reads as are kept
+        for (int i = 0; i < 100; i++) {
+            metrics.record(ReadSource.SERVER, 900 * 1000000L);
+        }
+        for (int i = 0; i < ReadMetrics.SAMPLES; i++) {
+            metrics.record(ReadSource.SERVER, 2 * 1000000L);
+        }
+        assertEquals(2.0, metrics.getPercentileMillis(ReadSource.SERVER, 100), 0);
+        assertEquals(100 + ReadMetrics.SAMPLES, metrics.getCount(ReadSource.SERVER));
+        assertEquals(0.0, metrics.getPercentileMillis(ReadSource.CACHE, 95), 0);
+    }
+
+    //Testing a percentile out of 1 to 100 is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        new ReadMetrics().getPercentileMillis(ReadSource.CACHE, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.mealer_project.data.sources.actions;
+
+import static com.example.mealer_project.data.sources.FirebaseCollections.*;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MealActionsTest {
+
+    //Testing a chef whose migration stopped partway is not migrated, even if some meals were already moved
+    @Test
+    public void partiallyMigratedChef() {
+        // Meals/{chefId} is written with the first batch of moved meals, before the flag
+        Map<String, Object> mealsDocumentData = new HashMap<>();
+        mealsDocumentData.put(MEALS_COLLECTION_CHEF_KEY, "chef");
+        assertFalse(MealActions.isMealsMigrated(mealsDocumentData));
+        mealsDocumentData.put(MEALS_COLLECTION_MIGRATED_KEY, false);
+        assertFalse(MealActions.isMealsMigrated(mealsDocumentData));
+        // flag set once the last batch is committed
+        mealsDocumentData.put(MEALS_COLLECTION_MIGRATED_KEY, true);
+        assertTrue(MealActions.isMealsMigrated(mealsDocumentData));
+    }
+
+    //Testing a chef without a Meals document is not migrated
+    @Test
+    public void chefWithoutMealsDocument() {
+        assertFalse(MealActions.isMealsMigrated(null));
+        assertFalse(MealActions.isMealsMigrated(new HashMap<String, Object>()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.mealer_project.ui.screens.search;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class SearchIndexSnapshotTest {
+
+    //Testing a negative or too large number of strings fails as a corrupted snapshot
+    @Test
+    public void invalidStringCount() throws IOException {
+        assertCorrupted(header().writeInt(Integer.MAX_VALUE));
+        assertCorrupted(header().writeInt(-2));
+    }
+
+    //Testing a string longer than the rest of the file fails as a corrupted snapshot
+    @Test
+    public void invalidStringLength() throws IOException {
+        assertCorrupted(header().writeInt(1).writeInt(Integer.MAX_VALUE));
+        assertCorrupted(header().writeInt(1).writeInt(-1));
+    }
+
+    //Testing a negative or too large number of items fails as a corrupted snapshot
+    @Test
+    public void invalidItemCount() throws IOException {
+        assertCorrupted(header().writeInt(0).writeInt(Integer.MAX_VALUE));
+        assertCorrupted(header().writeInt(0).writeInt(-1));
+    }
+
+    //Testing a too large number of allergens of an item fails as a corrupted snapshot
+    @Test
+    public void invalidListCount() throws IOException {
+        Snapshot snapshot = header().writeInt(1).writeInt(1).writeByte('a').writeInt(1);
+        // name, ids, types, ingredients and description of the meal
+        for (int i = 0; i < 7; i++) snapshot.writeInt(0);
+        snapshot.writeByte(1).writeLong(Double.doubleToLongBits(10));
+        assertCorrupted(snapshot.writeInt(Integer.MAX_VALUE));
+    }
+
+    private static Snapshot header() throws IOException {
+        return new Snapshot().writeInt(SearchIndexSnapshot.MAGIC).writeInt(SearchIndexSnapshot.VERSION).writeLong(0);
+    }
+
+    private static void assertCorrupted(Snapshot snapshot) {
+        try {
+            SearchIndexSnapshot.decode(snapshot.toBuffer());
+            fail("Expected a corrupted snapshot");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Snapshot data written field by field
+     */
+    private static class Snapshot {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Snapshot writeInt(int value) throws IOException {
+            out.writeInt(value);
+            return this;
+        }
+
+        Snapshot writeLong(long value) throws IOException {
+            out.writeLong(value);
+            return this;
+        }
+
+        Snapshot writeByte(int value) throws IOException {
+            out.writeByte(value);
+            return this;
+        }
+
+        ByteBuffer toBuffer() {
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+}
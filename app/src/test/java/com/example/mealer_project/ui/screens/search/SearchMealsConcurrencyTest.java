@@ -0,0 +1,182 @@
+package com.example.mealer_project.ui.screens.search;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import com.example.mealer_project.data.models.Address;
+import com.example.mealer_project.data.models.meals.Meal;
+import com.example.mealer_project.data.models.orders.ChefInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SearchMealsConcurrencyTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int BATCHES_PER_WRITER = 50;
+    private static final int ITEMS_PER_BATCH = 20;
+    private static final int TOTAL_ITEMS = WRITERS * BATCHES_PER_WRITER * ITEMS_PER_BATCH;
+
+    //Testing that searches running while thousands of items are loaded never fail, never return an item
+    //missing from their snapshot, and never go back to an older snapshot
+    @Test
+    public void searchWhileLoading() throws InterruptedException {
+        ExecutorService buildExecutor = Executors.newSingleThreadExecutor();
+        final SearchMeals searchMeals = new SearchMeals(true, buildExecutor);
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean loading = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    start.await();
+                    int previousMatches = 0;
+                    int previousPriced = 0;
+                    while (loading.get()) {
+                        List<SearchMealItem> matches = searchMeals.searchMealItems("curry");
+                        for (SearchMealItem item : matches) {
+                            assertNotNull("Result is missing from its snapshot", item);
+                        }
+                        // snapshots are published in order, each one has more items
+                        assertTrue("Search went back to an older snapshot", matches.size() >= previousMatches);
+                        previousMatches = matches.size();
+
+                        for (SearchMealItem item : searchMeals.searchTopMealItems("curry cuisine=indian", 10)) {
+                            assertNotNull("Ranked result is missing from its snapshot", item);
+                            assertEquals("Indian", item.getMeal().getCuisineType());
+                        }
+                        int priced = searchMeals.countMealItemsByPrice(0, Double.MAX_VALUE);
+                        assertTrue("Price index went back to an older snapshot", priced >= previousPriced);
+                        previousPriced = priced;
+                        for (SearchMealItem item : searchMeals.getMealItemsByPrice(0, 10, true, 0, 10)) {
+                            assertNotNull("Price result is missing from its snapshot", item);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    ChefInfo chef = new ChefInfo("chef" + writer, "Chef " + writer, "Cooks curries", 4, Address.getSampleAddress());
+                    for (int b = 0; b < BATCHES_PER_WRITER; b++) {
+                        List<SearchMealItem> batch = new ArrayList<>();
+                        for (int i = 0; i < ITEMS_PER_BATCH; i++) {
+                            batch.add(createItem(chef, b * ITEMS_PER_BATCH + i));
+                        }
+                        searchMeals.addItems(batch);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            writers.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        // let the last builds finish
+        buildExecutor.shutdown();
+        assertTrue("Builds did not finish", buildExecutor.awaitTermination(60, TimeUnit.SECONDS));
+        loading.set(false);
+        for (Thread thread : readers) {
+            thread.join();
+        }
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.peek());
+        }
+        // once builds are done, every item is searchable
+        assertEquals(TOTAL_ITEMS, searchMeals.getSearchMealItems().size());
+        assertEquals(TOTAL_ITEMS, searchMeals.searchMealItems("curry").size());
+        assertEquals(TOTAL_ITEMS / 2, searchMeals.searchMealItems("cuisine=indian").size());
+        assertEquals(TOTAL_ITEMS, searchMeals.countMealItemsByPrice(0, Double.MAX_VALUE));
+    }
+
+    //Testing that an item added again replaces the previous one instead of being duplicated
+    @Test
+    public void replaceItem() throws InterruptedException {
+        ExecutorService buildExecutor = Executors.newSingleThreadExecutor();
+        SearchMeals searchMeals = new SearchMeals(true, buildExecutor);
+        ChefInfo chef = new ChefInfo("chef", "Chef", "Cooks curries", 4, Address.getSampleAddress());
+        searchMeals.addItems(Arrays.asList(createItem(chef, 0), createItem(chef, 1)));
+        SearchMealItem replacement = createItem(chef, 0);
+        replacement.getMeal().setPrice(99);
+        searchMeals.addItems(Arrays.asList(replacement));
+        buildExecutor.shutdown();
+        assertTrue(buildExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(2, searchMeals.searchMealItems("curry").size());
+        assertEquals(1, searchMeals.countMealItemsByPrice(99, 99));
+        assertEquals(2, searchMeals.countMealItemsByPrice(0, Double.MAX_VALUE));
+    }
+
+    //Testing that items read from the server replace all items, so items no longer offered can't be found
+    @Test
+    public void replaceItems() throws InterruptedException {
+        ExecutorService buildExecutor = Executors.newSingleThreadExecutor();
+        SearchMeals searchMeals = new SearchMeals(true, buildExecutor);
+        ChefInfo chef = new ChefInfo("chef", "Chef", "Cooks curries", 4, Address.getSampleAddress());
+        // cached items, then items from the server without the second meal
+        searchMeals.addItems(Arrays.asList(createItem(chef, 0), createItem(chef, 1), createItem(chef, 2)));
+        searchMeals.replaceItems(Arrays.asList(createItem(chef, 0), createItem(chef, 2)));
+        // loaded after the items from the server
+        searchMeals.addItems(Arrays.asList(createItem(chef, 3)));
+        buildExecutor.shutdown();
+        assertTrue(buildExecutor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(3, searchMeals.getSearchMealItems().size());
+        assertFalse(searchMeals.getSearchMealItems().containsKey("chef_1"));
+        assertEquals(3, searchMeals.searchMealItems("curry").size());
+        // the second meal is the only one priced 6
+        assertEquals(0, searchMeals.countMealItemsByPrice(6, 6));
+        assertEquals(3, searchMeals.countMealItemsByPrice(0, Double.MAX_VALUE));
+    }
+
+    //Testing that a failed build drops its items without stopping the next builds
+    @Test
+    public void failedBuild() {
+        // build on this thread, so each batch is built on its own
+        SearchMeals searchMeals = new SearchMeals(true, Runnable::run);
+        ChefInfo chef = new ChefInfo("chef", "Chef", "Cooks curries", 4, Address.getSampleAddress());
+        searchMeals.addItems(Arrays.asList(createItem(chef, 0), createItem(chef, 1)));
+        // an item without a meal can't be indexed, the build fails after forking the indexes of the snapshot
+        searchMeals.addItems(Arrays.asList(createItem(chef, 2), new SearchMealItem(null, chef)));
+        searchMeals.addItems(Arrays.asList(createItem(chef, 3)));
+
+        assertEquals(3, searchMeals.getSearchMealItems().size());
+        assertEquals(3, searchMeals.searchMealItems("curry").size());
+        assertEquals(1, searchMeals.searchMealItems("meal3").size());
+        assertEquals(3, searchMeals.countMealItemsByPrice(0, Double.MAX_VALUE));
+    }
+
+    private static SearchMealItem createItem(ChefInfo chef, int number) {
+        String cuisine = number % 2 == 0 ? "Indian" : "Italian";
+        Meal meal = new Meal("Curry " + number, chef.getChefId() + "_" + number, chef.getChefId(), cuisine, "Main",
+                "rice", new ArrayList<String>(), "A tasty curry with rice " + number, true, 5 + number % 20);
+        meal.setKeywords(Arrays.asList("curry", "rice", cuisine, "meal" + number));
+        return new SearchMealItem(meal, chef);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mealer_project.ui.screens.search;
+
+import com.example.mealer_project.data.models.Address;
+import com.example.mealer_project.data.models.meals.Meal;
+import com.example.mealer_project.data.models.orders.ChefInfo;
+import com.example.mealer_project.utils.TrieSearch.SearchQuery;
+import com.example.mealer_project.utils.TrieSearch.SyntheticCatalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares restoring the searchable meals from a SearchIndexSnapshot with java serialization
+ * of the same items, and measures the time until the first search can be answered on a cold start, searching
+ * the mapped snapshot file or building the in-memory indexes first
+ * Retrieving meals from firebase is not measured: it depends on the network and is what the snapshot avoids
+ * Run the main method, results are printed
+ */
+public class SearchSnapshotBenchmark {
+
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 50_000};
+    private static final int MEALS_PER_CHEF = 10;
+    private static final int KEYWORDS_PER_MEAL = 30;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        for (int size : CATALOG_SIZES) {
+            List<SearchMealItem> items = createItems(size);
+            File snapshotFile = File.createTempFile("search", ".snapshot");
+            File serializedFile = File.createTempFile("search", ".ser");
+            try {
+                SearchIndexSnapshot.write(snapshotFile, items);
+                try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(serializedFile)))) {
+                    out.writeObject(new ArrayList<>(items));
+                }
+                checkRoundTrip(items, SearchIndexSnapshot.read(snapshotFile));
+                checkMappedSearch(items, snapshotFile);
+
+                long snapshotRead = Long.MAX_VALUE;
+                long serializedRead = Long.MAX_VALUE;
+                long firstMappedSearch = Long.MAX_VALUE;
+                long firstSearch = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    SearchIndexSnapshot.read(snapshotFile);
+                    snapshotRead = Math.min(snapshotRead, System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(serializedFile)))) {
+                        in.readObject();
+                    }
+                    serializedRead = Math.min(serializedRead, System.nanoTime() - start);
+
+                    // cold start: map the snapshot and answer a query from its index
+                    start = System.nanoTime();
+                    SearchIndexSnapshot.open(snapshotFile).topK(SearchQuery.parse("chicken curry"), SearchScreen.MAX_SEARCH_RESULTS, null);
+                    firstMappedSearch = Math.min(firstMappedSearch, System.nanoTime() - start);
+
+                    // read snapshot, build the indexes and answer a query
+                    start = System.nanoTime();
+                    // build on this thread so the search sees the items
+                    SearchMeals searchMeals = new SearchMeals(SearchMeals.USE_PREFIX_INDEX, Runnable::run);
+                    searchMeals.addItems(SearchIndexSnapshot.read(snapshotFile));
+                    searchMeals.searchTopMealItems("chicken curry", SearchScreen.MAX_SEARCH_RESULTS);
+                    firstSearch = Math.min(firstSearch, System.nanoTime() - start);
+                }
+                System.out.printf("%,d meals: snapshot %,d KB read %,d ms | serialized %,d KB read %,d ms | first search from mapped snapshot %,d ms, after building indexes %,d ms%n",
+                        size, snapshotFile.length() / 1024, snapshotRead / 1_000_000,
+                        serializedFile.length() / 1024, serializedRead / 1_000_000, firstMappedSearch / 1_000_000, firstSearch / 1_000_000);
+            } finally {
+                snapshotFile.delete();
+                serializedFile.delete();
+            }
+        }
+    }
+
+    private static List<SearchMealItem> createItems(int size) {
+        SyntheticCatalog catalog = new SyntheticCatalog(size, 42);
+        List<SearchMealItem> items = new ArrayList<>(size);
+        ChefInfo chef = null;
+        for (int i = 0; i < size; i++) {
+            if (i % MEALS_PER_CHEF == 0) {
+                chef = new ChefInfo("chef" + i, "Chef " + catalog.randomWord(6), "Home cooked meals from " + catalog.randomWord(8),
+                        4.5, new Address(i + " Main St", "Ottawa", "K1N6N5", "Canada"));
+            }
+            List<String> keywords = catalog.nextKeywords(KEYWORDS_PER_MEAL);
+            Meal meal = new Meal(keywords.get(0) + " " + keywords.get(1), "meal" + i, chef.getChefId(), "Indian", "Main dish",
+                    keywords.get(2) + ", " + keywords.get(3), new ArrayList<>(Arrays.asList("peanut")),
+                    "Freshly made " + keywords.get(4) + " with " + keywords.get(5), true, 12.5);
+            meal.setKeywords(keywords);
+            items.add(new SearchMealItem(meal, chef));
+        }
+        return items;
+    }
+
+    /**
+     * Check the mapped snapshot ranks the same items as the in-memory indexes
+     */
+    private static void checkMappedSearch(List<SearchMealItem> items, File snapshotFile) throws Exception {
+        MappedSearchIndex mappedIndex = SearchIndexSnapshot.open(snapshotFile);
+        SearchMeals searchMeals = new SearchMeals(SearchMeals.USE_PREFIX_INDEX, Runnable::run);
+        searchMeals.addItems(items);
+        List<String> keywords = items.get(0).getMeal().getKeywords();
+        // whole keyword, prefix of a keyword, and two keywords
+        for (String query : Arrays.asList(keywords.get(0), keywords.get(1).substring(0, 2), keywords.get(0) + " " + keywords.get(2))) {
+            List<SearchMealItem> expected = searchMeals.searchTopMealItems(query, SearchScreen.MAX_SEARCH_RESULTS);
+            List<SearchMealItem> actual = mappedIndex.topK(SearchQuery.parse(query), SearchScreen.MAX_SEARCH_RESULTS, null);
+            if (!getIds(expected).equals(getIds(actual))) {
+                throw new AssertionError("mapped search differs for \"" + query + "\": " + getIds(actual) + " instead of " + getIds(expected));
+            }
+        }
+    }
+
+    private static List<String> getIds(List<SearchMealItem> items) {
+        List<String> ids = new ArrayList<>(items.size());
+        for (SearchMealItem item : items) {
+            ids.add(item.getId());
+        }
+        return ids;
+    }
+
+    private static void checkRoundTrip(List<SearchMealItem> expected, List<SearchMealItem> actual) {
+        if (expected.size() != actual.size()) {
+            throw new AssertionError("item count differs: " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            SearchMealItem e = expected.get(i);
+            SearchMealItem a = actual.get(i);
+            if (!e.getId().equals(a.getId()) || !e.getMeal().getKeywords().equals(a.getMeal().getKeywords())
+                    || !e.getMeal().getDescription().equals(a.getMeal().getDescription())
+                    || !e.getChef().getChefAddress().getPostalCode().equals(a.getChef().getChefAddress().getPostalCode())) {
+                throw new AssertionError("item differs after round trip: " + e.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.mealer_project.utils;
+
+import com.example.mealer_project.utils.TrieSearch.StopWords;
+import com.example.mealer_project.utils.TrieSearch.SyntheticCatalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput harness comparing Utilities.getKeywords (Analyzer) with the previous implementation
+ * (split on a regex, replaceAll with a regex per word, HashMap to remove duplicates)
+ * The previous implementation also logged each word with Log.e, which is left out here, so the
+ * difference measured on a device is larger
+ * Run main() from the IDE, results are printed
+ */
+public class AnalyzerBenchmark {
+
+    private static final int MEALS = 20_000;
+    private static final int WORDS_PER_FIELD = 12;
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) {
+        List<List<String>> meals = generate();
+        long words = (long) MEALS * 8 * WORDS_PER_FIELD;
+        // warm up both implementations
+        for (int run = 0; run < 2; run++) {
+            runAnalyzer(meals);
+            runLegacy(meals);
+        }
+        long analyzer = Long.MAX_VALUE;
+        long legacy = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            runAnalyzer(meals);
+            analyzer = Math.min(analyzer, System.nanoTime() - start);
+            start = System.nanoTime();
+            runLegacy(meals);
+            legacy = Math.min(legacy, System.nanoTime() - start);
+        }
+        System.out.println(String.format(Locale.US, "Analyzer: %.1f ns/word, previous: %.1f ns/word (%d meals, %d words)",
+                analyzer / (double) words, legacy / (double) words, MEALS, words));
+    }
+
+    /**
+     * Generate the raw fields of each meal (chef name, address, name, type, cuisine, ingredients, allergens, description)
+     */
+    private static List<List<String>> generate() {
+        SyntheticCatalog catalog = new SyntheticCatalog(5000, 42);
+        String[] fillers = {"the", "with", "and", "de", "la", "l'", "Crème", "brûlée,", "(spicy)", "à"};
+        List<List<String>> meals = new ArrayList<>(MEALS);
+        for (int i = 0; i < MEALS; i++) {
+            List<String> fields = new ArrayList<>(8);
+            for (int field = 0; field < 8; field++) {
+                StringBuilder text = new StringBuilder();
+                for (String word : catalog.nextKeywords(WORDS_PER_FIELD / 2)) {
+                    text.append(word).append(' ').append(fillers[(i + text.length()) % fillers.length]).append(' ');
+                }
+                fields.add(text.toString());
+            }
+            meals.add(fields);
+        }
+        return meals;
+    }
+
+    private static int runAnalyzer(List<List<String>> meals) {
+        int count = 0;
+        for (List<String> fields : meals) {
+            count += Utilities.getKeywords(fields).size();
+        }
+        return count;
+    }
+
+    private static int runLegacy(List<List<String>> meals) {
+        int count = 0;
+        for (List<String> fields : meals) {
+            count += getKeywordsLegacy(fields).size();
+        }
+        return count;
+    }
+
+    /**
+     * Copy of the previous Utilities.getKeywords, without logging
+     */
+    private static List<String> getKeywordsLegacy(List<String> data) {
+        Map<String, Boolean> keywords = new HashMap<>();
+        for (String rawWords : data) {
+            if (Preconditions.isNotEmptyString(rawWords)) {
+                for (String word : rawWords.split("\\s+")) {
+                    if (Preconditions.isNotEmptyString(word)) {
+                        String normalizedWord = word.replaceAll("[^a-zA-Z0-9'-]", "");
+                        if (!StopWords.isStopWord(normalizedWord) && keywords.get(normalizedWord) == null) {
+                            keywords.put(normalizedWord, true);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(keywords.keySet());
+    }
+}
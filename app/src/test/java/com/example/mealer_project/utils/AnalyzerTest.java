@@ -0,0 +1,54 @@
+package com.example.mealer_project.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class AnalyzerTest {
+
+    //Testing accents and ligatures are folded and words are lower cased
+    @Test
+    public void foldsAccents() {
+        Analyzer analyzer = new Analyzer();
+        assertEquals(Arrays.asList("creme", "brulee", "boeuf", "bourguignon"), analyzer.getTerms("Crème Brûlée  BŒUF bourguignon"));
+    }
+
+    //Testing punctuation is removed while apostrophes and hyphens are kept
+    @Test
+    public void keepsApostrophesAndHyphens() {
+        Analyzer analyzer = new Analyzer();
+        assertEquals(Arrays.asList("chef's", "gluten-free", "pizza"), analyzer.getTerms("chef's gluten-free, (pizza)!"));
+    }
+
+    //Testing English and French stop words and elided articles are removed
+    @Test
+    public void removesStopWordsAndElisions() {
+        Analyzer analyzer = new Analyzer();
+        assertEquals(Arrays.asList("curry", "agneau", "maison"), analyzer.getTerms("the curry de l'agneau à la maison"));
+        assertEquals(Arrays.asList("agneau"), analyzer.getTerms("l’agneau"));
+        assertNull(analyzer.getTerm("Avec"));
+    }
+
+    //Testing "maïs" (corn) is not removed as the French stop word "mais"
+    @Test
+    public void keepsCorn() {
+        assertEquals("mais", new Analyzer().getTerm("maïs"));
+    }
+
+    //Testing plural endings are removed only when stemming
+    @Test
+    public void stemsPlurals() {
+        Analyzer analyzer = new Analyzer(true);
+        assertEquals(Arrays.asList("tomato", "berry", "dish", "gateau", "couscous", "glass"),
+                analyzer.getTerms("tomatoes berries dishes gâteaux couscous glass"));
+        assertEquals(Arrays.asList("tomatoes"), new Analyzer().getTerms("tomatoes"));
+    }
+
+    //Testing a word being typed is normalized without removing stop words
+    @Test
+    public void normalizesWordInProgress() {
+        assertEquals("the", new Analyzer().getNormalizedWord("Thé"));
+        assertEquals("agn", new Analyzer().getNormalizedWord("d'Agn"));
+    }
+}
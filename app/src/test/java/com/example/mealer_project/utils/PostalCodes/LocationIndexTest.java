@@ -0,0 +1,66 @@
+package com.example.mealer_project.utils.PostalCodes;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class LocationIndexTest {
+
+    //Testing the haversine distance between two known cities
+    @Test
+    public void haversineDistance() {
+        // Ottawa to Toronto is about 350 km
+        assertEquals(352, FsaCentroids.haversine(45.42, -75.70, 43.65, -79.38), 5);
+        assertEquals(0, FsaCentroids.haversine(45.42, -75.70, 45.42, -75.70), 0);
+    }
+
+    //Testing postal codes are located by their longest FSA prefix in the table
+    @Test
+    public void centroidOfPostalCode() {
+        assertTrue(FsaCentroids.getDistance(new PostalCode("K1N6N5"), new PostalCode("J8X1A1")) < 10);
+        assertTrue(FsaCentroids.getDistance(new PostalCode("K1N6N5"), new PostalCode("M5V2T6")) > 300);
+        // no entry for the FSA, located at its postal district
+        assertArrayEquals(FsaCentroids.getCentroid(new PostalCode("Y1A1A1")), FsaCentroids.getCentroid(new PostalCode("Y0B1B1")), 0);
+    }
+
+    //Testing the k nearest locations are the same as with a sort of all the distances
+    @Test
+    public void nearestLocations() {
+        Random random = new Random(20);
+        int size = 5000;
+        List<String> ids = new ArrayList<>();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            ids.add("chef" + i);
+            latitudes[i] = 42 + random.nextDouble() * 20;
+            longitudes[i] = -140 + random.nextDouble() * 85;
+        }
+        LocationIndex index = new LocationIndex(ids, latitudes, longitudes);
+        assertEquals(size, index.size());
+        for (int query = 0; query < 50; query++) {
+            final double latitude = 42 + random.nextDouble() * 20;
+            final double longitude = -140 + random.nextDouble() * 85;
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (first, second) -> Double.compare(FsaCentroids.haversine(latitude, longitude, latitudes[first], longitudes[first]),
+                    FsaCentroids.haversine(latitude, longitude, latitudes[second], longitudes[second])));
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 10; i++) expected.add("chef" + order[i]);
+            assertEquals(expected, index.getNearest(latitude, longitude, 10));
+        }
+    }
+
+    //Testing an empty index and k larger than the number of locations
+    @Test
+    public void fewLocations() {
+        assertEquals(Collections.emptyList(), new LocationIndex(new ArrayList<String>(), new double[0], new double[0]).getNearest(45, -75, 5));
+        LocationIndex index = new LocationIndex(Arrays.asList("ottawa", "toronto", "montreal"), new double[] {45.42, 43.65, 45.50}, new double[] {-75.70, -79.38, -73.57});
+        assertEquals(Arrays.asList("ottawa", "montreal", "toronto"), index.getNearest(45.3, -75.9, 5));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.mealer_project.utils.PostalCodes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Throughput harness sorting chef postal codes by closeness to a client
+ * Compares the previous comparator (replaceAll and two PostalCode objects with HashMap lookups per comparison, not
+ * transitive so it is sorted with a plain merge sort), the total order comparator on packed postal codes sorted with
+ * TimSort, and distance keys computed once per postal code then sorted as primitives
+ * Run main() from the IDE, results are printed
+ */
+public class PostalCodeBenchmark {
+
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int RUNS = 7;
+    private static final String ORIGIN = "K1N 6N5";
+    private static final String DISTRICTS = "ABCEGHJKLMNPRSTVXY";
+    private static final String LETTERS = "ABCEGHJKLMNPRSTVWXYZ";
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            List<String> postalCodes = generate(size, 42);
+            checkSameOrder(postalCodes);
+            // warm up
+            for (int run = 0; run < 2; run++) {
+                sortLegacy(postalCodes);
+                sortComparator(postalCodes);
+                sortDistanceKeys(postalCodes);
+            }
+            long legacy = Long.MAX_VALUE;
+            long comparator = Long.MAX_VALUE;
+            long distanceKeys = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                sortLegacy(postalCodes);
+                legacy = Math.min(legacy, System.nanoTime() - start);
+                start = System.nanoTime();
+                sortComparator(postalCodes);
+                comparator = Math.min(comparator, System.nanoTime() - start);
+                start = System.nanoTime();
+                sortDistanceKeys(postalCodes);
+                distanceKeys = Math.min(distanceKeys, System.nanoTime() - start);
+            }
+            System.out.println(String.format(Locale.US, "%,d chefs: previous %.2f ms | total order comparator %.2f ms | distance keys %.2f ms",
+                    size, legacy / 1e6, comparator / 1e6, distanceKeys / 1e6));
+        }
+    }
+
+    /**
+     * Generate postal codes, written like users enter them (lower case, with or without the space)
+     */
+    private static List<String> generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<String> postalCodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String fsa = "" + DISTRICTS.charAt(random.nextInt(DISTRICTS.length())) + random.nextInt(10) + LETTERS.charAt(random.nextInt(LETTERS.length()));
+            String ldu = "" + random.nextInt(10) + LETTERS.charAt(random.nextInt(LETTERS.length())) + random.nextInt(10);
+            String postalCode = i % 2 == 0 ? fsa + " " + ldu : fsa + ldu;
+            postalCodes.add(i % 3 == 0 ? postalCode.toLowerCase(Locale.US) : postalCode);
+        }
+        return postalCodes;
+    }
+
+    private static List<String> sortLegacy(List<String> postalCodes) {
+        List<String> sorted = new ArrayList<>(postalCodes);
+        final LegacyPostalCode origin = new LegacyPostalCode(ORIGIN);
+        // the previous comparison is not transitive, TimSort can reject it
+        mergeSort(sorted, (first, second) -> compareLegacy(origin, first, second));
+        return sorted;
+    }
+
+    private static List<String> sortComparator(List<String> postalCodes) {
+        List<String> sorted = new ArrayList<>(postalCodes);
+        Collections.sort(sorted, new PostalCodeComparator(ORIGIN));
+        return sorted;
+    }
+
+    private static List<String> sortDistanceKeys(List<String> postalCodes) {
+        int origin = PostalCode.encode(ORIGIN);
+        // distance key in the high bits, index of the postal code in the low bits
+        long[] keys = new long[postalCodes.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (PostalCodeComparator.getDistanceKey(origin, PostalCode.encode(postalCodes.get(i))) << 32) | i;
+        }
+        Arrays.sort(keys);
+        List<String> sorted = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            sorted.add(postalCodes.get((int) key));
+        }
+        return sorted;
+    }
+
+    /**
+     * Check the comparator and the distance keys order postal codes the same way
+     */
+    private static void checkSameOrder(List<String> postalCodes) {
+        PostalCodeComparator comparator = new PostalCodeComparator(ORIGIN);
+        List<String> sortedByComparator = sortComparator(postalCodes);
+        List<String> sortedByKeys = sortDistanceKeys(postalCodes);
+        for (int i = 0; i < postalCodes.size(); i++) {
+            // postal codes at the same distance can be in a different order
+            if (comparator.getDistanceKey(sortedByComparator.get(i)) != comparator.getDistanceKey(sortedByKeys.get(i))) {
+                throw new IllegalStateException("Orders differ at " + i + ": " + sortedByComparator.get(i) + ", " + sortedByKeys.get(i));
+            }
+        }
+    }
+
+    /**
+     * Top-down merge sort, which unlike TimSort never checks the comparator is consistent
+     */
+    private static <T> void mergeSort(List<T> list, Comparator<T> comparator) {
+        if (list.size() < 2) return;
+        int middle = list.size() / 2;
+        List<T> left = new ArrayList<>(list.subList(0, middle));
+        List<T> right = new ArrayList<>(list.subList(middle, list.size()));
+        mergeSort(left, comparator);
+        mergeSort(right, comparator);
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < list.size(); k++) {
+            list.set(k, j == right.size() || (i < left.size() && comparator.compare(left.get(i), right.get(j)) <= 0) ? left.get(i++) : right.get(j++));
+        }
+    }
+
+    /**
+     * Copy of the previous comparison, character by character from the postal district
+     * A character as close as the origin's in both postal codes returns -1, so compare(a, b) and compare(b, a) can
+     * both be -1
+     */
+    private static int compareLegacy(LegacyPostalCode origin, String firstStr, String secondStr) {
+        LegacyPostalCode first = new LegacyPostalCode(firstStr.replaceAll("\\s+", ""));
+        LegacyPostalCode second = new LegacyPostalCode(secondStr.replaceAll("\\s+", ""));
+        if (Arrays.equals(first.ranks, second.ranks)) {
+            return 0;
+        }
+        for (int character = 0; character < 6; character++) {
+            int firstDistance = Math.abs(origin.ranks[character] - first.ranks[character]);
+            int secondDistance = Math.abs(origin.ranks[character] - second.ranks[character]);
+            if (firstDistance == 0 && secondDistance == 0) continue;
+            return firstDistance <= secondDistance ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Previous PostalCode parsing: upper case copy, Integer.parseInt for digits and HashMap lookups for letters
+     */
+    private static class LegacyPostalCode {
+        static final Map<Character, Integer> DISTRICT_RANKS = new HashMap<>();
+        static final Map<Character, Integer> LETTER_RANKS = new HashMap<>();
+        static {
+            for (int i = 0; i < DISTRICTS.length(); i++) DISTRICT_RANKS.put(DISTRICTS.charAt(i), i + 1);
+            for (int i = 0; i < LETTERS.length(); i++) LETTER_RANKS.put(LETTERS.charAt(i), i + 1);
+        }
+
+        final int[] ranks = new int[6];
+
+        LegacyPostalCode(String postalCode) {
+            postalCode = postalCode.replaceAll("\\s+", "").toUpperCase(Locale.US);
+            for (int i = 0; i < 6; i++) {
+                char character = postalCode.charAt(i);
+                if (i % 2 == 1) {
+                    ranks[i] = Integer.parseInt(String.valueOf(character));
+                } else {
+                    ranks[i] = (i == 0 ? DISTRICT_RANKS : LETTER_RANKS).get(character);
+                }
+            }
+        }
+    }
+}
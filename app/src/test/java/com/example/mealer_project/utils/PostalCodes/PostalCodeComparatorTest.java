@@ -0,0 +1,97 @@
+package com.example.mealer_project.utils.PostalCodes;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class PostalCodeComparatorTest {
+
+    private static final String DISTRICTS = "ABCEGHJKLMNPRSTVXY";
+    private static final String LETTERS = "ABCEGHJKLMNPRSTVWXYZ";
+    // random postal codes checked by each property, generated with a fixed seed so failures can be reproduced
+    private static final int SAMPLES = 2000;
+
+    //Testing postal codes closer to the origin come first, from the postal district to the LDU last digit
+    @Test
+    public void closerPostalCodesFirst() {
+        PostalCodeComparator comparator = new PostalCodeComparator("K1N 6N5");
+        assertEquals(-1, comparator.compare("K1N6N6", "K1N6N3"));
+        assertEquals(-1, comparator.compare("K1N6N3", "K1N6P5"));
+        assertEquals(-1, comparator.compare("K2A1A1", "L1N6N5"));
+        assertEquals(1, comparator.compare("M1N6N5", "L1N6N5"));
+        assertEquals(0, comparator.compare("k1n 6n5", "K1N6N5"));
+    }
+
+    //Testing postal codes as close as each other are compared on the next character, instead of both being closer
+    @Test
+    public void sameDistanceComparesNextCharacter() {
+        PostalCodeComparator comparator = new PostalCodeComparator("K1N6N5");
+        // J and L are both one district away from K, so the LDU last digit decides
+        assertEquals(-1, comparator.compare("L1N6N5", "J1N6N4"));
+        assertEquals(1, comparator.compare("J1N6N4", "L1N6N5"));
+        // same distance for every character, ordered by packed code
+        assertEquals(-comparator.compare("J1N6N5", "L1N6N5"), comparator.compare("L1N6N5", "J1N6N5"));
+        assertNotEquals(0, comparator.compare("J1N6N5", "L1N6N5"));
+    }
+
+    //Testing compare(a, b) is the opposite of compare(b, a) for random postal codes
+    @Test
+    public void antisymmetric() {
+        Random random = new Random(19);
+        List<String> postalCodes = generate(random, SAMPLES);
+        for (String origin : generate(random, 5)) {
+            PostalCodeComparator comparator = new PostalCodeComparator(origin);
+            for (int i = 0; i < SAMPLES; i++) {
+                String first = postalCodes.get(i);
+                // one pair in ten shares the postal district to compare the following characters
+                String second = i % 10 == 0 ? first.substring(0, 1) + postalCodes.get((i + 1) % SAMPLES).substring(1) : postalCodes.get(random.nextInt(SAMPLES));
+                assertEquals(first + " " + second, -comparator.compare(first, second), comparator.compare(second, first));
+                assertEquals(first.equals(second), comparator.compare(first, second) == 0);
+            }
+        }
+    }
+
+    //Testing compare(a, b) <= 0 and compare(b, c) <= 0 imply compare(a, c) <= 0 for random postal codes
+    @Test
+    public void transitive() {
+        Random random = new Random(42);
+        // few districts so that many triples share characters with each other and with the origin
+        List<String> postalCodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            postalCodes.add("" + "JKL".charAt(random.nextInt(3)) + random.nextInt(3) + "MNP".charAt(random.nextInt(3)) + "6N" + (4 + random.nextInt(3)));
+        }
+        PostalCodeComparator comparator = new PostalCodeComparator("K1N6N5");
+        for (int i = 0; i < SAMPLES * 10; i++) {
+            String first = postalCodes.get(random.nextInt(postalCodes.size()));
+            String second = postalCodes.get(random.nextInt(postalCodes.size()));
+            String third = postalCodes.get(random.nextInt(postalCodes.size()));
+            if (comparator.compare(first, second) <= 0 && comparator.compare(second, third) <= 0) {
+                assertTrue(first + " " + second + " " + third, comparator.compare(first, third) <= 0);
+            }
+        }
+    }
+
+    //Testing sorting many postal codes with TimSort follows the distance keys, without violating the Comparator contract
+    @Test
+    public void sortsByDistanceKey() {
+        List<String> postalCodes = generate(new Random(7), 100_000);
+        PostalCodeComparator comparator = new PostalCodeComparator("H3Z 2Y7");
+        Collections.sort(postalCodes, comparator);
+        for (int i = 1; i < postalCodes.size(); i++) {
+            assertTrue(comparator.getDistanceKey(postalCodes.get(i - 1)) <= comparator.getDistanceKey(postalCodes.get(i)));
+        }
+    }
+
+    private static List<String> generate(Random random, int size) {
+        List<String> postalCodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            postalCodes.add("" + DISTRICTS.charAt(random.nextInt(DISTRICTS.length())) + random.nextInt(10) + LETTERS.charAt(random.nextInt(LETTERS.length()))
+                    + random.nextInt(10) + LETTERS.charAt(random.nextInt(LETTERS.length())) + random.nextInt(10));
+        }
+        return postalCodes;
+    }
+}
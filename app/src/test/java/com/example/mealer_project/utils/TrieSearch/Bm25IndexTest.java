@@ -0,0 +1,72 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class Bm25IndexTest {
+
+    private static final String[] QUERIES = {"curry", "cur", "rice", "curry rice"};
+
+    //Testing adding the same row again doesn't change the scores of any row
+    @Test
+    public void reAddSameRow() {
+        Bm25Index index = newIndex();
+        double[][] scores = getScores(index);
+        for (int i = 0; i < 3; i++) {
+            index.addData("a", fields("curry", "rice curry"));
+        }
+        assertScores(scores, index);
+        // again in a forked version, the previous version keeps its scores
+        Bm25Index forked = index.fork();
+        forked.addData("b", fields("curry", "noodles"));
+        assertScores(scores, forked);
+        assertScores(scores, index);
+    }
+
+    //Testing replacing a row scores like an index which only ever had the new row
+    @Test
+    public void replaceRow() {
+        Bm25Index index = newIndex().fork();
+        index.addData("b", fields("soup", "rice"));
+        Bm25Index expected = new Bm25Index(2, 1);
+        expected.addData("a", fields("curry", "rice curry"));
+        expected.addData("b", fields("soup", "rice"));
+        expected.addData("c", fields("pasta", "tomato"));
+        assertScores(getScores(expected), index);
+        assertEquals(0, index.getScore(SearchQuery.parse("curry"), "b"), 0);
+    }
+
+    private static Bm25Index newIndex() {
+        Bm25Index index = new Bm25Index(2, 1);
+        index.addData("a", fields("curry", "rice curry"));
+        index.addData("b", fields("curry", "noodles"));
+        index.addData("c", fields("pasta", "tomato"));
+        return index;
+    }
+
+    private static int[][] fields(String name, String description) {
+        TermDictionary dictionary = TermDictionary.getInstance();
+        return new int[][] {
+                dictionary.getOrAddIds(Arrays.asList(name.split(" "))),
+                dictionary.getOrAddIds(Arrays.asList(description.split(" ")))
+        };
+    }
+
+    private static double[][] getScores(Bm25Index index) {
+        double[][] scores = new double[QUERIES.length][];
+        for (int i = 0; i < QUERIES.length; i++) {
+            SearchQuery query = SearchQuery.parse(QUERIES[i]);
+            scores[i] = new double[] {index.getScore(query, "a"), index.getScore(query, "b"), index.getScore(query, "c")};
+        }
+        return scores;
+    }
+
+    private static void assertScores(double[][] expected, Bm25Index index) {
+        double[][] scores = getScores(index);
+        for (int i = 0; i < QUERIES.length; i++) {
+            assertArrayEquals(QUERIES[i], expected[i], scores[i], 1e-9);
+        }
+    }
+}
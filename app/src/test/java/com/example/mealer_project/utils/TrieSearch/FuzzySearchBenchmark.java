@@ -0,0 +1,107 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Latency harness for fuzzy search (PrefixIndex.fMatch) against vocabulary size
+ * Compares the Levenshtein automaton walk of the Trie with a brute force scan computing the
+ * edit distance of the query with every word of the vocabulary
+ * Run main() from the IDE, numbers are approximate
+ */
+public class FuzzySearchBenchmark {
+
+    private static final int QUERIES = 500;
+    private static final int WARMUP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int[] vocabularySizes = {1000, 10000, 100000};
+        System.out.println(String.format(Locale.US, "%10s %9s %16s %16s", "vocabulary", "distance", "trie walk (us)", "brute force (us)"));
+        for (int vocabularySize : vocabularySizes) {
+            SyntheticCatalog catalog = new SyntheticCatalog(vocabularySize, 7);
+            List<String> vocabulary = catalog.getVocabulary();
+            PrefixIndex prefixIndex = new PrefixIndex();
+            for (int i = 0; i < vocabulary.size(); i++) {
+                prefixIndex.addData(String.valueOf(i), Collections.singletonList(vocabulary.get(i)));
+            }
+            List<String> queries = misspell(vocabulary, new Random(11));
+
+            for (int distance = 1; distance <= PrefixIndex.MAX_EDIT_DISTANCE; distance++) {
+                double trie = 0;
+                double bruteForce = 0;
+                for (int round = 0; round <= WARMUP_ROUNDS; round++) {
+                    trie = timeTrie(prefixIndex, queries, distance);
+                    bruteForce = timeBruteForce(vocabulary, queries, distance);
+                }
+                System.out.println(String.format(Locale.US, "%10d %9d %16.1f %16.1f", vocabularySize, distance, trie, bruteForce));
+            }
+        }
+    }
+
+    /**
+     * Create queries by applying one random edit to words of the vocabulary
+     */
+    private static List<String> misspell(List<String> vocabulary, Random random) {
+        List<String> queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            StringBuilder word = new StringBuilder(vocabulary.get(random.nextInt(vocabulary.size())));
+            int position = random.nextInt(word.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    word.deleteCharAt(position);
+                    break;
+                case 1:
+                    word.insert(position, (char) ('a' + random.nextInt(26)));
+                    break;
+                default:
+                    word.setCharAt(position, (char) ('a' + random.nextInt(26)));
+            }
+            queries.add(word.toString());
+        }
+        return queries;
+    }
+
+    private static double timeTrie(PrefixIndex prefixIndex, List<String> queries, int distance) {
+        long matches = 0;
+        long start = System.nanoTime();
+        for (String query : queries) {
+            matches += prefixIndex.fMatch(query, distance, false).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (matches < 0) System.out.print("");
+        return elapsed / 1000.0 / queries.size();
+    }
+
+    private static double timeBruteForce(List<String> vocabulary, List<String> queries, int distance) {
+        long matches = 0;
+        long start = System.nanoTime();
+        for (String query : queries) {
+            for (String word : vocabulary) {
+                if (editDistance(query, word) <= distance) matches++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (matches < 0) System.out.print("");
+        return elapsed / 1000.0 / queries.size();
+    }
+
+    static int editDistance(String first, String second) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) previous[j] = j;
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[second.length()];
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates deterministic keyword data resembling meal keywords, used by the search benchmarks
+ */
+public class SyntheticCatalog {
+
+    // common words found in meal names, cuisines, ingredients and descriptions
+    static final String[] FOOD_WORDS = {
+            "chicken", "curry", "rice", "biryani", "shawarma", "pizza", "pasta", "tomato", "cheese", "burger",
+            "vegan", "halal", "spicy", "masala", "tikka", "paneer", "lentil", "soup", "salad", "noodle",
+            "ramen", "sushi", "teriyaki", "beef", "pork", "lamb", "falafel", "hummus", "garlic", "onion",
+            "pepper", "mushroom", "spinach", "potato", "poutine", "gravy", "maple", "salmon", "shrimp", "tofu",
+            "coconut", "mango", "chocolate", "vanilla", "cream", "butter", "bread", "naan", "tortilla", "taco",
+            "burrito", "quesadilla", "chili", "bean", "corn", "avocado", "lime", "lemon", "ginger", "basil",
+            "italian", "indian", "chinese", "greek", "mexican", "lebanese", "japanese", "thai", "french", "korean"
+    };
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final Random random;
+    private final List<String> vocabulary;
+
+    /**
+     * Create a catalog generator
+     * @param vocabularySize number of distinct keywords to draw from
+     * @param seed seed of the random generator, so runs are repeatable
+     */
+    public SyntheticCatalog(int vocabularySize, long seed) {
+        this.random = new Random(seed);
+        this.vocabulary = new ArrayList<>(vocabularySize);
+        for (int i = 0; i < vocabularySize; i++) {
+            if (i < FOOD_WORDS.length) {
+                vocabulary.add(FOOD_WORDS[i]);
+            } else {
+                // derive a new word from a food word so prefixes are shared like in real data
+                vocabulary.add(FOOD_WORDS[random.nextInt(FOOD_WORDS.length)] + randomWord(2 + random.nextInt(5)));
+            }
+        }
+    }
+
+    public List<String> getVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Generate keywords for one meal, frequent words are picked more often (skewed like real text)
+     * @param count number of keywords
+     * @return list of keywords
+     */
+    public List<String> nextKeywords(int count) {
+        List<String> keywords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble();
+            keywords.add(vocabulary.get((int) (r * r * vocabulary.size())));
+        }
+        return keywords;
+    }
+
+    /**
+     * Generate a random lower case word
+     * @param length length of the word
+     * @return random word
+     */
+    public String randomWord(int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+}
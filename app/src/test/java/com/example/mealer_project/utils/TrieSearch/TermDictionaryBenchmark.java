@@ -0,0 +1,66 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Heap footprint harness for the keywords stored by each meal
+ * Compares a List<String> per meal, where each meal has its own copies of the keyword strings (as returned
+ * by firebase), with an int[] of TermDictionary ids per meal plus the shared dictionary
+ * Run main() from the IDE, preferably with a fixed heap (ex: -Xmx2g), numbers are approximate
+ */
+public class TermDictionaryBenchmark {
+
+    private static final int KEYWORDS_PER_MEAL = 30;
+    private static final int VOCABULARY_SIZE = 5000;
+
+    public static void main(String[] args) {
+        int[] mealCounts = {1000, 10000, 100000};
+        System.out.println(String.format(Locale.US, "%8s %22s %22s", "meals", "List<String>", "int[] term ids"));
+        for (int meals : mealCounts) {
+            long keywords = (long) meals * KEYWORDS_PER_MEAL;
+            double strings = measure(meals, false) / (double) keywords;
+            double termIds = measure(meals, true) / (double) keywords;
+            System.out.println(String.format(Locale.US, "%8d %17.1f B/kw %17.1f B/kw", meals, strings, termIds));
+        }
+    }
+
+    /**
+     * Generate keywords of all meals and return the heap they retain
+     * @param meals number of meals
+     * @param useTermIds true to store term ids, false to store strings
+     * @return approximate retained bytes
+     */
+    private static long measure(int meals, boolean useTermIds) {
+        SyntheticCatalog catalog = new SyntheticCatalog(VOCABULARY_SIZE, 42);
+        long before = usedHeap();
+        TermDictionary dictionary = new TermDictionary();
+        List<Object> retained = new ArrayList<>(meals);
+        for (int i = 0; i < meals; i++) {
+            List<String> keywords = new ArrayList<>(KEYWORDS_PER_MEAL);
+            for (String keyword : catalog.nextKeywords(KEYWORDS_PER_MEAL)) {
+                // each meal document is decoded into new strings
+                keywords.add(new String(keyword.toCharArray()));
+            }
+            retained.add(useTermIds ? dictionary.getOrAddIds(keywords) : keywords);
+        }
+        long after = usedHeap();
+        // keep the data reachable until measured
+        if (retained.hashCode() == 42 || dictionary.size() == -1) System.out.print("");
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
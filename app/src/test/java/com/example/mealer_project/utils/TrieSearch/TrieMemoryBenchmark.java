@@ -0,0 +1,111 @@
+package com.example.mealer_project.utils.TrieSearch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Heap footprint harness for the search Tries
+ * Reports bytes per indexed keyword at 1k, 10k and 100k meals for:
+ *  - the previous TrieNode layout (HashMap<Character, TrieNode> children), one Trie per meal
+ *  - the compact TrieNode layout (sorted char[] labels, parallel children array), one Trie per meal
+ *  - the shared PrefixIndex
+ *  - the shared PrefixIndex with the trigram index used for infix search
+ * Run main() from the IDE, preferably with a fixed heap (ex: -Xmx2g), numbers are approximate
+ */
+public class TrieMemoryBenchmark {
+
+    // number of keywords generated per meal (name, cuisine, ingredients, description, chef)
+    private static final int KEYWORDS_PER_MEAL = 20;
+    private static final int VOCABULARY_SIZE = 5000;
+
+    public static void main(String[] args) {
+        int[] mealCounts = {1000, 10000, 100000};
+        System.out.println(String.format(Locale.US, "%8s %22s %22s %22s %22s", "meals", "HashMap TrieNode", "compact TrieNode", "PrefixIndex", "PrefixIndex + infix"));
+        for (int meals : mealCounts) {
+            List<List<String>> data = generate(meals);
+            long keywords = (long) meals * KEYWORDS_PER_MEAL;
+            double legacy = measure(data, 0) / (double) keywords;
+            double compact = measure(data, 1) / (double) keywords;
+            double prefix = measure(data, 2) / (double) keywords;
+            double infix = measure(data, 3) / (double) keywords;
+            System.out.println(String.format(Locale.US, "%8d %17.1f B/kw %17.1f B/kw %17.1f B/kw %17.1f B/kw", meals, legacy, compact, prefix, infix));
+        }
+    }
+
+    private static List<List<String>> generate(int meals) {
+        SyntheticCatalog catalog = new SyntheticCatalog(VOCABULARY_SIZE, 42);
+        List<List<String>> data = new ArrayList<>(meals);
+        for (int i = 0; i < meals; i++) {
+            data.add(catalog.nextKeywords(KEYWORDS_PER_MEAL));
+        }
+        return data;
+    }
+
+    /**
+     * Build one of the structures and return the heap it retains
+     * @param data keywords of each meal
+     * @param structure 0: HashMap Tries, 1: compact Tries, 2: PrefixIndex, 3: PrefixIndex with infix search
+     * @return approximate retained bytes
+     */
+    private static long measure(List<List<String>> data, int structure) {
+        long before = usedHeap();
+        Object retained;
+        if (structure == 0) {
+            Map<String, LegacyTrieNode> tries = new HashMap<>(data.size());
+            for (int i = 0; i < data.size(); i++) {
+                LegacyTrieNode trie = new LegacyTrieNode();
+                for (String word : data.get(i)) trie.insert(word);
+                tries.put(String.valueOf(i), trie);
+            }
+            retained = tries;
+        } else if (structure == 1) {
+            TriesSearch triesSearch = new TriesSearch(data.size());
+            for (int i = 0; i < data.size(); i++) triesSearch.addData(String.valueOf(i), data.get(i));
+            retained = triesSearch;
+        } else {
+            PrefixIndex prefixIndex = new PrefixIndex(structure == 3);
+            for (int i = 0; i < data.size(); i++) prefixIndex.addData(String.valueOf(i), data.get(i));
+            retained = prefixIndex;
+        }
+        long after = usedHeap();
+        // keep the structure reachable until measured
+        if (retained.hashCode() == 42) System.out.print("");
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Copy of the previous TrieNode layout, kept only as a baseline for this harness
+     */
+    private static class LegacyTrieNode {
+        final Map<Character, LegacyTrieNode> children = new HashMap<>();
+        boolean isCompleteWord;
+
+        void insert(String word) {
+            LegacyTrieNode currentNode = this;
+            word = word.toLowerCase(Locale.ROOT);
+            for (char c : word.toCharArray()) {
+                if (currentNode.children.get(c) == null) {
+                    currentNode.children.put(c, new LegacyTrieNode());
+                }
+                currentNode = currentNode.children.get(c);
+            }
+            currentNode.isCompleteWord = true;
+        }
+    }
+}
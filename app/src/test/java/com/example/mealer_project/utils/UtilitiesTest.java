@@ -0,0 +1,47 @@
+package com.example.mealer_project.utils;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class UtilitiesTest {
+
+    //Testing repeated values are kept once, in the order they first appear
+    @Test
+    public void distinctChunks() {
+        List<List<String>> chunks = Utilities.getDistinctChunks(Arrays.asList("a", "b", "a", "c", "b", "d", "e"), 2);
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Collections.singletonList("e")), chunks);
+        assertTrue(Utilities.getDistinctChunks(new ArrayList<String>(), 10).isEmpty());
+    }
+
+    //Testing the chefs of a catalog are read in one whereIn query per 10 chefs, instead of one read per chef
+    @Test
+    public void chefQueriesOfCatalog() {
+        // 230 offered meals of 23 chefs, meals of a chef are not next to each other
+        List<String> chefIdsOfMeals = new ArrayList<>();
+        for (int meal = 0; meal < 230; meal++) {
+            chefIdsOfMeals.add("chef" + meal % 23);
+        }
+        // with the collection group query and the Meals collection: 5 round trips instead of 1 + 2 * 23
+        List<List<String>> chunks = Utilities.getDistinctChunks(chefIdsOfMeals, 10);
+        assertEquals(3, chunks.size());
+        Set<String> chefIds = new HashSet<>();
+        for (List<String> chunk : chunks) {
+            assertTrue(chunk.size() <= 10);
+            chefIds.addAll(chunk);
+        }
+        assertEquals(23, chefIds.size());
+    }
+
+    //Testing a chunk size which is not positive is rejected
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidChunkSize() {
+        Utilities.getDistinctChunks(Arrays.asList("a"), 0);
+    }
+}